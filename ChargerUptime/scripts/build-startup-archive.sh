@@ -0,0 +1,23 @@
+#!/bin/sh
+# Compile the application into a jar and create an AppCDS archive of the
+# classes it loads, from a training run on the sample inputs. Run from the
+# electric-era-coding-challenge-charger-uptime directory. CDS only archives
+# classes loaded from jars, not from class directories.
+set -e
+
+OUT=ChargerUptime/bin
+JAR="$OUT/charger-uptime.jar"
+ARCHIVE="$OUT/charger-uptime.jsa"
+
+rm -rf "$OUT/classes" "$JAR" "$ARCHIVE"
+mkdir -p "$OUT/classes"
+javac -d "$OUT/classes" ChargerUptime/src/main/*.java ChargerUptime/src/bench/*.java
+jar --create --file "$JAR" --main-class main.App -C "$OUT/classes" .
+
+# A single JVM runs every sample input, so the archive covers all of them
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" bench.StartupBenchmark --train input_1.txt input_2.txt > /dev/null
+
+echo "Created $ARCHIVE. Run the application with"
+echo "  java -XX:SharedArchiveFile=$ARCHIVE -cp $JAR main.App relative/path/to/input/file"
+echo "and measure its startup with"
+echo "  java -cp $JAR bench.StartupBenchmark --archive=$ARCHIVE input_1.txt input_2.txt"
@@ -0,0 +1,121 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import main.CoverageBitmap;
+
+/**
+ * Benchmark of a fleet-level question, how long at least half of the
+ * stations were up at once over 30 days, answered from each station's
+ * <code>CoverageBitmap</code> at a resolution of a minute against a sweep
+ * over the ends of the stations' merged uptime intervals, which must be
+ * sorted together first. Prints the best time of each, the time to build the
+ * bitmaps once, and both answers, which differ by the rounding to slots.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.CoverageBitmapBenchmark [--runs=N]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class CoverageBitmapBenchmark {
+  public static final int DEFAULT_RUNS = 10;
+  public static final int WARMUP_RUNS = 5;
+  public static final long BASE_TIME = 1_700_000_000_000_000_000L;
+  public static final long NANOS_PER_MINUTE = 60_000_000_000L;
+  public static final long DAYS = 30;
+
+  /**
+   * Create a station's merged uptime intervals over the days, each up to
+   * the given number of minutes long, with gaps of up to as long.
+   */
+  static long[] createIntervals(Random random, int maxMinutes) {
+    long end = BASE_TIME + DAYS * 24 * 60 * NANOS_PER_MINUTE;
+    long[] output = new long[16];
+    int length = 0;
+    for (long time = BASE_TIME + random.nextInt(maxMinutes) * NANOS_PER_MINUTE; time < end;) {
+      if (length == output.length)
+        output = Arrays.copyOf(output, length << 1);
+      output[length++] = time;
+      time += 1 + (long) (random.nextDouble() * maxMinutes * NANOS_PER_MINUTE);
+      output[length++] = Math.min(time, end);
+      time += 1 + (long) (random.nextDouble() * maxMinutes * NANOS_PER_MINUTE);
+    }
+    return Arrays.copyOf(output, length);
+  }
+
+  /** @return the time at least <code>n</code> stations were up, sweeping over the interval ends */
+  static long sweep(List<long[]> stations, int n) {
+    int eventCount = 0;
+    for (long[] intervals : stations)
+      eventCount += intervals.length;
+    long[] events = new long[eventCount]; // the time, then 1 for a start or 0 for an end
+    eventCount = 0;
+    for (long[] intervals : stations) {
+      for (int i = 0; i < intervals.length; i++)
+        events[eventCount++] = (intervals[i] << 1) | (i & 1 ^ 1);
+    }
+    Arrays.sort(events); // the times are below 2^62
+
+    long total = 0, last = 0;
+    int up = 0;
+    for (long event : events) {
+      long time = event >>> 1;
+      if (up >= n)
+        total += time - last;
+      last = time;
+      up += (event & 1) != 0 ? 1 : -1;
+    }
+    return total;
+  }
+
+  public static void main(String[] args) {
+    int runs = DEFAULT_RUNS;
+    for (String arg : args) {
+      if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+    }
+
+    Random random = new Random(47);
+    for (int stationCount : new int[] { 100, 1000 }) {
+      for (int maxMinutes : new int[] { 10, 60, 240 }) {
+        List<long[]> stations = new ArrayList<>();
+        for (int i = 0; i < stationCount; i++)
+          stations.add(createIntervals(random, maxMinutes));
+        int n = stationCount / 2;
+
+        long bestBuild = Long.MAX_VALUE, bestBitmap = Long.MAX_VALUE, bestSweep = Long.MAX_VALUE;
+        long bitmapTime = 0, sweepTime = 0;
+        for (int run = -WARMUP_RUNS; run < runs; run++) {
+          long start = System.nanoTime();
+          List<CoverageBitmap> bitmaps = new ArrayList<>(stationCount);
+          for (long[] intervals : stations)
+            bitmaps.add(CoverageBitmap.fromIntervals(intervals, NANOS_PER_MINUTE));
+          long built = System.nanoTime();
+          bitmapTime = CoverageBitmap.atLeast(bitmaps, n, NANOS_PER_MINUTE).getCoveredTime();
+          long queried = System.nanoTime();
+          sweepTime = sweep(stations, n);
+          long swept = System.nanoTime();
+          if (run >= 0) {
+            bestBuild = Math.min(bestBuild, built - start);
+            bestBitmap = Math.min(bestBitmap, queried - built);
+            bestSweep = Math.min(bestSweep, swept - queried);
+          }
+        }
+        System.out.println(String.format(
+            "%5d stations, up to %3d min: bitmaps %8.2f ms (built in %8.2f ms), sweep %8.2f ms;"
+                + " %6.2f%% vs %6.2f%% of the time",
+            stationCount, maxMinutes, bestBitmap / 1e6, bestBuild / 1e6, bestSweep / 1e6,
+            100.0 * bitmapTime / (DAYS * 24 * 60 * NANOS_PER_MINUTE),
+            100.0 * sweepTime / (DAYS * 24 * 60 * NANOS_PER_MINUTE)));
+      }
+    }
+  }
+}
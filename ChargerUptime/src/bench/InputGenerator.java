@@ -0,0 +1,225 @@
+package bench;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Deterministic generator of valid input files at fleet scale, for load
+ * tests. The same options and seed always give the same file. Reports are
+ * generated in rounds, one report per charger per round, so that the file is
+ * roughly in time order as a live feed would be, and only a few numbers per
+ * charger are kept in memory: files of tens of GB are written in a single
+ * streaming pass.
+ * <br>
+ * </br>
+ * Options, all optional:
+ * <ul>
+ * <li><code>--stations=N</code>: the number of stations, 1000 by default</li>
+ * <li><code>--chargers=N</code>: the number of chargers per station, 4 by
+ * default</li>
+ * <li><code>--reports=N</code>: the number of reports per charger, 100 by
+ * default</li>
+ * <li><code>--up=R</code>: the fraction of uptime reports, 0.9 by
+ * default</li>
+ * <li><code>--overlap=R</code>: the fraction of reports that start before
+ * the previous report of the same charger ends, 0.1 by default</li>
+ * <li><code>--sortedness=R</code>: the fraction of reports written in the
+ * order they were generated, 1 by default; the others are held back in a
+ * buffer of <code>SHUFFLE_BUFFER_LINES</code> lines and written in random
+ * order</li>
+ * <li><code>--duplicates=R</code>: the fraction of reports that are written
+ * twice, 0 by default</li>
+ * <li><code>--ids=sequential|random|unsigned</code>: station and charger IDs
+ * counting up from 0, scattered below 2^31, or scattered over all unsigned
+ * 32-bit integers; sequential by default</li>
+ * <li><code>--seed=N</code>: the seed of the random numbers, 45 by
+ * default</li>
+ * </ul>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.InputGenerator [options] output
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class InputGenerator {
+  public static final long BASE_TIME = 1_700_000_000_000_000_000L;
+  public static final long MAX_REPORT_NANOS = 3_600_000_000_000L; // an hour
+  public static final int SHUFFLE_BUFFER_LINES = 4096;
+  static final int OUTPUT_BUFFER_CHARS = 1 << 16;
+
+  /** Distributions of station and charger IDs. */
+  enum IdDistribution {
+    SEQUENTIAL, RANDOM, UNSIGNED
+  }
+
+  int stationCount = 1000;
+  int chargersPerStation = 4;
+  int reportsPerCharger = 100;
+  double upRatio = 0.9;
+  double overlapRatio = 0.1;
+  double sortedness = 1;
+  double duplicateRate = 0;
+  IdDistribution ids = IdDistribution.SEQUENTIAL;
+  long seed = 45;
+
+  long lineCount;
+  long byteCount;
+
+  /**
+   * Map an index to its ID. The scattered distributions multiply by an odd
+   * constant, which is a bijection modulo a power of 2, so IDs never repeat.
+   */
+  long id(long index, long salt) {
+    switch (ids) {
+    case RANDOM:
+      return (index * 0x9E3779B1L + salt) & 0x7FFFFFFFL;
+    case UNSIGNED:
+      return (index * 0x9E3779B1L + salt) & 0xFFFFFFFFL;
+    default:
+      return index;
+    }
+  }
+
+  /** Append the buffered text to the output once it is large enough. */
+  private void flush(StringBuilder text, OutputStream output, boolean force) throws IOException {
+    if (!force && text.length() < OUTPUT_BUFFER_CHARS)
+      return;
+    byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+    output.write(bytes);
+    byteCount += bytes.length;
+    text.setLength(0);
+  }
+
+  /**
+   * Write the input file.
+   *
+   * @param output the stream to write to
+   */
+  public void generate(OutputStream output) throws IOException {
+    Random random = new Random(seed);
+    long stationSalt = random.nextLong(), chargerSalt = random.nextLong();
+    StringBuilder text = new StringBuilder(OUTPUT_BUFFER_CHARS + 256);
+
+    text.append("[Stations]\n");
+    for (int station = 0; station < stationCount; station++) {
+      text.append(id(station, stationSalt));
+      for (int charger = 0; charger < chargersPerStation; charger++)
+        text.append(' ').append(id((long) station * chargersPerStation + charger, chargerSalt));
+      text.append('\n');
+      flush(text, output, false);
+    }
+    text.append("\n[Charger Availability Reports]\n");
+    lineCount = stationCount + 3;
+
+    // Each charger's previous report, to continue from or overlap
+    int chargerCount = stationCount * chargersPerStation;
+    long[] lastStarts = new long[chargerCount], lastEnds = new long[chargerCount];
+    for (int charger = 0; charger < chargerCount; charger++)
+      lastEnds[charger] = BASE_TIME + (long) (random.nextDouble() * MAX_REPORT_NANOS);
+    String[] heldBack = new String[SHUFFLE_BUFFER_LINES];
+    int heldBackCount = 0;
+
+    for (int round = 0; round < reportsPerCharger; round++) {
+      for (int charger = 0; charger < chargerCount; charger++) {
+        long start;
+        if (round > 0 && random.nextDouble() < overlapRatio)
+          start = lastEnds[charger] - (long) (random.nextDouble() * (lastEnds[charger] - lastStarts[charger]));
+        else
+          start = lastEnds[charger] + (long) (random.nextDouble() * MAX_REPORT_NANOS);
+        long end = start + 1 + (long) (random.nextDouble() * MAX_REPORT_NANOS);
+        lastStarts[charger] = start;
+        lastEnds[charger] = Math.max(end, lastEnds[charger]);
+        String line = id(charger, chargerSalt) + " " + start + " " + end
+            + (random.nextDouble() < upRatio ? " true\n" : " false\n");
+
+        int copies = random.nextDouble() < duplicateRate ? 2 : 1;
+        for (int copy = 0; copy < copies; copy++) {
+          if (random.nextDouble() < sortedness)
+            text.append(line);
+          else if (heldBackCount < SHUFFLE_BUFFER_LINES)
+            heldBack[heldBackCount++] = line;
+          else {
+            // Write a random held back line in this one's place
+            int index = random.nextInt(SHUFFLE_BUFFER_LINES);
+            text.append(heldBack[index]);
+            heldBack[index] = line;
+          }
+          lineCount++;
+          flush(text, output, false);
+        }
+      }
+    }
+    for (int i = 0; i < heldBackCount; i++) {
+      text.append(heldBack[i]);
+      flush(text, output, false);
+    }
+    flush(text, output, true);
+    output.flush();
+  }
+
+  private static double parseRatio(String arg) {
+    double value = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+    if (!(value >= 0 && value <= 1))
+      throw new IllegalArgumentException("Option " + arg + " requires a ratio from 0 to 1.");
+    return value;
+  }
+
+  private static int parseCount(String arg) {
+    int value = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+    if (value <= 0)
+      throw new IllegalArgumentException("Option " + arg + " requires a positive integer.");
+    return value;
+  }
+
+  public static void main(String[] args) throws IOException {
+    InputGenerator generator = new InputGenerator();
+    String outputPath = null;
+    for (String arg : args) {
+      if (arg.startsWith("--stations="))
+        generator.stationCount = parseCount(arg);
+      else if (arg.startsWith("--chargers="))
+        generator.chargersPerStation = parseCount(arg);
+      else if (arg.startsWith("--reports="))
+        generator.reportsPerCharger = parseCount(arg);
+      else if (arg.startsWith("--up="))
+        generator.upRatio = parseRatio(arg);
+      else if (arg.startsWith("--overlap="))
+        generator.overlapRatio = parseRatio(arg);
+      else if (arg.startsWith("--sortedness="))
+        generator.sortedness = parseRatio(arg);
+      else if (arg.startsWith("--duplicates="))
+        generator.duplicateRate = parseRatio(arg);
+      else if (arg.startsWith("--ids="))
+        generator.ids = IdDistribution.valueOf(arg.substring("--ids=".length()).toUpperCase());
+      else if (arg.startsWith("--seed="))
+        generator.seed = Long.parseLong(arg.substring("--seed=".length()));
+      else if (arg.startsWith("--"))
+        throw new IllegalArgumentException("Unknown option " + arg + ".");
+      else
+        outputPath = arg;
+    }
+    if (outputPath == null) {
+      System.err.println("Usage: InputGenerator [--stations=N] [--chargers=N] [--reports=N] [--up=R] [--overlap=R]"
+          + " [--sortedness=R] [--duplicates=R] [--ids=sequential|random|unsigned] [--seed=N] output");
+      return;
+    }
+    if ((long) generator.stationCount * generator.chargersPerStation > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Too many chargers.");
+
+    long start = System.nanoTime();
+    try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(Paths.get(outputPath)), 1 << 20)) {
+      generator.generate(output);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println(String.format("Wrote %d lines, %.1f MiB, to %s in %.1f s", generator.lineCount,
+        generator.byteCount / 1048576.0, outputPath, seconds));
+  }
+}
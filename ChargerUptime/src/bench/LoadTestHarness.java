@@ -0,0 +1,197 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import main.App;
+
+/**
+ * Load-test harness that runs <code>App</code> end to end on an input file,
+ * such as one written by <code>InputGenerator</code>, each time in a fresh
+ * JVM, and records its throughput and peak resident set size. The peak RSS
+ * is the <code>VmHWM</code> high-water mark of <code>/proc/PID/status</code>,
+ * polled while the JVM runs, so it is only available on Linux and may miss
+ * growth in the last poll interval. The output of <code>App</code> is counted
+ * and discarded.
+ * <br>
+ * </br>
+ * Options, which come before the input file; everything after it is passed
+ * to <code>App</code>:
+ * <ul>
+ * <li><code>--runs=N</code>: the number of runs, 3 by default</li>
+ * <li><code>--java-option=OPTION</code>: an option for the JVM running
+ * <code>App</code>, such as <code>-Xmx4g</code>, which may be repeated</li>
+ * <li><code>--csv=PATH</code>: also append a line per run to the CSV file at
+ * PATH, writing a header first if the file is new</li>
+ * </ul>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.LoadTestHarness [options] input [app-option...]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class LoadTestHarness {
+  public static final int DEFAULT_RUNS = 3;
+  public static final int POLL_MILLIS = 10;
+  static final String CSV_HEADER = "time,input,app_options,bytes,lines,seconds,mib_per_second,lines_per_second,"
+      + "peak_rss_mib,output_bytes,exit_code";
+
+  /** The results of one run. */
+  static class Run {
+    long nanos;
+    long peakRssKib = -1; // or -1 if unknown
+    long outputBytes;
+    int exitCode;
+  }
+
+  /** @return the number of lines in the file, reading it once */
+  static long countLines(Path path) throws IOException {
+    long lines = 0;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+      byte last = '\n';
+      while (channel.read(buffer) > 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          last = buffer.get();
+          if (last == '\n')
+            lines++;
+        }
+        buffer.clear();
+      }
+      if (last != '\n')
+        lines++; // the last line has no newline
+    }
+    return lines;
+  }
+
+  /** @return the process's peak RSS so far in KiB, or -1 if unknown */
+  static long readPeakRssKib(long pid) {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"),
+          StandardCharsets.US_ASCII)) {
+        if (line.startsWith("VmHWM:"))
+          return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+      }
+    } catch (IOException | NumberFormatException e) {
+      // Not Linux, or the process has exited
+    }
+    return -1;
+  }
+
+  /** Run <code>App</code> once in a new JVM. */
+  static Run runOnce(List<String> command) throws IOException, InterruptedException {
+    Run run = new Run();
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+    // Count the output on another thread, so that App never blocks on it
+    long[] outputBytes = new long[1];
+    Thread reader = new Thread(() -> {
+      byte[] buffer = new byte[1 << 16];
+      try (InputStream output = process.getInputStream()) {
+        for (int read = output.read(buffer); read >= 0; read = output.read(buffer))
+          outputBytes[0] += read;
+      } catch (IOException e) {
+        // The process is gone
+      }
+    });
+    reader.start();
+
+    while (process.isAlive()) {
+      long peakRssKib = readPeakRssKib(process.pid());
+      if (peakRssKib > run.peakRssKib)
+        run.peakRssKib = peakRssKib;
+      Thread.sleep(POLL_MILLIS);
+    }
+    run.exitCode = process.waitFor();
+    run.nanos = System.nanoTime() - start;
+    reader.join();
+    run.outputBytes = outputBytes[0];
+    return run;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int runs = DEFAULT_RUNS;
+    String csvPath = null;
+    List<String> javaOptions = new ArrayList<>();
+    String inputPath = null;
+    List<String> appOptions = new ArrayList<>();
+    for (String arg : args) {
+      if (inputPath != null)
+        appOptions.add(arg);
+      else if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+      else if (arg.startsWith("--csv="))
+        csvPath = arg.substring("--csv=".length());
+      else if (arg.startsWith("--java-option="))
+        javaOptions.add(arg.substring("--java-option=".length()));
+      else
+        inputPath = arg;
+    }
+    if (inputPath == null) {
+      System.err.println("Usage: LoadTestHarness [--runs=N] [--java-option=OPTION]... [--csv=PATH] input"
+          + " [app-option...]");
+      return;
+    }
+
+    String classPath;
+    try {
+      classPath = new File(App.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    } catch (URISyntaxException e) {
+      throw new IOException("Cannot find the class path of App.", e);
+    }
+    List<String> command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.addAll(javaOptions);
+    command.add("-cp");
+    command.add(classPath);
+    command.add(App.class.getName());
+    command.add(inputPath);
+    command.addAll(appOptions);
+
+    // Counting the lines also brings the file into the page cache, if it fits
+    Path input = Paths.get(inputPath);
+    long bytes = Files.size(input);
+    long lines = countLines(input);
+    System.out.println(String.format("%s: %.1f MiB, %d lines, App options %s", inputPath, bytes / 1048576.0, lines,
+        appOptions));
+
+    for (int i = 0; i < runs; i++) {
+      Run run = runOnce(command);
+      double seconds = run.nanos / 1e9;
+      String peakRss = run.peakRssKib < 0 ? "n/a" : String.format("%.1f", run.peakRssKib / 1024.0);
+      System.out.println(String.format("run %d: %8.2f s, %8.1f MiB/s, %12.0f lines/s, peak RSS %s MiB, exit %d", i + 1,
+          seconds, bytes / 1048576.0 / seconds, lines / seconds, peakRss, run.exitCode));
+
+      if (csvPath != null) {
+        Path csv = Paths.get(csvPath);
+        StringBuilder record = new StringBuilder();
+        if (!Files.exists(csv))
+          record.append(CSV_HEADER).append('\n');
+        record.append(Instant.now()).append(',').append(inputPath).append(',').append(String.join(" ", appOptions))
+            .append(',').append(bytes).append(',').append(lines).append(',').append(String.format("%.3f", seconds))
+            .append(',').append(String.format("%.1f", bytes / 1048576.0 / seconds)).append(',')
+            .append(String.format("%.0f", lines / seconds)).append(',').append(peakRss).append(',')
+            .append(run.outputBytes).append(',').append(run.exitCode).append('\n');
+        Files.write(csv, record.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package bench;
+
+import java.util.Random;
+
+import main.ReportLineParser;
+
+/**
+ * Benchmark of <code>ReportLineParser</code> against the scalar path it
+ * replaced in <code>App</code> and <code>FusedUptimeEngine</code>:
+ * <code>String.split</code>, <code>Integer.parseUnsignedInt</code>,
+ * <code>Long.parseUnsignedLong</code> and <code>Boolean.parseBoolean</code>.
+ * Also compares parsing a single timestamp on its own. Prints the best time
+ * per line of each, over lines with timestamps of the given number of digits.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.ReportLineParserBenchmark [--runs=N]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class ReportLineParserBenchmark {
+  public static final int DEFAULT_RUNS = 10;
+  public static final int WARMUP_RUNS = 5;
+  public static final int LINE_COUNT = 1 << 20;
+
+  /** Create report lines whose timestamps have the given number of digits. */
+  static String[] createLines(Random random, int digits) {
+    String[] lines = new String[LINE_COUNT];
+    for (int i = 0; i < LINE_COUNT; i++) {
+      StringBuilder line = new StringBuilder();
+      line.append(Integer.toUnsignedString(random.nextInt(100000)));
+      for (int time = 0; time < 2; time++) {
+        line.append(' ');
+        if (digits == ReportLineParser.MAX_DIGITS)
+          line.append('1').append((char) ('0' + random.nextInt(8))); // under 2^64
+        else
+          line.append((char) ('1' + random.nextInt(9)));
+        for (int j = line.length() - line.lastIndexOf(" ") - 1; j < digits; j++)
+          line.append((char) ('0' + random.nextInt(10)));
+      }
+      lines[i] = line.append(random.nextBoolean() ? " true" : " false").toString();
+    }
+    return lines;
+  }
+
+  static long parseScalar(String line) {
+    String[] tokens = line.split(" ");
+    long checksum = Integer.parseUnsignedInt(tokens[0]);
+    checksum += Long.parseUnsignedLong(tokens[1]);
+    checksum ^= Long.parseUnsignedLong(tokens[2]);
+    return Boolean.parseBoolean(tokens[3]) ? checksum : ~checksum;
+  }
+
+  static long parseFast(ReportLineParser parser, String line) {
+    if (parser.parse(line) != ReportLineParser.Status.OK)
+      throw new IllegalStateException(line);
+    long checksum = Integer.toUnsignedLong(parser.getChargerId());
+    checksum += parser.getStartTime();
+    checksum ^= parser.getEndTime();
+    return parser.isUp() ? checksum : ~checksum;
+  }
+
+  /**
+   * @param mode 0 for whole lines with the scalar path, 1 for whole lines
+   *             with the parser, 2 for timestamps with
+   *             <code>Long.parseUnsignedLong</code> and 3 for timestamps with
+   *             <code>ReportLineParser.parseUnsignedLong</code>
+   * @return the best time per line, in nanoseconds
+   */
+  static double time(String[] lines, byte[][] times, int mode, int runs) {
+    ReportLineParser parser = new ReportLineParser();
+    String[] timeStrings = new String[times.length];
+    for (int i = 0; i < times.length; i++)
+      timeStrings[i] = new String(times[i]);
+    long best = Long.MAX_VALUE, checksum = 0;
+    for (int run = -WARMUP_RUNS; run < runs; run++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < LINE_COUNT; i++) {
+        switch (mode) {
+        case 0:
+          checksum += parseScalar(lines[i]);
+          break;
+        case 1:
+          checksum += parseFast(parser, lines[i]);
+          break;
+        case 2:
+          checksum += Long.parseUnsignedLong(timeStrings[i]);
+          break;
+        default:
+          checksum += ReportLineParser.parseUnsignedLong(times[i], 0, times[i].length);
+        }
+      }
+      long time = System.nanoTime() - start;
+      if (run >= 0 && time < best)
+        best = time;
+    }
+    if (checksum == 42)
+      System.out.print(""); // keep the results alive
+    return (double) best / LINE_COUNT;
+  }
+
+  public static void main(String[] args) {
+    int runs = DEFAULT_RUNS;
+    for (String arg : args) {
+      if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+    }
+
+    Random random = new Random(39);
+    for (int digits : new int[] { 4, 13, 19, 20 }) {
+      String[] lines = createLines(random, digits);
+      byte[][] times = new byte[LINE_COUNT][];
+      for (int i = 0; i < LINE_COUNT; i++)
+        times[i] = lines[i].split(" ")[1].getBytes();
+      System.out.println(String.format(
+          "%2d-digit times: line split+parse %6.1f ns, line ReportLineParser %6.1f ns,"
+              + " time Long.parseUnsignedLong %5.1f ns, time ReportLineParser %5.1f ns",
+          digits, time(lines, times, 0, runs), time(lines, times, 1, runs), time(lines, times, 2, runs),
+          time(lines, times, 3, runs)));
+    }
+  }
+}
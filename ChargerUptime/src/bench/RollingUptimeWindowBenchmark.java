@@ -0,0 +1,102 @@
+package bench;
+
+import java.util.Random;
+
+import main.RollingUptimeWindow;
+import main.StationIntervals;
+import main.UptimeRollup;
+
+/**
+ * Benchmark of keeping a station's uptime over the last 24 hours up to date
+ * as reports arrive, with a <code>RollingUptimeWindow</code> against
+ * recomputing it from the station's whole history after each report, as
+ * running <code>App</code> again would. Prints the best time per report of
+ * each, for a growing history.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.RollingUptimeWindowBenchmark [--runs=N]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class RollingUptimeWindowBenchmark {
+  public static final int DEFAULT_RUNS = 10;
+  public static final int WARMUP_RUNS = 5;
+  public static final long BASE_TIME = 1_700_000_000_000_000_000L;
+  public static final long WIDTH = UptimeRollup.NANOS_PER_DAY;
+
+  /**
+   * Create reports of up to a minute, in time order, about a minute apart.
+   *
+   * @return the start times, end times, and 1 for up or 0 for down
+   */
+  static long[][] createReports(Random random, int count) {
+    long[][] reports = new long[3][count];
+    long time = BASE_TIME;
+    for (int i = 0; i < count; i++) {
+      reports[0][i] = time;
+      reports[1][i] = time + 1 + random.nextInt(60_000_000) * 1000L;
+      reports[2][i] = random.nextInt(4) != 0 ? 1 : 0;
+      time += random.nextInt(120_000_000) * 1000L;
+    }
+    return reports;
+  }
+
+  /**
+   * Recompute the uptime over the window from the whole history, clipping
+   * each report to the window.
+   */
+  static int recompute(long[][] reports, int count) {
+    long now = 0;
+    for (int i = 0; i < count; i++)
+      now = Math.max(now, reports[1][i]);
+    StationIntervals intervals = new StationIntervals();
+    for (int i = 0; i < count; i++) {
+      if (reports[1][i] > now - WIDTH)
+        intervals.add(Math.max(reports[0][i], now - WIDTH), reports[1][i], reports[2][i] == 1);
+    }
+    return intervals.computeUptime();
+  }
+
+  /** @return the best time per report, in nanoseconds */
+  static double time(long[][] reports, boolean window, int runs) {
+    int count = reports[0].length;
+    long best = Long.MAX_VALUE, checksum = 0;
+    for (int run = -WARMUP_RUNS; run < runs; run++) {
+      long start = System.nanoTime();
+      RollingUptimeWindow rollingWindow = new RollingUptimeWindow(WIDTH);
+      for (int i = 0; i < count; i++) {
+        if (window) {
+          rollingWindow.add(reports[0][i], reports[1][i], reports[2][i] == 1);
+          checksum += rollingWindow.computeUptime();
+        } else
+          checksum += recompute(reports, i + 1);
+      }
+      long time = System.nanoTime() - start;
+      if (run >= 0 && time < best)
+        best = time;
+    }
+    if (checksum == 42)
+      System.out.print(""); // keep the results alive
+    return (double) best / count;
+  }
+
+  public static void main(String[] args) {
+    int runs = DEFAULT_RUNS;
+    for (String arg : args) {
+      if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+    }
+
+    Random random = new Random(43);
+    for (int count : new int[] { 1000, 4000, 16000 }) {
+      long[][] reports = createReports(random, count);
+      System.out.println(String.format("%6d reports:  window %8.1f ns/report, recompute %10.1f ns/report", count,
+          time(reports, true, runs), time(reports, false, runs)));
+    }
+  }
+}
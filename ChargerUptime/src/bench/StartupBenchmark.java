@@ -0,0 +1,132 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import main.App;
+
+/**
+ * Benchmark of the application's startup, measured as the time from starting
+ * a fresh JVM running <code>App</code> to the first byte of its output, with
+ * and without an AppCDS archive. Also provides the training run used by
+ * <code>scripts/build-startup-archive.sh</code> to create the archive.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory after running <code>scripts/build-startup-archive.sh</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/charger-uptime.jar bench.StartupBenchmark [--archive=PATH] [--runs=N] input...
+ * java -cp ChargerUptime/bin/charger-uptime.jar bench.StartupBenchmark --train input...
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class StartupBenchmark {
+  public static final int DEFAULT_RUNS = 20;
+
+  /**
+   * Run <code>App</code> once in a new JVM.
+   *
+   * @return the nanoseconds to the first byte of output and to the JVM's exit
+   */
+  static long[] runOnce(List<String> command) throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+    InputStream output = process.getInputStream();
+    int firstByte = output.read();
+    long firstOutput = System.nanoTime();
+    byte[] buffer = new byte[8192];
+    while (output.read(buffer) >= 0)
+      ;
+    process.waitFor();
+    long exit = System.nanoTime();
+    if (firstByte < 0)
+      throw new IOException("App printed nothing for " + command + ".");
+    return new long[] { firstOutput - start, exit - start };
+  }
+
+  static double median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    int middle = sorted.length >> 1;
+    return (sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0) / 1e6;
+  }
+
+  /**
+   * Benchmark one configuration on one input file and print its median and
+   * minimum times, in milliseconds.
+   */
+  static void benchmark(String name, List<String> javaOptions, String classPath, String inputPath, int runs)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.addAll(javaOptions);
+    command.add("-cp");
+    command.add(classPath);
+    command.add(App.class.getName());
+    command.add(inputPath);
+
+    runOnce(command); // warm the file system cache
+    long[] firstOutputTimes = new long[runs], exitTimes = new long[runs];
+    for (int i = 0; i < runs; i++) {
+      long[] times = runOnce(command);
+      firstOutputTimes[i] = times[0];
+      exitTimes[i] = times[1];
+    }
+    System.out.printf("%-12s %-16s first output: median %7.1f ms, min %7.1f ms; exit: median %7.1f ms%n", name,
+        inputPath, median(firstOutputTimes), Arrays.stream(firstOutputTimes).min().getAsLong() / 1e6,
+        median(exitTimes));
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("--train")) {
+      // Training run for the AppCDS archive: load every class the inputs use
+      for (int i = 1; i < args.length; i++)
+        App.main(new String[] { args[i] });
+      return;
+    }
+
+    String archivePath = null;
+    int runs = DEFAULT_RUNS;
+    List<String> inputPaths = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.startsWith("--archive="))
+        archivePath = arg.substring("--archive=".length());
+      else if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+      else
+        inputPaths.add(arg);
+    }
+    if (inputPaths.isEmpty()) {
+      System.err.println("Usage: StartupBenchmark [--archive=PATH] [--runs=N] input...");
+      return;
+    }
+
+    String classPath;
+    try {
+      classPath = new File(App.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    } catch (URISyntaxException e) {
+      throw new IOException("Cannot find the class path of App.", e);
+    }
+
+    for (String inputPath : inputPaths) {
+      benchmark("no CDS", Arrays.asList("-Xshare:off"), classPath, inputPath, runs);
+      benchmark("default CDS", Arrays.asList("-Xshare:auto"), classPath, inputPath, runs);
+      if (archivePath != null)
+        benchmark("AppCDS", Arrays.asList("-XX:SharedArchiveFile=" + archivePath, "-Xshare:auto"), classPath,
+            inputPath, runs);
+      // Small inputs finish before C2 compiles anything, so C1 alone may win
+      if (archivePath == null)
+        benchmark("C1 only", Arrays.asList("-XX:TieredStopAtLevel=1"), classPath, inputPath, runs);
+      else
+        benchmark("AppCDS+C1", Arrays.asList("-XX:SharedArchiveFile=" + archivePath, "-XX:TieredStopAtLevel=1"),
+            classPath, inputPath, runs);
+    }
+  }
+}
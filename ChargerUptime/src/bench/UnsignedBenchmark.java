@@ -0,0 +1,145 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import main.Unsigned;
+
+/**
+ * Benchmark of the unsigned operations of <code>Unsigned</code> against the
+ * signed ones they replaced, which were wrong for IDs from 2^31 and times
+ * from 2^63 up: sorting station uptimes by ID, printing station IDs, and
+ * merging sorted uptime intervals. Prints the best time of each, which should
+ * be the same for both.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.UnsignedBenchmark [--runs=N]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class UnsignedBenchmark {
+  public static final int DEFAULT_RUNS = 10;
+  public static final int WARMUP_RUNS = 5;
+  public static final int STATION_COUNT = 1 << 20;
+  public static final int INTERVAL_COUNT = 1 << 22;
+
+  /** The comparator that <code>App</code> used, which could overflow. */
+  static class SignedStationIdComparator implements Comparator<int[]> {
+    @Override
+    public int compare(int[] arg0, int[] arg1) {
+      return arg0[0] - arg1[0];
+    }
+  }
+
+  /** @return the best time of sorting the stations, in milliseconds */
+  static double timeSort(int[][] stationUptimes, Comparator<int[]> comparator, int runs) {
+    long best = Long.MAX_VALUE;
+    for (int run = -WARMUP_RUNS; run < runs; run++) {
+      int[][] copy = stationUptimes.clone();
+      long start = System.nanoTime();
+      Arrays.sort(copy, comparator);
+      long time = System.nanoTime() - start;
+      if (run >= 0 && time < best)
+        best = time;
+    }
+    return best / 1e6;
+  }
+
+  /** @return the best time of printing the stations to memory, in milliseconds */
+  static double timePrint(int[][] stationUptimes, boolean unsigned, int runs) {
+    long best = Long.MAX_VALUE, checksum = 0;
+    StringBuilder output = new StringBuilder(8192);
+    for (int run = -WARMUP_RUNS; run < runs; run++) {
+      long start = System.nanoTime();
+      for (int[] station : stationUptimes) {
+        if (unsigned)
+          Unsigned.append(output, station[0]);
+        else
+          output.append(station[0]);
+        output.append(' ').append(station[1]).append('\n');
+        if (output.length() >= 8192) {
+          checksum += output.length();
+          output.setLength(0);
+        }
+      }
+      long time = System.nanoTime() - start;
+      if (run >= 0 && time < best)
+        best = time;
+    }
+    if (checksum == 42)
+      System.out.print(""); // keep the results alive
+    return best / 1e6;
+  }
+
+  /**
+   * Merge sorted intervals like <code>App.computeStationUptime</code>.
+   *
+   * @return the total uptime
+   */
+  static long merge(long[] starts, long[] ends, boolean unsigned) {
+    long uptime = 0, lastStart = starts[0], lastEnd = ends[0];
+    for (int i = 1; i < starts.length; i++) {
+      if (unsigned ? Unsigned.lessThan(ends[i], lastEnd) : ends[i] < lastEnd)
+        continue;
+      else if (unsigned ? Unsigned.lessOrEqual(starts[i], lastEnd) : starts[i] <= lastEnd)
+        lastEnd = ends[i];
+      else {
+        uptime += lastEnd - lastStart;
+        lastStart = starts[i];
+        lastEnd = ends[i];
+      }
+    }
+    return uptime + lastEnd - lastStart;
+  }
+
+  /** @return the best time of merging the intervals, in milliseconds */
+  static double timeMerge(long[] starts, long[] ends, boolean unsigned, int runs) {
+    long best = Long.MAX_VALUE, checksum = 0;
+    for (int run = -WARMUP_RUNS; run < runs; run++) {
+      long start = System.nanoTime();
+      checksum += merge(starts, ends, unsigned);
+      long time = System.nanoTime() - start;
+      if (run >= 0 && time < best)
+        best = time;
+    }
+    if (checksum == 42)
+      System.out.print(""); // keep the results alive
+    return best / 1e6;
+  }
+
+  public static void main(String[] args) {
+    int runs = DEFAULT_RUNS;
+    for (String arg : args) {
+      if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+    }
+
+    // IDs below 2^31 and times below 2^63, where both give the same results
+    Random random = new Random(40);
+    int[][] stationUptimes = new int[STATION_COUNT][];
+    for (int i = 0; i < STATION_COUNT; i++)
+      stationUptimes[i] = new int[] { random.nextInt(Integer.MAX_VALUE), random.nextInt(101) };
+    long[] starts = new long[INTERVAL_COUNT], ends = new long[INTERVAL_COUNT];
+    long time = 1_700_000_000_000_000_000L;
+    for (int i = 0; i < INTERVAL_COUNT; i++) {
+      time += random.nextInt(1_000_000);
+      starts[i] = time;
+      ends[i] = time + random.nextInt(2_000_000);
+    }
+
+    System.out.println(String.format("sort %d stations:    signed %8.2f ms, unsigned %8.2f ms", STATION_COUNT,
+        timeSort(stationUptimes, new SignedStationIdComparator(), runs),
+        timeSort(stationUptimes, new Unsigned.StationIdComparator(), runs)));
+    Arrays.sort(stationUptimes, new Unsigned.StationIdComparator());
+    System.out.println(String.format("print %d stations:   signed %8.2f ms, unsigned %8.2f ms", STATION_COUNT,
+        timePrint(stationUptimes, false, runs), timePrint(stationUptimes, true, runs)));
+    System.out.println(String.format("merge %d intervals:  signed %8.2f ms, unsigned %8.2f ms", INTERVAL_COUNT,
+        timeMerge(starts, ends, false, runs), timeMerge(starts, ends, true, runs)));
+  }
+}
@@ -0,0 +1,154 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import main.App;
+import main.App.Report;
+import main.ReportList;
+import main.UptimeStrategy;
+
+/**
+ * Benchmark of each <code>UptimeStrategy</code> against the others, and
+ * against the original collect-sort-merge path of
+ * <code>App.computeStationUptime</code> (including a copy of the reports,
+ * which it clears), on the kinds of stations
+ * <code>UptimeStrategy.choose</code> tells apart, including stations whose
+ * chargers' reports are each in order but interleaved. For each kind, prints the
+ * best time of every applicable strategy and marks the one that is chosen,
+ * which should also be the fastest.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes bench.UptimeStrategyBenchmark [--runs=N]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class UptimeStrategyBenchmark {
+  public static final int DEFAULT_RUNS = 10;
+  public static final int WARMUP_RUNS = 5;
+  public static final long BASE_TIME = 1_700_000_000_000_000_000L;
+
+  /**
+   * Create stations of reports, each with the given number of uptime reports
+   * of up to a second, after a single downtime report.
+   *
+   * @param swaps the number of random pairs of uptime reports to swap in each
+   *              station, or -1 to shuffle them all
+   */
+  static List<List<Report>> createStations(Random random, int stationCount, int upCount, int swaps) {
+    List<List<Report>> stations = new ArrayList<>(stationCount);
+    for (int s = 0; s < stationCount; s++) {
+      Report[] ups = new Report[upCount];
+      long time = BASE_TIME + random.nextInt(1 << 30);
+      for (int i = 0; i < upCount; i++) {
+        long length = 1 + random.nextInt(1_000_000_000);
+        ups[i] = new Report(time, time + length, true);
+        time += length + random.nextInt(1_000_000_000);
+      }
+      int swapCount = swaps < 0 ? upCount : swaps;
+      for (int i = 0; i < swapCount && upCount > 1; i++) {
+        int j = swaps < 0 ? upCount - 1 - i : random.nextInt(upCount);
+        int k = random.nextInt(swaps < 0 ? j + 1 : upCount);
+        Report temp = ups[j];
+        ups[j] = ups[k];
+        ups[k] = temp;
+      }
+
+      ReportList reports = new ReportList(upCount + 1);
+      reports.add(new Report(BASE_TIME, BASE_TIME + 1, false));
+      for (Report up : ups)
+        reports.add(up);
+      stations.add(reports);
+    }
+    return stations;
+  }
+
+  /**
+   * Create stations of reports from the given number of chargers, each
+   * sending uptime reports of up to a second in time order, with the
+   * chargers' reports interleaved at random.
+   */
+  static List<List<Report>> createChargerStations(Random random, int stationCount, int chargerCount, int upCount) {
+    List<List<Report>> stations = new ArrayList<>(stationCount);
+    for (int s = 0; s < stationCount; s++) {
+      long[] times = new long[chargerCount];
+      for (int charger = 0; charger < chargerCount; charger++)
+        times[charger] = BASE_TIME + random.nextInt(1 << 30);
+      ReportList reports = new ReportList(upCount + 1);
+      reports.addFromCharger(0, new Report(BASE_TIME, BASE_TIME + 1, false));
+      for (int i = 0; i < upCount; i++) {
+        int charger = random.nextInt(chargerCount);
+        long length = 1 + random.nextInt(1_000_000_000);
+        reports.addFromCharger(charger, new Report(times[charger], times[charger] + length, true));
+        times[charger] += length + random.nextInt(1_000_000_000);
+      }
+      stations.add(reports);
+    }
+    return stations;
+  }
+
+  /** @return the best time of computing every station, in milliseconds */
+  static double time(List<List<Report>> stations, UptimeStrategy strategy, int runs) {
+    long best = Long.MAX_VALUE, checksum = 0;
+    for (int run = -WARMUP_RUNS; run < runs; run++) {
+      long start = System.nanoTime();
+      for (List<Report> station : stations) {
+        if (strategy == null)
+          checksum += App.computeStationUptime(new ArrayList<>(station));
+        else
+          checksum += strategy.computeUptime(station);
+      }
+      long time = System.nanoTime() - start;
+      if (run >= 0 && time < best)
+        best = time;
+    }
+    if (checksum == 42)
+      System.out.print(""); // keep the results alive
+    return best / 1e6;
+  }
+
+  static void benchmark(String name, List<List<Report>> stations, int runs) {
+    UptimeStrategy chosen = UptimeStrategy.choose(stations.get(0));
+    StringBuilder line = new StringBuilder(String.format("%-28s", name));
+    line.append(String.format(" collect-sort-merge %8.2f ms", time(stations, null, runs)));
+    for (UptimeStrategy strategy : UptimeStrategy.values()) {
+      if (strategy == UptimeStrategy.NO_UPTIME || strategy == UptimeStrategy.SINGLE_UPTIME && strategy != chosen)
+        continue; // not applicable
+      line.append(String.format(" %s%s %8.2f ms", strategy == chosen ? "*" : "", strategy.name(),
+          time(stations, strategy, runs)));
+    }
+    System.out.println(line);
+  }
+
+  public static void main(String[] args) {
+    int runs = DEFAULT_RUNS;
+    for (String arg : args) {
+      if (arg.startsWith("--runs="))
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+    }
+
+    Random random = new Random(34);
+    benchmark("1 report x 200000", createStations(random, 200000, 1, 0), runs);
+    benchmark("sorted 1000 x 1000", createStations(random, 1000, 1000, 0), runs);
+    benchmark("nearly sorted 1000 x 1000", createStations(random, 1000, 1000, 10), runs);
+    benchmark("nearly sorted 10 x 100000", createStations(random, 10, 100000, 1000), runs);
+    benchmark("shuffled 20000 x 16", createStations(random, 20000, 16, -1), runs);
+    benchmark("shuffled 4000 x 64", createStations(random, 4000, 64, -1), runs);
+    benchmark("shuffled 2000 x 128", createStations(random, 2000, 128, -1), runs);
+    benchmark("shuffled 1000 x 256", createStations(random, 1000, 256, -1), runs);
+    benchmark("shuffled 100 x 4096", createStations(random, 100, 4096, -1), runs);
+    benchmark("shuffled 10 x 65536", createStations(random, 10, 65536, -1), runs);
+    benchmark("shuffled 1 x 4000000", createStations(random, 1, 4000000, -1), runs);
+    benchmark("4 chargers 20000 x 16", createChargerStations(random, 20000, 4, 16), runs);
+    benchmark("4 chargers 2000 x 128", createChargerStations(random, 2000, 4, 128), runs);
+    benchmark("4 chargers 1000 x 1000", createChargerStations(random, 1000, 4, 1000), runs);
+    benchmark("8 chargers 100 x 10000", createChargerStations(random, 100, 8, 10000), runs);
+    benchmark("16 chargers 100 x 10000", createChargerStations(random, 100, 16, 10000), runs);
+  }
+}
@@ -4,11 +4,16 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -121,6 +126,30 @@ public class App {
    */
   public static HashMap<Integer, List<Report>> readChargerAvailabilityReportsSection(BufferedReader reader,
       HashMap<Integer, Integer> stationMap, List<Integer> emptyStations) {
+    return readChargerAvailabilityReportsSection(reader, stationMap, emptyStations, false);
+  }
+
+  /**
+   * Read and process the Charger Availability Reports section of the file,
+   * optionally coalescing each charger's reports as they are read. When
+   * coalescing, an exact duplicate of any report of the same charger read
+   * before is dropped, and a report that overlaps or touches the previous
+   * report of the same charger and the same up value is folded into that
+   * previous report instead of being added. This does not
+   * change the computed uptimes, but cuts memory use and sorting time on
+   * feeds that resend or split reports. Prints an error and returns
+   * <code>null</code> if the file format is invalid. It is assumed that
+   * <code>stationMap</code> is not null.
+   *
+   * @param reader        the BufferedReader for the given file
+   * @param stationMap    a map of each charger ID to its station ID
+   * @param emptyStations an auxiliary list containing station IDs with no
+   *                      charger IDs
+   * @param coalesce      true to coalesce each charger's reports
+   * @return a map of each station ID to its reported time intervals
+   */
+  public static HashMap<Integer, List<Report>> readChargerAvailabilityReportsSection(BufferedReader reader,
+      HashMap<Integer, Integer> stationMap, List<Integer> emptyStations, boolean coalesce) {
     try {
       String nextLine = reader.readLine();
       if (nextLine == null || !nextLine.equals("[Charger Availability Reports]")) {
@@ -136,21 +165,25 @@ public class App {
       for (Integer emptyStation : emptyStations)
         output.put(emptyStation, new ArrayList<>(0));
 
+      // Last uptime and downtime report of each charger, when coalescing
+      HashMap<Integer, Report> lastUpReports = coalesce ? new HashMap<>() : null;
+      HashMap<Integer, Report> lastDownReports = coalesce ? new HashMap<>() : null;
+      SeenReports seenReports = coalesce ? new SeenReports() : null;
+
       // Read each line
+      ReportLineParser parser = new ReportLineParser();
       for (nextLine = reader.readLine(); nextLine != null; nextLine = reader.readLine()) {
-        String[] tokens = nextLine.split(" ");
+        ReportLineParser.Status status = parser.parse(nextLine);
 
         // Get the charger ID
-        Integer chargerId;
-        try {
-          chargerId = Integer.valueOf(Integer.parseUnsignedInt(tokens[0]));
-        } catch (NumberFormatException e) {
+        if (status == ReportLineParser.Status.INVALID_CHARGER_ID) {
           System.out.println("ERROR");
           System.err.println("Charger IDs must be unsigned 32-bit integers.");
           reader.close();
           output.clear();
           return null;
         }
+        Integer chargerId = Integer.valueOf(parser.getChargerId());
 
         // Get the charger's station ID
         Integer stationId = stationMap.get(chargerId);
@@ -163,31 +196,60 @@ public class App {
         }
 
         // Get station's availability reports
-        List<Report> thisStationTimes;
-        if (output.containsKey(stationId))
-          thisStationTimes = output.get(stationId);
+        // (Only stations with chargers get reports, all in ReportLists; a
+        // station also listed without chargers starts with an empty list)
+        ReportList thisStationTimes;
+        List<Report> stationTimes = output.get(stationId);
+        if (stationTimes instanceof ReportList)
+          thisStationTimes = (ReportList) stationTimes;
         else {
-          thisStationTimes = new ArrayList<>();
+          thisStationTimes = new ReportList();
           output.put(stationId, thisStationTimes);
         }
 
         // Put new time interval into station's time interval list
-        long startTime, endTime;
-        try {
-          startTime = Long.parseUnsignedLong(tokens[1]);
-          endTime = Long.parseUnsignedLong(tokens[2]);
-        } catch (NumberFormatException e) {
+        if (status != ReportLineParser.Status.OK) {
           System.out.println("ERROR");
-          System.err.println("Start and end times must be unsigned 64-bit integers.");
+          System.err.println(status == ReportLineParser.Status.MISSING_FIELDS ? "Input file is formatted incorrectly."
+              : "Start and end times must be unsigned 64-bit integers.");
           reader.close();
           output.clear();
           return null;
         }
-        boolean up = Boolean.parseBoolean(tokens[3]);
+        long startTime = parser.getStartTime(), endTime = parser.getEndTime();
+        boolean up = parser.isUp();
+        if (coalesce) {
+          if (!seenReports.add(chargerId.intValue(), startTime, endTime, up)) {
+            // An exact resend of a report already read
+            thisStationTimes.fingerprint(startTime, endTime, up);
+            continue;
+          }
+          HashMap<Integer, Report> lastReports = up ? lastUpReports : lastDownReports;
+          Report lastReport = lastReports.get(chargerId);
+          if (lastReport != null && Long.compareUnsigned(startTime, lastReport.endTime) <= 0
+              && Long.compareUnsigned(endTime, lastReport.startTime) >= 0) {
+            // Overlapping or adjacent, widen the last report instead
+            if (Long.compareUnsigned(startTime, lastReport.startTime) < 0)
+              lastReport.startTime = startTime;
+            if (Long.compareUnsigned(endTime, lastReport.endTime) > 0)
+              lastReport.endTime = endTime;
+            thisStationTimes.fingerprint(startTime, endTime, up);
+            continue;
+          }
+          Report thisReport = new Report(startTime, endTime, up);
+          thisStationTimes.addFromCharger(chargerId.intValue(), thisReport);
+          lastReports.put(chargerId, thisReport);
+          continue;
+        }
         Report thisReport = new Report(startTime, endTime, up);
-        thisStationTimes.add(thisReport);
+        thisStationTimes.addFromCharger(chargerId.intValue(), thisReport);
       }
 
+      if (coalesce) {
+        lastUpReports.clear();
+        lastDownReports.clear();
+        seenReports = null;
+      }
       return output;
     } catch (IOException e) {
       System.out.println("ERROR");
@@ -209,7 +271,7 @@ public class App {
       return 0; // no reported time
 
     // Get station's total reported time
-    long start = Long.MAX_VALUE, end = 0;
+    long start = Unsigned.MAX_TIME, end = 0;
     for (Report report : stationTimeReports) {
       if (Long.compareUnsigned(report.startTime, start) < 0)
         start = report.startTime;
@@ -238,9 +300,9 @@ public class App {
       // check if the start of the current report overlaps with the end of the
       // last report.
       Report thisReport = uptimeReports.get(i);
-      if (thisReport.endTime < lastReport.endTime)
+      if (Unsigned.lessThan(thisReport.endTime, lastReport.endTime))
         continue;
-      else if (thisReport.startTime <= lastReport.endTime)
+      else if (Unsigned.lessOrEqual(thisReport.startTime, lastReport.endTime))
         lastReport.endTime = thisReport.endTime;
       else {
         stationTimeReports.add(thisReport);
@@ -254,7 +316,24 @@ public class App {
       uptime += report.endTime - report.startTime;
     stationTimeReports.clear();
 
-    // Since we're using unsigned long values for times, we need unsigned
+    return computeUptimePercentage(uptime, totalTime);
+  }
+
+  /**
+   * Compute an uptime as a truncated percentage of the total time. It is
+   * assumed that <code>totalTime</code> is nonzero and no smaller than
+   * <code>uptime</code>, in unsigned longs.
+   *
+   * @param uptime    the uptime, in nanoseconds
+   * @param totalTime the total time, in nanoseconds
+   * @return the uptime, as a truncated percentage
+   */
+  public static int computeUptimePercentage(long uptime, long totalTime) {
+    // Most times are small enough to multiply by 100 without overflow
+    if (uptime >= 0 && uptime <= Long.MAX_VALUE / 100 && totalTime > 0)
+      return (int) (uptime * 100 / totalTime);
+
+    // Otherwise, since we're using unsigned long values for times, we need unsigned
     // string and BigInteger to prevent overflow.
     String uptimeString = Long.toUnsignedString(uptime);
     String totalTimeString = Long.toUnsignedString(totalTime);
@@ -263,10 +342,54 @@ public class App {
     return numerator.divide(denominator).intValue();
   }
 
+  /**
+   * Merge the uptime intervals of the station given its reported time
+   * intervals. Unlike <code>computeStationUptime</code>, the list of reports
+   * is left unchanged. It is assumed that <code>stationTimeReports</code> is
+   * not null.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @return the merged uptime intervals, sorted and flattened so that
+   *         interval <code>i</code> starts at index <code>2 * i</code> and
+   *         ends at index <code>2 * i + 1</code>
+   */
+  public static long[] mergeUptimeIntervals(List<Report> stationTimeReports) {
+    List<Report> uptimeReports = new ArrayList<>();
+    for (Report report : stationTimeReports) {
+      if (report.up)
+        uptimeReports.add(report);
+    }
+    if (uptimeReports.isEmpty())
+      return new long[0];
+    Collections.sort(uptimeReports);
+
+    long[] output = new long[uptimeReports.size() << 1];
+    int outputLength = 0;
+    long lastStart = uptimeReports.get(0).startTime, lastEnd = uptimeReports.get(0).endTime;
+    for (int i = 1; i < uptimeReports.size(); i++) {
+      Report thisReport = uptimeReports.get(i);
+      if (Long.compareUnsigned(thisReport.startTime, lastEnd) <= 0) {
+        if (Long.compareUnsigned(thisReport.endTime, lastEnd) > 0)
+          lastEnd = thisReport.endTime;
+      } else {
+        output[outputLength++] = lastStart;
+        output[outputLength++] = lastEnd;
+        lastStart = thisReport.startTime;
+        lastEnd = thisReport.endTime;
+      }
+    }
+    output[outputLength++] = lastStart;
+    output[outputLength++] = lastEnd;
+    uptimeReports.clear();
+    return Arrays.copyOf(output, outputLength);
+  }
+
   /**
    * Compute the uptimes for the stations, given the reported time intervals of
-   * their respective chargers. It is assumed that
-   * <code>stationReportsMap</code> is not null.
+   * their respective chargers. Each station's uptime is computed with the
+   * <code>UptimeStrategy</code> chosen for its reports, and its list of
+   * reports is cleared. It is assumed that <code>stationReportsMap</code> is
+   * not null.
    *
    * @param stationReportsMap a map of each station ID to its reported time
    *                          intervals
@@ -274,11 +397,29 @@ public class App {
    *         represents the station ID and the second represents the uptime
    */
   public static int[][] computeStationUptimes(HashMap<Integer, List<Report>> stationReportsMap) {
+    return computeStationUptimes(stationReportsMap, null);
+  }
+
+  /**
+   * Compute the uptimes for the stations as
+   * <code>computeStationUptimes(HashMap)</code> does, also passing each
+   * station's outages to the given sink as they are found. The stations come
+   * in no particular order, and each station's outages in time order. It is
+   * assumed that <code>stationReportsMap</code> is not null.
+   *
+   * @param stationReportsMap a map of each station ID to its reported time
+   *                          intervals
+   * @param sink              the sink of the outages, or null
+   * @return the station uptimes, where the first entry of each nested array
+   *         represents the station ID and the second represents the uptime
+   */
+  public static int[][] computeStationUptimes(HashMap<Integer, List<Report>> stationReportsMap, OutageSink sink) {
     int[][] output = new int[stationReportsMap.size()][2];
     int outputIndex = 0;
     for (Entry<Integer, List<Report>> station : stationReportsMap.entrySet()) {
-      output[outputIndex][0] = station.getKey().intValue();
-      output[outputIndex++][1] = computeStationUptime(station.getValue());
+      int stationId = station.getKey().intValue();
+      output[outputIndex][0] = stationId;
+      output[outputIndex++][1] = UptimeStrategy.computeStationUptime(station.getValue(), stationId, sink);
     }
     return output;
   }
@@ -291,42 +432,377 @@ public class App {
    * @param stationUptimes the station uptimes
    */
   public static void printStationUptimes(int[][] stationUptimes) {
-    for (int[] station : stationUptimes)
-      System.out.printf("%d %d\n", station[0], station[1]);
+    printStationUptimes(Arrays.asList(stationUptimes).iterator());
+  }
+
+  /**
+   * Print the uptimes for each station as they are pulled from the iterator,
+   * such as a <code>StationUptimeIterator</code>, writing them out every few
+   * kilobytes. The method assumes that the station uptimes come in ascending
+   * order, each containing the station ID and its uptime, in that order.
+   *
+   * @param stationUptimes the station uptimes
+   */
+  public static void printStationUptimes(Iterator<int[]> stationUptimes) {
+    // Appending directly avoids printf's format parsing, which dominates
+    // startup time on small inputs
+    StringBuilder output = new StringBuilder(8192);
+    while (stationUptimes.hasNext()) {
+      int[] station = stationUptimes.next();
+      Unsigned.append(output, station[0]).append(' ').append(station[1]).append('\n');
+      if (output.length() >= 8192) {
+        System.out.print(output);
+        output.setLength(0);
+      }
+    }
+    System.out.print(output);
     return;
   }
 
+  /**
+   * Summarize the stations and write them to a
+   * <code>ColumnarUptimeFile</code>. Prints an error and returns false if the
+   * file cannot be written. It is assumed that
+   * <code>stationReportsMap</code> is not null; it is left unchanged.
+   *
+   * @param stationReportsMap a map of each station ID to its reported time
+   *                          intervals
+   * @param exportPath        the path of the file to write
+   * @return true if the file was written
+   */
+  public static boolean exportStationSummaries(HashMap<Integer, List<Report>> stationReportsMap, String exportPath) {
+    StationSummary[] summaries = new StationSummary[stationReportsMap.size()];
+    int summaryIndex = 0;
+    for (Entry<Integer, List<Report>> station : stationReportsMap.entrySet())
+      summaries[summaryIndex++] = StationSummary.compute(station.getKey().intValue(), station.getValue());
+    Arrays.sort(summaries, new StationSummary.UnsignedStationIdComparator());
+    try {
+      ColumnarUptimeFile.write(Paths.get(exportPath), summaries);
+      return true;
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("ERROR");
+      System.err.println("Export file " + exportPath + " cannot be written.");
+      return false;
+    }
+  }
+
+  /**
+   * Parse the value of an option of the form <code>--name=N</code>. Prints an
+   * error and returns -1 if the value is not a positive integer.
+   *
+   * @param arg the option
+   * @return the option's value
+   */
+  static int parsePositiveIntOption(String arg) {
+    int separator = arg.indexOf('=');
+    try {
+      int value = Integer.parseInt(arg.substring(separator + 1));
+      if (value > 0)
+        return value;
+    } catch (NumberFormatException e) {
+      // Handled below
+    }
+    System.out.println("ERROR");
+    System.err.println("Option " + arg.substring(0, separator) + " requires a positive integer.");
+    return -1;
+  }
+
+  /**
+   * Run the application on the given input file. Options, which must start
+   * with <code>--</code>, may be given before or after the input file path:
+   * <ul>
+   * <li><code>--pipeline</code>: read the Charger Availability Reports
+   * section with a multithreaded <code>ReportPipeline</code> and print its
+   * stage counters to <code>stderr</code></li>
+   * <li><code>--shards=N</code>: partition the stations across N local
+   * worker processes with a <code>ShardCoordinator</code></li>
+   * <li><code>--export=PATH</code>: also write the station summaries to a
+   * <code>ColumnarUptimeFile</code> at the given path</li>
+   * <li><code>--index=PATH</code>: also write each station's merged uptime
+   * intervals to a <code>StationIntervalIndex</code> at the given path</li>
+   * <li><code>--fused</code>: parse the reports straight into merged
+   * per-station interval buffers with the <code>FusedUptimeEngine</code>,
+   * without building report lists</li>
+   * <li><code>--memory-budget=N</code>: like <code>--fused</code>, but keep
+   * the interval buffers within N MiB with a <code>MemoryBudget</code>,
+   * spilling stations to temporary files if needed, and print its metrics to
+   * <code>stderr</code></li>
+   * <li><code>--watch</code> or <code>--watch=MILLIS</code>: keep polling
+   * the input file with a <code>ReportFileWatcher</code>, every second or
+   * every MILLIS milliseconds, and print the stations whose uptime changed
+   * after reports were appended; other options are ignored</li>
+   * <li><code>--window=HOURS</code>: with <code>--watch</code>, print each
+   * station's uptime over the last HOURS hours of reports instead, with a
+   * <code>RollingUptimeWindow</code></li>
+   * <li><code>--topology-cache=DIR</code>: read the Stations section through
+   * a <code>StationTopologyCache</code> in the given directory</li>
+   * <li><code>--outages=PATH</code>: also write each station's outages, the
+   * gaps between its merged uptime intervals, to the file at PATH with an
+   * <code>OutageWriter</code></li>
+   * <li><code>--result-cache=PATH</code>: reuse the uptime of each station
+   * whose reports have not changed since the last run with a
+   * <code>StationResultCache</code> in the file at PATH, and print its
+   * metrics to <code>stderr</code></li>
+   * <li><code>--strategies</code>: print the counters of each
+   * <code>UptimeStrategy</code> to <code>stderr</code></li>
+   * <li><code>--profile=PATH</code>: record the phases of the run, and the
+   * stations that take longer than 10 ms to compute, with an
+   * <code>UptimeProfiler</code>, and write the Flight Recorder recording to
+   * PATH for <code>ProfileReport</code></li>
+   * <li><code>--profile-threshold=MILLIS</code>: with <code>--profile</code>,
+   * record the stations that take longer than MILLIS milliseconds
+   * instead</li>
+   * </ul>
+   *
+   * @param args the options and the relative path to the input file
+   */
   public static void main(String[] args) {
-    if (args.length != 1) {
+    String profilePath = null;
+    int profileThresholdMillis = 0;
+    List<String> runArgs = new ArrayList<>(args.length);
+    for (String arg : args) {
+      if (arg.startsWith("--profile="))
+        profilePath = arg.substring("--profile=".length());
+      else if (arg.startsWith("--profile-threshold=")) {
+        profileThresholdMillis = parsePositiveIntOption(arg);
+        if (profileThresholdMillis <= 0)
+          return;
+      } else
+        runArgs.add(arg);
+    }
+    if (profilePath == null) {
+      if (profileThresholdMillis > 0) {
+        System.out.println("ERROR");
+        System.err.println("Option --profile-threshold requires --profile.");
+        return;
+      }
+      run(args);
+      return;
+    }
+
+    UptimeProfiler profiler;
+    try {
+      profiler = UptimeProfiler.start(Paths.get(profilePath),
+          profileThresholdMillis > 0 ? profileThresholdMillis : UptimeProfiler.DEFAULT_THRESHOLD_MILLIS);
+    } catch (InvalidPathException e) {
+      System.out.println("ERROR");
+      System.err.println("Profile file " + profilePath + " is not a valid path.");
+      return;
+    }
+    if (profiler == null)
+      return;
+    try {
+      run(runArgs.toArray(new String[0]));
+    } finally {
+      profiler.stop();
+    }
+  }
+
+  /**
+   * Run the application as <code>main</code> does, given every option but
+   * the profiling ones.
+   *
+   * @param args the options and the relative path to the input file
+   */
+  static void run(String[] args) {
+    String inputPath = null;
+    int inputPathCount = 0;
+    boolean pipeline = false;
+    int shards = 0;
+    String exportPath = null;
+    String indexPath = null;
+    boolean fused = false;
+    boolean strategies = false;
+    int memoryBudget = 0;
+    int watchMillis = 0;
+    int windowHours = 0;
+    String topologyCachePath = null;
+    String outagesPath = null;
+    String resultCachePath = null;
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        inputPath = arg;
+        inputPathCount++;
+      } else if (arg.equals("--pipeline"))
+        pipeline = true;
+      else if (arg.startsWith("--shards=")) {
+        shards = parsePositiveIntOption(arg);
+        if (shards <= 0)
+          return;
+      } else if (arg.startsWith("--topology-cache="))
+        topologyCachePath = arg.substring("--topology-cache=".length());
+      else if (arg.startsWith("--export="))
+        exportPath = arg.substring("--export=".length());
+      else if (arg.startsWith("--outages="))
+        outagesPath = arg.substring("--outages=".length());
+      else if (arg.startsWith("--result-cache="))
+        resultCachePath = arg.substring("--result-cache=".length());
+      else if (arg.startsWith("--index="))
+        indexPath = arg.substring("--index=".length());
+      else if (arg.equals("--fused"))
+        fused = true;
+      else if (arg.equals("--strategies"))
+        strategies = true;
+      else if (arg.startsWith("--memory-budget=")) {
+        memoryBudget = parsePositiveIntOption(arg);
+        if (memoryBudget <= 0)
+          return;
+        fused = true;
+      } else if (arg.equals("--watch"))
+        watchMillis = ReportFileWatcher.DEFAULT_POLL_MILLIS;
+      else if (arg.startsWith("--watch=")) {
+        watchMillis = parsePositiveIntOption(arg);
+        if (watchMillis <= 0)
+          return;
+      } else if (arg.startsWith("--window=")) {
+        windowHours = parsePositiveIntOption(arg);
+        if (windowHours <= 0)
+          return;
+        if (windowHours > Long.MAX_VALUE / UptimeRollup.NANOS_PER_HOUR) {
+          System.out.println("ERROR");
+          System.err.println("Option --window is too large.");
+          return;
+        }
+      } else {
+        System.out.println("ERROR");
+        System.err.println("Unknown option " + arg + ".");
+        return;
+      }
+    }
+    if (inputPathCount != 1) {
       System.out.println("ERROR");
       System.err.println("Please enter exactly one argument.");
       return;
     }
+    if (fused && (exportPath != null || indexPath != null)) {
+      System.out.println("ERROR");
+      System.err.println("Options --fused and --memory-budget cannot be combined with --export or --index.");
+      return;
+    }
+    if (outagesPath != null && (fused || shards > 0)) {
+      System.out.println("ERROR");
+      System.err.println("Option --outages cannot be combined with --fused, --memory-budget or --shards.");
+      return;
+    }
+    if (resultCachePath != null && (fused || shards > 0 || outagesPath != null)) {
+      System.out.println("ERROR");
+      System.err.println(
+          "Option --result-cache cannot be combined with --fused, --memory-budget, --shards or --outages.");
+      return;
+    }
+    if (windowHours > 0 && watchMillis == 0) {
+      System.out.println("ERROR");
+      System.err.println("Option --window requires --watch.");
+      return;
+    }
+
+    if (watchMillis > 0) {
+      try {
+        new ReportFileWatcher(Paths.get(inputPath), windowHours * UptimeRollup.NANOS_PER_HOUR).run(watchMillis);
+      } catch (InvalidPathException e) {
+        System.out.println("ERROR");
+        System.err.println("Input file " + inputPath + " not found.");
+      }
+      return;
+    }
 
     BufferedReader reader = null;
     try {
-      reader = new BufferedReader(new FileReader(args[0]));
+      reader = new BufferedReader(new FileReader(inputPath));
     } catch (FileNotFoundException e) {
       System.out.println("ERROR");
-      System.err.println("Input file " + args[0] + " not found.");
+      System.err.println("Input file " + inputPath + " not found.");
       return;
     }
 
     List<Integer> emptyStations = new ArrayList<>();
-    HashMap<Integer, Integer> stationsMap = readStationsSection(reader, emptyStations);
+    HashMap<Integer, Integer> stationsMap;
+    UptimeProfiler.PhaseEvent phase = UptimeProfiler.beginPhase("stations");
+    if (topologyCachePath != null) {
+      try {
+        stationsMap = new StationTopologyCache(Paths.get(topologyCachePath)).readStationsSection(reader,
+            emptyStations);
+      } catch (InvalidPathException e) {
+        System.out.println("ERROR");
+        System.err.println("Topology cache directory " + topologyCachePath + " is not a valid path.");
+        return;
+      }
+    } else
+      stationsMap = readStationsSection(reader, emptyStations);
     if (stationsMap == null) {
       emptyStations.clear();
       return; // Error in Stations section
     }
+    phase.commit();
+
+    if (shards > 0 && !stationsMap.isEmpty()) {
+      phase = UptimeProfiler.beginPhase("shards");
+      new ShardCoordinator(shards).run(reader, stationsMap, emptyStations);
+      phase.commit();
+      emptyStations.clear();
+      stationsMap.clear();
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Output has already been printed
+      }
+      return;
+    }
+
+    if (fused) {
+      MemoryBudget budget = memoryBudget > 0 ? new MemoryBudget((long) memoryBudget << 20) : null;
+      phase = UptimeProfiler.beginPhase("reports");
+      HashMap<Integer, StationIntervals> stationIntervalsMap = FusedUptimeEngine
+          .readChargerAvailabilityReportsSection(reader, stationsMap, emptyStations, budget);
+      emptyStations.clear();
+      if (stationsMap.isEmpty())
+        return; // No stations, nothing to output
+      stationsMap.clear();
+      if (stationIntervalsMap == null)
+        return; // Error in Charger Availability Reports section
+      phase.commit();
+
+      try {
+        reader.close();
+      } catch (IOException e) {
+        System.out.println("ERROR");
+        System.err.println("Closing reader failed.");
+        FusedUptimeEngine.deleteSpilledRuns(stationIntervalsMap);
+        return;
+      }
+
+      phase = UptimeProfiler.beginPhase("uptimes");
+      int[][] stationUptimes = FusedUptimeEngine.computeStationUptimes(stationIntervalsMap);
+      stationIntervalsMap.clear();
+      if (stationUptimes == null)
+        return; // Error reading spilled intervals
+      phase.commit();
+      phase = UptimeProfiler.beginPhase("output");
+      Arrays.sort(stationUptimes, new Unsigned.StationIdComparator());
+      printStationUptimes(stationUptimes);
+      phase.commit();
+      if (budget != null)
+        System.err.println(budget);
+      return;
+    }
 
-    HashMap<Integer, List<Report>> stationReportsMap = readChargerAvailabilityReportsSection(reader, stationsMap,
-        emptyStations);
+    HashMap<Integer, List<Report>> stationReportsMap;
+    phase = UptimeProfiler.beginPhase("reports");
+    if (pipeline) {
+      ReportPipeline reportPipeline = new ReportPipeline();
+      stationReportsMap = reportPipeline.readChargerAvailabilityReportsSection(reader, stationsMap, emptyStations);
+      System.err.println(reportPipeline.getReaderCounters());
+      System.err.println(reportPipeline.getParserCounters());
+      System.err.println(reportPipeline.getAggregatorCounters());
+    } else
+      stationReportsMap = readChargerAvailabilityReportsSection(reader, stationsMap, emptyStations, true);
     emptyStations.clear();
     if (stationsMap.isEmpty())
       return; // No stations, nothing to output
     stationsMap.clear();
     if (stationReportsMap == null)
       return; // Error in Charger Availability Reports section
+    phase.commit();
 
     try {
       reader.close();
@@ -337,10 +813,65 @@ public class App {
       return;
     }
 
-    int[][] stationUptimes = computeStationUptimes(stationReportsMap);
-    Arrays.sort(stationUptimes, (arg0, arg1) -> arg0[0] - arg1[0]);
-    printStationUptimes(stationUptimes);
+    if (exportPath != null) {
+      phase = UptimeProfiler.beginPhase("export");
+      if (!exportStationSummaries(stationReportsMap, exportPath)) {
+        stationReportsMap.clear();
+        return;
+      }
+      phase.commit();
+    }
+    if (indexPath != null) {
+      phase = UptimeProfiler.beginPhase("index");
+      if (!StationIntervalIndex.writeIndex(stationReportsMap, indexPath)) {
+        stationReportsMap.clear();
+        return;
+      }
+      phase.commit();
+    }
+
+    int[][] stationUptimes = null;
+    phase = UptimeProfiler.beginPhase("uptimes");
+    if (outagesPath != null) {
+      try (OutageWriter outageWriter = new OutageWriter(Files.newBufferedWriter(Paths.get(outagesPath)))) {
+        stationUptimes = computeStationUptimes(stationReportsMap, outageWriter);
+      } catch (IOException | UncheckedIOException | InvalidPathException e) {
+        System.out.println("ERROR");
+        System.err.println("Outages cannot be written to " + outagesPath + ".");
+        stationReportsMap.clear();
+        return;
+      }
+    } else if (resultCachePath != null) {
+      StationResultCache resultCache;
+      try {
+        resultCache = new StationResultCache(Paths.get(resultCachePath));
+      } catch (InvalidPathException e) {
+        System.out.println("ERROR");
+        System.err.println("Result cache file " + resultCachePath + " is not a valid path.");
+        stationReportsMap.clear();
+        return;
+      }
+      stationUptimes = resultCache.computeStationUptimes(stationReportsMap);
+      resultCache.save();
+      System.err.println(resultCache);
+    }
+    if (stationUptimes != null) {
+      phase.commit();
+      phase = UptimeProfiler.beginPhase("output");
+      Arrays.sort(stationUptimes, new Unsigned.StationIdComparator());
+      printStationUptimes(stationUptimes);
+    } else {
+      // Computed lazily, in order, so that output starts with the first
+      // station and each station's reports are freed once printed; the
+      // phase is both computing and printing
+      printStationUptimes(new StationUptimeIterator(stationReportsMap));
+    }
+    phase.commit();
     stationReportsMap.clear();
+    if (strategies) {
+      for (UptimeStrategy strategy : UptimeStrategy.values())
+        System.err.println(strategy.formatCounters());
+    }
     return;
   }
 }
\ No newline at end of file
@@ -0,0 +1,644 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import main.App.Report;
+
+/**
+ * Scheduler for the input files of many tenants, such as customers, run at
+ * once on a shared pool so that one huge file does not starve the small
+ * ones. Each file is a job split into tasks: one reads the file as
+ * <code>App</code> does, then each of the others computes the uptimes of a
+ * range of its stations, about <code>TASK_REPORTS</code> reports at a time
+ * (a station is never split, so a huge station is a task of its own). The
+ * tasks run on a work-stealing <code>ForkJoinPool</code>, the common pool by
+ * default, so that <code>UptimeStrategy.PARALLEL_SORT</code> can spread a
+ * huge station over the workers left idle.
+ * <br>
+ * </br>
+ * CPU is shared across tenants by weighted fair queuing: whenever a worker
+ * is free, the next task is taken from the tenant with the least virtual
+ * time, which grows with the time of each of its tasks divided by its
+ * priority, so a tenant of priority 2 gets twice the CPU of one of priority
+ * 1 while both have work. A task is charged an estimate of its time when it
+ * starts, corrected once it finishes. A tenant that was idle starts from the
+ * least virtual time of the busy tenants instead of its own, so it can
+ * neither hoard credit while idle nor wait behind the others' history. A
+ * small file thus waits for at most one task per worker before it runs, and
+ * while a single tenant has work, it gets every worker. Within a tenant,
+ * the tasks of files already read come first, then files in the order they
+ * were submitted.
+ * <br>
+ * </br>
+ * The memory of each tenant is bounded by admission: a file is only read
+ * while the tenant's estimated memory in use, that of its files read but not
+ * yet computed plus an estimate for each file being read, leaves room for it.
+ * A tenant using no memory may always read its next file, however large, so
+ * that no file waits forever. Memory is given back as the stations of a file
+ * are computed.
+ * <br>
+ * </br>
+ * The output of each file is exactly that of <code>App</code> without
+ * options, errors included, and is printed as a block once the file is done,
+ * after a <code>==&gt; TENANT PATH &lt;==</code> header line. Blocks come in
+ * the order the files finish. Messages to <code>stderr</code> are not
+ * grouped. A file is read by a single task, so a huge file's reading holds
+ * one worker until it is done.
+ *
+ * @author Kevin Li
+ */
+public class BatchScheduler {
+  /** The reports computed by a task, unless a single station has more. */
+  public static final int TASK_REPORTS = 1 << 14;
+  public static final int MAX_PRIORITY = 100;
+  /** Estimated bytes of memory per byte of an input file, before it is read. */
+  public static final long BYTES_PER_INPUT_BYTE = 2;
+  /** Estimated bytes of memory per report read. */
+  public static final long BYTES_PER_REPORT = 48;
+
+  // Estimated time of a task, charged when it starts and corrected when it
+  // finishes
+  static final long NANOS_PER_INPUT_BYTE = 20;
+  static final long NANOS_PER_REPORT = 100;
+
+  /**
+   * A tenant, with the state the scheduler keeps for it and its counters.
+   */
+  public static class Tenant {
+    final String name;
+    final int priority;
+    final ArrayDeque<Job> pendingJobs = new ArrayDeque<>();
+    final ArrayDeque<Task> readyTasks = new ArrayDeque<>();
+    long virtualTime;
+    int runningTasks;
+    long usedBytes, peakBytes;
+    int jobs, tasks;
+    long busyNanos, longestLatencyNanos;
+
+    Tenant(String name, int priority) {
+      this.name = name;
+      this.priority = priority;
+    }
+
+    boolean isActive() {
+      return runningTasks > 0 || !readyTasks.isEmpty() || !pendingJobs.isEmpty();
+    }
+
+    void addBytes(long bytes) {
+      usedBytes += bytes;
+      if (usedBytes > peakBytes)
+        peakBytes = usedBytes;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getPriority() {
+      return priority;
+    }
+
+    /** @return the peak estimated memory in use, in bytes */
+    public long getPeakBytes() {
+      return peakBytes;
+    }
+
+    /** @return the number of files finished */
+    public int getJobs() {
+      return jobs;
+    }
+
+    /** @return the number of tasks run */
+    public int getTasks() {
+      return tasks;
+    }
+
+    /** @return the time spent running tasks, in nanoseconds */
+    public long getBusyNanos() {
+      return busyNanos;
+    }
+
+    /**
+     * @return the longest time from a file's submission to its output, in
+     *         nanoseconds
+     */
+    public long getLongestLatencyNanos() {
+      return longestLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: priority %d, %d files, %d tasks, %.1f ms busy, %.1f ms longest latency, %d bytes peak",
+          name, priority, jobs, tasks, busyNanos / 1e6, longestLatencyNanos / 1e6, peakBytes);
+    }
+  }
+
+  /** An input file and the state of its computation. */
+  static class Job {
+    final Tenant tenant;
+    final String inputPath;
+    final long fileBytes;
+    final long submitNanos;
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    long reservedBytes;
+
+    // Set by the read task, each station's uptime filled in by the others
+    ArrayList<List<Report>> stationReports;
+    int[][] stationUptimes;
+    final AtomicInteger remainingTasks = new AtomicInteger();
+    volatile boolean failed;
+
+    Job(Tenant tenant, String inputPath) {
+      this.tenant = tenant;
+      this.inputPath = inputPath;
+      this.fileBytes = new File(inputPath).length();
+      this.submitNanos = System.nanoTime();
+    }
+  }
+
+  /** A task reading a job's file, or computing a range of its stations. */
+  static class Task {
+    final Job job;
+    final int from, to; // the range of stations, or -1 to read the file
+    final long reportCount;
+    final long estimatedNanos;
+
+    Task(Job job, int from, int to, long reportCount) {
+      this.job = job;
+      this.from = from;
+      this.to = to;
+      this.reportCount = reportCount;
+      this.estimatedNanos = from < 0 ? job.fileBytes * NANOS_PER_INPUT_BYTE
+          : (reportCount + to - from) * NANOS_PER_REPORT;
+    }
+  }
+
+  /**
+   * Output stream writing to the stream set for the current thread, or to a
+   * default stream otherwise. Installed as <code>System.out</code> while the
+   * scheduler runs, so that what <code>App</code> prints for a file goes to
+   * that file's block.
+   */
+  static class ThreadOutputStream extends OutputStream {
+    final OutputStream defaultOutput;
+    final ThreadLocal<OutputStream> output = new ThreadLocal<>();
+
+    ThreadOutputStream(OutputStream defaultOutput) {
+      this.defaultOutput = defaultOutput;
+    }
+
+    OutputStream getOutput() {
+      OutputStream threadOutput = output.get();
+      return threadOutput != null ? threadOutput : defaultOutput;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      getOutput().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      getOutput().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      getOutput().flush();
+    }
+  }
+
+  final ForkJoinPool pool;
+  final int maxRunningTasks;
+  final long tenantMemoryBytes;
+  final LinkedHashMap<String, Tenant> tenants = new LinkedHashMap<>();
+  int runningTasks;
+  int submittedJobs, finishedJobs;
+  PrintStream stdout;
+  ThreadOutputStream threadOutput;
+
+  /**
+   * Create a new scheduler on the common pool. It is assumed that
+   * <code>tenantMemoryBytes</code> is positive.
+   *
+   * @param tenantMemoryBytes the estimated memory each tenant may use, in
+   *                          bytes
+   */
+  public BatchScheduler(long tenantMemoryBytes) {
+    this(ForkJoinPool.commonPool(), tenantMemoryBytes);
+  }
+
+  /**
+   * Create a new scheduler. It is assumed that <code>tenantMemoryBytes</code>
+   * is positive.
+   *
+   * @param pool              the pool to run the tasks on, as many at a time
+   *                          as it has workers
+   * @param tenantMemoryBytes the estimated memory each tenant may use, in
+   *                          bytes
+   */
+  public BatchScheduler(ForkJoinPool pool, long tenantMemoryBytes) {
+    this.pool = pool;
+    this.maxRunningTasks = pool.getParallelism();
+    this.tenantMemoryBytes = tenantMemoryBytes;
+  }
+
+  /**
+   * Add a tenant. It is assumed that <code>priority</code> is between 1 and
+   * <code>MAX_PRIORITY</code>.
+   *
+   * @param name     the name of the tenant
+   * @param priority the tenant's weight, relative to the others'
+   * @return false if a tenant of that name was already added
+   */
+  public synchronized boolean addTenant(String name, int priority) {
+    if (tenants.containsKey(name))
+      return false;
+    tenants.put(name, new Tenant(name, priority));
+    return true;
+  }
+
+  /**
+   * @param name the name of the tenant
+   * @return the tenant, or <code>null</code> if it was not added
+   */
+  public synchronized Tenant getTenant(String name) {
+    return tenants.get(name);
+  }
+
+  /**
+   * Submit an input file for a tenant. Files may be submitted while the
+   * scheduler runs. It is assumed that the tenant was added.
+   *
+   * @param tenantName the name of the tenant
+   * @param inputPath  the relative path to the input file
+   */
+  public synchronized void submit(String tenantName, String inputPath) {
+    Tenant tenant = tenants.get(tenantName);
+    if (!tenant.isActive()) {
+      // Catch up with the busy tenants, if any
+      long leastVirtualTime = Long.MAX_VALUE;
+      for (Tenant other : tenants.values()) {
+        if (other.isActive())
+          leastVirtualTime = Math.min(leastVirtualTime, other.virtualTime);
+      }
+      if (leastVirtualTime != Long.MAX_VALUE)
+        tenant.virtualTime = Math.max(tenant.virtualTime, leastVirtualTime);
+    }
+    Job job = new Job(tenant, inputPath);
+    job.reservedBytes = job.fileBytes * BYTES_PER_INPUT_BYTE;
+    tenant.pendingJobs.add(job);
+    submittedJobs++;
+    if (stdout != null)
+      dispatch();
+  }
+
+  /**
+   * Run every file submitted, printing each file's output as it finishes,
+   * and return once all of them, including those submitted meanwhile, are
+   * done. <code>System.out</code> is replaced while running, so the
+   * scheduler must not run alongside anything else printing to it.
+   */
+  public void run() {
+    synchronized (this) {
+      stdout = System.out;
+      threadOutput = new ThreadOutputStream(stdout);
+    }
+    System.setOut(new PrintStream(threadOutput, true));
+    try {
+      synchronized (this) {
+        dispatch();
+        while (finishedJobs < submittedJobs)
+          wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      System.setOut(stdout);
+      synchronized (this) {
+        stdout = null;
+      }
+    }
+  }
+
+  /** @return true if the tenant's next file would fit in its memory */
+  boolean admits(Tenant tenant) {
+    Job job = tenant.pendingJobs.peek();
+    return job != null && (tenant.usedBytes == 0 || tenant.usedBytes + job.reservedBytes <= tenantMemoryBytes);
+  }
+
+  /** Start tasks, fairest tenant first, until every worker is busy. */
+  void dispatch() {
+    while (runningTasks < maxRunningTasks) {
+      Tenant next = null;
+      for (Tenant tenant : tenants.values()) {
+        if ((!tenant.readyTasks.isEmpty() || admits(tenant))
+            && (next == null || tenant.virtualTime < next.virtualTime))
+          next = tenant;
+      }
+      if (next == null)
+        return;
+
+      Task task = next.readyTasks.poll();
+      if (task == null) {
+        Job job = next.pendingJobs.poll();
+        next.addBytes(job.reservedBytes);
+        task = new Task(job, -1, -1, 0);
+      }
+      next.virtualTime += task.estimatedNanos / next.priority;
+      next.runningTasks++;
+      runningTasks++;
+      Task started = task;
+      pool.execute(() -> execute(started));
+    }
+  }
+
+  /** Run a task on a worker, then account for it and start the next ones. */
+  void execute(Task task) {
+    Job job = task.job;
+    long startNanos = System.nanoTime();
+    List<Task> tasks = null;
+    boolean finished = false;
+    threadOutput.output.set(job.output);
+    try {
+      if (task.from < 0) {
+        try {
+          tasks = read(job);
+        } catch (RuntimeException | Error e) {
+          // Fail the job rather than the scheduler, which would wait for it.
+          // Errors are caught too, since an OutOfMemoryError while reading a
+          // large file frees the reports read so far.
+          System.out.println("ERROR");
+          System.err.println("Input file " + job.inputPath + " cannot be read: " + e + ".");
+          job.stationUptimes = null;
+          job.stationReports = null;
+          tasks = new ArrayList<>(0);
+        }
+        finished = tasks.isEmpty();
+      } else
+        finished = computeUptimes(task);
+      if (finished)
+        print(job);
+    } finally {
+      threadOutput.output.remove();
+      // Always account for the task, or run() would wait for it forever
+      account(task, tasks, finished, System.nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * Account for a task that ran, then start the next ones.
+   *
+   * @param task         the task
+   * @param tasks        the tasks a read task split its job into, if any
+   * @param finished     true if this was the job's last task
+   * @param elapsedNanos the time the task ran
+   */
+  synchronized void account(Task task, List<Task> tasks, boolean finished, long elapsedNanos) {
+    Job job = task.job;
+    Tenant tenant = job.tenant;
+    tenant.virtualTime += (elapsedNanos - task.estimatedNanos) / tenant.priority;
+    tenant.busyNanos += elapsedNanos;
+    tenant.tasks++;
+    tenant.runningTasks--;
+    runningTasks--;
+    if (task.from < 0) {
+      // Trade the estimate for the memory of the reports read
+      long usedBytes = 0;
+      if (tasks != null) {
+        for (Task uptimeTask : tasks)
+          usedBytes += uptimeTask.reportCount * BYTES_PER_REPORT
+              + (uptimeTask.to - uptimeTask.from) * MemoryBudget.STATION_OVERHEAD_BYTES;
+        tenant.readyTasks.addAll(tasks);
+      }
+      tenant.addBytes(usedBytes - job.reservedBytes);
+      job.reservedBytes = usedBytes;
+    } else {
+      long freedBytes = task.reportCount * BYTES_PER_REPORT
+          + (task.to - task.from) * MemoryBudget.STATION_OVERHEAD_BYTES;
+      tenant.addBytes(-freedBytes);
+      job.reservedBytes -= freedBytes;
+    }
+    if (finished) {
+      tenant.addBytes(-job.reservedBytes);
+      tenant.jobs++;
+      tenant.longestLatencyNanos = Math.max(tenant.longestLatencyNanos, System.nanoTime() - job.submitNanos);
+      finishedJobs++;
+      notifyAll();
+    }
+    dispatch();
+  }
+
+  /**
+   * Read a job's file and split its stations into tasks, as
+   * <code>App</code> reads it without options. Errors are printed to the
+   * job's output.
+   *
+   * @param job the job
+   * @return the tasks computing the stations, or none if the job is done
+   */
+  List<Task> read(Job job) {
+    List<Task> output = new ArrayList<>();
+    BufferedReader reader;
+    try {
+      reader = new BufferedReader(new FileReader(job.inputPath));
+    } catch (FileNotFoundException e) {
+      System.out.println("ERROR");
+      System.err.println("Input file " + job.inputPath + " not found.");
+      return output;
+    }
+
+    try {
+      List<Integer> emptyStations = new ArrayList<>();
+      HashMap<Integer, Integer> stationsMap = App.readStationsSection(reader, emptyStations);
+      if (stationsMap == null)
+        return output; // Error in Stations section
+      HashMap<Integer, List<Report>> stationReportsMap = App.readChargerAvailabilityReportsSection(reader,
+          stationsMap, emptyStations, true);
+      emptyStations.clear();
+      if (stationsMap.isEmpty() || stationReportsMap == null)
+        return output; // No stations, or error in Charger Availability Reports section
+      stationsMap.clear();
+
+      // Stations in ascending order, so that they are printed as computed;
+      // flipping the sign bit makes the signed order the unsigned one
+      int[] stationIds = new int[stationReportsMap.size()];
+      int i = 0;
+      for (Integer stationId : stationReportsMap.keySet())
+        stationIds[i++] = stationId.intValue() ^ Integer.MIN_VALUE;
+      Arrays.sort(stationIds);
+      ArrayList<List<Report>> stationReports = new ArrayList<>(stationIds.length);
+      int[][] stationUptimes = new int[stationIds.length][2];
+      for (i = 0; i < stationIds.length; i++) {
+        stationUptimes[i][0] = stationIds[i] ^ Integer.MIN_VALUE;
+        stationReports.add(stationReportsMap.get(stationUptimes[i][0]));
+      }
+      stationReportsMap.clear();
+      job.stationReports = stationReports;
+      job.stationUptimes = stationUptimes;
+
+      // Ranges of about TASK_REPORTS reports, counting each station as one
+      int from = 0;
+      long reportCount = 0;
+      for (i = 0; i < stationIds.length; i++) {
+        reportCount += stationReports.get(i).size();
+        if (reportCount + i + 1 - from >= TASK_REPORTS || i == stationIds.length - 1) {
+          output.add(new Task(job, from, i + 1, reportCount));
+          from = i + 1;
+          reportCount = 0;
+        }
+      }
+      job.remainingTasks.set(output.size());
+      return output;
+    } finally {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Everything has been read
+      }
+    }
+  }
+
+  /**
+   * Compute the uptimes of a task's stations, freeing their reports.
+   *
+   * @param task the task
+   * @return true if this was the job's last task
+   */
+  boolean computeUptimes(Task task) {
+    Job job = task.job;
+    try {
+      for (int i = task.from; i < task.to; i++) {
+        job.stationUptimes[i][1] = UptimeStrategy.computeStationUptime(job.stationReports.get(i),
+            job.stationUptimes[i][0], null);
+        job.stationReports.set(i, null); // each task sets only its own range
+      }
+    } catch (RuntimeException | Error e) {
+      // Fail the job rather than the scheduler, which would wait for it
+      job.failed = true;
+      System.err.println("Uptimes of " + job.inputPath + " cannot be computed: " + e + ".");
+    }
+    return job.remainingTasks.decrementAndGet() == 0;
+  }
+
+  /** Print a finished job's output as a block. */
+  void print(Job job) {
+    if (job.stationUptimes != null) {
+      if (job.failed)
+        System.out.println("ERROR");
+      else
+        App.printStationUptimes(job.stationUptimes);
+      job.stationUptimes = null;
+      job.stationReports = null;
+    }
+    byte[] output = job.output.toByteArray();
+    synchronized (stdout) {
+      stdout.print("==> " + job.tenant.name + " " + job.inputPath + " <==\n");
+      stdout.write(output, 0, output.length);
+      stdout.flush();
+    }
+  }
+
+  /**
+   * Run the files listed in a manifest, one per line as
+   * <code>TENANT PRIORITY PATH</code>, with the priority between 1 and
+   * <code>MAX_PRIORITY</code>. Each file's output is printed as a block once
+   * it is done, and each tenant's counters to <code>stderr</code> at the end.
+   * <code>--tenant-memory=N</code> bounds each tenant's memory to N MiB;
+   * by default, half of the heap is split evenly across the tenants.
+   *
+   * @param args the options and the relative path to the manifest
+   */
+  public static void main(String[] args) {
+    String manifestPath = null;
+    int manifestPathCount = 0;
+    int tenantMemory = 0;
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        manifestPath = arg;
+        manifestPathCount++;
+      } else if (arg.startsWith("--tenant-memory=")) {
+        tenantMemory = App.parsePositiveIntOption(arg);
+        if (tenantMemory <= 0)
+          return;
+      } else {
+        System.out.println("ERROR");
+        System.err.println("Unknown option " + arg + ".");
+        return;
+      }
+    }
+    if (manifestPathCount != 1) {
+      System.out.println("ERROR");
+      System.err.println("Usage: BatchScheduler [--tenant-memory=N] manifest.txt");
+      return;
+    }
+
+    List<String[]> entries = new ArrayList<>();
+    LinkedHashMap<String, Integer> priorities = new LinkedHashMap<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(manifestPath))) {
+      int lineNumber = 0;
+      for (String nextLine = reader.readLine(); nextLine != null; nextLine = reader.readLine()) {
+        lineNumber++;
+        if (nextLine.isEmpty())
+          continue;
+        String[] entry = nextLine.split(" ", 3);
+        int priority = 0;
+        try {
+          if (entry.length == 3)
+            priority = Integer.parseInt(entry[1]);
+        } catch (NumberFormatException e) {
+          // Handled below
+        }
+        if (priority < 1 || priority > MAX_PRIORITY || entry[2].isEmpty()) {
+          System.out.println("ERROR");
+          System.err.println("Manifest line " + lineNumber + " must be TENANT PRIORITY PATH, with a priority from 1 to "
+              + MAX_PRIORITY + ".");
+          return;
+        }
+        Integer previous = priorities.putIfAbsent(entry[0], priority);
+        if (previous != null && previous.intValue() != priority) {
+          System.out.println("ERROR");
+          System.err.println("Tenant " + entry[0] + " is given more than one priority.");
+          return;
+        }
+        entries.add(entry);
+      }
+    } catch (FileNotFoundException e) {
+      System.out.println("ERROR");
+      System.err.println("Manifest file " + manifestPath + " not found.");
+      return;
+    } catch (IOException e) {
+      System.out.println("ERROR");
+      System.err.println("Manifest file cannot be read.");
+      return;
+    }
+    if (entries.isEmpty())
+      return;
+
+    long tenantMemoryBytes = tenantMemory > 0 ? (long) tenantMemory << 20
+        : Runtime.getRuntime().maxMemory() / 2 / priorities.size();
+    BatchScheduler scheduler = new BatchScheduler(tenantMemoryBytes);
+    for (String tenantName : priorities.keySet())
+      scheduler.addTenant(tenantName, priorities.get(tenantName));
+    for (String[] entry : entries)
+      scheduler.submit(entry[0], entry[2]);
+    scheduler.run();
+    for (Tenant tenant : scheduler.tenants.values())
+      System.err.println(tenant);
+  }
+}
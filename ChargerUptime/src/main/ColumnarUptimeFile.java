@@ -0,0 +1,212 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Column-oriented binary export of station summaries, meant to be
+ * memory-mapped and scanned by downstream analytics without parsing. All
+ * values are little-endian and every column starts at a multiple of 8 bytes.
+ * <br>
+ * </br>
+ * Layout:
+ * <ul>
+ * <li>header (64 bytes): the magic <code>CUPTCOL1</code>, the row count
+ * (int), the station ID delta width in bytes (int, 1, 2 or 4), the first
+ * station ID (long, unsigned 32-bit value), then the offsets (long) of the
+ * five columns below, and 8 reserved bytes</li>
+ * <li>station IDs: the unsigned difference from the previous row's station ID
+ * (0 for the first row), so IDs are rebuilt by a running sum. Rows are sorted
+ * by unsigned station ID, so the deltas are positive and usually small.</li>
+ * <li>uptime percentages: one byte per row</li>
+ * <li>covered times: one long per row, in nanoseconds</li>
+ * <li>total times: one long per row, in nanoseconds</li>
+ * <li>report counts: one int per row</li>
+ * </ul>
+ *
+ * @author Kevin Li
+ */
+public class ColumnarUptimeFile {
+  public static final long MAGIC = 0x314c4f4354505543L; // "CUPTCOL1" in little-endian
+  public static final int HEADER_SIZE = 64;
+
+  private final ByteBuffer buffer;
+  private final int rowCount;
+  private final int idDeltaWidth;
+  private final int firstStationId;
+  private final int idOffset, uptimeOffset, coveredOffset, totalOffset, reportCountOffset;
+
+  private ColumnarUptimeFile(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC)
+      throw new IOException("Not a columnar uptime file.");
+    rowCount = buffer.getInt(8);
+    idDeltaWidth = buffer.getInt(12);
+    firstStationId = (int) buffer.getLong(16);
+    idOffset = (int) buffer.getLong(24);
+    uptimeOffset = (int) buffer.getLong(32);
+    coveredOffset = (int) buffer.getLong(40);
+    totalOffset = (int) buffer.getLong(48);
+    reportCountOffset = (int) buffer.getLong(56);
+    if (rowCount < 0 || (idDeltaWidth != 1 && idDeltaWidth != 2 && idDeltaWidth != 4)
+        || !fits(buffer.getLong(24), (long) rowCount * idDeltaWidth) || !fits(buffer.getLong(32), rowCount)
+        || !fits(buffer.getLong(40), 8L * rowCount) || !fits(buffer.getLong(48), 8L * rowCount)
+        || !fits(buffer.getLong(56), 4L * rowCount))
+      throw new IOException("Not a columnar uptime file.");
+  }
+
+  /** @return true if the column of the given offset and size is in the buffer */
+  private boolean fits(long offset, long size) {
+    return offset >= HEADER_SIZE && offset <= buffer.capacity() - size;
+  }
+
+  /**
+   * Memory-map an exported file for reading.
+   *
+   * @param path the path of the file
+   * @return the mapped file
+   * @throws IOException if the file cannot be read, is not a columnar uptime
+   *                     file or is too large to be mapped at once
+   */
+  public static ColumnarUptimeFile open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+        throw new IOException("Columnar uptime file is too large.");
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new ColumnarUptimeFile(buffer);
+    }
+  }
+
+  /**
+   * Write the given station summaries to a file. It is assumed that the
+   * summaries are sorted in ascending order of unsigned station ID, with no
+   * duplicates.
+   *
+   * @param path      the path of the file, which is overwritten if it exists
+   * @param summaries the station summaries
+   * @throws IOException if the file cannot be written, or would be too large
+   *                     to be mapped at once
+   */
+  public static void write(Path path, StationSummary[] summaries) throws IOException {
+    int rowCount = summaries.length;
+
+    // Pick the narrowest width that fits every station ID delta
+    long maxDelta = 0;
+    for (int i = 1; i < rowCount; i++)
+      maxDelta = Math.max(maxDelta, Integer.toUnsignedLong(summaries[i].stationId - summaries[i - 1].stationId));
+    int idDeltaWidth = maxDelta <= 0xff ? 1 : maxDelta <= 0xffff ? 2 : 4;
+
+    long idOffset = HEADER_SIZE;
+    long uptimeOffset = align(idOffset + (long) rowCount * idDeltaWidth);
+    long coveredOffset = align(uptimeOffset + rowCount);
+    long totalOffset = coveredOffset + 8L * rowCount;
+    long reportCountOffset = totalOffset + 8L * rowCount;
+    long size = align(reportCountOffset + 4L * rowCount);
+    // The file is mapped and indexed with ints, so it must stay under 2 GiB
+    if (size > Integer.MAX_VALUE)
+      throw new IOException("Too many stations for a columnar uptime file.");
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putLong(0, MAGIC);
+      buffer.putInt(8, rowCount);
+      buffer.putInt(12, idDeltaWidth);
+      buffer.putLong(16, rowCount == 0 ? 0 : Integer.toUnsignedLong(summaries[0].stationId));
+      buffer.putLong(24, idOffset);
+      buffer.putLong(32, uptimeOffset);
+      buffer.putLong(40, coveredOffset);
+      buffer.putLong(48, totalOffset);
+      buffer.putLong(56, reportCountOffset);
+
+      // Each column is written in one sequential pass
+      for (int i = 0; i < rowCount; i++) {
+        int delta = i == 0 ? 0 : summaries[i].stationId - summaries[i - 1].stationId;
+        int position = (int) idOffset + i * idDeltaWidth;
+        if (idDeltaWidth == 1)
+          buffer.put(position, (byte) delta);
+        else if (idDeltaWidth == 2)
+          buffer.putShort(position, (short) delta);
+        else
+          buffer.putInt(position, delta);
+      }
+      for (int i = 0; i < rowCount; i++)
+        buffer.put((int) uptimeOffset + i, (byte) summaries[i].uptime);
+      for (int i = 0; i < rowCount; i++)
+        buffer.putLong((int) coveredOffset + 8 * i, summaries[i].coveredTime);
+      for (int i = 0; i < rowCount; i++)
+        buffer.putLong((int) totalOffset + 8 * i, summaries[i].totalTime);
+      for (int i = 0; i < rowCount; i++)
+        buffer.putInt((int) reportCountOffset + 4 * i, summaries[i].reportCount);
+      buffer.force();
+    }
+  }
+
+  private static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Decode the station ID column.
+   *
+   * @return the station IDs, in row order
+   */
+  public int[] getStationIds() {
+    int[] output = new int[rowCount];
+    int stationId = firstStationId;
+    for (int i = 0; i < rowCount; i++) {
+      int position = idOffset + i * idDeltaWidth;
+      if (idDeltaWidth == 1)
+        stationId += buffer.get(position) & 0xff;
+      else if (idDeltaWidth == 2)
+        stationId += buffer.getShort(position) & 0xffff;
+      else
+        stationId += buffer.getInt(position);
+      output[i] = stationId;
+    }
+    return output;
+  }
+
+  /**
+   * @param row the row index
+   * @return the uptime of the row's station, as a truncated percentage
+   */
+  public int getUptime(int row) {
+    return buffer.get(uptimeOffset + row);
+  }
+
+  /**
+   * @param row the row index
+   * @return the covered time of the row's station, in nanoseconds
+   */
+  public long getCoveredTime(int row) {
+    return buffer.getLong(coveredOffset + 8 * row);
+  }
+
+  /**
+   * @param row the row index
+   * @return the total time of the row's station, in nanoseconds
+   */
+  public long getTotalTime(int row) {
+    return buffer.getLong(totalOffset + 8 * row);
+  }
+
+  /**
+   * @param row the row index
+   * @return the report count of the row's station
+   */
+  public int getReportCount(int row) {
+    return buffer.getInt(reportCountOffset + 4 * row);
+  }
+}
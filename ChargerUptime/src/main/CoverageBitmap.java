@@ -0,0 +1,452 @@
+package main;
+
+import java.util.Arrays;
+import java.util.List;
+
+import main.App.Report;
+
+/**
+ * Uptime of a station quantized to slots of a fixed resolution, such as a
+ * minute, as a compressed bitmap with one bit per slot, for fleet-level
+ * questions such as how long at least N stations were up at once. Slot
+ * <code>i</code> covers the times from <code>i * resolution</code> up to
+ * <code>(i + 1) * resolution</code>, so that the slots of different stations
+ * line up, as the buckets of an <code>UptimeRollup</code> do. An uptime
+ * interval sets the slots between its start and end, each rounded to the
+ * nearest slot boundary, so a slot is up if the station was up for about all
+ * of it.
+ * <br>
+ * </br>
+ * As in Roaring bitmaps, the slots are split into chunks of
+ * <code>CHUNK_SLOTS</code>, and only chunks with a slot set are kept, in
+ * order of their key, the slot index without its low
+ * <code>CHUNK_BITS</code> bits. A chunk keeps its runs of set slots, as the
+ * first and last slot of each, unless it has more than <code>MAX_RUNS</code>
+ * runs, in which case it keeps its <code>CHUNK_WORDS</code> words of bits.
+ * Long stretches of uptime thus take 4 bytes per chunk, and
+ * <code>and</code>, <code>or</code> and <code>atLeast</code> work on whole
+ * chunks at a time, 64 slots per word operation, instead of sweeping over
+ * interval ends. Bitmaps are never modified once built, and may share
+ * chunks.
+ * <br>
+ * </br>
+ * All times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class CoverageBitmap {
+  public static final int CHUNK_BITS = 16;
+  public static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+  public static final int CHUNK_WORDS = CHUNK_SLOTS >>> 6;
+  /** The most runs a chunk keeps, beyond which its words take less space. */
+  public static final int MAX_RUNS = CHUNK_WORDS << 1;
+  static final char[] FULL_CHUNK = { 0, CHUNK_SLOTS - 1 };
+
+  final long resolution;
+  int chunkCount;
+  long[] keys = new long[0];
+  // Each chunk is either the first and last slot of each run, or its words
+  char[][] runs = new char[0][];
+  long[][] words = new long[0][];
+
+  /**
+   * Create an empty bitmap. It is assumed that <code>resolution</code> is
+   * positive.
+   *
+   * @param resolution the width of a slot, in nanoseconds
+   */
+  public CoverageBitmap(long resolution) {
+    this.resolution = resolution;
+  }
+
+  /**
+   * Compute the bitmap of a station given its reported time intervals. The
+   * list of reports is left unchanged. It is assumed that
+   * <code>stationTimeReports</code> is not null and <code>resolution</code>
+   * is positive.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @param resolution         the width of a slot, in nanoseconds
+   * @return the bitmap of the station's uptime
+   */
+  public static CoverageBitmap compute(List<Report> stationTimeReports, long resolution) {
+    return fromIntervals(App.mergeUptimeIntervals(stationTimeReports), resolution);
+  }
+
+  /**
+   * Compute the bitmap of the given merged uptime intervals. It is assumed
+   * that <code>resolution</code> is positive.
+   *
+   * @param mergedIntervals the merged uptime intervals, in the format
+   *                        returned by <code>App.mergeUptimeIntervals</code>
+   * @param resolution      the width of a slot, in nanoseconds
+   * @return the bitmap of the intervals
+   */
+  public static CoverageBitmap fromIntervals(long[] mergedIntervals, long resolution) {
+    CoverageBitmap output = new CoverageBitmap(resolution);
+    long[] chunk = new long[CHUNK_WORDS];
+    long chunkKey = -1; // none yet
+    for (int i = 0; i < mergedIntervals.length; i += 2) {
+      long from = output.toSlot(mergedIntervals[i]), to = output.toSlot(mergedIntervals[i + 1]);
+      // Rounding may leave an interval with no slots at all
+      while (Unsigned.lessThan(from, to)) {
+        long key = from >>> CHUNK_BITS;
+        if (key != chunkKey) {
+          if (chunkKey >= 0)
+            output.addChunk(chunkKey, chunk);
+          chunkKey = key;
+        }
+        int first = (int) from & (CHUNK_SLOTS - 1);
+        long chunkEnd = (key + 1) << CHUNK_BITS; // 0 past the last chunk
+        int end = Unsigned.lessThan(to, chunkEnd) || chunkEnd == 0 && to != 0
+            ? (int) (to - (key << CHUNK_BITS))
+            : CHUNK_SLOTS;
+        if (first == 0 && end == CHUNK_SLOTS) {
+          output.addChunk(key, FULL_CHUNK, null);
+          chunkKey = -1;
+        } else
+          setRange(chunk, first, end);
+        from = (key << CHUNK_BITS) + end;
+        if (from == 0)
+          break; // the last chunk
+      }
+    }
+    if (chunkKey >= 0)
+      output.addChunk(chunkKey, chunk);
+    return output;
+  }
+
+  /** @return the slot boundary nearest to the given time */
+  long toSlot(long time) {
+    long slot = Long.divideUnsigned(time, resolution), remainder = Long.remainderUnsigned(time, resolution);
+    // Unless the boundary after it is past the largest time
+    if (remainder != 0 && Unsigned.lessOrEqual(resolution - remainder, remainder)
+        && Unsigned.lessThan(slot, Long.divideUnsigned(Unsigned.MAX_TIME, resolution)))
+      slot++;
+    return slot;
+  }
+
+  /** Set the bits of the slots at <code>[from, to)</code> in a chunk's words. */
+  static void setRange(long[] chunk, int from, int to) {
+    int firstWord = from >>> 6, lastWord = (to - 1) >>> 6;
+    long firstMask = -1L << from, lastMask = -1L >>> -to; // shifts are mod 64
+    if (firstWord == lastWord) {
+      chunk[firstWord] |= firstMask & lastMask;
+      return;
+    }
+    chunk[firstWord] |= firstMask;
+    for (int i = firstWord + 1; i < lastWord; i++)
+      chunk[i] = -1L;
+    chunk[lastWord] |= lastMask;
+  }
+
+  /** Write a chunk's slots as words, overwriting <code>chunk</code>. */
+  static void toWords(char[] chunkRuns, long[] chunkWords, long[] chunk) {
+    if (chunkWords != null) {
+      System.arraycopy(chunkWords, 0, chunk, 0, CHUNK_WORDS);
+      return;
+    }
+    Arrays.fill(chunk, 0);
+    for (int i = 0; i < chunkRuns.length; i += 2)
+      setRange(chunk, chunkRuns[i], chunkRuns[i + 1] + 1);
+  }
+
+  /** @return the number of runs of set bits in a chunk's words */
+  static int countRuns(long[] chunk) {
+    int count = 0;
+    long carry = 0; // the top bit of the previous word
+    for (long word : chunk) {
+      count += Long.bitCount(word & ~((word << 1) | carry));
+      carry = word >>> 63;
+    }
+    return count;
+  }
+
+  /**
+   * Append a chunk given its words, as runs or words, whichever is smaller,
+   * and clear the words. Chunks are appended in order of their keys.
+   */
+  void addChunk(long key, long[] chunk) {
+    int runCount = countRuns(chunk);
+    if (runCount == 0)
+      return;
+    if (runCount > MAX_RUNS)
+      addChunk(key, null, chunk.clone());
+    else
+      addChunk(key, toRuns(chunk, runCount), null);
+    Arrays.fill(chunk, 0);
+  }
+
+  /** @return the first and last slot of each run of set bits in a chunk's words */
+  static char[] toRuns(long[] chunk, int runCount) {
+    char[] output = new char[runCount << 1];
+    int length = 0;
+    for (int i = 0; i < CHUNK_WORDS; i++) {
+      long word = chunk[i];
+      while (word != 0) {
+        int first = Long.numberOfTrailingZeros(word);
+        long zeros = ~word >>> first << first; // the unset bits from the run on
+        int end = zeros == 0 ? 64 : Long.numberOfTrailingZeros(zeros);
+        if (length > 0 && output[length - 1] == (i << 6) + first - 1)
+          output[length - 1] = (char) ((i << 6) + end - 1); // continues from the previous word
+        else {
+          output[length++] = (char) ((i << 6) + first);
+          output[length++] = (char) ((i << 6) + end - 1);
+        }
+        word &= end == 64 ? 0 : -1L << end;
+      }
+    }
+    return output;
+  }
+
+  /** Append a chunk as it is. Chunks are appended in order of their keys. */
+  void addChunk(long key, char[] chunkRuns, long[] chunkWords) {
+    if (chunkCount == keys.length) {
+      int capacity = Math.max(4, chunkCount << 1);
+      keys = Arrays.copyOf(keys, capacity);
+      runs = Arrays.copyOf(runs, capacity);
+      words = Arrays.copyOf(words, capacity);
+    }
+    keys[chunkCount] = key;
+    runs[chunkCount] = chunkRuns;
+    words[chunkCount++] = chunkWords;
+  }
+
+  /** @return true if chunk <code>i</code> has every slot set */
+  boolean isFull(int i) {
+    return runs[i] != null && runs[i].length == 2 && runs[i][0] == 0 && runs[i][1] == CHUNK_SLOTS - 1;
+  }
+
+  private void checkResolution(CoverageBitmap other) {
+    if (other.resolution != resolution)
+      throw new IllegalArgumentException("Bitmaps of resolutions " + resolution + " and " + other.resolution
+          + " cannot be combined.");
+  }
+
+  /**
+   * @param other a bitmap of the same resolution
+   * @return the slots set in both bitmaps, when both stations were up
+   * @throws IllegalArgumentException if the resolutions differ
+   */
+  public CoverageBitmap and(CoverageBitmap other) {
+    checkResolution(other);
+    CoverageBitmap output = new CoverageBitmap(resolution);
+    long[] chunk = new long[CHUNK_WORDS], otherChunk = new long[CHUNK_WORDS];
+    int i = 0, j = 0;
+    while (i < chunkCount && j < other.chunkCount) {
+      if (keys[i] < other.keys[j])
+        i++;
+      else if (keys[i] > other.keys[j])
+        j++;
+      else {
+        if (isFull(i))
+          output.addChunk(keys[i], other.runs[j], other.words[j]);
+        else if (other.isFull(j))
+          output.addChunk(keys[i], runs[i], words[i]);
+        else {
+          toWords(runs[i], words[i], chunk);
+          toWords(other.runs[j], other.words[j], otherChunk);
+          for (int k = 0; k < CHUNK_WORDS; k++)
+            chunk[k] &= otherChunk[k];
+          output.addChunk(keys[i], chunk);
+        }
+        i++;
+        j++;
+      }
+    }
+    return output;
+  }
+
+  /**
+   * @param other a bitmap of the same resolution
+   * @return the slots set in either bitmap, when either station was up
+   * @throws IllegalArgumentException if the resolutions differ
+   */
+  public CoverageBitmap or(CoverageBitmap other) {
+    checkResolution(other);
+    CoverageBitmap output = new CoverageBitmap(resolution);
+    long[] chunk = new long[CHUNK_WORDS], otherChunk = new long[CHUNK_WORDS];
+    int i = 0, j = 0;
+    while (i < chunkCount || j < other.chunkCount) {
+      if (j == other.chunkCount || i < chunkCount && keys[i] < other.keys[j]) {
+        output.addChunk(keys[i], runs[i], words[i]);
+        i++;
+      } else if (i == chunkCount || keys[i] > other.keys[j]) {
+        output.addChunk(other.keys[j], other.runs[j], other.words[j]);
+        j++;
+      } else {
+        if (isFull(i) || other.isFull(j))
+          output.addChunk(keys[i], FULL_CHUNK, null);
+        else {
+          toWords(runs[i], words[i], chunk);
+          toWords(other.runs[j], other.words[j], otherChunk);
+          for (int k = 0; k < CHUNK_WORDS; k++)
+            chunk[k] |= otherChunk[k];
+          output.addChunk(keys[i], chunk);
+        }
+        i++;
+        j++;
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Compute the slots set in at least <code>n</code> of the bitmaps, when at
+   * least <code>n</code> stations were up at once. Within each chunk, the
+   * number of bitmaps with each slot set is kept as bit-sliced counters, one
+   * word of each counter bit per 64 slots, so that adding a bitmap's chunk
+   * and comparing the counts with <code>n</code> take a few word operations
+   * per 64 slots. Chunks set in fewer than <code>n</code> bitmaps are
+   * skipped, and full chunks only shift the count needed.
+   *
+   * @param bitmaps the bitmaps, all of the given resolution
+   * @param n       the number of bitmaps a slot must be set in, at least 1
+   * @param resolution the width of a slot, in nanoseconds
+   * @return the slots set in at least <code>n</code> of the bitmaps
+   * @throws IllegalArgumentException if a resolution differs, or
+   *                                  <code>n</code> is less than 1
+   */
+  public static CoverageBitmap atLeast(List<CoverageBitmap> bitmaps, int n, long resolution) {
+    if (n < 1)
+      throw new IllegalArgumentException("A slot must be set in at least 1 bitmap, not " + n + ".");
+    CoverageBitmap output = new CoverageBitmap(resolution);
+    for (CoverageBitmap bitmap : bitmaps)
+      output.checkResolution(bitmap);
+    if (n > bitmaps.size())
+      return output;
+
+    int bitmapCount = bitmaps.size();
+    int[] cursors = new int[bitmapCount];
+    int[] partial = new int[bitmapCount]; // bitmaps with a partial chunk at the key
+    int counterBits = 32 - Integer.numberOfLeadingZeros(bitmapCount);
+    long[][] counters = new long[counterBits][CHUNK_WORDS];
+    long[] chunk = new long[CHUNK_WORDS];
+    while (true) {
+      long key = Long.MAX_VALUE;
+      for (int b = 0; b < bitmapCount; b++) {
+        CoverageBitmap bitmap = bitmaps.get(b);
+        if (cursors[b] < bitmap.chunkCount)
+          key = Math.min(key, bitmap.keys[cursors[b]]);
+      }
+      if (key == Long.MAX_VALUE)
+        return output; // keys are below 2^48
+
+      int fullCount = 0, partialCount = 0;
+      for (int b = 0; b < bitmapCount; b++) {
+        CoverageBitmap bitmap = bitmaps.get(b);
+        if (cursors[b] < bitmap.chunkCount && bitmap.keys[cursors[b]] == key) {
+          if (bitmap.isFull(cursors[b]))
+            fullCount++;
+          else
+            partial[partialCount++] = b;
+        }
+      }
+      int needed = n - fullCount;
+      if (needed <= 0)
+        output.addChunk(key, FULL_CHUNK, null);
+      else if (partialCount >= needed) {
+        // Add up the partial chunks, then keep the slots counted at least
+        // needed times
+        for (long[] counter : counters)
+          Arrays.fill(counter, 0);
+        for (int p = 0; p < partialCount; p++) {
+          CoverageBitmap bitmap = bitmaps.get(partial[p]);
+          toWords(bitmap.runs[cursors[partial[p]]], bitmap.words[cursors[partial[p]]], chunk);
+          for (int k = 0; k < CHUNK_WORDS; k++) {
+            long carry = chunk[k];
+            for (int bit = 0; carry != 0; bit++) {
+              long sum = counters[bit][k] ^ carry;
+              carry &= counters[bit][k];
+              counters[bit][k] = sum;
+            }
+          }
+        }
+        for (int k = 0; k < CHUNK_WORDS; k++) {
+          long greater = 0, equal = -1L;
+          for (int bit = counterBits - 1; bit >= 0; bit--) {
+            if ((needed >>> bit & 1) != 0)
+              equal &= counters[bit][k];
+            else {
+              greater |= equal & counters[bit][k];
+              equal &= ~counters[bit][k];
+            }
+          }
+          chunk[k] = greater | equal;
+        }
+        output.addChunk(key, chunk);
+      }
+
+      for (int b = 0; b < bitmapCount; b++) {
+        CoverageBitmap bitmap = bitmaps.get(b);
+        if (cursors[b] < bitmap.chunkCount && bitmap.keys[cursors[b]] == key)
+          cursors[b]++;
+      }
+    }
+  }
+
+  /** @return the number of slots set */
+  public long cardinality() {
+    long count = 0;
+    for (int i = 0; i < chunkCount; i++) {
+      if (words[i] != null) {
+        for (long word : words[i])
+          count += Long.bitCount(word);
+      } else {
+        for (int j = 0; j < runs[i].length; j += 2)
+          count += runs[i][j + 1] - runs[i][j] + 1;
+      }
+    }
+    return count;
+  }
+
+  /** @return the total time of the slots set, in nanoseconds */
+  public long getCoveredTime() {
+    return cardinality() * resolution;
+  }
+
+  /** @return the width of a slot, in nanoseconds */
+  public long getResolution() {
+    return resolution;
+  }
+
+  /** @return the number of chunks with a slot set */
+  public int getChunkCount() {
+    return chunkCount;
+  }
+
+  /** @return the number of chunks kept as words rather than runs */
+  public int getWordChunkCount() {
+    int count = 0;
+    for (int i = 0; i < chunkCount; i++) {
+      if (words[i] != null)
+        count++;
+    }
+    return count;
+  }
+
+  /**
+   * @return the intervals of the slots set, in the format returned by
+   *         <code>App.mergeUptimeIntervals</code>
+   */
+  public long[] toIntervals() {
+    long[] output = new long[16];
+    int length = 0;
+    for (int i = 0; i < chunkCount; i++) {
+      char[] chunkRuns = runs[i] != null ? runs[i] : toRuns(words[i], countRuns(words[i]));
+      for (int j = 0; j < chunkRuns.length; j += 2) {
+        long start = ((keys[i] << CHUNK_BITS) + chunkRuns[j]) * resolution;
+        long end = ((keys[i] << CHUNK_BITS) + chunkRuns[j + 1] + 1) * resolution;
+        if (length > 0 && output[length - 1] == start) {
+          output[length - 1] = end; // continues from the previous chunk
+          continue;
+        }
+        if (length == output.length)
+          output = Arrays.copyOf(output, length << 1);
+        output[length++] = start;
+        output[length++] = end;
+      }
+    }
+    return Arrays.copyOf(output, length);
+  }
+}
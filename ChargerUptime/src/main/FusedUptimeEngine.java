@@ -0,0 +1,184 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Single-pass engine that parses the Charger Availability Reports section
+ * straight into each station's <code>StationIntervals</code>. No
+ * <code>Report</code> objects or report lists are created: downtime reports
+ * only widen the station's reported time span, and uptime reports are merged
+ * on the fly whenever a station's buffer fills. Peak memory is thus bounded by
+ * the number of merged intervals rather than the number of reports.
+ *
+ * @author Kevin Li
+ */
+public class FusedUptimeEngine {
+  /**
+   * Read and process the Charger Availability Reports section of the file,
+   * mapping each station to its buffered uptime intervals. Behaves like
+   * <code>App.readChargerAvailabilityReportsSection</code>: prints an error
+   * and returns <code>null</code> if the file format is invalid. It is
+   * assumed that <code>stationMap</code> is not null.
+   *
+   * @param reader        the BufferedReader for the given file
+   * @param stationMap    a map of each charger ID to its station ID
+   * @param emptyStations an auxiliary list containing station IDs with no
+   *                      charger IDs
+   * @return a map of each station ID to its uptime intervals
+   */
+  public static HashMap<Integer, StationIntervals> readChargerAvailabilityReportsSection(BufferedReader reader,
+      HashMap<Integer, Integer> stationMap, List<Integer> emptyStations) {
+    return readChargerAvailabilityReportsSection(reader, stationMap, emptyStations, null);
+  }
+
+  /**
+   * Read and process the Charger Availability Reports section of the file
+   * within a memory budget, compacting and spilling the stations' buffers
+   * whenever they outgrow it. Prints an error and returns <code>null</code>
+   * if the file format is invalid or a spill file cannot be written. It is
+   * assumed that <code>stationMap</code> is not null.
+   *
+   * @param reader        the BufferedReader for the given file
+   * @param stationMap    a map of each charger ID to its station ID
+   * @param emptyStations an auxiliary list containing station IDs with no
+   *                      charger IDs
+   * @param budget        the memory budget, or null for none
+   * @return a map of each station ID to its uptime intervals
+   */
+  public static HashMap<Integer, StationIntervals> readChargerAvailabilityReportsSection(BufferedReader reader,
+      HashMap<Integer, Integer> stationMap, List<Integer> emptyStations, MemoryBudget budget) {
+    HashMap<Integer, StationIntervals> output = new HashMap<>();
+    try {
+      String nextLine = reader.readLine();
+      if (nextLine == null || !nextLine.equals("[Charger Availability Reports]")) {
+        System.out.println("ERROR");
+        System.err.println("Input file is formatted incorrectly.");
+        reader.close();
+        return null;
+      }
+
+      // Put empty stations in output, no reports
+      for (Integer emptyStation : emptyStations) {
+        StationIntervals emptyStationIntervals = new StationIntervals(1);
+        output.put(emptyStation, emptyStationIntervals);
+        if (budget != null)
+          budget.add(emptyStationIntervals.getBufferBytes() + MemoryBudget.STATION_OVERHEAD_BYTES);
+      }
+
+      // Read each line
+      ReportLineParser parser = new ReportLineParser();
+      for (nextLine = reader.readLine(); nextLine != null; nextLine = reader.readLine()) {
+        ReportLineParser.Status status = parser.parse(nextLine);
+
+        // Get the charger ID
+        if (status == ReportLineParser.Status.INVALID_CHARGER_ID) {
+          System.out.println("ERROR");
+          System.err.println("Charger IDs must be unsigned 32-bit integers.");
+          reader.close();
+          deleteSpilledRuns(output);
+          return null;
+        }
+
+        // Get the charger's station ID
+        Integer stationId = stationMap.get(Integer.valueOf(parser.getChargerId()));
+        if (stationId == null) {
+          System.out.println("ERROR");
+          System.err.println("Each charger must be present at a station.");
+          reader.close();
+          deleteSpilledRuns(output);
+          return null;
+        }
+
+        // Get station's interval buffer
+        StationIntervals thisStationIntervals = output.get(stationId);
+        if (thisStationIntervals == null) {
+          thisStationIntervals = new StationIntervals();
+          output.put(stationId, thisStationIntervals);
+          if (budget != null)
+            budget.add(thisStationIntervals.getBufferBytes() + MemoryBudget.STATION_OVERHEAD_BYTES);
+        }
+
+        // Fold the new time interval into the station's buffer
+        if (status != ReportLineParser.Status.OK) {
+          System.out.println("ERROR");
+          System.err.println(status == ReportLineParser.Status.MISSING_FIELDS ? "Input file is formatted incorrectly."
+              : "Start and end times must be unsigned 64-bit integers.");
+          reader.close();
+          deleteSpilledRuns(output);
+          return null;
+        }
+        if (budget == null) {
+          thisStationIntervals.add(parser.getStartTime(), parser.getEndTime(), parser.isUp());
+          continue;
+        }
+        long bufferBytes = thisStationIntervals.getBufferBytes();
+        thisStationIntervals.add(parser.getStartTime(), parser.getEndTime(), parser.isUp());
+        budget.add(thisStationIntervals.getBufferBytes() - bufferBytes);
+        if (budget.isOver()) {
+          try {
+            budget.reclaim(output.values());
+          } catch (IOException e) {
+            System.out.println("ERROR");
+            System.err.println("Spill file cannot be written.");
+            reader.close();
+            deleteSpilledRuns(output);
+            return null;
+          }
+        }
+      }
+
+      return output;
+    } catch (IOException e) {
+      System.out.println("ERROR");
+      System.err.println("File cannot be read.");
+      deleteSpilledRuns(output);
+      return null;
+    }
+  }
+
+  /**
+   * Delete the spilled runs of the stations, if any, and clear the map.
+   *
+   * @param stationIntervalsMap a map of each station ID to its uptime
+   *                            intervals
+   */
+  public static void deleteSpilledRuns(HashMap<Integer, StationIntervals> stationIntervalsMap) {
+    for (StationIntervals stationIntervals : stationIntervalsMap.values())
+      stationIntervals.deleteSpilledRuns();
+    stationIntervalsMap.clear();
+  }
+
+  /**
+   * Compute the uptimes for the stations, given their buffered uptime
+   * intervals, and delete any spilled runs. Prints an error and returns
+   * <code>null</code> if a spill file cannot be read. It is assumed that
+   * <code>stationIntervalsMap</code> is not null.
+   *
+   * @param stationIntervalsMap a map of each station ID to its uptime
+   *                            intervals
+   * @return the station uptimes, where the first entry of each nested array
+   *         represents the station ID and the second represents the uptime
+   */
+  public static int[][] computeStationUptimes(HashMap<Integer, StationIntervals> stationIntervalsMap) {
+    int[][] output = new int[stationIntervalsMap.size()][2];
+    int outputIndex = 0;
+    try {
+      for (Entry<Integer, StationIntervals> station : stationIntervalsMap.entrySet()) {
+        output[outputIndex][0] = station.getKey().intValue();
+        output[outputIndex++][1] = station.getValue().computeUptime();
+        station.getValue().deleteSpilledRuns();
+      }
+    } catch (UncheckedIOException e) {
+      System.out.println("ERROR");
+      System.err.println("Spill file cannot be read.");
+      deleteSpilledRuns(stationIntervalsMap);
+      return null;
+    }
+    return output;
+  }
+}
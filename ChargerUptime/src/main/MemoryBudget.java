@@ -0,0 +1,178 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Memory budget for the per-station interval buffers of the
+ * <code>FusedUptimeEngine</code>. The engine reports every change in the
+ * size of a buffer, and when the buffers outgrow the budget, memory is
+ * reclaimed in two steps: first every station's intervals are merged and
+ * its buffer shrunk to fit, and if that does not free a quarter of the
+ * budget, the stations with the largest buffers are spilled to a shared
+ * temporary file as <code>SpilledRuns</code> until half of the budget is
+ * free.
+ * <br>
+ * </br>
+ * The accounting covers the interval buffers and a fixed estimate of each
+ * station's other objects, not the whole heap, so the budget should leave
+ * room for the reader and the JVM itself.
+ *
+ * @author Kevin Li
+ */
+public class MemoryBudget {
+  /** Estimated bytes of a station's map entry and buffer object. */
+  public static final long STATION_OVERHEAD_BYTES = 128;
+
+  final long limitBytes;
+  final Path spillDirectory;
+  long usedBytes, peakBytes;
+  long reclaimAtBytes;
+  int compactions;
+  int spilledStations;
+  long spilledRuns, spilledIntervals, spilledBytes;
+  SpilledRuns.SpillFile spillFile;
+
+  /**
+   * Create a new budget that spills to the system's temporary directory. It
+   * is assumed that <code>limitBytes</code> is positive.
+   *
+   * @param limitBytes the budget, in bytes
+   */
+  public MemoryBudget(long limitBytes) {
+    this(limitBytes, Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * Create a new budget. It is assumed that <code>limitBytes</code> is
+   * positive.
+   *
+   * @param limitBytes     the budget, in bytes
+   * @param spillDirectory the directory to create spill files in
+   */
+  public MemoryBudget(long limitBytes, Path spillDirectory) {
+    this.limitBytes = limitBytes;
+    this.spillDirectory = spillDirectory;
+    this.reclaimAtBytes = limitBytes;
+  }
+
+  /**
+   * Account for a change in the bytes used.
+   *
+   * @param bytes the bytes allocated, or freed if negative
+   */
+  public void add(long bytes) {
+    usedBytes += bytes;
+    if (usedBytes > peakBytes)
+      peakBytes = usedBytes;
+  }
+
+  /** @return true if memory should be reclaimed before going on */
+  public boolean isOver() {
+    return usedBytes > reclaimAtBytes;
+  }
+
+  /**
+   * @return the spill file that stations append their runs to, created in the
+   *         spill directory if there is none or the last one was deleted
+   */
+  SpilledRuns.SpillFile getSpillFile() throws IOException {
+    if (spillFile == null || spillFile.deleted)
+      spillFile = new SpilledRuns.SpillFile(Files.createTempFile(spillDirectory, "stations", ".spill"));
+    return spillFile;
+  }
+
+  /**
+   * Reclaim memory from the given stations, first by merging and shrinking
+   * their buffers, then by spilling the largest ones to disk.
+   *
+   * @param stations every station accounted for in this budget
+   */
+  public void reclaim(Collection<StationIntervals> stations) throws IOException {
+    compactions++;
+    long used = 0;
+    for (StationIntervals station : stations) {
+      station.trim();
+      used += station.getBufferBytes() + STATION_OVERHEAD_BYTES;
+    }
+    usedBytes = used;
+
+    if (usedBytes > limitBytes - (limitBytes >> 2)) {
+      StationIntervals[] largestFirst = stations.toArray(new StationIntervals[0]);
+      Arrays.sort(largestFirst, new LargestBufferFirstComparator());
+      for (StationIntervals station : largestFirst) {
+        if (usedBytes <= limitBytes >> 1)
+          break;
+        if (station.getIntervalCount() == 0)
+          continue;
+        long bytes = station.getBufferBytes();
+        station.spill(this);
+        usedBytes -= bytes - station.getBufferBytes();
+      }
+    }
+
+    // If the stations alone are over budget, give the next reclaim room to
+    // free something rather than reclaiming on every report
+    reclaimAtBytes = Math.max(limitBytes, usedBytes + (limitBytes >> 2));
+  }
+
+  /** Orders stations by the size of their buffers, largest first. */
+  static class LargestBufferFirstComparator implements Comparator<StationIntervals> {
+    @Override
+    public int compare(StationIntervals arg0, StationIntervals arg1) {
+      return Long.compare(arg1.getBufferBytes(), arg0.getBufferBytes());
+    }
+  }
+
+  /** @return the budget, in bytes */
+  public long getLimitBytes() {
+    return limitBytes;
+  }
+
+  /** @return the bytes currently used */
+  public long getUsedBytes() {
+    return usedBytes;
+  }
+
+  /** @return the most bytes used at any time */
+  public long getPeakBytes() {
+    return peakBytes;
+  }
+
+  /** @return the number of times memory was reclaimed */
+  public int getCompactions() {
+    return compactions;
+  }
+
+  /** @return the number of stations with intervals spilled to disk */
+  public int getSpilledStations() {
+    return spilledStations;
+  }
+
+  /** @return the number of runs spilled to disk, over all stations */
+  public long getSpilledRuns() {
+    return spilledRuns;
+  }
+
+  /** @return the number of intervals spilled to disk */
+  public long getSpilledIntervals() {
+    return spilledIntervals;
+  }
+
+  /** @return the number of bytes spilled to disk */
+  public long getSpilledBytes() {
+    return spilledBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "memory budget: %d bytes, %d peak, %d compactions, %d stations spilled in %d runs, %d intervals, %d bytes",
+        limitBytes, peakBytes, compactions, spilledStations, spilledRuns, spilledIntervals, spilledBytes);
+  }
+}
@@ -0,0 +1,26 @@
+package main;
+
+/**
+ * Receiver of station outages: the gaps between a station's merged uptime
+ * intervals within its reported time span, from its earliest start to its
+ * latest end. A station with no uptime reports is out for its whole span.
+ * <br>
+ * </br>
+ * Outages are passed on from the same pass that merges the uptime intervals,
+ * in order within each station, so that a sink such as an
+ * <code>OutageWriter</code> can stream them out without buffering. All times
+ * are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public interface OutageSink {
+  /**
+   * Receive an outage of a station. The outage is never empty, and lies
+   * within the station's reported time span.
+   *
+   * @param stationId the station ID, an unsigned int
+   * @param gapStart  the start of the outage, in nanoseconds
+   * @param gapEnd    the end of the outage, in nanoseconds
+   */
+  void outage(int stationId, long gapStart, long gapEnd);
+}
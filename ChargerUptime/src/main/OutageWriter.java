@@ -0,0 +1,71 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Sink that writes outages as lines of text, one per outage: the station ID,
+ * the start and the end of the outage, separated by spaces, all unsigned.
+ * The lines are appended to a <code>StringBuilder</code> that is written out
+ * whenever it fills, so memory use does not grow with the number of
+ * outages. Throws an <code>UncheckedIOException</code> if the output cannot
+ * be written.
+ *
+ * @author Kevin Li
+ */
+public class OutageWriter implements OutageSink, Closeable {
+  public static final int BUFFER_CHARS = 1 << 16;
+
+  final Writer writer;
+  final StringBuilder buffer = new StringBuilder(BUFFER_CHARS);
+  long outageCount;
+
+  /**
+   * Create a new writer of outages.
+   *
+   * @param writer the writer to write the lines to, which is closed with
+   *               this one
+   */
+  public OutageWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  @Override
+  public void outage(int stationId, long gapStart, long gapEnd) {
+    Unsigned.append(buffer, stationId).append(' ');
+    Unsigned.append(buffer, gapStart).append(' ');
+    Unsigned.append(buffer, gapEnd).append('\n');
+    outageCount++;
+    if (buffer.length() >= BUFFER_CHARS - 64)
+      flush();
+  }
+
+  /** Write out the buffered lines. */
+  public void flush() {
+    try {
+      writer.append(buffer);
+      buffer.setLength(0);
+      writer.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** @return the number of outages written */
+  public long getOutageCount() {
+    return outageCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      writer.close();
+      throw e.getCause();
+    }
+    writer.close();
+  }
+}
@@ -0,0 +1,297 @@
+package main;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts and merges the uptime intervals of a single station in parallel, for
+ * stations too large for one thread. The intervals are split into time
+ * ranges by start time, with boundaries chosen from a random sample so that
+ * the ranges are about the same size. Each range is then sorted and merged on
+ * its own, and the merged ranges are stitched together in order, joining the
+ * intervals that overlap or touch across a range boundary. The result is the
+ * same as that of a serial sort and merge.
+ * <br>
+ * </br>
+ * All times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class ParallelIntervalMerger {
+  /** The fewest intervals worth a range of their own. */
+  public static final int MIN_RANGE_SIZE = 1 << 16;
+  /** Ranges per thread, so that a slow range does not hold up the rest. */
+  public static final int RANGES_PER_THREAD = 4;
+  /** Sampled start times per range, for choosing the range boundaries. */
+  public static final int SAMPLES_PER_RANGE = 64;
+
+  final ForkJoinPool pool;
+  final int minRangeSize;
+
+  public ParallelIntervalMerger() {
+    this(ForkJoinPool.commonPool(), MIN_RANGE_SIZE);
+  }
+
+  /**
+   * Create a new merger. It is assumed that <code>minRangeSize</code> is
+   * positive.
+   *
+   * @param pool         the pool to sort and merge the ranges in
+   * @param minRangeSize the fewest intervals worth a range of their own
+   */
+  public ParallelIntervalMerger(ForkJoinPool pool, int minRangeSize) {
+    this.pool = pool;
+    this.minRangeSize = minRangeSize;
+  }
+
+  /**
+   * Sort and merge the given intervals, in the format returned by
+   * <code>App.mergeUptimeIntervals</code>. The intervals are left in an
+   * unspecified order. It is assumed that <code>count</code> is positive and
+   * that each interval ends no earlier than it starts.
+   *
+   * @param starts the start times of the intervals
+   * @param ends   the end times of the intervals
+   * @param count  the number of intervals
+   * @return the flattened merged intervals
+   */
+  public long[] merge(long[] starts, long[] ends, int count) {
+    int rangeCount = Math.max(1, Math.min(pool.getParallelism() * RANGES_PER_THREAD, count / minRangeSize));
+    if (rangeCount == 1) {
+      sort(starts, ends, count);
+      int mergedCount = mergeSorted(starts, ends, count);
+      long[][] rangeStarts = { starts }, rangeEnds = { ends };
+      return stitch(rangeStarts, rangeEnds, new int[] { mergedCount });
+    }
+
+    MergeTask task = new MergeTask(starts, ends, count, chooseSplitters(starts, count, rangeCount));
+    pool.invoke(task);
+    return task.output;
+  }
+
+  /**
+   * Choose the range boundaries from a random sample of the start times.
+   *
+   * @return the sorted unsigned start times at which each range but the first
+   *         begins
+   */
+  static long[] chooseSplitters(long[] starts, int count, int rangeCount) {
+    int sampleCount = Math.min(count, rangeCount * SAMPLES_PER_RANGE);
+    SplittableRandom random = new SplittableRandom(count);
+    long[] samples = new long[sampleCount];
+    for (int i = 0; i < sampleCount; i++)
+      samples[i] = starts[random.nextInt(count)] ^ Long.MIN_VALUE; // sorts as unsigned
+    Arrays.sort(samples);
+
+    long[] splitters = new long[rangeCount - 1];
+    for (int range = 1; range < rangeCount; range++)
+      splitters[range - 1] = samples[(int) ((long) range * sampleCount / rangeCount)] ^ Long.MIN_VALUE;
+    return splitters;
+  }
+
+  /** @return the range of the given start time */
+  static int findRange(long[] splitters, long start) {
+    int low = 0, high = splitters.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (Long.compareUnsigned(splitters[middle], start) <= 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  static void sort(long[] starts, long[] ends, int count) {
+    if (count >= UptimeStrategy.RADIX_SORT_THRESHOLD)
+      UptimeStrategy.radixSort(starts, ends, count);
+    else
+      StationIntervals.sort(starts, ends, 0, count);
+  }
+
+  /**
+   * Merge sorted intervals in place.
+   *
+   * @return the number of merged intervals, now at the front of the arrays
+   */
+  static int mergeSorted(long[] starts, long[] ends, int count) {
+    int output = 0;
+    for (int i = 1; i < count; i++) {
+      if (Long.compareUnsigned(starts[i], ends[output]) <= 0) {
+        if (Long.compareUnsigned(ends[i], ends[output]) > 0)
+          ends[output] = ends[i];
+      } else {
+        output++;
+        starts[output] = starts[i];
+        ends[output] = ends[i];
+      }
+    }
+    return count == 0 ? 0 : output + 1;
+  }
+
+  /**
+   * Join the merged intervals of each range, in order, into a single list of
+   * merged intervals. An interval may overlap any number of the following
+   * ranges, so each is merged with the last interval so far.
+   */
+  static long[] stitch(long[][] rangeStarts, long[][] rangeEnds, int[] mergedCounts) {
+    int total = 0;
+    for (int mergedCount : mergedCounts)
+      total += mergedCount;
+    long[] output = new long[total << 1];
+    int outputLength = 0;
+    boolean first = true;
+    long lastStart = 0, lastEnd = 0;
+    for (int range = 0; range < mergedCounts.length; range++) {
+      long[] starts = rangeStarts[range], ends = rangeEnds[range];
+      for (int i = 0; i < mergedCounts[range]; i++) {
+        if (first) {
+          lastStart = starts[i];
+          lastEnd = ends[i];
+          first = false;
+        } else if (Long.compareUnsigned(starts[i], lastEnd) <= 0) {
+          if (Long.compareUnsigned(ends[i], lastEnd) > 0)
+            lastEnd = ends[i];
+        } else {
+          output[outputLength++] = lastStart;
+          output[outputLength++] = lastEnd;
+          lastStart = starts[i];
+          lastEnd = ends[i];
+        }
+      }
+    }
+    if (!first) {
+      output[outputLength++] = lastStart;
+      output[outputLength++] = lastEnd;
+    }
+    return outputLength == output.length ? output : Arrays.copyOf(output, outputLength);
+  }
+
+  /**
+   * Partitions the intervals into ranges, then sorts and merges each range,
+   * all in parallel, and stitches the results.
+   */
+  class MergeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final long[] starts, ends;
+    final int count;
+    final long[] splitters;
+    final int chunkCount;
+    final int[][] chunkRangeCounts; // intervals of each chunk in each range
+    long[][] rangeStarts, rangeEnds;
+    int[] mergedCounts;
+    long[] output;
+
+    MergeTask(long[] starts, long[] ends, int count, long[] splitters) {
+      this.starts = starts;
+      this.ends = ends;
+      this.count = count;
+      this.splitters = splitters;
+      this.chunkCount = pool.getParallelism();
+      this.chunkRangeCounts = new int[chunkCount][splitters.length + 1];
+    }
+
+    int getChunkStart(int chunk) {
+      return (int) ((long) chunk * count / chunkCount);
+    }
+
+    @Override
+    protected void compute() {
+      int rangeCount = splitters.length + 1;
+
+      // Count the intervals of each chunk in each range
+      ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunkCount];
+      for (int chunk = 0; chunk < chunkCount; chunk++)
+        tasks[chunk] = new ChunkTask(this, chunk, null);
+      ForkJoinTask.invokeAll(tasks);
+
+      // Give each chunk its own slice of each range, in chunk order
+      rangeStarts = new long[rangeCount][];
+      rangeEnds = new long[rangeCount][];
+      int[][] chunkOffsets = new int[chunkCount][rangeCount];
+      for (int range = 0; range < rangeCount; range++) {
+        int rangeSize = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+          chunkOffsets[chunk][range] = rangeSize;
+          rangeSize += chunkRangeCounts[chunk][range];
+        }
+        rangeStarts[range] = new long[rangeSize];
+        rangeEnds[range] = new long[rangeSize];
+      }
+
+      // Copy the intervals into their ranges
+      for (int chunk = 0; chunk < chunkCount; chunk++)
+        tasks[chunk] = new ChunkTask(this, chunk, chunkOffsets[chunk]);
+      ForkJoinTask.invokeAll(tasks);
+
+      // Sort and merge each range
+      mergedCounts = new int[rangeCount];
+      tasks = new ForkJoinTask<?>[rangeCount];
+      for (int range = 0; range < rangeCount; range++)
+        tasks[range] = new RangeTask(this, range);
+      ForkJoinTask.invokeAll(tasks);
+
+      output = stitch(rangeStarts, rangeEnds, mergedCounts);
+    }
+  }
+
+  /**
+   * Counts the intervals of one chunk in each range, or copies them into
+   * their ranges if given the offsets to copy to.
+   */
+  static class ChunkTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final MergeTask mergeTask;
+    final int chunk;
+    final int[] offsets;
+
+    ChunkTask(MergeTask mergeTask, int chunk, int[] offsets) {
+      this.mergeTask = mergeTask;
+      this.chunk = chunk;
+      this.offsets = offsets;
+    }
+
+    @Override
+    protected void compute() {
+      long[] starts = mergeTask.starts, ends = mergeTask.ends, splitters = mergeTask.splitters;
+      int from = mergeTask.getChunkStart(chunk), to = mergeTask.getChunkStart(chunk + 1);
+      if (offsets == null) {
+        int[] rangeCounts = mergeTask.chunkRangeCounts[chunk];
+        for (int i = from; i < to; i++)
+          rangeCounts[findRange(splitters, starts[i])]++;
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        int range = findRange(splitters, starts[i]);
+        int offset = offsets[range]++;
+        mergeTask.rangeStarts[range][offset] = starts[i];
+        mergeTask.rangeEnds[range][offset] = ends[i];
+      }
+    }
+  }
+
+  /** Sorts and merges the intervals of one range in place. */
+  static class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final MergeTask mergeTask;
+    final int range;
+
+    RangeTask(MergeTask mergeTask, int range) {
+      this.mergeTask = mergeTask;
+      this.range = range;
+    }
+
+    @Override
+    protected void compute() {
+      long[] starts = mergeTask.rangeStarts[range], ends = mergeTask.rangeEnds[range];
+      sort(starts, ends, starts.length);
+      mergeTask.mergedCounts[range] = mergeSorted(starts, ends, starts.length);
+    }
+  }
+}
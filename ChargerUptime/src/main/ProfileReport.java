@@ -0,0 +1,115 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summary of a Flight Recorder recording of <code>App</code>, such as one
+ * written with <code>--profile=PATH</code>, into a hot-station report: the
+ * time of each phase of the run, and the stations that took longest to
+ * compute, with their report count, merged interval count, sort time and
+ * strategy. Only the events of <code>UptimeProfiler</code> are read.
+ * <br>
+ * </br>
+ * Usage, from the <code>electric-era-coding-challenge-charger-uptime</code>
+ * directory with the classes compiled to <code>ChargerUptime/bin/classes</code>:
+ *
+ * <pre>
+ * java -cp ChargerUptime/bin/classes main.ProfileReport recording.jfr [--top=N]
+ * </pre>
+ *
+ * @author Kevin Li
+ */
+public class ProfileReport {
+  public static final int DEFAULT_TOP = 20;
+
+  /** Orders station events by duration, longest first. */
+  static class DurationComparator implements Comparator<RecordedEvent> {
+    @Override
+    public int compare(RecordedEvent arg0, RecordedEvent arg1) {
+      return arg1.getDuration().compareTo(arg0.getDuration());
+    }
+  }
+
+  private static String formatMillis(Duration duration) {
+    return String.format("%10.1f ms", duration.toNanos() / 1e6);
+  }
+
+  /**
+   * Summarize a recording.
+   *
+   * @param recording the recording file
+   * @param top       the number of stations to list
+   * @return the report, one line per phase and per station
+   * @throws IOException if the recording cannot be read
+   */
+  public static String summarize(Path recording, int top) throws IOException {
+    // Phases in the order they first ran, with their total time
+    LinkedHashMap<String, Duration> phases = new LinkedHashMap<>();
+    List<RecordedEvent> stations = new ArrayList<>();
+    Duration stationTime = Duration.ZERO;
+    for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+      String name = event.getEventType().getName();
+      if (name.equals("main.Phase"))
+        phases.merge(event.getString("phase"), event.getDuration(), Duration::plus);
+      else if (name.equals("main.StationUptime")) {
+        stations.add(event);
+        stationTime = stationTime.plus(event.getDuration());
+      }
+    }
+
+    StringBuilder output = new StringBuilder("Phases:\n");
+    for (Entry<String, Duration> phase : phases.entrySet())
+      output.append(String.format("  %-10s", phase.getKey())).append(formatMillis(phase.getValue())).append('\n');
+    output.append("Stations over the threshold: ").append(stations.size()).append(", ")
+        .append(formatMillis(stationTime).trim()).append(" in total\n");
+    if (stations.isEmpty())
+      return output.toString();
+
+    stations.sort(new DurationComparator());
+    output.append(String.format("  %10s %13s %13s %10s %10s %-14s %6s%n", "station", "time", "sort", "reports",
+        "merged", "strategy", "uptime"));
+    for (RecordedEvent station : stations.subList(0, Math.min(top, stations.size()))) {
+      output.append(String.format("  %10s %s %s %10d %10d %-14s %6d%n",
+          Integer.toUnsignedString(station.getInt("stationId")), formatMillis(station.getDuration()),
+          formatMillis(Duration.ofNanos(station.getLong("sortTime"))), station.getInt("reportCount"),
+          station.getInt("mergedIntervalCount"), station.getString("strategy"), station.getInt("uptime")));
+    }
+    return output.toString();
+  }
+
+  public static void main(String[] args) {
+    String recordingPath = null;
+    int top = DEFAULT_TOP;
+    for (String arg : args) {
+      if (arg.startsWith("--top=")) {
+        top = App.parsePositiveIntOption(arg);
+        if (top <= 0)
+          return;
+      } else
+        recordingPath = arg;
+    }
+    if (recordingPath == null) {
+      System.out.println("ERROR");
+      System.err.println("Usage: ProfileReport recording.jfr [--top=N]");
+      return;
+    }
+    try {
+      System.out.print(summarize(Paths.get(recordingPath), top));
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("ERROR");
+      System.err.println("Recording " + recordingPath + " cannot be read.");
+    }
+  }
+}
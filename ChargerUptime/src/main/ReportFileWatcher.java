@@ -0,0 +1,293 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Watches an input file that reports are appended to, such as a log written
+ * by the chargers throughout the day. Each poll reads only the bytes appended
+ * since the last one, up to the last complete line, folds the new reports
+ * into the stations' <code>StationIntervals</code>, and returns only the
+ * stations whose uptime changed. The first poll that reaches the Charger
+ * Availability Reports section returns every station, the same as
+ * <code>App</code> would print for the file so far.
+ * <br>
+ * </br>
+ * Given a window width, the watcher tracks each station's uptime over a
+ * sliding window instead, such as the last 24 hours, with a
+ * <code>RollingUptimeWindow</code>. Every station's window ends at the
+ * latest time reported by any charger, so a station that stops reporting
+ * sees its uptime fall as the window moves on.
+ * <br>
+ * </br>
+ * The file is polled rather than watched with a <code>WatchService</code>,
+ * which is not supported on every file system and only says that something
+ * changed; the file's size is enough to tell whether lines were appended.
+ *
+ * @author Kevin Li
+ */
+public class ReportFileWatcher {
+  public static final int DEFAULT_POLL_MILLIS = 1000;
+  static final int READ_BUFFER_BYTES = 1 << 16;
+
+  /** The part of the input file the next line belongs to. */
+  enum Section {
+    STATIONS_HEADER, STATIONS, REPORTS_HEADER, REPORTS
+  }
+
+  final Path path;
+  long offset; // bytes read, always just after a complete line
+  Section section = Section.STATIONS_HEADER;
+  final HashMap<Integer, Integer> stationMap = new HashMap<>(); // charger -> station
+  final List<Integer> emptyStations = new ArrayList<>();
+  final HashMap<Integer, StationIntervals> stationIntervalsMap = new HashMap<>();
+  final HashMap<Integer, Integer> lastUptimes = new HashMap<>();
+  final HashSet<Integer> touchedStations = new HashSet<>();
+  final long windowWidth; // or 0 for all time
+  final HashMap<Integer, RollingUptimeWindow> windows = new HashMap<>();
+  long latestTime; // latest end of all reports, when windowed
+  final ReportLineParser parser = new ReportLineParser();
+
+  /**
+   * Create a new watcher, which has read nothing yet.
+   *
+   * @param path the path of the input file
+   */
+  public ReportFileWatcher(Path path) {
+    this(path, 0);
+  }
+
+  /**
+   * Create a new watcher of the uptimes over a sliding window, which has
+   * read nothing yet.
+   *
+   * @param path        the path of the input file
+   * @param windowWidth the width of the window, in nanoseconds, or 0 for the
+   *                    uptimes over all reported time
+   */
+  public ReportFileWatcher(Path path, long windowWidth) {
+    this.path = path;
+    this.windowWidth = windowWidth;
+  }
+
+  /** @return the number of bytes read so far */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Read the lines appended to the file since the last poll and compute the
+   * uptimes of the stations they changed. A line without its newline is left
+   * for the next poll. Prints an error and returns <code>null</code> if the
+   * file cannot be read, was truncated, or is formatted incorrectly.
+   *
+   * @return the changed station uptimes, sorted as <code>App</code> prints
+   *         them, where the first entry of each nested array represents the
+   *         station ID and the second represents the uptime
+   */
+  public int[][] poll() {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < offset) {
+        System.out.println("ERROR");
+        System.err.println("Input file " + path + " was truncated.");
+        return null;
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+      byte[] pending = new byte[0]; // start of a line split across reads
+      long position = offset;
+      while (position < size) {
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        if (read <= 0)
+          break;
+        position += read;
+
+        byte[] bytes = pending.length == 0 ? Arrays.copyOf(buffer.array(), read) : concat(pending, buffer.array(), read);
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+          if (bytes[i] != '\n')
+            continue;
+          int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+          if (!readLine(new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8)))
+            return null;
+          offset += i + 1 - lineStart;
+          lineStart = i + 1;
+        }
+        pending = Arrays.copyOfRange(bytes, lineStart, bytes.length);
+      }
+    } catch (NoSuchFileException e) {
+      System.out.println("ERROR");
+      System.err.println("Input file " + path + " not found.");
+      return null;
+    } catch (IOException e) {
+      System.out.println("ERROR");
+      System.err.println("File cannot be read.");
+      return null;
+    }
+
+    // Move every window to the latest time, so that they all changed
+    if (windowWidth > 0) {
+      for (Entry<Integer, RollingUptimeWindow> window : windows.entrySet()) {
+        window.getValue().advanceTo(latestTime);
+        touchedStations.add(window.getKey());
+      }
+    }
+
+    // Compute the touched stations, keep those whose uptime changed
+    List<int[]> changed = new ArrayList<>();
+    for (Integer stationId : touchedStations) {
+      int uptime = windowWidth > 0 ? windows.get(stationId).computeUptime()
+          : stationIntervalsMap.get(stationId).computeUptime();
+      Integer lastUptime = lastUptimes.put(stationId, Integer.valueOf(uptime));
+      if (lastUptime == null || lastUptime.intValue() != uptime)
+        changed.add(new int[] { stationId.intValue(), uptime });
+    }
+    touchedStations.clear();
+    int[][] output = changed.toArray(new int[0][]);
+    Arrays.sort(output, new Unsigned.StationIdComparator());
+    return output;
+  }
+
+  private static byte[] concat(byte[] first, byte[] second, int secondLength) {
+    byte[] output = Arrays.copyOf(first, first.length + secondLength);
+    System.arraycopy(second, 0, output, first.length, secondLength);
+    return output;
+  }
+
+  /**
+   * Process one complete line of the file, as <code>App</code> would. Prints
+   * an error and returns false if the line is formatted incorrectly.
+   */
+  boolean readLine(String line) {
+    switch (section) {
+    case STATIONS_HEADER:
+    case REPORTS_HEADER:
+      if (!line.equals(section == Section.STATIONS_HEADER ? "[Stations]" : "[Charger Availability Reports]")) {
+        System.out.println("ERROR");
+        System.err.println("Input file is formatted incorrectly.");
+        return false;
+      }
+      if (section == Section.STATIONS_HEADER) {
+        section = Section.STATIONS;
+        return true;
+      }
+      section = Section.REPORTS;
+      // Put empty stations in output, no reports
+      for (Integer emptyStation : emptyStations) {
+        if (windowWidth > 0)
+          windows.put(emptyStation, new RollingUptimeWindow(windowWidth));
+        else
+          stationIntervalsMap.put(emptyStation, new StationIntervals(1));
+        touchedStations.add(emptyStation);
+      }
+      emptyStations.clear();
+      return true;
+
+    case STATIONS:
+      if (line.isBlank()) {
+        section = Section.REPORTS_HEADER;
+        return true;
+      }
+      String[] stationTokens = line.split(" ");
+      try {
+        if (stationTokens.length == 0)
+          throw new NumberFormatException("No station ID");
+        Integer stationId = Integer.valueOf(Integer.parseUnsignedInt(stationTokens[0]));
+        if (stationTokens.length == 1) {
+          emptyStations.add(stationId);
+          return true;
+        }
+        for (int i = 1; i < stationTokens.length; i++)
+          stationMap.put(Integer.valueOf(Integer.parseUnsignedInt(stationTokens[i])), stationId);
+      } catch (NumberFormatException e) {
+        System.out.println("ERROR");
+        System.err.println("Station and charger IDs must be unsigned 32-bit integers.");
+        return false;
+      }
+      return true;
+
+    default:
+      ReportLineParser.Status status = parser.parse(line);
+
+      // Get the charger ID
+      if (status == ReportLineParser.Status.INVALID_CHARGER_ID) {
+        System.out.println("ERROR");
+        System.err.println("Charger IDs must be unsigned 32-bit integers.");
+        return false;
+      }
+      Integer chargerId = Integer.valueOf(parser.getChargerId());
+
+      // Get the charger's station ID
+      Integer stationId = stationMap.get(chargerId);
+      if (stationId == null) {
+        System.out.println("ERROR");
+        System.err.println("Each charger must be present at a station.");
+        return false;
+      }
+
+      if (status != ReportLineParser.Status.OK) {
+        System.out.println("ERROR");
+        System.err.println(status == ReportLineParser.Status.MISSING_FIELDS ? "Input file is formatted incorrectly."
+            : "Start and end times must be unsigned 64-bit integers.");
+        return false;
+      }
+      long startTime = parser.getStartTime(), endTime = parser.getEndTime();
+      boolean up = parser.isUp();
+
+      // Fold the new time interval into the station's window or buffer
+      if (windowWidth > 0) {
+        RollingUptimeWindow window = windows.get(stationId);
+        if (window == null) {
+          window = new RollingUptimeWindow(windowWidth);
+          windows.put(stationId, window);
+        }
+        window.add(startTime, endTime, up);
+        latestTime = Unsigned.max(latestTime, endTime);
+        return true;
+      }
+      StationIntervals thisStationIntervals = stationIntervalsMap.get(stationId);
+      if (thisStationIntervals == null) {
+        thisStationIntervals = new StationIntervals();
+        stationIntervalsMap.put(stationId, thisStationIntervals);
+      }
+      thisStationIntervals.add(startTime, endTime, up);
+      touchedStations.add(stationId);
+      return true;
+    }
+  }
+
+  /**
+   * Poll the file until it cannot be read or the thread is interrupted,
+   * printing the changed station uptimes after each poll.
+   *
+   * @param pollMillis the time between polls, in milliseconds
+   */
+  public void run(long pollMillis) {
+    while (true) {
+      int[][] stationUptimes = poll();
+      if (stationUptimes == null)
+        return;
+      App.printStationUptimes(stationUptimes);
+      System.out.flush();
+      try {
+        Thread.sleep(pollMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package main;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for the lines of the Charger Availability Reports section, which
+ * finds the spaces between fields and converts runs of digits eight bytes at
+ * a time (SWAR, SIMD within a register) instead of one character at a time
+ * like <code>Long.parseUnsignedLong</code>. Most of a line's bytes are the
+ * digits of its two timestamps, up to 20 each, so this is where parsing spends
+ * its time.
+ * <br>
+ * </br>
+ * Only lines of plain ASCII digits take the fast path. Anything else, such as
+ * a sign, non-ASCII digits, a missing field or an invalid value, falls back to
+ * <code>String.split</code> and the <code>parseUnsigned</code> methods, so the
+ * results and the errors are exactly those of <code>App</code>. A parser
+ * keeps the fields of the last line parsed, and is not thread safe.
+ *
+ * @author Kevin Li
+ */
+public class ReportLineParser {
+  /** The result of parsing a line, in the order the errors are reported. */
+  public enum Status {
+    OK, INVALID_CHARGER_ID, MISSING_FIELDS, INVALID_TIME
+  }
+
+  /** The most digits of an unsigned 64-bit integer, without leading zeros. */
+  public static final int MAX_DIGITS = 20;
+
+  static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  static final long ONES = 0x0101010101010101L;
+  static final long HIGH_BITS = 0x8080808080808080L;
+  static final long SPACES = 0x2020202020202020L;
+  static final long ZEROS = 0x3030303030303030L;
+  static final long MAX_UNSIGNED_DIV_10 = Long.divideUnsigned(-1L, 10);
+
+  int chargerId;
+  long startTime, endTime;
+  boolean up;
+
+  /**
+   * Parse a line of the Charger Availability Reports section. The fields are
+   * only valid if the status is <code>OK</code>, except for the charger ID,
+   * which is also valid if the status is <code>MISSING_FIELDS</code> or
+   * <code>INVALID_TIME</code>.
+   *
+   * @param line the line, without its line terminator
+   * @return the status of the line
+   */
+  public Status parse(String line) {
+    byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+    return parseFast(bytes, 0, bytes.length) ? Status.OK : parseScalar(line);
+  }
+
+  /**
+   * Parse a line of the Charger Availability Reports section from UTF-8
+   * bytes, like <code>parse(String)</code>.
+   *
+   * @param bytes the bytes holding the line
+   * @param from  the index of the line's first byte
+   * @param to    the index just after the line's last byte, not including its
+   *              line terminator
+   * @return the status of the line
+   */
+  public Status parse(byte[] bytes, int from, int to) {
+    if (parseFast(bytes, from, to))
+      return Status.OK;
+    return parseScalar(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+  }
+
+  /** @return true if the line was parsed, false to fall back */
+  boolean parseFast(byte[] bytes, int from, int to) {
+    try {
+      int end = indexOfSpace(bytes, from, to);
+      long id = parseUnsignedLong(bytes, from, end);
+      if (end == to || Long.compareUnsigned(id, 0xFFFFFFFFL) > 0)
+        return false;
+      from = end + 1;
+      end = indexOfSpace(bytes, from, to);
+      long start = parseUnsignedLong(bytes, from, end);
+      if (end == to)
+        return false;
+      from = end + 1;
+      end = indexOfSpace(bytes, from, to);
+      long stop = parseUnsignedLong(bytes, from, end);
+      if (end == to)
+        return false;
+      from = end + 1;
+      end = indexOfSpace(bytes, from, to);
+      if (end == from)
+        return false; // an empty up field, which split may drop
+
+      chargerId = (int) id;
+      startTime = start;
+      endTime = stop;
+      up = end - from == 4 && (bytes[from] | 0x20) == 't' && (bytes[from + 1] | 0x20) == 'r'
+          && (bytes[from + 2] | 0x20) == 'u' && (bytes[from + 3] | 0x20) == 'e';
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /** Parse a line exactly as <code>App</code> always has. */
+  Status parseScalar(String line) {
+    String[] tokens = line.split(" ");
+    try {
+      if (tokens.length == 0)
+        throw new NumberFormatException("Blank line");
+      chargerId = Integer.parseUnsignedInt(tokens[0]);
+    } catch (NumberFormatException e) {
+      return Status.INVALID_CHARGER_ID;
+    }
+    if (tokens.length < 4)
+      return Status.MISSING_FIELDS;
+    try {
+      startTime = Long.parseUnsignedLong(tokens[1]);
+      endTime = Long.parseUnsignedLong(tokens[2]);
+    } catch (NumberFormatException e) {
+      return Status.INVALID_TIME;
+    }
+    up = Boolean.parseBoolean(tokens[3]);
+    return Status.OK;
+  }
+
+  /** @return the charger ID of the last line, as an unsigned int */
+  public int getChargerId() {
+    return chargerId;
+  }
+
+  /** @return the start time of the last line, as an unsigned long */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** @return the end time of the last line, as an unsigned long */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /** @return true if the charger of the last line was up */
+  public boolean isUp() {
+    return up;
+  }
+
+  /**
+   * Find the first space in the given range, eight bytes at a time.
+   *
+   * @return the index of the space, or <code>to</code> if there is none
+   */
+  static int indexOfSpace(byte[] bytes, int from, int to) {
+    int i = from;
+    for (; i + Long.BYTES <= to; i += Long.BYTES) {
+      long word = (long) LONGS.get(bytes, i) ^ SPACES; // spaces become zero bytes
+      long zeroBytes = (word - ONES) & ~word & HIGH_BITS; // exact up to the first zero byte
+      if (zeroBytes != 0)
+        return i + (Long.numberOfTrailingZeros(zeroBytes) >>> 3);
+    }
+    while (i < to && bytes[i] != ' ')
+      i++;
+    return i;
+  }
+
+  /** @return true if each of the eight bytes is an ASCII digit */
+  static boolean isEightDigits(long word) {
+    // A digit's high nibble is 3, and stays 3 when 6 is added
+    return ((word & 0xF0F0F0F0F0F0F0F0L) | (((word + 0x0606060606060606L) & 0xF0F0F0F0F0F0F0F0L) >>> 4))
+        == 0x3333333333333333L;
+  }
+
+  /**
+   * Convert eight ASCII digits, the first in the lowest byte, by combining
+   * pairs of digits, then pairs of pairs, then the two halves.
+   */
+  static long convertEightDigits(long word) {
+    word = (word & 0x0F0F0F0F0F0F0F0FL) * 2561 >>> 8;
+    word = (word & 0x00FF00FF00FF00FFL) * 6553601 >>> 16;
+    return (word & 0x0000FFFF0000FFFFL) * 42949672960001L >>> 32;
+  }
+
+  /**
+   * Parse ASCII digits as an unsigned long, eight at a time. Unlike
+   * <code>Long.parseUnsignedLong</code>, a leading plus sign is not allowed.
+   *
+   * @param bytes the bytes holding the digits
+   * @param from  the index of the first digit
+   * @param to    the index just after the last digit
+   * @return the value, as an unsigned long
+   * @throws NumberFormatException if the range is empty, holds anything but
+   *                               digits, or its value is over 2^64-1
+   */
+  public static long parseUnsignedLong(byte[] bytes, int from, int to) {
+    if (from >= to)
+      throw new NumberFormatException("Empty number");
+
+    // Skip leading zeros, which do not count towards the digit limit
+    int i = from;
+    while (i + Long.BYTES <= to && (long) LONGS.get(bytes, i) == ZEROS)
+      i += Long.BYTES;
+    while (i < to && bytes[i] == '0')
+      i++;
+    int digits = to - i;
+    if (digits > MAX_DIGITS)
+      throw numberFormatException(bytes, from, to);
+
+    // Up to 19 digits cannot overflow, only the 20th can
+    int last = digits == MAX_DIGITS ? to - 1 : to;
+    long value = 0;
+    for (; i + Long.BYTES <= last; i += Long.BYTES) {
+      long word = (long) LONGS.get(bytes, i);
+      if (!isEightDigits(word))
+        throw numberFormatException(bytes, from, to);
+      value = value * 100_000_000L + convertEightDigits(word);
+    }
+    for (; i < to; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9)
+        throw numberFormatException(bytes, from, to);
+      if (i == last) {
+        if (Long.compareUnsigned(value, MAX_UNSIGNED_DIV_10) > 0)
+          throw numberFormatException(bytes, from, to);
+        value = value * 10 + digit;
+        if (Long.compareUnsigned(value, digit) < 0)
+          throw numberFormatException(bytes, from, to);
+      } else
+        value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static NumberFormatException numberFormatException(byte[] bytes, int from, int to) {
+    return new NumberFormatException(
+        "For input string: \"" + new String(bytes, from, to - from, StandardCharsets.ISO_8859_1) + "\"");
+  }
+}
@@ -0,0 +1,254 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import main.App.Report;
+
+/**
+ * List of a station's reports that gathers cheap statistics as reports are
+ * added one at a time: the number of uptime reports and the number of
+ * ascending runs they form, by unsigned start time, in the order they were
+ * added. <code>UptimeStrategy.choose</code> uses these to pick how to merge
+ * the station's uptime without another pass over the reports.
+ * <br>
+ * </br>
+ * Reports added through <code>addFromCharger</code> are also tracked per
+ * charger: the charger of each uptime report, and the number of times a
+ * charger's uptime reports go back in start time. A charger's reports usually
+ * arrive in time order even when the station's are interleaved, in which case
+ * <code>UptimeStrategy.CHARGER_MERGE</code> can merge the chargers' runs
+ * instead of sorting the station's reports.
+ * <br>
+ * </br>
+ * The list also keeps a fingerprint of the multiset of reports added, which
+ * does not depend on their order, so that a <code>StationResultCache</code>
+ * can tell whether a station's reports changed since they were last
+ * computed. Reports folded into others before they are added, as coalescing
+ * does, are counted with <code>fingerprint</code>, so the fingerprint and
+ * the reported time span are those of the reports as they were read.
+ * <br>
+ * </br>
+ * The statistics are only hints. They are dropped as soon as the list is
+ * modified other than through <code>add(Report)</code> or
+ * <code>addFromCharger</code>, and widening a report in place (as coalescing
+ * does) may leave the run counts stale; every strategy is correct for any
+ * input.
+ *
+ * @author Kevin Li
+ */
+public class ReportList extends ArrayList<Report> {
+  private static final long serialVersionUID = 1L;
+
+  /** The number of chargers from which they are looked up in a map. */
+  public static final int CHARGER_MAP_THRESHOLD = 8;
+
+  int upCount;
+  int upRunCount;
+  long lastUpStart;
+  private int countedModCount;
+
+  // Sums of two hashes of each report read, and the reported time span
+  long fingerprint0, fingerprint1;
+  long fingerprintCount;
+  long start = -1, end = 0;
+
+  // Charger of each uptime report, by index among the station's chargers
+  int[] upChargerIndexes;
+  int chargerUpCount; // the uptime reports added with their charger
+  int[] chargerIds = new int[0];
+  long[] chargerLastUpStarts = new long[0];
+  int chargerCount;
+  int chargerDescentCount;
+  private int lastChargerIndex;
+  private HashMap<Integer, Integer> chargerIndexes; // once there are many chargers
+
+  public ReportList() {
+    super();
+  }
+
+  public ReportList(int capacity) {
+    super(capacity);
+  }
+
+  @Override
+  public boolean add(Report report) {
+    boolean hadStats = hasStats();
+    super.add(report);
+    if (!hadStats)
+      return true;
+    fingerprint(report.startTime, report.endTime, report.up);
+    if (report.up) {
+      if (upCount == 0 || Long.compareUnsigned(report.startTime, lastUpStart) < 0)
+        upRunCount++;
+      lastUpStart = report.startTime;
+      upCount++;
+    }
+    countedModCount = modCount;
+    return true;
+  }
+
+  /**
+   * Count a report that was read but folded into another one instead of
+   * being added, in the fingerprint and the reported time span.
+   *
+   * @param startTime the starting time, in nanoseconds
+   * @param endTime   the ending time, in nanoseconds
+   * @param up        true if uptime, false if downtime
+   */
+  public void fingerprint(long startTime, long endTime, boolean up) {
+    // Two different mixes of the report, summed so that the order does not
+    // matter but repeated reports do
+    long hash = mix(mix(mix(startTime ^ 0x9E3779B97F4A7C15L) ^ endTime) ^ (up ? 1 : 2));
+    fingerprint0 += hash;
+    fingerprint1 += mix(hash ^ 0xD1B54A32D192ED03L);
+    fingerprintCount++;
+    if (Long.compareUnsigned(startTime, start) < 0)
+      start = startTime;
+    if (Long.compareUnsigned(endTime, end) > 0)
+      end = endTime;
+  }
+
+  /** The finalizer of SplitMix64, which spreads every input bit over the output. */
+  static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+
+  /**
+   * Add a report from the given charger, tracking the charger's runs along
+   * with the statistics of <code>add(Report)</code>.
+   *
+   * @param chargerId the ID of the charger that sent the report
+   * @param report    the report
+   * @return true, as <code>add(Report)</code>
+   */
+  public boolean addFromCharger(int chargerId, Report report) {
+    boolean hadChargerStats = hasChargerStats();
+    add(report);
+    if (!hadChargerStats || !report.up)
+      return true;
+
+    int index = indexOfCharger(chargerId);
+    if (index < 0) {
+      index = chargerCount++;
+      if (index == chargerIds.length) {
+        chargerIds = Arrays.copyOf(chargerIds, Math.max(4, index << 1));
+        chargerLastUpStarts = Arrays.copyOf(chargerLastUpStarts, chargerIds.length);
+      }
+      chargerIds[index] = chargerId;
+      if (chargerIndexes != null)
+        chargerIndexes.put(chargerId, index);
+      else if (chargerCount == CHARGER_MAP_THRESHOLD) {
+        chargerIndexes = new HashMap<>();
+        for (int i = 0; i < chargerCount; i++)
+          chargerIndexes.put(chargerIds[i], i);
+      }
+    } else if (Long.compareUnsigned(report.startTime, chargerLastUpStarts[index]) < 0)
+      chargerDescentCount++;
+    chargerLastUpStarts[index] = report.startTime;
+    lastChargerIndex = index;
+
+    if (upChargerIndexes == null)
+      upChargerIndexes = new int[Math.max(16, size())];
+    else if (chargerUpCount == upChargerIndexes.length)
+      upChargerIndexes = Arrays.copyOf(upChargerIndexes, chargerUpCount << 1);
+    upChargerIndexes[chargerUpCount++] = index;
+    return true;
+  }
+
+  /** @return the index of the charger among the station's, or -1 if none */
+  private int indexOfCharger(int chargerId) {
+    if (lastChargerIndex < chargerCount && chargerIds[lastChargerIndex] == chargerId)
+      return lastChargerIndex; // reports often come from the same charger in a row
+    if (chargerIndexes != null) {
+      Integer index = chargerIndexes.get(chargerId);
+      return index == null ? -1 : index.intValue();
+    }
+    for (int i = 0; i < chargerCount; i++) {
+      if (chargerIds[i] == chargerId)
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * @return true if every report was added through <code>add(Report)</code>,
+   *         so that the statistics cover the whole list
+   */
+  public boolean hasStats() {
+    return countedModCount == modCount;
+  }
+
+  /**
+   * @return true if the statistics cover the whole list and every uptime
+   *         report was added through <code>addFromCharger</code>, so that the
+   *         charger of each one is known
+   */
+  public boolean hasChargerStats() {
+    return hasStats() && chargerUpCount == upCount;
+  }
+
+  /**
+   * @return the fingerprint of the reports read, which is valid if
+   *         <code>hasStats()</code>: two 64-bit sums of hashes of each report
+   *         and the number of reports
+   */
+  public long[] getFingerprint() {
+    return new long[] { fingerprint0, fingerprint1, fingerprintCount };
+  }
+
+  /**
+   * Count the reports read for a station, including those folded into others
+   * or dropped as duplicates before they were added, as
+   * <code>fingerprint</code> counts them.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @return the number of reports read
+   */
+  public static int countReportsRead(List<Report> stationTimeReports) {
+    if (stationTimeReports instanceof ReportList && ((ReportList) stationTimeReports).hasStats())
+      return (int) ((ReportList) stationTimeReports).fingerprintCount;
+    return stationTimeReports.size();
+  }
+
+  /** @return the earliest start of the reports read */
+  public long getStart() {
+    return start;
+  }
+
+  /** @return the latest end of the reports read */
+  public long getEnd() {
+    return end;
+  }
+
+  /** @return the number of chargers with uptime reports */
+  public int getChargerCount() {
+    return chargerCount;
+  }
+
+  /**
+   * @return the number of times an uptime report starts before the previous
+   *         uptime report of the same charger, which is 0 if each charger's
+   *         uptime reports form a single run
+   */
+  public int getChargerDescentCount() {
+    return chargerDescentCount;
+  }
+
+  /** @return the number of uptime reports */
+  public int getUpCount() {
+    return upCount;
+  }
+
+  /**
+   * @return the number of ascending runs the uptime reports form, by unsigned
+   *         start time, in the order they were added
+   */
+  public int getUpRunCount() {
+    return upRunCount;
+  }
+}
@@ -0,0 +1,469 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import main.App.Report;
+
+/**
+ * Pipelined reader for the Charger Availability Reports section. The work
+ * done serially by
+ * <code>App.readChargerAvailabilityReportsSection</code> is split into three
+ * stages joined by bounded queues:
+ * <ol>
+ * <li>an I/O stage (the calling thread) that reads the file in blocks of
+ * lines,</li>
+ * <li>N parser stages that parse each line with a
+ * <code>ReportLineParser</code> and look up its station, and</li>
+ * <li>M aggregator stages, each owning the stations whose ID hashes to it,
+ * that append the parsed reports to the station lists.</li>
+ * </ol>
+ * Every queue is bounded, so a slow stage blocks the stages feeding it
+ * (backpressure) instead of letting blocks pile up on the heap.
+ * <br>
+ * </br>
+ * The output and error messages are identical to the serial reader, with
+ * one exception: the reports within a station's list are not guaranteed to
+ * be in file order. This does not affect the computed uptimes, since
+ * <code>App.computeStationUptime</code> sorts the reports anyway. If several
+ * lines are invalid, the error for the earliest one is printed, as in the
+ * serial reader.
+ *
+ * @author Kevin Li
+ */
+public class ReportPipeline {
+  public static final int DEFAULT_BLOCK_SIZE = 4096;
+  public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+  /**
+   * Throughput counters for a single pipeline stage. All counters are summed
+   * over every thread running the stage.
+   */
+  public static class StageCounters {
+    final String name;
+    final AtomicLong lines = new AtomicLong();
+    final AtomicLong blocks = new AtomicLong();
+    final AtomicLong busyNanos = new AtomicLong();
+    final AtomicLong blockedNanos = new AtomicLong();
+
+    StageCounters(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /** @return the number of lines handled by this stage */
+    public long getLines() {
+      return lines.get();
+    }
+
+    /** @return the number of blocks handled by this stage */
+    public long getBlocks() {
+      return blocks.get();
+    }
+
+    /** @return the time spent doing work, in nanoseconds */
+    public long getBusyNanos() {
+      return busyNanos.get();
+    }
+
+    /**
+     * @return the time spent waiting on a full output queue or an empty input
+     *         queue, in nanoseconds
+     */
+    public long getBlockedNanos() {
+      return blockedNanos.get();
+    }
+
+    /** @return the lines handled per second of busy time */
+    public double getLinesPerSecond() {
+      long busy = busyNanos.get();
+      return busy == 0 ? 0 : lines.get() * 1e9 / busy;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d lines in %d blocks, %.0f lines/s busy, %.1f ms busy, %.1f ms blocked", name,
+          getLines(), getBlocks(), getLinesPerSecond(), busyNanos.get() / 1e6, blockedNanos.get() / 1e6);
+    }
+  }
+
+  /** A block of raw lines, as produced by the I/O stage. */
+  static class LineBlock {
+    final long firstLine;
+    final String[] lines;
+    int count;
+
+    LineBlock(long firstLine, int capacity) {
+      this.firstLine = firstLine;
+      this.lines = new String[capacity];
+    }
+  }
+
+  /** A block of parsed reports destined for a single aggregator. */
+  static class ParsedBlock {
+    int[] stationIds;
+    long[] startTimes, endTimes;
+    boolean[] ups;
+    int count;
+
+    ParsedBlock(int capacity) {
+      stationIds = new int[capacity];
+      startTimes = new long[capacity];
+      endTimes = new long[capacity];
+      ups = new boolean[capacity];
+    }
+
+    void add(int stationId, long startTime, long endTime, boolean up) {
+      if (count == stationIds.length) {
+        int capacity = count << 1;
+        stationIds = Arrays.copyOf(stationIds, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+        ups = Arrays.copyOf(ups, capacity);
+      }
+      stationIds[count] = stationId;
+      startTimes[count] = startTime;
+      endTimes[count] = endTime;
+      ups[count++] = up;
+    }
+  }
+
+  // Sentinels marking the end of a queue's input
+  private static final LineBlock END_OF_LINES = new LineBlock(-1, 0);
+  private static final ParsedBlock END_OF_REPORTS = new ParsedBlock(0);
+
+  private final int parserCount;
+  private final int aggregatorCount;
+  private final int blockSize;
+  private final int queueCapacity;
+
+  private final StageCounters readerCounters = new StageCounters("reader");
+  private final StageCounters parserCounters = new StageCounters("parser");
+  private final StageCounters aggregatorCounters = new StageCounters("aggregator");
+
+  // Earliest invalid line found by a parser, and its error message
+  private long errorLine;
+  private String errorMessage;
+
+  /**
+   * Create a new pipeline sized to the number of available processors.
+   */
+  public ReportPipeline() {
+    this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 4), DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Create a new pipeline. All arguments are assumed to be positive.
+   *
+   * @param parserCount     the number of parser threads
+   * @param aggregatorCount the number of aggregator threads
+   * @param blockSize       the number of lines per block
+   * @param queueCapacity   the number of blocks each queue can hold before
+   *                        the stage feeding it blocks
+   */
+  public ReportPipeline(int parserCount, int aggregatorCount, int blockSize, int queueCapacity) {
+    this.parserCount = parserCount;
+    this.aggregatorCount = aggregatorCount;
+    this.blockSize = blockSize;
+    this.queueCapacity = queueCapacity;
+  }
+
+  public StageCounters getReaderCounters() {
+    return readerCounters;
+  }
+
+  public StageCounters getParserCounters() {
+    return parserCounters;
+  }
+
+  public StageCounters getAggregatorCounters() {
+    return aggregatorCounters;
+  }
+
+  /**
+   * Read and process the Charger Availability Reports section of the file,
+   * mapping each station to its reported uptime/downtime intervals. Behaves
+   * like <code>App.readChargerAvailabilityReportsSection</code>: prints an
+   * error and returns <code>null</code> if the file format is invalid. It is
+   * assumed that <code>stationMap</code> is not null and that this method is
+   * called at most once per pipeline.
+   *
+   * @param reader        the BufferedReader for the given file
+   * @param stationMap    a map of each charger ID to its station ID
+   * @param emptyStations an auxiliary list containing station IDs with no
+   *                      charger IDs
+   * @return a map of each station ID to its reported time intervals
+   */
+  public HashMap<Integer, List<Report>> readChargerAvailabilityReportsSection(BufferedReader reader,
+      HashMap<Integer, Integer> stationMap, List<Integer> emptyStations) {
+    try {
+      String nextLine = reader.readLine();
+      if (nextLine == null || !nextLine.equals("[Charger Availability Reports]")) {
+        System.out.println("ERROR");
+        System.err.println("Input file is formatted incorrectly.");
+        reader.close();
+        return null;
+      }
+    } catch (IOException e) {
+      System.out.println("ERROR");
+      System.err.println("File cannot be read.");
+      return null;
+    }
+
+    ArrayBlockingQueue<LineBlock> lineQueue = new ArrayBlockingQueue<>(queueCapacity);
+    List<ArrayBlockingQueue<ParsedBlock>> reportQueues = new ArrayList<>(aggregatorCount);
+    List<HashMap<Integer, List<Report>>> partitions = new ArrayList<>(aggregatorCount);
+    for (int i = 0; i < aggregatorCount; i++) {
+      reportQueues.add(new ArrayBlockingQueue<>(queueCapacity));
+      partitions.add(new HashMap<>());
+    }
+    errorLine = Long.MAX_VALUE;
+    errorMessage = null;
+
+    // Start the parser and aggregator stages
+    List<Thread> threads = new ArrayList<>(parserCount + aggregatorCount);
+    for (int i = 0; i < parserCount; i++)
+      threads.add(new Thread(new Parser(lineQueue, reportQueues, stationMap), "report-parser-" + i));
+    for (int i = 0; i < aggregatorCount; i++)
+      threads.add(new Thread(new Aggregator(reportQueues.get(i), partitions.get(i)), "report-aggregator-" + i));
+    for (Thread thread : threads) {
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    // I/O stage, run on the calling thread
+    boolean readFailed = false;
+    try {
+      long lineNumber = 0;
+      boolean endOfFile = false;
+      while (!endOfFile && !hasError()) {
+        long start = System.nanoTime();
+        LineBlock block = new LineBlock(lineNumber, blockSize);
+        while (block.count < blockSize) {
+          String nextLine = reader.readLine();
+          if (nextLine == null) {
+            endOfFile = true;
+            break;
+          }
+          block.lines[block.count++] = nextLine;
+        }
+        lineNumber += block.count;
+        long read = System.nanoTime();
+        readerCounters.busyNanos.addAndGet(read - start);
+        if (block.count > 0) {
+          readerCounters.lines.addAndGet(block.count);
+          readerCounters.blocks.incrementAndGet();
+          lineQueue.put(block);
+          readerCounters.blockedNanos.addAndGet(System.nanoTime() - read);
+        }
+      }
+    } catch (IOException e) {
+      readFailed = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      readFailed = true;
+    }
+
+    // Signal the end of input and wait for the other stages to drain
+    try {
+      for (int i = 0; i < parserCount; i++)
+        lineQueue.put(END_OF_LINES);
+      for (Thread thread : threads)
+        thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (Thread thread : threads)
+        thread.interrupt();
+      readFailed = true;
+    }
+
+    if (readFailed) {
+      System.out.println("ERROR");
+      System.err.println("File cannot be read.");
+      return null;
+    }
+    if (hasError()) {
+      System.out.println("ERROR");
+      System.err.println(errorMessage);
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Already reporting an error
+      }
+      for (HashMap<Integer, List<Report>> partition : partitions)
+        partition.clear();
+      return null;
+    }
+
+    HashMap<Integer, List<Report>> output = new HashMap<>();
+
+    // Put empty stations in output, no reports
+    for (Integer emptyStation : emptyStations)
+      output.put(emptyStation, new ArrayList<>(0));
+
+    // Each station lives in exactly one partition
+    for (HashMap<Integer, List<Report>> partition : partitions)
+      output.putAll(partition);
+    return output;
+  }
+
+  private synchronized boolean hasError() {
+    return errorMessage != null;
+  }
+
+  private synchronized long getErrorLine() {
+    return errorLine;
+  }
+
+  private synchronized void recordError(long lineNumber, String message) {
+    // Keep the earliest error, to match the serial reader's output
+    if (lineNumber < errorLine) {
+      errorLine = lineNumber;
+      errorMessage = message;
+    }
+  }
+
+  /** Parser stage: parses lines and routes them to aggregators. */
+  private class Parser implements Runnable {
+    private final ArrayBlockingQueue<LineBlock> input;
+    private final List<ArrayBlockingQueue<ParsedBlock>> outputs;
+    private final HashMap<Integer, Integer> stationMap;
+    private final ReportLineParser lineParser = new ReportLineParser();
+
+    Parser(ArrayBlockingQueue<LineBlock> input, List<ArrayBlockingQueue<ParsedBlock>> outputs,
+        HashMap<Integer, Integer> stationMap) {
+      this.input = input;
+      this.outputs = outputs;
+      this.stationMap = stationMap;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          long wait = System.nanoTime();
+          LineBlock block = input.take();
+          long start = System.nanoTime();
+          parserCounters.blockedNanos.addAndGet(start - wait);
+          if (block == END_OF_LINES)
+            break;
+
+          // Blocks entirely after a known error cannot change the output
+          if (block.firstLine > getErrorLine())
+            continue;
+
+          ParsedBlock[] parsed = new ParsedBlock[outputs.size()];
+          for (int i = 0; i < block.count; i++) {
+            if (!parseLine(block.firstLine + i, block.lines[i], parsed))
+              break;
+          }
+          long parsedTime = System.nanoTime();
+          parserCounters.busyNanos.addAndGet(parsedTime - start);
+          parserCounters.lines.addAndGet(block.count);
+          parserCounters.blocks.incrementAndGet();
+
+          for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] != null)
+              outputs.get(i).put(parsed[i]);
+          }
+          parserCounters.blockedNanos.addAndGet(System.nanoTime() - parsedTime);
+        }
+        for (ArrayBlockingQueue<ParsedBlock> output : outputs)
+          output.put(END_OF_REPORTS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Parse a single line into the parsed block of its station's aggregator.
+     *
+     * @return false if the line is invalid
+     */
+    private boolean parseLine(long lineNumber, String line, ParsedBlock[] parsed) {
+      ReportLineParser.Status status = lineParser.parse(line);
+
+      // Get the charger ID
+      if (status == ReportLineParser.Status.INVALID_CHARGER_ID) {
+        recordError(lineNumber, "Charger IDs must be unsigned 32-bit integers.");
+        return false;
+      }
+      Integer chargerId = Integer.valueOf(lineParser.getChargerId());
+
+      // Get the charger's station ID
+      Integer stationId = stationMap.get(chargerId);
+      if (stationId == null) {
+        recordError(lineNumber, "Each charger must be present at a station.");
+        return false;
+      }
+
+      if (status != ReportLineParser.Status.OK) {
+        recordError(lineNumber, status == ReportLineParser.Status.MISSING_FIELDS
+            ? "Input file is formatted incorrectly."
+            : "Start and end times must be unsigned 64-bit integers.");
+        return false;
+      }
+      long startTime = lineParser.getStartTime(), endTime = lineParser.getEndTime();
+      boolean up = lineParser.isUp();
+
+      int partition = Math.floorMod(stationId.hashCode(), parsed.length);
+      if (parsed[partition] == null)
+        parsed[partition] = new ParsedBlock(Math.max(16, blockSize / parsed.length));
+      parsed[partition].add(stationId.intValue(), startTime, endTime, up);
+      return true;
+    }
+  }
+
+  /** Aggregator stage: appends reports to the lists of the stations it owns. */
+  private class Aggregator implements Runnable {
+    private final ArrayBlockingQueue<ParsedBlock> input;
+    private final HashMap<Integer, List<Report>> output;
+
+    Aggregator(ArrayBlockingQueue<ParsedBlock> input, HashMap<Integer, List<Report>> output) {
+      this.input = input;
+      this.output = output;
+    }
+
+    @Override
+    public void run() {
+      try {
+        int remainingParsers = parserCount;
+        while (remainingParsers > 0) {
+          long wait = System.nanoTime();
+          ParsedBlock block = input.take();
+          long start = System.nanoTime();
+          aggregatorCounters.blockedNanos.addAndGet(start - wait);
+          if (block == END_OF_REPORTS) {
+            remainingParsers--;
+            continue;
+          }
+
+          for (int i = 0; i < block.count; i++) {
+            Integer stationId = Integer.valueOf(block.stationIds[i]);
+            List<Report> thisStationTimes = output.get(stationId);
+            if (thisStationTimes == null) {
+              thisStationTimes = new ReportList();
+              output.put(stationId, thisStationTimes);
+            }
+            thisStationTimes.add(new Report(block.startTimes[i], block.endTimes[i], block.ups[i]));
+          }
+          aggregatorCounters.busyNanos.addAndGet(System.nanoTime() - start);
+          aggregatorCounters.lines.addAndGet(block.count);
+          aggregatorCounters.blocks.incrementAndGet();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package main;
+
+/**
+ * Uptime of a single station over a sliding window of time, such as the last
+ * 24 hours, updated as reports arrive. The window ends at the latest time
+ * seen, which is the latest end of the reports unless it is moved forward
+ * with <code>advanceTo</code>, and starts the window width before that.
+ * <br>
+ * </br>
+ * The station's merged uptime intervals within the window are kept in a
+ * deque, in two circular <code>long</code> arrays, along with the sum of
+ * their lengths. A new uptime interval is folded into the tail, and
+ * intervals that fall out of the window are dropped from the head, or
+ * clipped if they are partly in it, so that each update takes amortized
+ * <code>O(1)</code> time when reports arrive in time order. A late report
+ * that falls before the tail is inserted in place, in time proportional to
+ * the number of intervals after it. Nothing is ever re-sorted.
+ * <br>
+ * </br>
+ * As in <code>App.computeStationUptime</code>, the reported time within the
+ * window runs from the earliest start, or the window start if that is later,
+ * to the end of the window, and unreported time counts as downtime. All
+ * times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class RollingUptimeWindow {
+  public static final int INITIAL_CAPACITY = 8; // a power of 2
+
+  final long width;
+  long start = Unsigned.MAX_TIME; // earliest reported start
+  long now; // end of the window
+  int reportCount;
+  long coveredTime; // sum of the lengths of the intervals in the deque
+
+  long[] starts = new long[INITIAL_CAPACITY], ends = new long[INITIAL_CAPACITY];
+  int head, size; // the deque is starts[head], ..., wrapping around
+
+  /**
+   * Create a new window with no reports. It is assumed that
+   * <code>width</code> is positive.
+   *
+   * @param width the width of the window, in nanoseconds
+   */
+  public RollingUptimeWindow(long width) {
+    this.width = width;
+  }
+
+  /** @return the start of the window */
+  public long getWindowStart() {
+    return Unsigned.lessThan(now, width) ? 0 : now - width;
+  }
+
+  /** @return the end of the window, the latest time seen */
+  public long getWindowEnd() {
+    return now;
+  }
+
+  /** @return the number of reports added, both up and down */
+  public int getReportCount() {
+    return reportCount;
+  }
+
+  /** @return the number of merged uptime intervals in the window */
+  public int getIntervalCount() {
+    return size;
+  }
+
+  /** @return the total up time within the window, in nanoseconds */
+  public long getCoveredTime() {
+    return coveredTime;
+  }
+
+  /**
+   * Add a report to the station, moving the window forward to its end if
+   * that is later. It is assumed that <code>endTime</code> is no smaller than
+   * <code>startTime</code>, in unsigned longs.
+   *
+   * @param startTime the starting time, in nanoseconds
+   * @param endTime   the ending time, in nanoseconds
+   * @param up        true if uptime, false if downtime
+   */
+  public void add(long startTime, long endTime, boolean up) {
+    reportCount++;
+    start = Unsigned.min(start, startTime);
+    advanceTo(endTime);
+    if (!up)
+      return; // only needed for the reported time
+
+    long windowStart = getWindowStart();
+    if (Unsigned.lessOrEqual(endTime, windowStart))
+      return; // already out of the window
+    startTime = Unsigned.max(startTime, windowStart);
+    if (startTime == endTime)
+      return; // adds nothing
+
+    // Usual case: in order, after or overlapping the tail
+    if (size == 0 || Unsigned.lessThan(ends[index(size - 1)], startTime)) {
+      insert(size, startTime, endTime);
+      return;
+    }
+
+    // Find the intervals the new one overlaps or touches, which are at
+    // [first, after), scanning back from the tail
+    int after = size;
+    while (after > 0 && Unsigned.lessThan(endTime, starts[index(after - 1)]))
+      after--;
+    int first = after;
+    while (first > 0 && Unsigned.lessOrEqual(startTime, ends[index(first - 1)]))
+      first--;
+    if (first == after) {
+      insert(after, startTime, endTime); // in a gap
+      return;
+    }
+
+    // Replace them with their union
+    long mergedStart = Unsigned.min(startTime, starts[index(first)]);
+    long mergedEnd = Unsigned.max(endTime, ends[index(after - 1)]);
+    for (int i = first; i < after; i++)
+      coveredTime -= ends[index(i)] - starts[index(i)];
+    remove(first + 1, after);
+    starts[index(first)] = mergedStart;
+    ends[index(first)] = mergedEnd;
+    coveredTime += mergedEnd - mergedStart;
+  }
+
+  /**
+   * Move the end of the window forward to the given time, if it is later,
+   * dropping the uptime that falls out of the window. The time between the
+   * station's latest report and the end of the window counts as downtime.
+   *
+   * @param time the new end of the window, in nanoseconds
+   */
+  public void advanceTo(long time) {
+    if (Unsigned.lessOrEqual(time, now))
+      return;
+    now = time;
+
+    long windowStart = getWindowStart();
+    while (size > 0 && Unsigned.lessOrEqual(ends[head], windowStart)) {
+      coveredTime -= ends[head] - starts[head];
+      head = (head + 1) & (starts.length - 1);
+      size--;
+    }
+    if (size > 0 && Unsigned.lessThan(starts[head], windowStart)) {
+      coveredTime -= windowStart - starts[head];
+      starts[head] = windowStart;
+    }
+  }
+
+  /**
+   * Compute the uptime of the station within the window, as
+   * <code>App.computeStationUptime</code> would from the reports clipped to
+   * the window.
+   *
+   * @return the station uptime, as a truncated percentage
+   */
+  public int computeUptime() {
+    if (reportCount == 0 || coveredTime == 0)
+      return 0; // no reported uptime
+    long totalTime = now - Unsigned.max(start, getWindowStart());
+    return App.computeUptimePercentage(coveredTime, totalTime);
+  }
+
+  /** @return the array index of the interval at the given deque index */
+  private int index(int i) {
+    return (head + i) & (starts.length - 1);
+  }
+
+  /**
+   * Insert an interval at the given deque index, moving the intervals from
+   * there on one place toward the tail.
+   */
+  private void insert(int at, long startTime, long endTime) {
+    if (size == starts.length) {
+      // Unwrap into arrays twice the size
+      long[] newStarts = new long[size << 1], newEnds = new long[size << 1];
+      for (int i = 0; i < size; i++) {
+        newStarts[i] = starts[index(i)];
+        newEnds[i] = ends[index(i)];
+      }
+      starts = newStarts;
+      ends = newEnds;
+      head = 0;
+    }
+    for (int i = size; i > at; i--) {
+      starts[index(i)] = starts[index(i - 1)];
+      ends[index(i)] = ends[index(i - 1)];
+    }
+    starts[index(at)] = startTime;
+    ends[index(at)] = endTime;
+    size++;
+    coveredTime += endTime - startTime;
+  }
+
+  /**
+   * Remove the intervals at the deque indexes <code>[from, to)</code>,
+   * moving the intervals after them toward the head, without changing the
+   * covered time.
+   */
+  private void remove(int from, int to) {
+    if (from == to)
+      return;
+    for (int i = to; i < size; i++) {
+      starts[index(from + i - to)] = starts[index(i)];
+      ends[index(from + i - to)] = ends[index(i)];
+    }
+    size -= to - from;
+  }
+
+  /**
+   * @return the merged uptime intervals in the window, in the format returned
+   *         by <code>App.mergeUptimeIntervals</code>
+   */
+  public long[] getMergedIntervals() {
+    long[] output = new long[size << 1];
+    for (int i = 0; i < size; i++) {
+      output[i << 1] = starts[index(i)];
+      output[(i << 1) + 1] = ends[index(i)];
+    }
+    return output;
+  }
+}
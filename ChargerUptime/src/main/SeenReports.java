@@ -0,0 +1,84 @@
+package main;
+
+/**
+ * Set of the reports read so far, each a charger ID, start time, end time and
+ * up value, so that <code>App</code> can drop exact resends of a report when
+ * coalescing, however long after the original they arrive. The reports are
+ * kept in open-addressed primitive arrays rather than as objects, about 42
+ * bytes per report at worst, and only while the section is read.
+ *
+ * @author Kevin Li
+ */
+public class SeenReports {
+  static final int INITIAL_CAPACITY = 1 << 10;
+
+  // Slot state: 0 if empty, 1 for downtime, 2 for uptime
+  byte[] states = new byte[INITIAL_CAPACITY];
+  int[] chargerIds = new int[INITIAL_CAPACITY];
+  long[] startTimes = new long[INITIAL_CAPACITY];
+  long[] endTimes = new long[INITIAL_CAPACITY];
+  int size;
+
+  static int hash(int chargerId, long startTime, long endTime, boolean up) {
+    long hash = ReportList.mix(ReportList.mix(ReportList.mix(startTime ^ 0x9E3779B97F4A7C15L) ^ endTime)
+        ^ ((long) chargerId << 1 | (up ? 1 : 0)));
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /**
+   * Add a report to the set.
+   *
+   * @param chargerId the ID of the charger that sent the report
+   * @param startTime the starting time, in nanoseconds
+   * @param endTime   the ending time, in nanoseconds
+   * @param up        true if uptime, false if downtime
+   * @return false if the same report was already added
+   */
+  public boolean add(int chargerId, long startTime, long endTime, boolean up) {
+    byte state = (byte) (up ? 2 : 1);
+    int mask = states.length - 1;
+    int slot = hash(chargerId, startTime, endTime, up) & mask;
+    while (states[slot] != 0) {
+      if (states[slot] == state && chargerIds[slot] == chargerId && startTimes[slot] == startTime
+          && endTimes[slot] == endTime)
+        return false;
+      slot = (slot + 1) & mask;
+    }
+    states[slot] = state;
+    chargerIds[slot] = chargerId;
+    startTimes[slot] = startTime;
+    endTimes[slot] = endTime;
+    if (++size > states.length >> 1)
+      grow();
+    return true;
+  }
+
+  /** Double the capacity, keeping the table at most half full. */
+  void grow() {
+    byte[] oldStates = states;
+    int[] oldChargerIds = chargerIds;
+    long[] oldStartTimes = startTimes, oldEndTimes = endTimes;
+    int capacity = oldStates.length << 1;
+    states = new byte[capacity];
+    chargerIds = new int[capacity];
+    startTimes = new long[capacity];
+    endTimes = new long[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldStates.length; i++) {
+      if (oldStates[i] == 0)
+        continue;
+      int slot = hash(oldChargerIds[i], oldStartTimes[i], oldEndTimes[i], oldStates[i] == 2) & mask;
+      while (states[slot] != 0)
+        slot = (slot + 1) & mask;
+      states[slot] = oldStates[i];
+      chargerIds[slot] = oldChargerIds[i];
+      startTimes[slot] = oldStartTimes[i];
+      endTimes[slot] = oldEndTimes[i];
+    }
+  }
+
+  /** @return the number of distinct reports added */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,356 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Coordinator for the sharded mode of the application. Stations are
+ * partitioned across worker processes by a hash of their station ID, and each
+ * report line is streamed to the worker owning its charger's station, so no
+ * single JVM has to hold every report. The workers compute their stations'
+ * uptimes with <code>App.computeStationUptime</code> and send them back
+ * sorted; the coordinator merges the sorted outputs and prints them.
+ * <br>
+ * </br>
+ * Workers are local <code>ShardWorker</code> processes talking to the
+ * coordinator over loopback sockets. They are started with the class path the
+ * coordinator's classes were loaded from, so this mode requires compiled
+ * classes (i.e. it does not work with <code>java App.java</code>).
+ *
+ * @author Kevin Li
+ */
+public class ShardCoordinator {
+  public static final int WORKER_CONNECT_TIMEOUT_MILLIS = 30000;
+
+  /**
+   * Connection to a single worker process.
+   */
+  static class Worker {
+    final Process process;
+    Socket socket;
+    BufferedWriter writer;
+    BufferedReader reader;
+
+    // Next station uptime read from the worker, used while merging
+    int stationId, uptime;
+
+    // Line number in the reports section of the worker's error, if any
+    long errorLine;
+
+    Worker(Process process) {
+      this.process = process;
+    }
+
+    /**
+     * Read the worker's next station uptime.
+     *
+     * @return false if the worker has no more output
+     */
+    boolean advance() throws IOException {
+      String nextLine = reader.readLine();
+      if (nextLine == null || nextLine.equals(ShardWorker.END_OF_OUTPUT))
+        return false;
+      int separator = nextLine.indexOf(' ');
+      stationId = Unsigned.parseId(nextLine.substring(0, separator));
+      uptime = Integer.parseInt(nextLine.substring(separator + 1));
+      return true;
+    }
+  }
+
+  private final int workerCount;
+
+  /**
+   * Create a new coordinator. It is assumed that <code>workerCount</code> is
+   * positive.
+   *
+   * @param workerCount the number of worker processes
+   */
+  public ShardCoordinator(int workerCount) {
+    this.workerCount = workerCount;
+  }
+
+  /**
+   * Get the worker that owns the given station.
+   *
+   * @param stationId   the station ID
+   * @param workerCount the number of workers
+   * @return the worker index, from 0 to <code>workerCount - 1</code>
+   */
+  public static int getShard(int stationId, int workerCount) {
+    // Mix the bits first, since station IDs are often sequential
+    int hash = stationId;
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return Integer.remainderUnsigned(hash, workerCount);
+  }
+
+  /**
+   * Stream the Charger Availability Reports section of the file to the
+   * workers and print the merged station uptimes, in ascending order of
+   * unsigned station ID. Prints an error if the file format is invalid or the
+   * workers fail. It is assumed that <code>stationMap</code> is not null and
+   * not empty.
+   *
+   * @param reader        the BufferedReader for the given file, positioned
+   *                      after the Stations section
+   * @param stationMap    a map of each charger ID to its station ID
+   * @param emptyStations an auxiliary list containing station IDs with no
+   *                      charger IDs
+   * @return true if the uptimes were printed
+   */
+  public boolean run(BufferedReader reader, HashMap<Integer, Integer> stationMap, List<Integer> emptyStations) {
+    List<Worker> workers = new ArrayList<>(workerCount);
+    try (ServerSocket serverSocket = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress())) {
+      if (!startWorkers(serverSocket, workers)) {
+        System.out.println("ERROR");
+        System.err.println("Worker processes could not be started.");
+        return false;
+      }
+
+      writeStationsSections(workers, stationMap, emptyStations);
+      String error = streamReports(reader, workers, stationMap);
+      for (Worker worker : workers) {
+        worker.writer.flush();
+        worker.socket.shutdownOutput();
+      }
+
+      // An error from a worker came from an earlier line than any error
+      // found here, since no lines are sent after the first error. Of the
+      // workers' errors, the one from the earliest line is printed.
+      long errorLine = Long.MAX_VALUE;
+      for (Worker worker : workers) {
+        String workerError = readWorkerError(worker);
+        if (workerError != null && (error == null || worker.errorLine < errorLine)) {
+          error = workerError;
+          errorLine = worker.errorLine;
+        }
+      }
+      if (error != null) {
+        System.out.println("ERROR");
+        System.err.println(error);
+        return false;
+      }
+
+      mergeWorkerOutputs(workers);
+      return true;
+    } catch (IOException e) {
+      System.out.println("ERROR");
+      System.err.println("Communication with worker processes failed.");
+      return false;
+    } finally {
+      for (Worker worker : workers) {
+        try {
+          if (worker.socket != null)
+            worker.socket.close();
+        } catch (IOException e) {
+          // Nothing left to do with this worker
+        }
+        worker.process.destroy();
+      }
+    }
+  }
+
+  /**
+   * Start the worker processes and accept their connections.
+   *
+   * @return false if a worker could not be started or did not connect
+   */
+  private boolean startWorkers(ServerSocket serverSocket, List<Worker> workers) throws IOException {
+    String classPath = getClassPath();
+    if (classPath == null)
+      return false;
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    for (int i = 0; i < workerCount; i++) {
+      ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath, ShardWorker.class.getName(),
+          Integer.toString(serverSocket.getLocalPort()), Integer.toString(i));
+      builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+      builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+      workers.add(new Worker(builder.start()));
+    }
+
+    // Workers may connect in any order, and identify themselves first
+    serverSocket.setSoTimeout(WORKER_CONNECT_TIMEOUT_MILLIS);
+    for (int i = 0; i < workerCount; i++) {
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (SocketTimeoutException e) {
+        return false;
+      }
+      BufferedReader workerReader = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      int index;
+      try {
+        index = Integer.parseInt(workerReader.readLine());
+      } catch (NumberFormatException e) {
+        socket.close();
+        return false;
+      }
+      if (index < 0 || index >= workerCount || workers.get(index).socket != null) {
+        socket.close();
+        return false;
+      }
+      Worker worker = workers.get(index);
+      worker.socket = socket;
+      worker.reader = workerReader;
+      worker.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+    return true;
+  }
+
+  /**
+   * Get the class path containing the worker class.
+   *
+   * @return the class path, or <code>null</code> if it cannot be found
+   */
+  private static String getClassPath() {
+    CodeSource codeSource = ShardWorker.class.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null)
+      return null;
+    try {
+      return new File(codeSource.getLocation().toURI()).getPath();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Send each worker the Stations section for the stations it owns.
+   */
+  private void writeStationsSections(List<Worker> workers, HashMap<Integer, Integer> stationMap,
+      List<Integer> emptyStations) throws IOException {
+    for (Worker worker : workers)
+      worker.writer.write("[Stations]\n");
+
+    // A station may be listed over several lines, one per charger
+    for (Entry<Integer, Integer> charger : stationMap.entrySet()) {
+      int stationId = charger.getValue().intValue();
+      BufferedWriter writer = workers.get(getShard(stationId, workerCount)).writer;
+      writer.write(Integer.toUnsignedString(stationId));
+      writer.write(' ');
+      writer.write(Integer.toUnsignedString(charger.getKey().intValue()));
+      writer.write('\n');
+    }
+    for (Integer emptyStation : emptyStations) {
+      int stationId = emptyStation.intValue();
+      BufferedWriter writer = workers.get(getShard(stationId, workerCount)).writer;
+      writer.write(Integer.toUnsignedString(stationId));
+      writer.write('\n');
+    }
+
+    for (Worker worker : workers)
+      worker.writer.write("\n0 [Charger Availability Reports]\n");
+  }
+
+  /**
+   * Route each report line to the worker owning its charger's station,
+   * prefixed with its line number in the section, counting the header as line
+   * 0. The start and end times are validated by the workers.
+   *
+   * @return the error message, or <code>null</code> if every line was routed
+   */
+  private String streamReports(BufferedReader reader, List<Worker> workers, HashMap<Integer, Integer> stationMap)
+      throws IOException {
+    String nextLine = reader.readLine();
+    if (nextLine == null || !nextLine.equals("[Charger Availability Reports]"))
+      return "Input file is formatted incorrectly.";
+
+    long lineNumber = 0;
+    for (nextLine = reader.readLine(); nextLine != null; nextLine = reader.readLine()) {
+      lineNumber++;
+      int separator = nextLine.indexOf(' ');
+      String chargerToken = separator < 0 ? nextLine : nextLine.substring(0, separator);
+
+      Integer chargerId;
+      try {
+        chargerId = Integer.valueOf(Integer.parseUnsignedInt(chargerToken));
+      } catch (NumberFormatException e) {
+        return "Charger IDs must be unsigned 32-bit integers.";
+      }
+
+      Integer stationId = stationMap.get(chargerId);
+      if (stationId == null)
+        return "Each charger must be present at a station.";
+
+      BufferedWriter writer = workers.get(getShard(stationId.intValue(), workerCount)).writer;
+      writer.write(Long.toString(lineNumber));
+      writer.write(' ');
+      writer.write(nextLine);
+      writer.write('\n');
+    }
+    return null;
+  }
+
+  /**
+   * Check whether the worker reported an error, setting its
+   * <code>errorLine</code> if so. A worker that failed without a line number
+   * is taken to have failed after every line.
+   *
+   * @return the worker's error message, or <code>null</code> if it succeeded
+   */
+  private static String readWorkerError(Worker worker) throws IOException {
+    worker.errorLine = Long.MAX_VALUE;
+    worker.reader.mark(8192);
+    String firstLine = worker.reader.readLine();
+    if (firstLine == null)
+      return "Worker process failed."; // exited without finishing its output
+    if (!firstLine.equals("ERROR")) {
+      worker.reader.reset();
+      return null;
+    }
+    String message = worker.reader.readLine();
+    if (message == null)
+      return "Worker process failed.";
+    try {
+      String lineNumber = worker.reader.readLine();
+      if (lineNumber != null)
+        worker.errorLine = Long.parseLong(lineNumber);
+    } catch (NumberFormatException e) {
+      // Keep the message, ordered after the other workers' errors
+    }
+    return message;
+  }
+
+  /**
+   * Merge the workers' sorted outputs and print them, in ascending order of
+   * unsigned station ID.
+   */
+  private static void mergeWorkerOutputs(List<Worker> workers) throws IOException {
+    // Workers never share a station, so a linear scan for the minimum over
+    // the small number of workers is enough
+    List<Worker> remaining = new ArrayList<>(workers.size());
+    for (Worker worker : workers) {
+      if (worker.advance())
+        remaining.add(worker);
+    }
+    while (!remaining.isEmpty()) {
+      int minIndex = 0;
+      for (int i = 1; i < remaining.size(); i++) {
+        if (Integer.compareUnsigned(remaining.get(i).stationId, remaining.get(minIndex).stationId) < 0)
+          minIndex = i;
+      }
+      Worker worker = remaining.get(minIndex);
+      System.out.print(Unsigned.toString(worker.stationId) + " " + worker.uptime + "\n");
+      if (!worker.advance())
+        remaining.remove(minIndex);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import main.App.Report;
+
+/**
+ * Worker process for the sharded mode of the application. Each worker
+ * connects to the <code>ShardCoordinator</code> over a local socket, receives
+ * a complete input file containing only the stations it owns, and sends back
+ * the uptimes of those stations, sorted in ascending order of their unsigned
+ * station IDs and followed by an <code>END</code> line.
+ * <br>
+ * </br>
+ * The worker reuses the <code>App</code> methods unchanged, with
+ * <code>System.out</code> and <code>System.err</code> both redirected to the
+ * socket. On an invalid input, the coordinator thus receives
+ * <code>ERROR</code> followed by the error message, exactly as the methods
+ * print it, and then the number of the line the error was found on. The
+ * coordinator prefixes each line from the Charger Availability Reports
+ * header on with its line number in the section, which the worker strips
+ * before the methods see the line.
+ *
+ * @author Kevin Li
+ */
+public class ShardWorker {
+  /** Line sent after the last station uptime. */
+  public static final String END_OF_OUTPUT = "END";
+
+  /**
+   * Input stream that ignores <code>close()</code>. The <code>App</code>
+   * methods close their reader on errors, and closing a socket's input stream
+   * closes the socket before the error could be sent back.
+   */
+  static class UnclosableInputStream extends FilterInputStream {
+    UnclosableInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() {
+      // The socket is closed by main
+    }
+  }
+
+  /**
+   * Reader that strips the line number from each line of the Charger
+   * Availability Reports section, remembering the last one read.
+   */
+  static class NumberedLineReader extends BufferedReader {
+    boolean numbered;
+    long lineNumber;
+
+    NumberedLineReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public String readLine() throws IOException {
+      String line = super.readLine();
+      if (!numbered || line == null)
+        return line;
+      int separator = line.indexOf(' ');
+      lineNumber = Long.parseLong(line.substring(0, separator));
+      return line.substring(separator + 1);
+    }
+  }
+
+  /**
+   * Compute the uptimes of the stations in the given input and print them, or
+   * print an error if the input is invalid.
+   *
+   * @param reader the reader for the worker's input
+   * @return true if the uptimes were printed
+   */
+  static boolean computeAndPrint(NumberedLineReader reader) {
+    List<Integer> emptyStations = new ArrayList<>();
+    HashMap<Integer, Integer> stationsMap = App.readStationsSection(reader, emptyStations);
+    if (stationsMap == null)
+      return false; // Error in Stations section
+
+    reader.numbered = true;
+    HashMap<Integer, List<Report>> stationReportsMap = App.readChargerAvailabilityReportsSection(reader, stationsMap,
+        emptyStations);
+    emptyStations.clear();
+    stationsMap.clear();
+    if (stationReportsMap == null)
+      return false; // Error in Charger Availability Reports section
+
+    int[][] stationUptimes = App.computeStationUptimes(stationReportsMap);
+    stationReportsMap.clear();
+    Arrays.sort(stationUptimes, new Unsigned.StationIdComparator());
+    App.printStationUptimes(stationUptimes);
+    return true;
+  }
+
+  /**
+   * Connect to the coordinator and process its input.
+   *
+   * @param args the coordinator's port and this worker's index
+   */
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.err.println("Usage: ShardWorker <coordinator port> <worker index>");
+      System.exit(1);
+    }
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+      PrintStream output = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false,
+          StandardCharsets.UTF_8);
+      output.println(args[1]);
+      output.flush();
+
+      System.setOut(output);
+      System.setErr(output);
+      NumberedLineReader reader = new NumberedLineReader(
+          new InputStreamReader(new UnclosableInputStream(socket.getInputStream()), StandardCharsets.UTF_8));
+      if (computeAndPrint(reader))
+        output.println(END_OF_OUTPUT);
+      else
+        output.println(reader.lineNumber);
+      output.flush();
+
+      // Keep reading until the coordinator is done sending after an error,
+      // since closing a socket with unread input resets the connection and
+      // may discard the error message
+      InputStream input = socket.getInputStream();
+      byte[] buffer = new byte[8192];
+      while (input.read(buffer) >= 0)
+        ;
+      socket.shutdownOutput();
+    } catch (IOException | NumberFormatException e) {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sorted, merged runs of a single station's uptime intervals, spilled to a
+ * temporary file to free memory. Each run is written as consecutive
+ * little-endian pairs of start and end times. The runs are read back with a
+ * <code>MergedIntervals</code> iterator, which merges them with the
+ * station's in-memory intervals a buffer at a time, so that the station never
+ * has to fit in memory.
+ * <br>
+ * </br>
+ * The runs of every station spilled under a <code>MemoryBudget</code> are
+ * appended to one shared <code>SpillFile</code>, at the offsets each station
+ * keeps, so that spilling thousands of stations takes a single file
+ * descriptor. The file is closed and deleted once no station has runs in it;
+ * the space of a station whose runs are deleted is only given back then.
+ * <br>
+ * </br>
+ * All times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class SpilledRuns {
+  public static final int BYTES_PER_INTERVAL = 16;
+  /** Intervals read from a run at a time. */
+  public static final int READ_BUFFER_INTERVALS = 512;
+
+  /**
+   * A temporary file shared by the spilled runs of many stations, which is
+   * deleted when the last of them is.
+   */
+  static class SpillFile {
+    final Path path;
+    final FileChannel channel;
+    long size;
+    int users; // stations with runs in the file
+    boolean deleted;
+
+    /**
+     * Create a new, empty spill file.
+     *
+     * @param path the path of the file
+     */
+    SpillFile(Path path) throws IOException {
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Stop using the file, deleting it if no station uses it any more. */
+    void release() {
+      if (--users > 0)
+        return;
+      delete();
+    }
+
+    /** Close and delete the file, even if stations still use it. */
+    void delete() {
+      if (deleted)
+        return;
+      deleted = true;
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // Deleted below either way
+      }
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        System.err.println("Spill file " + path + " cannot be deleted.");
+      }
+    }
+  }
+
+  final SpillFile file;
+  long intervalCount;
+  long[] runOffsets = new long[4];
+  long[] runCounts = new long[4];
+  int runCount;
+
+  /**
+   * Create a new, empty set of runs in the given file.
+   *
+   * @param file the spill file, which is released when the runs are deleted
+   */
+  SpilledRuns(SpillFile file) {
+    this.file = file;
+    file.users++;
+  }
+
+  /**
+   * Append a run of sorted, merged intervals to the file. It is assumed that
+   * <code>count</code> is positive.
+   *
+   * @return the number of bytes written
+   */
+  long write(long[] starts, long[] ends, int count) throws IOException {
+    if (runCount == runOffsets.length) {
+      runOffsets = Arrays.copyOf(runOffsets, runCount << 1);
+      runCounts = Arrays.copyOf(runCounts, runCount << 1);
+    }
+    runOffsets[runCount] = file.size;
+    runCounts[runCount++] = count;
+    intervalCount += count;
+
+    ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_INTERVALS * BYTES_PER_INTERVAL)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < count; i++) {
+      buffer.putLong(starts[i]).putLong(ends[i]);
+      if (!buffer.hasRemaining() || i == count - 1) {
+        buffer.flip();
+        while (buffer.hasRemaining())
+          file.size += file.channel.write(buffer, file.size);
+        buffer.clear();
+      }
+    }
+    return (long) count * BYTES_PER_INTERVAL;
+  }
+
+  /** @return the number of runs spilled */
+  public int getRunCount() {
+    return runCount;
+  }
+
+  /** @return the number of intervals spilled, over all runs */
+  public long getIntervalCount() {
+    return intervalCount;
+  }
+
+  /**
+   * Iterate over the union of the spilled runs and the given sorted, merged
+   * in-memory intervals, as merged intervals in order.
+   */
+  MergedIntervals merge(long[] starts, long[] ends, int count) {
+    return new MergedIntervals(starts, ends, count);
+  }
+
+  /** Delete the runs, releasing the file. */
+  void delete() {
+    runCount = 0;
+    file.release();
+  }
+
+  /**
+   * Iterator over merged intervals, in order of unsigned start time. Throws
+   * an <code>UncheckedIOException</code> if a run cannot be read.
+   */
+  public class MergedIntervals {
+    final long[] memoryStarts, memoryEnds;
+    final int memoryCount;
+    int memoryIndex;
+    final ByteBuffer[] buffers = new ByteBuffer[runCount];
+    final long[] positions = new long[runCount]; // next byte to read
+    final long[] limits = new long[runCount];
+    long start, end;
+
+    MergedIntervals(long[] starts, long[] ends, int count) {
+      memoryStarts = starts;
+      memoryEnds = ends;
+      memoryCount = count;
+      for (int run = 0; run < runCount; run++) {
+        buffers[run] = ByteBuffer.allocate(READ_BUFFER_INTERVALS * BYTES_PER_INTERVAL)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffers[run].limit(0);
+        positions[run] = runOffsets[run];
+        limits[run] = runOffsets[run] + runCounts[run] * BYTES_PER_INTERVAL;
+      }
+    }
+
+    /**
+     * @return true if the run has another interval, which is then at the
+     *         buffer's position
+     */
+    private boolean fill(int run) {
+      ByteBuffer buffer = buffers[run];
+      if (buffer.hasRemaining())
+        return true;
+      if (positions[run] == limits[run])
+        return false;
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), limits[run] - positions[run]));
+      try {
+        while (buffer.hasRemaining()) {
+          int read = file.channel.read(buffer, positions[run]);
+          if (read < 0)
+            throw new IOException("Spill file " + file.path + " ended early.");
+          positions[run] += read;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      buffer.flip();
+      return true;
+    }
+
+    /**
+     * Find the run whose next interval starts first, or -1 for the in-memory
+     * intervals.
+     *
+     * @return the run, -1, or -2 if there are no intervals left
+     */
+    private int findFirst() {
+      int first = memoryIndex < memoryCount ? -1 : -2;
+      long firstStart = first == -1 ? memoryStarts[memoryIndex] : 0;
+      for (int run = 0; run < runCount; run++) {
+        if (!fill(run))
+          continue;
+        long runStart = buffers[run].getLong(buffers[run].position());
+        if (first == -2 || Long.compareUnsigned(runStart, firstStart) < 0) {
+          first = run;
+          firstStart = runStart;
+        }
+      }
+      return first;
+    }
+
+    /**
+     * Advance to the next merged interval, available as <code>start</code>
+     * and <code>end</code>.
+     *
+     * @return false if there are no more intervals
+     */
+    public boolean next() {
+      boolean found = false;
+      for (int first = findFirst(); first != -2; first = findFirst()) {
+        long nextStart, nextEnd;
+        if (first == -1) {
+          nextStart = memoryStarts[memoryIndex];
+          nextEnd = memoryEnds[memoryIndex];
+        } else {
+          ByteBuffer buffer = buffers[first];
+          nextStart = buffer.getLong(buffer.position());
+          nextEnd = buffer.getLong(buffer.position() + Long.BYTES);
+        }
+        if (found && Long.compareUnsigned(nextStart, end) > 0)
+          break; // starts the next merged interval
+
+        if (first == -1)
+          memoryIndex++;
+        else
+          buffers[first].position(buffers[first].position() + BYTES_PER_INTERVAL);
+        if (!found) {
+          start = nextStart;
+          end = nextEnd;
+          found = true;
+        } else if (Long.compareUnsigned(nextEnd, end) > 0)
+          end = nextEnd;
+      }
+      return found;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+  }
+}
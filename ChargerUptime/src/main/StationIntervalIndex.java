@@ -0,0 +1,370 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import main.App.Report;
+
+/**
+ * Persistent on-disk index of each station's merged uptime intervals, keyed by
+ * unsigned station ID. The file is memory-mapped, so looking up a single
+ * station only touches the pages holding its keys, its entry and its
+ * intervals instead of re-reading the whole input file.
+ * <br>
+ * </br>
+ * The keys form a two-level, B-tree style layout: a small fence array holds
+ * every <code>FENCE_INTERVAL</code>-th key, and a lookup binary searches the
+ * fences first and then a single block of keys. All values are
+ * little-endian. Layout:
+ * <ul>
+ * <li>header (64 bytes): the magic <code>CUPTIDX1</code>, the station count
+ * (int), the fence count (int), then the offsets (long) of the fences, keys,
+ * entries and intervals, and 16 reserved bytes</li>
+ * <li>fences: one int per <code>FENCE_INTERVAL</code> keys</li>
+ * <li>keys: the station IDs (int), sorted by unsigned value</li>
+ * <li>entries (32 bytes each, in key order): the index of the station's
+ * first interval (long), its interval count (int), its report count (int),
+ * and the start and end (long) of its reported time</li>
+ * <li>intervals: the merged uptime intervals, as pairs of unsigned long
+ * start and end times</li>
+ * </ul>
+ *
+ * @author Kevin Li
+ */
+public class StationIntervalIndex {
+  public static final long MAGIC = 0x3158444954505543L; // "CUPTIDX1" in little-endian
+  public static final int HEADER_SIZE = 64;
+  public static final int ENTRY_SIZE = 32;
+  public static final int FENCE_INTERVAL = 1024; // 4 KiB of keys per block
+
+  // Intervals are mapped in segments, since a single mapping is limited to
+  // 2 GiB. A segment holds a whole number of intervals.
+  static final long SEGMENT_SIZE = 1L << 30;
+
+  private final ByteBuffer keysBuffer; // header, fences, keys and entries
+  private final ByteBuffer[] intervalSegments;
+  private final int stationCount, fenceCount;
+  private final int fencesOffset, keysOffset, entriesOffset;
+
+  private StationIntervalIndex(ByteBuffer keysBuffer, ByteBuffer[] intervalSegments) {
+    this.keysBuffer = keysBuffer;
+    this.intervalSegments = intervalSegments;
+    stationCount = keysBuffer.getInt(8);
+    fenceCount = keysBuffer.getInt(12);
+    fencesOffset = (int) keysBuffer.getLong(16);
+    keysOffset = (int) keysBuffer.getLong(24);
+    entriesOffset = (int) keysBuffer.getLong(32);
+  }
+
+  /**
+   * Memory-map an index file for reading.
+   *
+   * @param path the path of the file
+   * @return the mapped index
+   * @throws IOException if the file cannot be read or is not an index file
+   */
+  public static StationIntervalIndex open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE)
+        throw new IOException("Not a station interval index.");
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(header, 0);
+      if (header.getLong(0) != MAGIC)
+        throw new IOException("Not a station interval index.");
+      long intervalsOffset = header.getLong(40);
+      if (intervalsOffset < HEADER_SIZE || intervalsOffset > Math.min(size, Integer.MAX_VALUE))
+        throw new IOException("Not a station interval index.");
+
+      MappedByteBuffer keysBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, intervalsOffset);
+      keysBuffer.order(ByteOrder.LITTLE_ENDIAN);
+      long intervalsSize = size - intervalsOffset;
+      ByteBuffer[] segments = new ByteBuffer[(int) ((intervalsSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+      for (int i = 0; i < segments.length; i++) {
+        long offset = i * SEGMENT_SIZE;
+        segments[i] = channel
+            .map(FileChannel.MapMode.READ_ONLY, intervalsOffset + offset, Math.min(SEGMENT_SIZE, intervalsSize - offset))
+            .order(ByteOrder.LITTLE_ENDIAN);
+      }
+      return new StationIntervalIndex(keysBuffer, segments);
+    }
+  }
+
+  /**
+   * Merge each station's uptime intervals and write them to an index file.
+   * The lists of reports are left unchanged. It is assumed that
+   * <code>stationReportsMap</code> is not null.
+   *
+   * @param path              the path of the file, which is overwritten if it
+   *                          exists
+   * @param stationReportsMap a map of each station ID to its reported time
+   *                          intervals
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Path path, HashMap<Integer, List<Report>> stationReportsMap) throws IOException {
+    int stationCount = stationReportsMap.size();
+    // Sort by unsigned value by flipping the sign bit
+    int[] stationIds = new int[stationCount];
+    int stationIndex = 0;
+    for (Integer stationId : stationReportsMap.keySet())
+      stationIds[stationIndex++] = stationId.intValue() ^ Integer.MIN_VALUE;
+    Arrays.sort(stationIds);
+    for (int i = 0; i < stationCount; i++)
+      stationIds[i] ^= Integer.MIN_VALUE;
+
+    int fenceCount = (stationCount + FENCE_INTERVAL - 1) / FENCE_INTERVAL;
+    long fencesOffset = HEADER_SIZE;
+    long keysOffset = align(fencesOffset + 4L * fenceCount);
+    long entriesOffset = align(keysOffset + 4L * stationCount);
+    long intervalsOffset = entriesOffset + (long) ENTRY_SIZE * stationCount;
+    if (intervalsOffset > Integer.MAX_VALUE)
+      throw new IOException("Too many stations for a station interval index.");
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer keysBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, intervalsOffset);
+      keysBuffer.order(ByteOrder.LITTLE_ENDIAN);
+      keysBuffer.putLong(0, MAGIC);
+      keysBuffer.putInt(8, stationCount);
+      keysBuffer.putInt(12, fenceCount);
+      keysBuffer.putLong(16, fencesOffset);
+      keysBuffer.putLong(24, keysOffset);
+      keysBuffer.putLong(32, entriesOffset);
+      keysBuffer.putLong(40, intervalsOffset);
+
+      // Intervals are appended in key order, one station at a time, so only
+      // one station's merged intervals are held in memory at once
+      ByteBuffer intervalBuffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+      long intervalPosition = intervalsOffset;
+      long intervalIndex = 0;
+      for (int i = 0; i < stationCount; i++) {
+        int stationId = stationIds[i];
+        if (i % FENCE_INTERVAL == 0)
+          keysBuffer.putInt((int) fencesOffset + 4 * (i / FENCE_INTERVAL), stationId);
+        keysBuffer.putInt((int) keysOffset + 4 * i, stationId);
+
+        List<Report> reports = stationReportsMap.get(Integer.valueOf(stationId));
+        long start = -1, end = 0;
+        for (Report report : reports) {
+          if (Long.compareUnsigned(report.startTime, start) < 0)
+            start = report.startTime;
+          if (Long.compareUnsigned(report.endTime, end) > 0)
+            end = report.endTime;
+        }
+        if (reports.isEmpty())
+          start = 0;
+        long[] mergedIntervals = App.mergeUptimeIntervals(reports);
+
+        int entry = (int) entriesOffset + ENTRY_SIZE * i;
+        keysBuffer.putLong(entry, intervalIndex);
+        keysBuffer.putInt(entry + 8, mergedIntervals.length >> 1);
+        keysBuffer.putInt(entry + 12, ReportList.countReportsRead(reports));
+        keysBuffer.putLong(entry + 16, start);
+        keysBuffer.putLong(entry + 24, end);
+
+        for (long time : mergedIntervals) {
+          if (!intervalBuffer.hasRemaining())
+            intervalPosition += flush(channel, intervalBuffer, intervalPosition);
+          intervalBuffer.putLong(time);
+        }
+        intervalIndex += mergedIntervals.length >> 1;
+      }
+      flush(channel, intervalBuffer, intervalPosition);
+      keysBuffer.force();
+    }
+  }
+
+  /**
+   * Write an index for every station in the map, mirroring
+   * <code>App.exportStationSummaries</code>. Prints an error and returns
+   * false if the file cannot be written.
+   *
+   * @param stationReportsMap a map of each station ID to its reported time
+   *                          intervals, left unchanged
+   * @param indexPath         the path of the file to write
+   * @return true if the file was written
+   */
+  public static boolean writeIndex(HashMap<Integer, List<Report>> stationReportsMap, String indexPath) {
+    try {
+      write(Paths.get(indexPath), stationReportsMap);
+      return true;
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("ERROR");
+      System.err.println("Index file " + indexPath + " cannot be written.");
+      return false;
+    }
+  }
+
+  private static int flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    buffer.flip();
+    int written = 0;
+    while (buffer.hasRemaining())
+      written += channel.write(buffer, position + written);
+    buffer.clear();
+    return written;
+  }
+
+  private static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  public int getStationCount() {
+    return stationCount;
+  }
+
+  /**
+   * @return the station IDs in the index, sorted by unsigned value
+   */
+  public int[] getStationIds() {
+    int[] output = new int[stationCount];
+    for (int i = 0; i < stationCount; i++)
+      output[i] = keysBuffer.getInt(keysOffset + 4 * i);
+    return output;
+  }
+
+  /**
+   * Find the position of a station in the key array.
+   *
+   * @param stationId the station ID
+   * @return the station's key index, or -1 if it is not in the index
+   */
+  int findStation(int stationId) {
+    // Find the last fence no larger than the station ID
+    int low = 0, high = fenceCount - 1, block = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (Integer.compareUnsigned(keysBuffer.getInt(fencesOffset + 4 * middle), stationId) <= 0) {
+        block = middle;
+        low = middle + 1;
+      } else
+        high = middle - 1;
+    }
+    if (block < 0)
+      return -1;
+
+    // Then search that fence's block of keys
+    low = block * FENCE_INTERVAL;
+    high = Math.min(stationCount, low + FENCE_INTERVAL) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = Integer.compareUnsigned(keysBuffer.getInt(keysOffset + 4 * middle), stationId);
+      if (comparison == 0)
+        return middle;
+      else if (comparison < 0)
+        low = middle + 1;
+      else
+        high = middle - 1;
+    }
+    return -1;
+  }
+
+  /**
+   * @param stationId the station ID
+   * @return true if the station is in the index
+   */
+  public boolean containsStation(int stationId) {
+    return findStation(stationId) >= 0;
+  }
+
+  /**
+   * Get the merged uptime intervals of a station, in the format returned by
+   * <code>App.mergeUptimeIntervals</code>.
+   *
+   * @param stationId the station ID
+   * @return the merged intervals, or <code>null</code> if the station is not
+   *         in the index
+   */
+  public long[] getMergedIntervals(int stationId) {
+    int station = findStation(stationId);
+    if (station < 0)
+      return null;
+    int entry = entriesOffset + ENTRY_SIZE * station;
+    long intervalIndex = keysBuffer.getLong(entry);
+    int intervalCount = keysBuffer.getInt(entry + 8);
+
+    long[] output = new long[intervalCount << 1];
+    long position = intervalIndex << 4;
+    for (int i = 0; i < output.length; i++, position += 8)
+      output[i] = intervalSegments[(int) (position / SEGMENT_SIZE)].getLong((int) (position % SEGMENT_SIZE));
+    return output;
+  }
+
+  /**
+   * @param stationId the station ID
+   * @return the number of reports of the station, or -1 if the station is
+   *         not in the index
+   */
+  public int getReportCount(int stationId) {
+    int station = findStation(stationId);
+    return station < 0 ? -1 : keysBuffer.getInt(entriesOffset + ENTRY_SIZE * station + 12);
+  }
+
+  /**
+   * Compute the uptime of a single station from the index, as
+   * <code>App.computeStationUptime</code> would from its reports.
+   *
+   * @param stationId the station ID
+   * @return the station uptime, as a truncated percentage, or -1 if the
+   *         station is not in the index
+   */
+  public int computeStationUptime(int stationId) {
+    long[] mergedIntervals = getMergedIntervals(stationId);
+    if (mergedIntervals == null)
+      return -1;
+    if (mergedIntervals.length == 0)
+      return 0; // no reported uptime
+    int entry = entriesOffset + ENTRY_SIZE * findStation(stationId);
+    long totalTime = keysBuffer.getLong(entry + 24) - keysBuffer.getLong(entry + 16);
+    long uptime = 0;
+    for (int i = 0; i < mergedIntervals.length; i += 2)
+      uptime += mergedIntervals[i + 1] - mergedIntervals[i];
+    return App.computeUptimePercentage(uptime, totalTime);
+  }
+
+  /**
+   * Print the uptime of a single station from an index file.
+   *
+   * @param args the path of the index file and the unsigned station ID
+   */
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.out.println("ERROR");
+      System.err.println("Please enter the index file and a station ID.");
+      return;
+    }
+    int stationId;
+    try {
+      stationId = Integer.parseUnsignedInt(args[1]);
+    } catch (NumberFormatException e) {
+      System.out.println("ERROR");
+      System.err.println("Station IDs must be unsigned 32-bit integers.");
+      return;
+    }
+
+    StationIntervalIndex index;
+    try {
+      index = open(Paths.get(args[0]));
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("ERROR");
+      System.err.println("Index file " + args[0] + " cannot be read.");
+      return;
+    }
+    int uptime = index.computeStationUptime(stationId);
+    if (uptime < 0) {
+      System.out.println("ERROR");
+      System.err.println("Station " + args[1] + " is not in the index.");
+      return;
+    }
+    System.out.println(Integer.toUnsignedString(stationId) + " " + uptime);
+  }
+}
@@ -0,0 +1,312 @@
+package main;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Primitive buffer of a single station's uptime intervals. Instead of keeping
+ * every report, it tracks the earliest start and latest end of all reports
+ * and stores only the up intervals, in two parallel <code>long</code> arrays.
+ * When the buffer fills, overlapping intervals are merged in place before it
+ * grows, so its size is bounded by the number of merged intervals rather than
+ * the number of reports. Under a <code>MemoryBudget</code>, the merged
+ * intervals may also be spilled to disk as <code>SpilledRuns</code>, which
+ * are merged back in when the uptime is computed.
+ * <br>
+ * </br>
+ * All times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class StationIntervals {
+  public static final int INITIAL_CAPACITY = 8;
+  public static final int BYTES_PER_INTERVAL = 16;
+
+  long start = -1, end = 0; // reported time span
+  int reportCount;
+  long[] starts, ends;
+  int count;
+  int mergedCount; // the intervals before this index are sorted and merged
+  SpilledRuns spilledRuns; // or null if none were spilled
+
+  public StationIntervals() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Create a new buffer. It is assumed that <code>capacity</code> is
+   * positive.
+   *
+   * @param capacity the initial number of intervals the buffer can hold
+   */
+  public StationIntervals(int capacity) {
+    starts = new long[capacity];
+    ends = new long[capacity];
+  }
+
+  /**
+   * Add a report to the station. It is assumed that <code>endTime</code> is
+   * no smaller than <code>startTime</code>, in unsigned longs.
+   *
+   * @param startTime the starting time, in nanoseconds
+   * @param endTime   the ending time, in nanoseconds
+   * @param up        true if uptime, false if downtime
+   */
+  public void add(long startTime, long endTime, boolean up) {
+    if (Long.compareUnsigned(startTime, start) < 0)
+      start = startTime;
+    if (Long.compareUnsigned(endTime, end) > 0)
+      end = endTime;
+    reportCount++;
+    if (!up)
+      return; // only needed for the reported time span
+
+    if (count == starts.length) {
+      compact();
+      // Grow if merging freed less than a quarter of the buffer, so that
+      // compaction stays amortized O(log n) per interval
+      if (count > starts.length - (starts.length >> 2)) {
+        starts = Arrays.copyOf(starts, starts.length << 1);
+        ends = Arrays.copyOf(ends, ends.length << 1);
+      }
+    }
+    starts[count] = startTime;
+    ends[count++] = endTime;
+  }
+
+  /**
+   * Sort the buffered up intervals and merge the overlapping ones in place.
+   */
+  public void compact() {
+    if (mergedCount == count)
+      return;
+    sort(starts, ends, 0, count);
+
+    int output = 0;
+    for (int i = 1; i < count; i++) {
+      if (Long.compareUnsigned(starts[i], ends[output]) <= 0) {
+        if (Long.compareUnsigned(ends[i], ends[output]) > 0)
+          ends[output] = ends[i];
+      } else {
+        output++;
+        starts[output] = starts[i];
+        ends[output] = ends[i];
+      }
+    }
+    count = count == 0 ? 0 : output + 1;
+    mergedCount = count;
+  }
+
+  /**
+   * Sort the intervals in the given range by unsigned start time.
+   */
+  static void sort(long[] starts, long[] ends, int from, int to) {
+    while (to - from > 16) {
+      // Median of three as the pivot, which also handles sorted input
+      int middle = (from + to) >>> 1;
+      if (Long.compareUnsigned(starts[middle], starts[from]) < 0)
+        swap(starts, ends, middle, from);
+      if (Long.compareUnsigned(starts[to - 1], starts[from]) < 0)
+        swap(starts, ends, to - 1, from);
+      if (Long.compareUnsigned(starts[to - 1], starts[middle]) < 0)
+        swap(starts, ends, to - 1, middle);
+      long pivot = starts[middle];
+
+      int low = from, high = to - 1;
+      while (low <= high) {
+        while (Long.compareUnsigned(starts[low], pivot) < 0)
+          low++;
+        while (Long.compareUnsigned(starts[high], pivot) > 0)
+          high--;
+        if (low <= high)
+          swap(starts, ends, low++, high--);
+      }
+
+      // Recurse into the smaller part to bound the stack depth
+      if (high + 1 - from < to - low) {
+        sort(starts, ends, from, high + 1);
+        from = low;
+      } else {
+        sort(starts, ends, low, to);
+        to = high + 1;
+      }
+    }
+
+    for (int i = from + 1; i < to; i++) {
+      long thisStart = starts[i], thisEnd = ends[i];
+      int j = i - 1;
+      for (; j >= from && Long.compareUnsigned(starts[j], thisStart) > 0; j--) {
+        starts[j + 1] = starts[j];
+        ends[j + 1] = ends[j];
+      }
+      starts[j + 1] = thisStart;
+      ends[j + 1] = thisEnd;
+    }
+  }
+
+  private static void swap(long[] starts, long[] ends, int i, int j) {
+    long temp = starts[i];
+    starts[i] = starts[j];
+    starts[j] = temp;
+    temp = ends[i];
+    ends[i] = ends[j];
+    ends[j] = temp;
+  }
+
+  /**
+   * Merge the buffered intervals, then halve the buffer until it is at least
+   * half full, so that it keeps room to grow.
+   */
+  public void trim() {
+    compact();
+    int capacity = starts.length;
+    while (capacity > INITIAL_CAPACITY && count < capacity >> 1)
+      capacity >>= 1;
+    if (capacity < starts.length) {
+      starts = Arrays.copyOf(starts, capacity);
+      ends = Arrays.copyOf(ends, capacity);
+    }
+  }
+
+  /**
+   * Merge the buffered intervals and append them to the budget's spill file
+   * as a new run of this station, creating the file in the budget's spill
+   * directory if needed, then empty the buffer.
+   *
+   * @param budget the budget to create the file with and count the spill in
+   */
+  public void spill(MemoryBudget budget) throws IOException {
+    compact();
+    if (count == 0)
+      return;
+    if (spilledRuns == null) {
+      spilledRuns = new SpilledRuns(budget.getSpillFile());
+      budget.spilledStations++;
+    }
+    budget.spilledBytes += spilledRuns.write(starts, ends, count);
+    budget.spilledRuns++;
+    budget.spilledIntervals += count;
+    starts = new long[INITIAL_CAPACITY];
+    ends = new long[INITIAL_CAPACITY];
+    count = 0;
+    mergedCount = 0;
+  }
+
+  /** @return true if some intervals were spilled to disk */
+  public boolean isSpilled() {
+    return spilledRuns != null;
+  }
+
+  /**
+   * Delete the spilled runs, if any, deleting the spill file if no other
+   * station has runs in it.
+   */
+  public void deleteSpilledRuns() {
+    if (spilledRuns != null) {
+      spilledRuns.delete();
+      spilledRuns = null;
+    }
+  }
+
+  /**
+   * Remove every report and spilled run, keeping the buffer so that it can
+   * be reused without allocating.
+   */
+  public void clear() {
+    deleteSpilledRuns();
+    start = -1;
+    end = 0;
+    reportCount = 0;
+    count = 0;
+    mergedCount = 0;
+  }
+
+  /** @return the number of reports added, both up and down */
+  public int getReportCount() {
+    return reportCount;
+  }
+
+  /** @return the number of buffered up intervals */
+  public int getIntervalCount() {
+    return count;
+  }
+
+  /** @return the size of the interval buffer, in bytes */
+  public long getBufferBytes() {
+    return (long) starts.length * BYTES_PER_INTERVAL;
+  }
+
+  /** @return the earliest start of all reports */
+  public long getStart() {
+    return start;
+  }
+
+  /** @return the latest end of all reports */
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * Merge the buffered intervals and return them, in the format returned by
+   * <code>App.mergeUptimeIntervals</code>.
+   *
+   * @return the flattened merged uptime intervals
+   */
+  public long[] getMergedIntervals() {
+    compact();
+    if (spilledRuns != null) {
+      long[] output = new long[16];
+      int outputLength = 0;
+      SpilledRuns.MergedIntervals merged = spilledRuns.merge(starts, ends, count);
+      while (merged.next()) {
+        if (outputLength == output.length)
+          output = Arrays.copyOf(output, outputLength << 1);
+        output[outputLength++] = merged.getStart();
+        output[outputLength++] = merged.getEnd();
+      }
+      return Arrays.copyOf(output, outputLength);
+    }
+    long[] output = new long[count << 1];
+    for (int i = 0; i < count; i++) {
+      output[i << 1] = starts[i];
+      output[(i << 1) + 1] = ends[i];
+    }
+    return output;
+  }
+
+  /**
+   * Merge the buffered intervals, along with any spilled ones, and sum their
+   * lengths. Throws an <code>UncheckedIOException</code> if the spilled
+   * intervals cannot be read.
+   *
+   * @return the total up time, in nanoseconds
+   */
+  public long getCoveredTime() {
+    compact();
+    long uptime = 0;
+    if (spilledRuns != null) {
+      SpilledRuns.MergedIntervals merged = spilledRuns.merge(starts, ends, count);
+      while (merged.next())
+        uptime += merged.getEnd() - merged.getStart();
+      return uptime;
+    }
+    for (int i = 0; i < count; i++)
+      uptime += ends[i] - starts[i];
+    return uptime;
+  }
+
+  /**
+   * Compute the uptime of the station, as
+   * <code>App.computeStationUptime</code> would from the same reports.
+   *
+   * @return the station uptime, as a truncated percentage
+   */
+  public int computeUptime() {
+    if (reportCount == 0)
+      return 0; // no reported time
+    long uptime = getCoveredTime();
+    if (count == 0 && spilledRuns == null)
+      return 0; // no reported uptime
+    return App.computeUptimePercentage(uptime, end - start);
+  }
+}
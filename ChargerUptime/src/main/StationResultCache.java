@@ -0,0 +1,243 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import main.App.Report;
+
+/**
+ * Cache of station results between runs, for reprocessing jobs in which most
+ * stations' reports have not changed. Each station's reports are identified
+ * by the fingerprint a <code>ReportList</code> keeps as they are read, which
+ * does not depend on their order; if it matches the cached one, the cached
+ * uptime and covered time are used, and the reports are neither sorted nor
+ * merged. Stations whose reports are not in a <code>ReportList</code> with
+ * valid statistics are always computed.
+ * <br>
+ * </br>
+ * The cache is a single local file, loaded when the cache is created and
+ * written back with <code>save</code>. It keeps at most the maximum number of
+ * stations, evicting the least recently used ones. The file is
+ * little-endian: the magic bytes <code>CUPTRES1</code>, the number of
+ * entries as a 32-bit integer, and for each entry, least recently used
+ * first, the station ID, the fingerprint (two 64-bit sums and the number of
+ * reports), the uptime, and the covered time in nanoseconds. A file that does
+ * not match this layout is treated as empty and rewritten.
+ *
+ * @author Kevin Li
+ */
+public class StationResultCache {
+  public static final byte[] MAGIC = "CUPTRES1".getBytes(StandardCharsets.US_ASCII);
+  public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+  static final int HEADER_BYTES = 12;
+  static final int ENTRY_BYTES = 44;
+
+  /** Adds up the length of the outages, from which the covered time follows. */
+  static class GapSum implements OutageSink {
+    long gapTime;
+
+    @Override
+    public void outage(int stationId, long gapStart, long gapEnd) {
+      gapTime += gapEnd - gapStart;
+    }
+  }
+
+  /** Map from station ID to entry in access order, evicting the eldest. */
+  static class LeastRecentlyUsedMap extends LinkedHashMap<Integer, long[]> {
+    private static final long serialVersionUID = 1L;
+
+    final int maxEntries;
+    int evictions;
+
+    LeastRecentlyUsedMap(int maxEntries) {
+      super(16, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, long[]> eldest) {
+      if (size() <= maxEntries)
+        return false;
+      evictions++;
+      return true;
+    }
+  }
+
+  final Path path;
+  // Each entry is the fingerprint, uptime, and covered time
+  final LeastRecentlyUsedMap entries;
+  int hits, misses;
+
+  /**
+   * Create a cache in the given file, with the default maximum number of
+   * entries.
+   *
+   * @param path the cache file, which need not exist yet
+   */
+  public StationResultCache(Path path) {
+    this(path, DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Create a cache in the given file, loading its entries. A file that
+   * cannot be read is skipped silently.
+   *
+   * @param path       the cache file, which need not exist yet
+   * @param maxEntries the maximum number of stations kept
+   */
+  public StationResultCache(Path path, int maxEntries) {
+    this.path = path;
+    this.entries = new LeastRecentlyUsedMap(maxEntries);
+    load();
+  }
+
+  /**
+   * Compute the uptimes for the stations as
+   * <code>App.computeStationUptimes</code> does, reusing the cached uptime
+   * of each station whose reports have not changed. Each station's list of
+   * reports is cleared either way.
+   *
+   * @param stationReportsMap a map of each station ID to its reported time
+   *                          intervals
+   * @return the station uptimes, where the first entry of each nested array
+   *         represents the station ID and the second represents the uptime
+   */
+  public int[][] computeStationUptimes(HashMap<Integer, List<Report>> stationReportsMap) {
+    int[][] output = new int[stationReportsMap.size()][2];
+    int outputIndex = 0;
+    GapSum gapSum = new GapSum();
+    for (Entry<Integer, List<Report>> station : stationReportsMap.entrySet()) {
+      int stationId = station.getKey().intValue();
+      List<Report> reports = station.getValue();
+      output[outputIndex][0] = stationId;
+      if (!(reports instanceof ReportList) || !((ReportList) reports).hasStats()) {
+        output[outputIndex++][1] = UptimeStrategy.computeStationUptime(reports, stationId, null);
+        continue;
+      }
+
+      ReportList reportList = (ReportList) reports;
+      long[] fingerprint = reportList.getFingerprint();
+      long[] entry = entries.get(station.getKey());
+      if (entry != null && entry[0] == fingerprint[0] && entry[1] == fingerprint[1] && entry[2] == fingerprint[2]) {
+        hits++;
+        output[outputIndex++][1] = (int) entry[3];
+        reportList.clear();
+        continue;
+      }
+      misses++;
+
+      long span = fingerprint[2] == 0 ? 0 : reportList.getEnd() - reportList.getStart();
+      gapSum.gapTime = 0;
+      int uptime = UptimeStrategy.computeStationUptime(reportList, stationId, gapSum);
+      output[outputIndex++][1] = uptime;
+      long coveredTime = span - gapSum.gapTime;
+      entries.put(station.getKey(),
+          new long[] { fingerprint[0], fingerprint[1], fingerprint[2], uptime, coveredTime });
+    }
+    return output;
+  }
+
+  /**
+   * @param stationId the station ID
+   * @return the cached covered time of the station, in nanoseconds, or -1 if
+   *         it is not cached
+   */
+  public long getCoveredTime(int stationId) {
+    long[] entry = entries.get(Integer.valueOf(stationId));
+    return entry == null ? -1 : entry[4];
+  }
+
+  /** Load the cache file, if it exists and is valid. */
+  void load() {
+    ByteBuffer buffer;
+    try {
+      if (!Files.isRegularFile(path))
+        return;
+      buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    } catch (IOException e) {
+      return;
+    }
+    if (buffer.remaining() < HEADER_BYTES)
+      return;
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    int entryCount = buffer.getInt();
+    if (!Arrays.equals(magic, MAGIC) || entryCount < 0 || buffer.remaining() != (long) ENTRY_BYTES * entryCount)
+      return;
+
+    for (int i = 0; i < entryCount; i++) {
+      int stationId = buffer.getInt();
+      long fingerprint0 = buffer.getLong(), fingerprint1 = buffer.getLong(), reportCount = buffer.getLong();
+      int uptime = buffer.getInt();
+      entries.put(Integer.valueOf(stationId),
+          new long[] { fingerprint0, fingerprint1, reportCount, uptime, buffer.getLong() });
+    }
+    entries.evictions = 0; // only count evictions of this run
+  }
+
+  /**
+   * Write the cache file, through a temporary file so that other runs never
+   * see it half written. A file that cannot be written is skipped silently.
+   */
+  public void save() {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + ENTRY_BYTES * entries.size())
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(MAGIC).putInt(entries.size());
+    for (Entry<Integer, long[]> entry : entries.entrySet()) {
+      long[] value = entry.getValue();
+      buffer.putInt(entry.getKey().intValue()).putLong(value[0]).putLong(value[1]).putLong(value[2])
+          .putInt((int) value[3]).putLong(value[4]);
+    }
+
+    try {
+      Path directory = path.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, "results", ".tmp");
+      try {
+        Files.write(temp, buffer.array());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      // Only a cache, the next run will try again
+    }
+  }
+
+  /** @return the number of stations whose uptime was cached */
+  public int getHits() {
+    return hits;
+  }
+
+  /** @return the number of stations computed because they were not cached */
+  public int getMisses() {
+    return misses;
+  }
+
+  /** @return the number of entries evicted */
+  public int getEvictions() {
+    return entries.evictions;
+  }
+
+  /** @return the number of entries */
+  public int getEntryCount() {
+    return entries.size();
+  }
+
+  @Override
+  public String toString() {
+    return "result cache: " + hits + " hits, " + misses + " misses, " + entries.evictions + " evictions, "
+        + entries.size() + " entries";
+  }
+}
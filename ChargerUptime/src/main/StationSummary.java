@@ -0,0 +1,98 @@
+package main;
+
+import java.util.Comparator;
+import java.util.List;
+
+import main.App.Report;
+
+/**
+ * Summary of a single station's reports: its uptime percentage along with the
+ * covered (up) time, total reported time and report count it was computed
+ * from. All times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class StationSummary {
+  /**
+   * Orders summaries by their unsigned station IDs.
+   */
+  public static class UnsignedStationIdComparator implements Comparator<StationSummary> {
+    @Override
+    public int compare(StationSummary arg0, StationSummary arg1) {
+      return Integer.compareUnsigned(arg0.stationId, arg1.stationId);
+    }
+  }
+
+  final int stationId;
+  final int uptime;
+  final long coveredTime;
+  final long totalTime;
+  final int reportCount;
+
+  public StationSummary(int stationId, int uptime, long coveredTime, long totalTime, int reportCount) {
+    this.stationId = stationId;
+    this.uptime = uptime;
+    this.coveredTime = coveredTime;
+    this.totalTime = totalTime;
+    this.reportCount = reportCount;
+  }
+
+  /**
+   * Summarize the station given its reported time intervals. The uptime is the
+   * same as <code>App.computeStationUptime</code> returns, but the list of
+   * reports is left unchanged. It is assumed that
+   * <code>stationTimeReports</code> is not null.
+   *
+   * @param stationId          the station ID
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @return the station summary
+   */
+  public static StationSummary compute(int stationId, List<Report> stationTimeReports) {
+    if (stationTimeReports.isEmpty())
+      return new StationSummary(stationId, 0, 0, 0, 0);
+
+    long start = -1, end = 0;
+    for (Report report : stationTimeReports) {
+      if (Long.compareUnsigned(report.startTime, start) < 0)
+        start = report.startTime;
+      if (Long.compareUnsigned(report.endTime, end) > 0)
+        end = report.endTime;
+    }
+    long totalTime = end - start;
+
+    long[] mergedIntervals = App.mergeUptimeIntervals(stationTimeReports);
+    long coveredTime = 0;
+    for (int i = 0; i < mergedIntervals.length; i += 2)
+      coveredTime += mergedIntervals[i + 1] - mergedIntervals[i];
+    int uptime = mergedIntervals.length == 0 ? 0 : App.computeUptimePercentage(coveredTime, totalTime);
+    return new StationSummary(stationId, uptime, coveredTime, totalTime,
+        ReportList.countReportsRead(stationTimeReports));
+  }
+
+  public int getStationId() {
+    return stationId;
+  }
+
+  /** @return the uptime, as a truncated percentage */
+  public int getUptime() {
+    return uptime;
+  }
+
+  /** @return the merged up time, in nanoseconds */
+  public long getCoveredTime() {
+    return coveredTime;
+  }
+
+  /** @return the time from the earliest start to the latest end */
+  public long getTotalTime() {
+    return totalTime;
+  }
+
+  /**
+   * @return the number of reports read, both up and down, including those
+   *         coalesced into others
+   */
+  public int getReportCount() {
+    return reportCount;
+  }
+}
@@ -0,0 +1,254 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Cache of parsed Stations sections, which rarely change between runs. The
+ * section's lines are hashed with SHA-256, and the cache directory holds one
+ * binary file per hash with the charger to station map and the empty
+ * stations, so that a hit skips splitting and parsing every line. Entries
+ * not used for longer than the maximum age are evicted, and then the least
+ * recently used ones until the directory fits in its maximum size.
+ * <br>
+ * </br>
+ * Each file is little-endian: the magic bytes <code>CUPTTOP1</code>, the
+ * number of chargers and of empty stations as 32-bit integers, a pair of
+ * charger and station IDs for each charger, and the ID of each empty
+ * station, in the order of the file. Files that do not match this layout are
+ * treated as misses and rewritten.
+ *
+ * @author Kevin Li
+ */
+public class StationTopologyCache {
+  public static final byte[] MAGIC = "CUPTTOP1".getBytes(StandardCharsets.US_ASCII);
+  public static final String SUFFIX = ".topo";
+  public static final long DEFAULT_MAX_BYTES = 64L << 20;
+  public static final long DEFAULT_MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+  static final int HEADER_BYTES = 16;
+
+  final Path directory;
+  final long maxBytes;
+  final long maxAgeMillis;
+  int hits, misses, evictions;
+
+  /**
+   * Create a cache in the given directory, with the default maximum size and
+   * age.
+   *
+   * @param directory the cache directory, created if needed
+   */
+  public StationTopologyCache(Path directory) {
+    this(directory, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  /**
+   * Create a cache in the given directory.
+   *
+   * @param directory    the cache directory, created if needed
+   * @param maxBytes     the maximum total size of the cache files
+   * @param maxAgeMillis the maximum time since a cache file was last used, in
+   *                     milliseconds
+   */
+  public StationTopologyCache(Path directory, long maxBytes, long maxAgeMillis) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Read the Stations section of the file like
+   * <code>App.readStationsSection</code>, from the cache if the section was
+   * seen before. The reader is left at the same place either way. Prints an
+   * error and returns <code>null</code> if the file format is invalid; a
+   * cache that cannot be read or written is skipped silently.
+   *
+   * @param reader        the BufferedReader for the given file
+   * @param emptyStations an auxiliary list to store station IDs with no
+   *                      charger IDs
+   * @return a map of each charger ID to its station ID
+   */
+  public HashMap<Integer, Integer> readStationsSection(BufferedReader reader, List<Integer> emptyStations) {
+    // Read the section's lines as they are, including the blank line
+    // that ends it
+    StringBuilder section = new StringBuilder();
+    try {
+      String nextLine = reader.readLine();
+      for (int i = 0; nextLine != null; i++, nextLine = reader.readLine()) {
+        section.append(nextLine).append('\n');
+        if (i > 0 && nextLine.isBlank())
+          break;
+        if (i == 0 && !nextLine.equals("[Stations]"))
+          break; // no section to cache
+      }
+    } catch (IOException e) {
+      System.out.println("ERROR");
+      System.err.println("File cannot be read.");
+      return null;
+    }
+    byte[] hash;
+    try {
+      hash = MessageDigest.getInstance("SHA-256").digest(section.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required of every Java platform.", e);
+    }
+    Path path = directory.resolve(toHex(hash) + SUFFIX);
+
+    HashMap<Integer, Integer> output = load(path, emptyStations);
+    if (output != null) {
+      hits++;
+      return output;
+    }
+    misses++;
+
+    output = App.readStationsSection(new BufferedReader(new StringReader(section.toString())), emptyStations);
+    if (output != null)
+      store(path, output, emptyStations);
+    return output;
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder output = new StringBuilder(bytes.length << 1);
+    for (byte b : bytes)
+      output.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    return output.toString();
+  }
+
+  /**
+   * Load a cache file, marking it as used.
+   *
+   * @return the charger to station map, or <code>null</code> if the file is
+   *         missing or invalid
+   */
+  HashMap<Integer, Integer> load(Path path, List<Integer> emptyStations) {
+    ByteBuffer buffer;
+    try {
+      if (!Files.isRegularFile(path))
+        return null;
+      buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      return null;
+    }
+    if (buffer.remaining() < HEADER_BYTES)
+      return null;
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    int chargerCount = buffer.getInt(), emptyStationCount = buffer.getInt();
+    if (!Arrays.equals(magic, MAGIC) || chargerCount < 0 || emptyStationCount < 0
+        || buffer.remaining() != 8L * chargerCount + 4L * emptyStationCount)
+      return null;
+
+    HashMap<Integer, Integer> output = new HashMap<>(Math.max(16, (int) (chargerCount / 0.75f) + 1));
+    for (int i = 0; i < chargerCount; i++) {
+      int chargerId = buffer.getInt();
+      output.put(Integer.valueOf(chargerId), Integer.valueOf(buffer.getInt()));
+    }
+    for (int i = 0; i < emptyStationCount; i++)
+      emptyStations.add(Integer.valueOf(buffer.getInt()));
+    return output;
+  }
+
+  /**
+   * Write a cache file, through a temporary file so that other runs never
+   * see it half written, then evict old entries.
+   */
+  void store(Path path, HashMap<Integer, Integer> stationMap, List<Integer> emptyStations) {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 8 * stationMap.size() + 4 * emptyStations.size())
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(MAGIC).putInt(stationMap.size()).putInt(emptyStations.size());
+    for (Entry<Integer, Integer> charger : stationMap.entrySet())
+      buffer.putInt(charger.getKey().intValue()).putInt(charger.getValue().intValue());
+    for (Integer emptyStation : emptyStations)
+      buffer.putInt(emptyStation.intValue());
+
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, "topology", ".tmp");
+      try {
+        Files.write(temp, buffer.array());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      evict();
+    } catch (IOException e) {
+      // Only a cache, the next run will try again
+    }
+  }
+
+  /**
+   * Delete the cache files not used for longer than the maximum age, then
+   * the least recently used ones until the rest fit in the maximum size.
+   */
+  void evict() throws IOException {
+    List<Path> paths = new ArrayList<>();
+    List<long[]> entries = new ArrayList<>(); // last used, size, index
+    long now = System.currentTimeMillis(), totalBytes = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path path : stream) {
+        long lastUsed = Files.getLastModifiedTime(path).toMillis(), size = Files.size(path);
+        if (now - lastUsed > maxAgeMillis) {
+          Files.deleteIfExists(path);
+          evictions++;
+          continue;
+        }
+        entries.add(new long[] { lastUsed, size, paths.size() });
+        paths.add(path);
+        totalBytes += size;
+      }
+    }
+
+    if (totalBytes <= maxBytes)
+      return;
+    long[][] oldestFirst = entries.toArray(new long[0][]);
+    Arrays.sort(oldestFirst, new LastUsedComparator());
+    for (long[] entry : oldestFirst) {
+      if (totalBytes <= maxBytes)
+        break;
+      Files.deleteIfExists(paths.get((int) entry[2]));
+      totalBytes -= entry[1];
+      evictions++;
+    }
+  }
+
+  /** Orders cache entries by the time they were last used, oldest first. */
+  static class LastUsedComparator implements Comparator<long[]> {
+    @Override
+    public int compare(long[] arg0, long[] arg1) {
+      return Long.compare(arg0[0], arg1[0]);
+    }
+  }
+
+  /** @return the number of sections read from the cache */
+  public int getHits() {
+    return hits;
+  }
+
+  /** @return the number of sections parsed because they were not cached */
+  public int getMisses() {
+    return misses;
+  }
+
+  /** @return the number of cache files evicted */
+  public int getEvictions() {
+    return evictions;
+  }
+}
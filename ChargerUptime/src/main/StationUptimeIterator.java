@@ -0,0 +1,76 @@
+package main;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import main.App.Report;
+
+/**
+ * Iterator over the station uptimes in ascending order of unsigned station
+ * ID, computing each station's uptime only when it is pulled. Unlike
+ * <code>App.computeStationUptimes</code>, which computes every station
+ * before any can be sorted and printed, output can start after the first
+ * station, and a consumer that stops early, such as a preview of the first
+ * stations, only pays for the stations it pulled.
+ * <br>
+ * </br>
+ * Only the station IDs are copied and sorted up front. As each station is
+ * pulled, it is removed from the map and its uptime computed with
+ * <code>UptimeStrategy.computeStationUptime</code>, which clears its list of
+ * reports, so the memory of its reports can be freed right away. The
+ * stations not pulled yet stay in the map, unchanged. The map must not be
+ * modified by others while iterating.
+ *
+ * @author Kevin Li
+ */
+public class StationUptimeIterator implements Iterator<int[]> {
+  final HashMap<Integer, List<Report>> stationReportsMap;
+  final int[] stationIds;
+  int nextIndex;
+
+  /**
+   * Create an iterator over the stations of the map. It is assumed that
+   * <code>stationReportsMap</code> is not null.
+   *
+   * @param stationReportsMap a map of each station ID to its reported time
+   *                          intervals
+   */
+  public StationUptimeIterator(HashMap<Integer, List<Report>> stationReportsMap) {
+    this.stationReportsMap = stationReportsMap;
+    // Flipping the sign bit makes the signed order the unsigned one
+    stationIds = new int[stationReportsMap.size()];
+    int i = 0;
+    for (Integer stationId : stationReportsMap.keySet())
+      stationIds[i++] = stationId.intValue() ^ Integer.MIN_VALUE;
+    Arrays.sort(stationIds);
+    for (i = 0; i < stationIds.length; i++)
+      stationIds[i] ^= Integer.MIN_VALUE;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextIndex < stationIds.length;
+  }
+
+  /**
+   * Compute the uptime of the next station, removing it from the map.
+   *
+   * @return the station ID and its uptime, in that order
+   */
+  @Override
+  public int[] next() {
+    if (nextIndex == stationIds.length)
+      throw new NoSuchElementException();
+    int stationId = stationIds[nextIndex++];
+    List<Report> reports = stationReportsMap.remove(Integer.valueOf(stationId));
+    return new int[] { stationId, UptimeStrategy.computeStationUptime(reports, stationId, null) };
+  }
+
+  /** @return the number of stations not pulled yet */
+  public int getRemainingCount() {
+    return stationIds.length - nextIndex;
+  }
+}
@@ -0,0 +1,117 @@
+package main;
+
+import java.util.Comparator;
+
+/**
+ * Operations on the unsigned values of the input file, which are kept in
+ * primitives rather than wrapped: station and charger IDs are unsigned 32-bit
+ * integers in <code>int</code>s, and times are unsigned 64-bit integers in
+ * <code>long</code>s. Values from 2^31 and 2^63 up are negative as signed
+ * numbers, so they must never be compared with <code>&lt;</code> or
+ * subtraction, nor printed with <code>%d</code>; every place that orders,
+ * merges or prints them goes through here instead.
+ * <br>
+ * </br>
+ * The comparisons compile to the same instructions as signed ones on the
+ * values with their sign bits flipped, so they cost nothing over
+ * <code>&lt;</code>.
+ *
+ * @author Kevin Li
+ */
+public final class Unsigned {
+  /** The largest unsigned 64-bit time, 2^64-1. */
+  public static final long MAX_TIME = -1L;
+  /** The largest unsigned 32-bit ID, 2^32-1. */
+  public static final int MAX_ID = -1;
+
+  private Unsigned() {
+  }
+
+  /**
+   * Orders station uptimes, where the first entry of each array is the
+   * station ID, by unsigned station ID. A named class rather than a lambda,
+   * so that the main path bootstraps no lambdas at startup and needs no extra
+   * configuration for ahead-of-time compilation.
+   */
+  public static class StationIdComparator implements Comparator<int[]> {
+    @Override
+    public int compare(int[] arg0, int[] arg1) {
+      return Integer.compareUnsigned(arg0[0], arg1[0]);
+    }
+  }
+
+  /** @return true if <code>a &lt; b</code>, as unsigned longs */
+  public static boolean lessThan(long a, long b) {
+    return a + Long.MIN_VALUE < b + Long.MIN_VALUE;
+  }
+
+  /** @return true if <code>a &lt;= b</code>, as unsigned longs */
+  public static boolean lessOrEqual(long a, long b) {
+    return a + Long.MIN_VALUE <= b + Long.MIN_VALUE;
+  }
+
+  /** @return the smaller of two unsigned longs */
+  public static long min(long a, long b) {
+    return lessThan(a, b) ? a : b;
+  }
+
+  /** @return the larger of two unsigned longs */
+  public static long max(long a, long b) {
+    return lessThan(a, b) ? b : a;
+  }
+
+  /** @return the unsigned ID, widened to a nonnegative long */
+  public static long toLong(int id) {
+    return id & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Parse an unsigned 32-bit ID, like <code>Integer.parseUnsignedInt</code>.
+   *
+   * @throws NumberFormatException if the string is not an unsigned 32-bit
+   *                               integer
+   */
+  public static int parseId(String string) {
+    return Integer.parseUnsignedInt(string);
+  }
+
+  /**
+   * Parse an unsigned 64-bit time, like <code>Long.parseUnsignedLong</code>.
+   *
+   * @throws NumberFormatException if the string is not an unsigned 64-bit
+   *                               integer
+   */
+  public static long parseTime(String string) {
+    return Long.parseUnsignedLong(string);
+  }
+
+  /** @return the decimal string of an unsigned ID */
+  public static String toString(int id) {
+    return Integer.toUnsignedString(id);
+  }
+
+  /** @return the decimal string of an unsigned time */
+  public static String toString(long time) {
+    return Long.toUnsignedString(time);
+  }
+
+  /**
+   * Append the decimal digits of an unsigned ID, without creating a string.
+   *
+   * @return the given StringBuilder
+   */
+  public static StringBuilder append(StringBuilder output, int id) {
+    return id >= 0 ? output.append(id) : output.append(toLong(id));
+  }
+
+  /**
+   * Append the decimal digits of an unsigned time, without creating a string.
+   *
+   * @return the given StringBuilder
+   */
+  public static StringBuilder append(StringBuilder output, long time) {
+    if (time >= 0)
+      return output.append(time);
+    return output.append(Long.divideUnsigned(time, 10)).append(Long.remainderUnsigned(time, 10));
+  }
+}
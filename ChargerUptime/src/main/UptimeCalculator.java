@@ -0,0 +1,436 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Embeddable session for computing station uptimes in-process, many times
+ * over. Unlike <code>App</code>, it takes its input as a
+ * <code>ByteBuffer</code> holding an input file or as primitive arrays,
+ * never prints, and reports errors as a <code>Status</code> in its
+ * <code>Result</code>. Its maps, station buffers and result arrays are kept
+ * between calls and only grow, so once a session has seen inputs of a given
+ * size, further calls of that size allocate nothing.
+ * <br>
+ * </br>
+ * The results are those <code>App</code> would print, including that nothing
+ * is output if no station has a charger. A session and its result are not
+ * thread safe; use one session per thread.
+ * <br>
+ * </br>
+ * IDs are unsigned ints and times are unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public class UptimeCalculator {
+  /** The outcome of a call, with the error message <code>App</code> prints. */
+  public enum Status {
+    OK(""), FORMAT_INVALID("Input file is formatted incorrectly."),
+    INVALID_STATION_ID("Station and charger IDs must be unsigned 32-bit integers."),
+    INVALID_CHARGER_ID("Charger IDs must be unsigned 32-bit integers."),
+    UNKNOWN_CHARGER("Each charger must be present at a station."),
+    INVALID_TIME("Start and end times must be unsigned 64-bit integers.");
+
+    final String message;
+
+    Status(String message) {
+      this.message = message;
+    }
+
+    /** @return the message <code>App</code> prints to stderr, or "" if OK */
+    public String getMessage() {
+      return message;
+    }
+  }
+
+  /**
+   * The station uptimes of the last computation, ordered by unsigned station
+   * ID, or its error. Owned by the session and overwritten by its next call.
+   */
+  public static class Result {
+    Status status = Status.OK;
+    long errorLine;
+    int stationCount;
+    long[] stationIds = new long[16]; // unsigned, widened
+    long[] uptimes = new long[16];
+
+    /** @return the status of the computation */
+    public Status getStatus() {
+      return status;
+    }
+
+    /**
+     * @return the 1-based line of the input with the error, one past the
+     *         last line if the input ended early, or 0 if there was none
+     */
+    public long getErrorLine() {
+      return errorLine;
+    }
+
+    /** @return the number of stations, 0 if there was an error */
+    public int getStationCount() {
+      return stationCount;
+    }
+
+    /** @return the unsigned ID of the station at the given index */
+    public int getStationId(int index) {
+      return (int) stationIds[index];
+    }
+
+    /** @return the uptime of the station at the given index, in percent */
+    public int getUptime(int index) {
+      return (int) uptimes[index];
+    }
+
+    void fail(Status status, long errorLine) {
+      this.status = status;
+      this.errorLine = errorLine;
+      stationCount = 0;
+    }
+  }
+
+  /**
+   * Open-addressing map from unsigned int keys to nonnegative ints, without
+   * boxing. Grows but never shrinks.
+   */
+  static class IntIndex {
+    int[] keys = new int[16];
+    int[] values = new int[16]; // value + 1, or 0 for an empty slot
+    int size;
+
+    static int hash(int key) {
+      int hash = key * 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+    }
+
+    /** @return the value of the key, or -1 if it is absent */
+    int get(int key) {
+      int mask = keys.length - 1;
+      for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+        if (values[i] == 0)
+          return -1;
+        if (keys[i] == key)
+          return values[i] - 1;
+      }
+    }
+
+    void put(int key, int value) {
+      if ((size + 1) << 2 > keys.length * 3)
+        grow();
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (values[i] != 0 && keys[i] != key)
+        i = (i + 1) & mask;
+      if (values[i] == 0) {
+        keys[i] = key;
+        size++;
+      }
+      values[i] = value + 1;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys, oldValues = values;
+      keys = new int[oldKeys.length << 1];
+      values = new int[oldValues.length << 1];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != 0)
+          put(oldKeys[i], oldValues[i] - 1);
+      }
+    }
+
+    void clear() {
+      if (size > 0)
+        Arrays.fill(values, 0);
+      size = 0;
+    }
+  }
+
+  final IntIndex chargerStations = new IntIndex(); // charger ID -> station slot
+  final IntIndex stationSlots = new IntIndex(); // station ID -> station slot
+  int[] slotStationIds = new int[16];
+  boolean[] slotListed = new boolean[16]; // listed without chargers
+  StationIntervals[] slotIntervals = new StationIntervals[16];
+  int slotCount;
+  final ReportLineParser parser = new ReportLineParser();
+  final Result result = new Result();
+
+  // The input being read, and the line just read from it
+  ByteBuffer input;
+  int position;
+  long lineNumber;
+  byte[] line = new byte[256];
+  int lineLength;
+
+  /** Forget every station, charger and report, keeping the buffers. */
+  public void reset() {
+    chargerStations.clear();
+    stationSlots.clear();
+    for (int slot = 0; slot < slotCount; slot++)
+      slotIntervals[slot].clear();
+    slotCount = 0;
+  }
+
+  /** Forget every report, keeping the stations and chargers. */
+  public void clearReports() {
+    for (int slot = 0; slot < slotCount; slot++)
+      slotIntervals[slot].clear();
+  }
+
+  /** @return the slot of the station, created if needed */
+  int getSlot(int stationId) {
+    int slot = stationSlots.get(stationId);
+    if (slot >= 0)
+      return slot;
+    slot = slotCount++;
+    if (slot == slotStationIds.length) {
+      slotStationIds = Arrays.copyOf(slotStationIds, slot << 1);
+      slotListed = Arrays.copyOf(slotListed, slot << 1);
+      slotIntervals = Arrays.copyOf(slotIntervals, slot << 1);
+    }
+    if (slotIntervals[slot] == null)
+      slotIntervals[slot] = new StationIntervals();
+    slotStationIds[slot] = stationId;
+    slotListed[slot] = false;
+    stationSlots.put(stationId, slot);
+    return slot;
+  }
+
+  /**
+   * Add a station without chargers, which is output with an uptime of 0,
+   * like a line of the Stations section with only a station ID.
+   *
+   * @param stationId the unsigned station ID
+   */
+  public void addStation(int stationId) {
+    slotListed[getSlot(stationId)] = true;
+  }
+
+  /**
+   * Add a charger to a station, replacing the charger's station if it had
+   * one.
+   *
+   * @param stationId the unsigned station ID
+   * @param chargerId the unsigned charger ID
+   */
+  public void addCharger(int stationId, int chargerId) {
+    chargerStations.put(chargerId, getSlot(stationId));
+  }
+
+  /**
+   * Add a report of a charger added before. It is assumed that
+   * <code>endTime</code> is no smaller than <code>startTime</code>, in
+   * unsigned longs.
+   *
+   * @param chargerId the unsigned charger ID
+   * @param startTime the starting time, in nanoseconds
+   * @param endTime   the ending time, in nanoseconds
+   * @param up        true if uptime, false if downtime
+   * @return <code>OK</code>, or <code>UNKNOWN_CHARGER</code> if the charger
+   *         is at no station
+   */
+  public Status addReport(int chargerId, long startTime, long endTime, boolean up) {
+    int slot = chargerStations.get(chargerId);
+    if (slot < 0)
+      return Status.UNKNOWN_CHARGER;
+    slotIntervals[slot].add(startTime, endTime, up);
+    return Status.OK;
+  }
+
+  /**
+   * Add reports from parallel arrays, like <code>addReport</code>, stopping
+   * at the first report of an unknown charger.
+   *
+   * @return <code>OK</code>, or <code>UNKNOWN_CHARGER</code> if a charger is
+   *         at no station
+   */
+  public Status addReports(int[] chargerIds, long[] startTimes, long[] endTimes, boolean[] ups, int count) {
+    for (int i = 0; i < count; i++) {
+      if (addReport(chargerIds[i], startTimes[i], endTimes[i], ups[i]) != Status.OK)
+        return Status.UNKNOWN_CHARGER;
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Compute the uptime of each station from the reports added so far. The
+   * reports are kept, so more can be added and the uptimes computed again.
+   *
+   * @return the session's result, overwritten by its next call
+   */
+  public Result compute() {
+    result.status = Status.OK;
+    result.errorLine = 0;
+    int stationCount = 0;
+    if (chargerStations.size > 0) { // App outputs nothing without chargers
+      if (result.stationIds.length < slotCount) {
+        result.stationIds = new long[Math.max(slotCount, result.stationIds.length << 1)];
+        result.uptimes = new long[result.stationIds.length];
+      }
+      for (int slot = 0; slot < slotCount; slot++) {
+        StationIntervals intervals = slotIntervals[slot];
+        if (!slotListed[slot] && intervals.getReportCount() == 0)
+          continue; // stations with chargers but no reports are left out
+        result.stationIds[stationCount] = Unsigned.toLong(slotStationIds[slot]);
+        result.uptimes[stationCount++] = intervals.computeUptime();
+      }
+      StationIntervals.sort(result.stationIds, result.uptimes, 0, stationCount);
+    }
+    result.stationCount = stationCount;
+    return result;
+  }
+
+  /**
+   * Read an input file from the buffer, between its position and limit, and
+   * compute the uptime of each station. The session is reset first, and the
+   * buffer's position is left unchanged.
+   *
+   * @param input the bytes of an input file, in UTF-8
+   * @return the session's result, overwritten by its next call
+   */
+  public Result calculate(ByteBuffer input) {
+    reset();
+    this.input = input;
+    position = input.position();
+    lineNumber = 0;
+    Status status = readStationsSection();
+    if (status == Status.OK)
+      status = readChargerAvailabilityReportsSection();
+    this.input = null;
+    if (status != Status.OK) {
+      result.fail(status, lineNumber);
+      return result;
+    }
+    return compute();
+  }
+
+  /**
+   * Read the next line of the input into <code>line</code>, ending at a line
+   * feed, a carriage return, or both, like <code>BufferedReader</code>.
+   *
+   * @return false if there are no more lines
+   */
+  boolean readLine() {
+    int limit = input.limit();
+    if (position >= limit)
+      return false;
+    int lineEnd = position;
+    byte b = 0;
+    while (lineEnd < limit && (b = input.get(lineEnd)) != '\n' && b != '\r')
+      lineEnd++;
+    lineLength = lineEnd - position;
+    if (lineLength > line.length)
+      line = new byte[Math.max(lineLength, line.length << 1)];
+    input.get(position, line, 0, lineLength);
+    position = lineEnd + 1;
+    if (b == '\r' && position < limit && input.get(position) == '\n')
+      position++;
+    lineNumber++;
+    return true;
+  }
+
+  boolean lineEquals(String header) {
+    if (lineLength != header.length())
+      return false;
+    for (int i = 0; i < lineLength; i++) {
+      if (line[i] != header.charAt(i))
+        return false;
+    }
+    return true;
+  }
+
+  /** @return true if the line is ASCII whitespace, as String.isBlank sees it */
+  boolean isAsciiBlank() {
+    for (int i = 0; i < lineLength; i++) {
+      byte b = line[i];
+      if (b != ' ' && (b < '\t' || b > '\r') && (b < 0x1C || b > 0x1F))
+        return false;
+    }
+    return true;
+  }
+
+  /** @return false, counting the missing line, if there are no more lines */
+  boolean readExpectedLine() {
+    if (readLine())
+      return true;
+    lineNumber++;
+    return false;
+  }
+
+  Status readStationsSection() {
+    if (!readExpectedLine() || !lineEquals("[Stations]"))
+      return Status.FORMAT_INVALID;
+    while (true) {
+      if (!readExpectedLine())
+        return Status.FORMAT_INVALID; // no blank line before the reports
+      if (isAsciiBlank())
+        return Status.OK;
+      try {
+        readStationLine();
+      } catch (NumberFormatException e) {
+        // Not plain ASCII digits, decide as App would
+        String stationLine = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+        if (stationLine.isBlank())
+          return Status.OK;
+        String[] tokens = stationLine.split(" ");
+        try {
+          int stationId = Integer.parseUnsignedInt(tokens[0]);
+          if (tokens.length == 1)
+            addStation(stationId);
+          for (int i = 1; i < tokens.length; i++)
+            addCharger(stationId, Integer.parseUnsignedInt(tokens[i]));
+        } catch (NumberFormatException e2) {
+          return Status.INVALID_STATION_ID;
+        }
+      }
+    }
+  }
+
+  /**
+   * Read a station's ID and charger IDs from the line, as split by single
+   * spaces with trailing empty fields dropped.
+   *
+   * @throws NumberFormatException if a field is not plain ASCII digits or
+   *                               its value is over 2^32-1
+   */
+  void readStationLine() {
+    int end = ReportLineParser.indexOfSpace(line, 0, lineLength);
+    int stationId = parseId(0, end);
+    int trailing = lineLength;
+    while (trailing > end && line[trailing - 1] == ' ')
+      trailing--;
+    if (end >= trailing) {
+      addStation(stationId);
+      return;
+    }
+    for (int from = end + 1; from <= trailing; from = end + 1) {
+      end = ReportLineParser.indexOfSpace(line, from, trailing);
+      addCharger(stationId, parseId(from, end));
+    }
+  }
+
+  int parseId(int from, int to) {
+    long id = ReportLineParser.parseUnsignedLong(line, from, to);
+    if (Long.compareUnsigned(id, 0xFFFFFFFFL) > 0)
+      throw new NumberFormatException("ID over 2^32-1");
+    return (int) id;
+  }
+
+  Status readChargerAvailabilityReportsSection() {
+    if (!readExpectedLine() || !lineEquals("[Charger Availability Reports]"))
+      return Status.FORMAT_INVALID;
+    while (readLine()) {
+      ReportLineParser.Status status = parser.parse(line, 0, lineLength);
+      if (status == ReportLineParser.Status.INVALID_CHARGER_ID)
+        return Status.INVALID_CHARGER_ID;
+      int slot = chargerStations.get(parser.getChargerId());
+      if (slot < 0)
+        return Status.UNKNOWN_CHARGER;
+      if (status != ReportLineParser.Status.OK)
+        return status == ReportLineParser.Status.MISSING_FIELDS ? Status.FORMAT_INVALID : Status.INVALID_TIME;
+      slotIntervals[slot].add(parser.getStartTime(), parser.getEndTime(), parser.isUp());
+    }
+    return Status.OK;
+  }
+}
@@ -0,0 +1,146 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Opt-in profiling of a run with JDK Flight Recorder, to tell whether a slow
+ * run spent its time parsing, on a few huge stations, or writing output.
+ * <code>App</code> emits a <code>PhaseEvent</code> for each phase of a run,
+ * and <code>UptimeStrategy.computeStationUptime</code> a
+ * <code>StationUptimeEvent</code> for each station that takes longer than a
+ * threshold, with its report count, merged interval count and sort time.
+ * <br>
+ * </br>
+ * The events cost next to nothing unless a recording enables them: either
+ * one started with <code>start</code>, which <code>App</code> does for
+ * <code>--profile=PATH</code>, or one started from the command line with
+ * <code>-XX:StartFlightRecording</code>, in which case stations over 10 ms
+ * are recorded. <code>ProfileReport</code> summarizes a recording into a
+ * report of the phases and the hottest stations.
+ *
+ * @author Kevin Li
+ */
+public class UptimeProfiler {
+  public static final String CATEGORY = "Charger Uptime";
+  public static final long DEFAULT_THRESHOLD_MILLIS = 10;
+
+  /** A phase of a run, such as reading the reports. */
+  @Name("main.Phase")
+  @Label("Phase")
+  @Category(CATEGORY)
+  @Description("A phase of a run of the charger uptime application")
+  public static class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    PhaseEvent(String phase) {
+      this.phase = phase;
+    }
+  }
+
+  /** The computation of a station's uptime that took longer than the threshold. */
+  @Name("main.StationUptime")
+  @Label("Station Uptime")
+  @Category(CATEGORY)
+  @Description("The computation of a station's uptime that took longer than the threshold")
+  @Threshold(DEFAULT_THRESHOLD_MILLIS + " ms")
+  public static class StationUptimeEvent extends Event {
+    @Label("Station ID")
+    @jdk.jfr.Unsigned
+    int stationId;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Report Count")
+    int reportCount;
+
+    @Label("Merged Interval Count")
+    int mergedIntervalCount;
+
+    @Label("Sort Time")
+    @Description("Time spent ordering the uptime intervals, including the merge for strategies that merge as they sort")
+    @Timespan(Timespan.NANOSECONDS)
+    long sortTime;
+
+    @Label("Uptime")
+    int uptime;
+  }
+
+  final Recording recording;
+  final Path path;
+
+  UptimeProfiler(Recording recording, Path path) {
+    this.recording = recording;
+    this.path = path;
+  }
+
+  /**
+   * Start a recording of the phases and of the stations that take longer
+   * than the threshold. Prints an error and returns <code>null</code> if
+   * Flight Recorder is not available.
+   *
+   * @param path            the file to write the recording to when stopped
+   * @param thresholdMillis the time a station must take to be recorded, in
+   *                        milliseconds, or 0 to record every station
+   * @return the profiler, to stop at the end of the run
+   */
+  public static UptimeProfiler start(Path path, long thresholdMillis) {
+    if (!FlightRecorder.isAvailable()) {
+      System.out.println("ERROR");
+      System.err.println("Flight Recorder is not available in this JVM.");
+      return null;
+    }
+    Recording recording = new Recording();
+    recording.setName("Charger Uptime");
+    recording.enable(PhaseEvent.class);
+    recording.enable(StationUptimeEvent.class).withThreshold(Duration.ofMillis(thresholdMillis));
+    recording.start();
+    return new UptimeProfiler(recording, path);
+  }
+
+  /**
+   * Begin a phase, to be ended with <code>commit()</code>. A phase that is
+   * never committed, such as one that fails, is not recorded.
+   *
+   * @param phase the name of the phase
+   * @return the phase's event
+   */
+  public static PhaseEvent beginPhase(String phase) {
+    PhaseEvent event = new PhaseEvent(phase);
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Stop the recording and write it to the file. Prints a message to
+   * <code>stderr</code> if the file cannot be written; the output of the
+   * run has already been printed.
+   *
+   * @return true if the recording was written
+   */
+  public boolean stop() {
+    try {
+      recording.stop();
+      recording.dump(path);
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      System.err.println("Profile cannot be written to " + path + ".");
+      return false;
+    } finally {
+      recording.close();
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package main;
+
+import java.util.List;
+
+import main.App.Report;
+
+/**
+ * Time-bucketed uptime of a single station, e.g. per hour or per day. Buckets
+ * are aligned to multiples of the bucket width, so that hourly buckets of
+ * different stations line up, and store the covered (up) time within each
+ * bucket. Any coarser rollup whose width is a multiple of this one is just a
+ * sum of buckets, see <code>coarsen(int)</code>.
+ * <br>
+ * </br>
+ * As in <code>App.computeStationUptime</code>, the reported time of a station
+ * runs from its earliest start to its latest end, and unreported time in
+ * between counts as downtime. All times are unsigned longs.
+ *
+ * @author Kevin Li
+ */
+public class UptimeRollup {
+  public static final long NANOS_PER_HOUR = 3_600_000_000_000L;
+  public static final long NANOS_PER_DAY = 24 * NANOS_PER_HOUR;
+
+  final long origin, bucketWidth;
+  final long start, end; // reported time span
+  final long[] coveredTimes;
+
+  UptimeRollup(long origin, long bucketWidth, long start, long end, long[] coveredTimes) {
+    this.origin = origin;
+    this.bucketWidth = bucketWidth;
+    this.start = start;
+    this.end = end;
+    this.coveredTimes = coveredTimes;
+  }
+
+  /**
+   * Compute the rollup of a station given its reported time intervals. The
+   * list of reports is left unchanged. It is assumed that
+   * <code>stationTimeReports</code> is not null and <code>bucketWidth</code>
+   * is positive.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @param bucketWidth        the bucket width, in nanoseconds
+   * @return the rollup
+   * @throws IllegalArgumentException if the station's reported time spans
+   *                                  more buckets than fit in an array
+   */
+  public static UptimeRollup compute(List<Report> stationTimeReports, long bucketWidth) {
+    if (stationTimeReports.isEmpty())
+      return new UptimeRollup(0, bucketWidth, 0, 0, new long[0]);
+
+    long start = -1, end = 0;
+    for (Report report : stationTimeReports) {
+      if (Long.compareUnsigned(report.startTime, start) < 0)
+        start = report.startTime;
+      if (Long.compareUnsigned(report.endTime, end) > 0)
+        end = report.endTime;
+    }
+    return compute(App.mergeUptimeIntervals(stationTimeReports), start, end, bucketWidth);
+  }
+
+  /**
+   * Compute the rollup of a station given its merged uptime intervals, in
+   * one pass over the intervals and buckets. It is assumed that the intervals
+   * are sorted, do not overlap and lie within the reported time span, as
+   * returned by <code>App.mergeUptimeIntervals</code>.
+   *
+   * @param mergedIntervals the flattened merged uptime intervals
+   * @param start           the start of the station's reported time span
+   * @param end             the end of the station's reported time span
+   * @param bucketWidth     the bucket width, in nanoseconds
+   * @return the rollup
+   * @throws IllegalArgumentException if the reported time spans more buckets
+   *                                  than fit in an array
+   */
+  public static UptimeRollup compute(long[] mergedIntervals, long start, long end, long bucketWidth) {
+    long origin = start - Long.remainderUnsigned(start, bucketWidth);
+    long bucketCount = Long.divideUnsigned(end - origin, bucketWidth);
+    if (Long.remainderUnsigned(end - origin, bucketWidth) != 0)
+      bucketCount++;
+    if (bucketCount < 0 || bucketCount > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("Too many buckets of width " + bucketWidth + ".");
+
+    long[] coveredTimes = new long[(int) bucketCount];
+    int bucket = 0;
+    long bucketEnd = origin + bucketWidth;
+    for (int i = 0; i < mergedIntervals.length; i += 2) {
+      long intervalStart = mergedIntervals[i], intervalEnd = mergedIntervals[i + 1];
+      if (intervalStart == intervalEnd)
+        continue; // may lie past the last bucket
+
+      // Skip to the bucket containing the interval's start; since the
+      // intervals are sorted, buckets are never revisited
+      long offset = Long.divideUnsigned(intervalStart - origin, bucketWidth);
+      if (offset > bucket) {
+        bucket = (int) offset;
+        bucketEnd = origin + (offset + 1) * bucketWidth;
+      }
+
+      // Split the interval at bucket boundaries. The bucket end can wrap to 0
+      // for the last bucket near 2^64, hence the comparison to the start.
+      while (Long.compareUnsigned(intervalEnd, bucketEnd) > 0 && Long.compareUnsigned(bucketEnd, intervalStart) > 0) {
+        coveredTimes[bucket++] += bucketEnd - intervalStart;
+        intervalStart = bucketEnd;
+        bucketEnd += bucketWidth;
+      }
+      coveredTimes[bucket] += intervalEnd - intervalStart;
+    }
+    return new UptimeRollup(origin, bucketWidth, start, end, coveredTimes);
+  }
+
+  /**
+   * Sum this rollup into buckets <code>factor</code> times as wide, e.g. from
+   * hourly to daily buckets with a factor of 24. The coarser buckets are
+   * aligned to multiples of their own width. It is assumed that
+   * <code>factor</code> is positive.
+   *
+   * @param factor the number of buckets per coarser bucket
+   * @return the coarser rollup
+   * @throws IllegalArgumentException if the coarser width does not fit in a
+   *                                  long
+   */
+  public UptimeRollup coarsen(int factor) {
+    long coarseWidth;
+    try {
+      coarseWidth = Math.multiplyExact(bucketWidth, (long) factor);
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Buckets of width " + bucketWidth + " cannot be coarsened by " + factor + ".");
+    }
+    if (coveredTimes.length == 0)
+      return new UptimeRollup(0, coarseWidth, start, end, new long[0]);
+
+    long coarseOrigin = origin - Long.remainderUnsigned(origin, coarseWidth);
+    // The offset is less than the factor, since the coarse origin is less
+    // than a coarse bucket before the origin, but adding the bucket count to
+    // it can overflow an int, so the indexes are computed in longs
+    long offset = Long.divideUnsigned(origin - coarseOrigin, bucketWidth);
+    long[] coarseTimes = new long[(int) ((offset + coveredTimes.length + factor - 1) / factor)];
+    for (int i = 0; i < coveredTimes.length; i++)
+      coarseTimes[(int) ((offset + i) / factor)] += coveredTimes[i];
+    return new UptimeRollup(coarseOrigin, coarseWidth, start, end, coarseTimes);
+  }
+
+  /** @return the number of buckets */
+  public int getBucketCount() {
+    return coveredTimes.length;
+  }
+
+  /** @return the bucket width, in nanoseconds */
+  public long getBucketWidth() {
+    return bucketWidth;
+  }
+
+  /**
+   * @param bucket the bucket index
+   * @return the start time of the bucket
+   */
+  public long getBucketStart(int bucket) {
+    return origin + bucket * bucketWidth;
+  }
+
+  /**
+   * @param bucket the bucket index
+   * @return the up time within the bucket, in nanoseconds
+   */
+  public long getCoveredTime(int bucket) {
+    return coveredTimes[bucket];
+  }
+
+  /**
+   * @param bucket the bucket index
+   * @return the reported time within the bucket, in nanoseconds
+   */
+  public long getReportedTime(int bucket) {
+    long bucketStart = getBucketStart(bucket);
+    long bucketEnd = bucketStart + bucketWidth;
+    long from = Long.compareUnsigned(start, bucketStart) > 0 ? start : bucketStart;
+    // The last bucket's end may wrap to 0 near 2^64
+    long to = bucketEnd == 0 || Long.compareUnsigned(end, bucketEnd) < 0 ? end : bucketEnd;
+    return Long.compareUnsigned(to, from) > 0 ? to - from : 0;
+  }
+
+  /**
+   * @param bucket the bucket index
+   * @return the uptime within the bucket, as a truncated percentage of its
+   *         reported time, or 0 if nothing was reported
+   */
+  public int getUptime(int bucket) {
+    long reportedTime = getReportedTime(bucket);
+    return reportedTime == 0 ? 0 : App.computeUptimePercentage(coveredTimes[bucket], reportedTime);
+  }
+}
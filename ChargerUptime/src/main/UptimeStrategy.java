@@ -0,0 +1,591 @@
+package main;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import main.App.Report;
+
+/**
+ * Ways of computing a station's uptime from its reports, and the choice
+ * between them. Most stations have only a handful of reports, often already
+ * in time order, while a few may have millions; a single collect-sort-merge
+ * path is too slow for the former and not the fastest for the latter.
+ * <code>choose</code> picks a strategy from the number of uptime reports and
+ * the number of ascending runs they form, and whether each charger's reports
+ * are in order, which a <code>ReportList</code> gathers while the reports
+ * are read.
+ * <br>
+ * </br>
+ * Each strategy counts the stations and reports it handles, so that the
+ * choice can be checked on real inputs. All times are
+ * unsigned longs, in nanoseconds.
+ *
+ * @author Kevin Li
+ */
+public enum UptimeStrategy {
+  /** No uptime reports: the uptime is 0, without reading the reports. */
+  NO_UPTIME,
+  /**
+   * A single uptime report: its length over the reported time, in one pass
+   * and without allocating.
+   */
+  SINGLE_UPTIME,
+  /**
+   * Few ascending runs: set aside the reports that are out of order, sort
+   * them, and merge them back in, which is a single linear pass if the
+   * reports are already sorted.
+   */
+  RUN_MERGE,
+  /**
+   * Interleaved chargers, each with its reports in order: keep each
+   * charger's uptime intervals as a separate run and merge the runs with a
+   * min-heap, in <code>O(n log c)</code> time for <code>c</code> chargers.
+   * Needs a <code>ReportList</code> that knows the charger of each report,
+   * and sorts the intervals otherwise.
+   */
+  CHARGER_MERGE,
+  /** Unsorted reports: quicksort the uptime intervals as primitives. */
+  QUICKSORT,
+  /**
+   * Many unsorted reports: LSD radix sort the uptime intervals by start time,
+   * skipping the bytes that all start times share.
+   */
+  RADIX_SORT,
+  /**
+   * Huge unsorted stations, given more than one thread: sort and merge time
+   * ranges of the uptime intervals in parallel with a
+   * <code>ParallelIntervalMerger</code>.
+   */
+  PARALLEL_SORT;
+
+  /** The number of uptime reports from which radix sort beats quicksort. */
+  public static final int RADIX_SORT_THRESHOLD = 1 << 7;
+  /**
+   * Merge runs rather than sort when each run has at least this many uptime
+   * reports on average.
+   */
+  public static final int RUN_MERGE_MIN_RUN_LENGTH = 16;
+  /**
+   * The number of chargers up to which merging their runs beats radix sort,
+   * given at least <code>RADIX_SORT_THRESHOLD</code> uptime reports.
+   */
+  public static final int CHARGER_MERGE_MAX_CHARGERS = 8;
+  /**
+   * The number of uptime reports from which sorting in parallel pays for
+   * partitioning them into ranges.
+   */
+  public static final int PARALLEL_SORT_THRESHOLD = 1 << 20;
+
+  final AtomicLong stations = new AtomicLong();
+  final AtomicLong reports = new AtomicLong();
+
+  /**
+   * Choose the strategy for a station.
+   *
+   * @param upCount    the number of uptime reports
+   * @param upRunCount the number of ascending runs the uptime reports form, by
+   *                   unsigned start time
+   * @return the strategy to use
+   */
+  public static UptimeStrategy choose(int upCount, int upRunCount) {
+    return choose(upCount, upRunCount, 0);
+  }
+
+  /**
+   * Choose the strategy for a station whose chargers may each have their
+   * uptime reports in order.
+   *
+   * @param upCount            the number of uptime reports
+   * @param upRunCount         the number of ascending runs the uptime
+   *                           reports form, by unsigned start time
+   * @param sortedChargerCount the number of chargers with uptime reports if
+   *                           each charger's are in order by unsigned start
+   *                           time, or 0 if not or unknown
+   * @return the strategy to use
+   */
+  public static UptimeStrategy choose(int upCount, int upRunCount, int sortedChargerCount) {
+    if (upCount == 0)
+      return NO_UPTIME;
+    if (upCount == 1)
+      return SINGLE_UPTIME;
+    if (upRunCount <= upCount / RUN_MERGE_MIN_RUN_LENGTH || upRunCount == 1)
+      return RUN_MERGE;
+    if (sortedChargerCount > 1 && sortedChargerCount <= CHARGER_MERGE_MAX_CHARGERS && upCount >= RADIX_SORT_THRESHOLD)
+      return CHARGER_MERGE;
+    if (upCount >= PARALLEL_SORT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1)
+      return PARALLEL_SORT;
+    if (upCount >= RADIX_SORT_THRESHOLD)
+      return RADIX_SORT;
+    return QUICKSORT;
+  }
+
+  /**
+   * Choose the strategy for a station given its reports. Uses the statistics
+   * of a <code>ReportList</code> if it has them, and otherwise gathers them in
+   * one pass. It is assumed that <code>stationTimeReports</code> is not null.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @return the strategy to use
+   */
+  public static UptimeStrategy choose(List<Report> stationTimeReports) {
+    if (stationTimeReports instanceof ReportList) {
+      ReportList reportList = (ReportList) stationTimeReports;
+      if (reportList.hasChargerStats() && reportList.getChargerDescentCount() == 0)
+        return choose(reportList.getUpCount(), reportList.getUpRunCount(), reportList.getChargerCount());
+      if (reportList.hasStats())
+        return choose(reportList.getUpCount(), reportList.getUpRunCount());
+    }
+
+    int upCount = 0, upRunCount = 0;
+    long lastUpStart = 0;
+    for (Report report : stationTimeReports) {
+      if (!report.up)
+        continue;
+      if (upCount++ == 0 || Long.compareUnsigned(report.startTime, lastUpStart) < 0)
+        upRunCount++;
+      lastUpStart = report.startTime;
+    }
+    return choose(upCount, upRunCount);
+  }
+
+  /**
+   * Compute the uptime for the station given its reported time intervals with
+   * the chosen strategy. Gives the same result as
+   * <code>App.computeStationUptime</code>, and likewise clears the list of
+   * reports after the function call. It is assumed that
+   * <code>stationTimeReports</code> is not null.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @return the station uptime, as a truncated percentage
+   */
+  public static int computeStationUptime(List<Report> stationTimeReports) {
+    return computeStationUptime(stationTimeReports, 0, null);
+  }
+
+  /**
+   * Compute the uptime for the station as
+   * <code>computeStationUptime(List)</code> does, also passing the station's
+   * outages to the given sink as they are found in the merge.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @param stationId          the station ID to pass to the sink
+   * @param sink               the sink of the station's outages, or null
+   * @return the station uptime, as a truncated percentage
+   */
+  public static int computeStationUptime(List<Report> stationTimeReports, int stationId, OutageSink sink) {
+    // Recorded only if profiling and the station takes long enough
+    UptimeProfiler.StationUptimeEvent event = new UptimeProfiler.StationUptimeEvent();
+    event.begin();
+    UptimeStrategy strategy = choose(stationTimeReports);
+    int reportCount = stationTimeReports.size();
+    int uptime = strategy.computeUptime(stationTimeReports, stationId, sink, event.isEnabled() ? event : null);
+    stationTimeReports.clear();
+    event.end();
+    if (event.shouldCommit()) {
+      event.stationId = stationId;
+      event.strategy = strategy.name();
+      event.reportCount = reportCount;
+      event.uptime = uptime;
+      event.commit();
+    }
+    return uptime;
+  }
+
+  /**
+   * Compute the uptime for the station given its reported time intervals with
+   * this strategy, leaving the list of reports unchanged. It is assumed that
+   * <code>stationTimeReports</code> is not null, that it has no uptime
+   * reports if this is <code>NO_UPTIME</code>, and that it has at most one if
+   * this is <code>SINGLE_UPTIME</code>.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @return the station uptime, as a truncated percentage
+   */
+  public int computeUptime(List<Report> stationTimeReports) {
+    return computeUptime(stationTimeReports, 0, null);
+  }
+
+  /**
+   * Compute the uptime for the station as <code>computeUptime(List)</code>
+   * does, also passing the gaps between its merged uptime intervals within
+   * its reported time span to the given sink, in order, from the same pass
+   * that merges the intervals.
+   *
+   * @param stationTimeReports a list of the station's reported time intervals
+   * @param stationId          the station ID to pass to the sink
+   * @param sink               the sink of the station's outages, or null
+   * @return the station uptime, as a truncated percentage
+   */
+  public int computeUptime(List<Report> stationTimeReports, int stationId, OutageSink sink) {
+    return computeUptime(stationTimeReports, stationId, sink, null);
+  }
+
+  /**
+   * Compute the uptime for the station as
+   * <code>computeUptime(List, int, OutageSink)</code> does, also setting the
+   * merged interval count and sort time of the given profiling event.
+   *
+   * @param event the event of the station, or null if not profiling
+   */
+  int computeUptime(List<Report> stationTimeReports, int stationId, OutageSink sink,
+      UptimeProfiler.StationUptimeEvent event) {
+    stations.incrementAndGet();
+    reports.addAndGet(stationTimeReports.size());
+    if (this == NO_UPTIME && sink == null)
+      return 0;
+
+    // Get station's total reported time, and the uptime intervals unless
+    // there is at most one
+    int capacity = 0;
+    if (this != NO_UPTIME && this != SINGLE_UPTIME) {
+      capacity = stationTimeReports.size();
+      if (stationTimeReports instanceof ReportList && ((ReportList) stationTimeReports).hasStats())
+        capacity = ((ReportList) stationTimeReports).getUpCount();
+    }
+    long[] starts = new long[capacity], ends = new long[capacity];
+    int count = 0;
+    long start = -1, end = 0, uptime = 0;
+    long upStart = 0, upEnd = 0; // of the single uptime report
+    for (Report report : stationTimeReports) {
+      if (Long.compareUnsigned(report.startTime, start) < 0)
+        start = report.startTime;
+      if (Long.compareUnsigned(report.endTime, end) > 0)
+        end = report.endTime;
+      if (!report.up || this == NO_UPTIME)
+        continue;
+      if (this == SINGLE_UPTIME) {
+        upStart = report.startTime;
+        upEnd = report.endTime;
+      } else {
+        starts[count] = report.startTime;
+        ends[count++] = report.endTime;
+      }
+    }
+    if (this == NO_UPTIME || this != SINGLE_UPTIME && count == 0) {
+      if (sink != null && Long.compareUnsigned(start, end) < 0)
+        sink.outage(stationId, start, end);
+      return 0; // no reported uptime
+    }
+    if (this == SINGLE_UPTIME) {
+      if (event != null)
+        event.mergedIntervalCount = 1;
+      if (sink != null) {
+        if (Long.compareUnsigned(start, upStart) < 0)
+          sink.outage(stationId, start, upStart);
+        if (Long.compareUnsigned(upEnd, end) < 0)
+          sink.outage(stationId, upEnd, end);
+      }
+      return App.computeUptimePercentage(upEnd - upStart, end - start);
+    }
+
+    long sortStart = event != null ? System.nanoTime() : 0;
+    if (this == PARALLEL_SORT) {
+      long[] merged = new ParallelIntervalMerger().merge(starts, ends, count);
+      if (event != null) {
+        event.sortTime = System.nanoTime() - sortStart;
+        event.mergedIntervalCount = merged.length >>> 1;
+      }
+      long lastEnd = start;
+      for (int i = 0; i < merged.length; i += 2) {
+        if (sink != null && Long.compareUnsigned(lastEnd, merged[i]) < 0)
+          sink.outage(stationId, lastEnd, merged[i]);
+        uptime += merged[i + 1] - merged[i];
+        lastEnd = merged[i + 1];
+      }
+      if (sink != null && Long.compareUnsigned(lastEnd, end) < 0)
+        sink.outage(stationId, lastEnd, end);
+      return App.computeUptimePercentage(uptime, end - start);
+    }
+    if (this == CHARGER_MERGE && stationTimeReports instanceof ReportList
+        && ((ReportList) stationTimeReports).hasChargerStats()) {
+      ReportList reportList = (ReportList) stationTimeReports;
+      uptime = mergeChargerRuns(starts, ends, count, reportList.upChargerIndexes, reportList.getChargerCount(), start,
+          end, stationId, sink, event);
+      if (event != null)
+        event.sortTime = System.nanoTime() - sortStart;
+      return App.computeUptimePercentage(uptime, end - start);
+    }
+    if (this == RUN_MERGE)
+      mergeRuns(starts, ends, count);
+    else if (this == RADIX_SORT)
+      radixSort(starts, ends, count);
+    else
+      StationIntervals.sort(starts, ends, 0, count);
+    if (event != null)
+      event.sortTime = System.nanoTime() - sortStart;
+
+    // Merge the sorted intervals, summing their lengths and passing on the
+    // gaps between them
+    long lastStart = starts[0], lastEnd = ends[0];
+    int mergedCount = 1;
+    if (sink != null && Long.compareUnsigned(start, lastStart) < 0)
+      sink.outage(stationId, start, lastStart);
+    for (int i = 1; i < count; i++) {
+      if (Long.compareUnsigned(starts[i], lastEnd) <= 0) {
+        if (Long.compareUnsigned(ends[i], lastEnd) > 0)
+          lastEnd = ends[i];
+      } else {
+        uptime += lastEnd - lastStart;
+        if (sink != null)
+          sink.outage(stationId, lastEnd, starts[i]);
+        lastStart = starts[i];
+        lastEnd = ends[i];
+        mergedCount++;
+      }
+    }
+    uptime += lastEnd - lastStart;
+    if (sink != null && Long.compareUnsigned(lastEnd, end) < 0)
+      sink.outage(stationId, lastEnd, end);
+    if (event != null)
+      event.mergedIntervalCount = mergedCount;
+    return App.computeUptimePercentage(uptime, end - start);
+  }
+
+  /**
+   * Sort nearly sorted intervals by unsigned start time. Keeps the intervals
+   * that are in order in place and sets aside the few that are not, along with
+   * the kept interval each one is out of order with, then sorts those and
+   * merges them back in. Takes <code>O(n + d log d)</code> time for
+   * <code>d</code> intervals set aside, which is about twice the number of
+   * descents, and needs no extra memory if the intervals are already sorted.
+   */
+  static void mergeRuns(long[] starts, long[] ends, int count) {
+    long[] asideStarts = null, asideEnds = null;
+    int keptCount = 1, asideCount = 0;
+    for (int i = 1; i < count; i++) {
+      if (Long.compareUnsigned(starts[i], starts[keptCount - 1]) >= 0) {
+        starts[keptCount] = starts[i];
+        ends[keptCount++] = ends[i];
+        continue;
+      }
+
+      // Out of order: set aside this interval and the last one kept, which
+      // may be the one out of place
+      if (asideStarts == null) {
+        asideStarts = new long[16];
+        asideEnds = new long[16];
+      } else if (asideCount + 2 > asideStarts.length) {
+        asideStarts = Arrays.copyOf(asideStarts, asideStarts.length << 1);
+        asideEnds = Arrays.copyOf(asideEnds, asideEnds.length << 1);
+      }
+      asideStarts[asideCount] = starts[i];
+      asideEnds[asideCount++] = ends[i];
+      if (keptCount > 1) {
+        keptCount--;
+        asideStarts[asideCount] = starts[keptCount];
+        asideEnds[asideCount++] = ends[keptCount];
+      }
+    }
+    if (asideCount == 0)
+      return; // already sorted
+
+    // Merge from the back, so that the kept intervals can stay in place
+    StationIntervals.sort(asideStarts, asideEnds, 0, asideCount);
+    int i = keptCount - 1, j = asideCount - 1;
+    for (int k = count - 1; j >= 0; k--) {
+      if (i >= 0 && Long.compareUnsigned(starts[i], asideStarts[j]) > 0) {
+        starts[k] = starts[i];
+        ends[k] = ends[i--];
+      } else {
+        starts[k] = asideStarts[j];
+        ends[k] = asideEnds[j--];
+      }
+    }
+  }
+
+  /**
+   * Merge the uptime intervals of several chargers, each of which is usually
+   * in order by unsigned start time, and sum their lengths. The intervals are
+   * first grouped by charger, keeping their order, and a charger whose
+   * intervals turn out not to be in order (say, after coalescing widened one
+   * in place) is sorted on its own. The chargers' runs are then merged with a
+   * binary min-heap of chargers keyed by their next start time, in
+   * <code>O(n log c)</code> time for <code>c</code> chargers.
+   *
+   * @param chargerIndexes the index of each interval's charger, from 0 to
+   *                       <code>chargerCount - 1</code>
+   * @param spanStart      the start of the station's reported time span
+   * @param spanEnd        the end of the station's reported time span
+   * @param stationId      the station ID to pass to the sink
+   * @param sink           the sink of the gaps between the merged intervals
+   *                       within the span, or null
+   * @param event          the profiling event to set the merged interval
+   *                       count of, or null
+   * @return the total length of the merged intervals
+   */
+  static long mergeChargerRuns(long[] starts, long[] ends, int count, int[] chargerIndexes, int chargerCount,
+      long spanStart, long spanEnd, int stationId, OutageSink sink, UptimeProfiler.StationUptimeEvent event) {
+    // Group the intervals by charger, counting where each charger's run starts
+    int[] runStarts = new int[chargerCount + 1], positions = new int[chargerCount];
+    for (int i = 0; i < count; i++)
+      runStarts[chargerIndexes[i] + 1]++;
+    for (int charger = 0; charger < chargerCount; charger++)
+      runStarts[charger + 1] += runStarts[charger];
+    long[] runStartTimes = new long[count], runEndTimes = new long[count];
+    System.arraycopy(runStarts, 0, positions, 0, chargerCount);
+    for (int i = 0; i < count; i++) {
+      int position = positions[chargerIndexes[i]]++;
+      runStartTimes[position] = starts[i];
+      runEndTimes[position] = ends[i];
+    }
+    for (int charger = 0; charger < chargerCount; charger++) {
+      for (int i = runStarts[charger] + 1; i < runStarts[charger + 1]; i++) {
+        if (Long.compareUnsigned(runStartTimes[i], runStartTimes[i - 1]) < 0) {
+          StationIntervals.sort(runStartTimes, runEndTimes, runStarts[charger], runStarts[charger + 1]);
+          break;
+        }
+      }
+    }
+
+    // Heap of the chargers with intervals left, keyed by their next start
+    // time with the sign bit flipped, so that keys compare as signed longs
+    System.arraycopy(runStarts, 0, positions, 0, chargerCount);
+    int[] heap = new int[chargerCount];
+    long[] heapKeys = new long[chargerCount];
+    int heapSize = 0;
+    for (int charger = 0; charger < chargerCount; charger++) {
+      if (runStarts[charger] < runStarts[charger + 1]) {
+        heap[heapSize] = charger;
+        heapKeys[heapSize++] = runStartTimes[runStarts[charger]] ^ Long.MIN_VALUE;
+      }
+    }
+    for (int i = (heapSize >>> 1) - 1; i >= 0; i--)
+      siftDown(heap, heapKeys, heapSize, i, heap[i], heapKeys[i]);
+
+    // Take the intervals in order, merging the overlapping ones
+    long uptime = 0, lastStart = 0, lastEnd = 0;
+    boolean first = true;
+    int mergedCount = 0;
+    while (heapSize > 0) {
+      int charger = heap[0];
+      int position = positions[charger]++;
+      if (positions[charger] < runStarts[charger + 1])
+        siftDown(heap, heapKeys, heapSize, 0, charger, runStartTimes[position + 1] ^ Long.MIN_VALUE);
+      else if (--heapSize > 0)
+        siftDown(heap, heapKeys, heapSize, 0, heap[heapSize], heapKeys[heapSize]);
+
+      long thisStart = runStartTimes[position], thisEnd = runEndTimes[position];
+      if (first) {
+        if (sink != null && Long.compareUnsigned(spanStart, thisStart) < 0)
+          sink.outage(stationId, spanStart, thisStart);
+        lastStart = thisStart;
+        lastEnd = thisEnd;
+        first = false;
+        mergedCount++;
+      } else if (Long.compareUnsigned(thisStart, lastEnd) <= 0) {
+        if (Long.compareUnsigned(thisEnd, lastEnd) > 0)
+          lastEnd = thisEnd;
+      } else {
+        uptime += lastEnd - lastStart;
+        if (sink != null)
+          sink.outage(stationId, lastEnd, thisStart);
+        lastStart = thisStart;
+        lastEnd = thisEnd;
+        mergedCount++;
+      }
+    }
+    if (event != null)
+      event.mergedIntervalCount = mergedCount;
+    if (first)
+      return 0;
+    if (sink != null && Long.compareUnsigned(lastEnd, spanEnd) < 0)
+      sink.outage(stationId, lastEnd, spanEnd);
+    return uptime + lastEnd - lastStart;
+  }
+
+  /**
+   * Put the charger with the given key at the given index of the heap, then
+   * move it down until neither of its children has a smaller key.
+   */
+  private static void siftDown(int[] heap, long[] heapKeys, int heapSize, int index, int charger, long key) {
+    for (int child = (index << 1) + 1; child < heapSize; child = (index << 1) + 1) {
+      if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+        child++;
+      if (heapKeys[child] >= key)
+        break;
+      heap[index] = heap[child];
+      heapKeys[index] = heapKeys[child];
+      index = child;
+    }
+    heap[index] = charger;
+    heapKeys[index] = key;
+  }
+
+  /**
+   * Sort the intervals by unsigned start time with an LSD radix sort on the
+   * bytes of the start times, in <code>O(n)</code> time per byte. Bytes that
+   * are the same in every start time, such as the high bytes of nearby
+   * timestamps, are skipped.
+   */
+  static void radixSort(long[] starts, long[] ends, int count) {
+    int[][] digitCounts = new int[Long.BYTES][256];
+    for (int i = 0; i < count; i++) {
+      long key = starts[i];
+      for (int digit = 0; digit < Long.BYTES; digit++)
+        digitCounts[digit][(int) (key >>> (digit << 3)) & 0xff]++;
+    }
+
+    long[] sourceStarts = starts, sourceEnds = ends;
+    long[] targetStarts = null, targetEnds = null;
+    for (int digit = 0; digit < Long.BYTES; digit++) {
+      int shift = digit << 3;
+      int[] counts = digitCounts[digit];
+      if (counts[(int) (sourceStarts[0] >>> shift) & 0xff] == count)
+        continue; // every start time has this byte
+
+      // Turn the counts into the first index of each byte value
+      int index = 0;
+      for (int value = 0; value < 256; value++) {
+        int valueCount = counts[value];
+        counts[value] = index;
+        index += valueCount;
+      }
+
+      if (targetStarts == null) {
+        targetStarts = new long[count];
+        targetEnds = new long[count];
+      }
+      for (int i = 0; i < count; i++) {
+        int targetIndex = counts[(int) (sourceStarts[i] >>> shift) & 0xff]++;
+        targetStarts[targetIndex] = sourceStarts[i];
+        targetEnds[targetIndex] = sourceEnds[i];
+      }
+
+      long[] temp = sourceStarts;
+      sourceStarts = targetStarts;
+      targetStarts = temp;
+      temp = sourceEnds;
+      sourceEnds = targetEnds;
+      targetEnds = temp;
+    }
+    if (sourceStarts != starts) {
+      System.arraycopy(sourceStarts, 0, starts, 0, count);
+      System.arraycopy(sourceEnds, 0, ends, 0, count);
+    }
+  }
+
+  /** @return the number of stations computed with this strategy */
+  public long getStations() {
+    return stations.get();
+  }
+
+  /** @return the number of reports of those stations */
+  public long getReports() {
+    return reports.get();
+  }
+
+  /** Reset the counters of every strategy. */
+  public static void resetCounters() {
+    for (UptimeStrategy strategy : values()) {
+      strategy.stations.set(0);
+      strategy.reports.set(0);
+    }
+  }
+
+  /** @return this strategy's counters, for printing */
+  public String formatCounters() {
+    return String.format("%s: %d stations, %d reports", name(), getStations(), getReports());
+  }
+}
@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +17,8 @@ import org.junit.jupiter.api.Test;
 
 import main.App;
 import main.App.Report;
+import main.ReportList;
+import main.StationSummary;
 
 /**
  * JUnit test class for the Electric Era Coding Challenge for the Software
@@ -765,6 +768,93 @@ public class AppTest {
     });
   }
 
+  // App.readChargerAvailabilityReportsSection(BufferedReader, HashMap<Integer,
+  // Integer>, List<Integer>, boolean)
+
+  @Test
+  public void testReadChargerAvailabilityReportsSectionForStationListedWithAndWithoutChargers() {
+    String input = "[Stations]\n5\n5 1001\n\n[Charger Availability Reports]\n1001 0 100 true\n";
+
+    for (boolean coalesce : new boolean[] { false, true }) {
+      BufferedReader reader = new BufferedReader(new StringReader(input));
+      List<Integer> emptyStations = new ArrayList<>();
+      HashMap<Integer, Integer> stationsMap = App.readStationsSection(reader, emptyStations);
+      assertNotNull(stationsMap);
+      assertEquals(1, emptyStations.size());
+
+      HashMap<Integer, List<Report>> map = App.readChargerAvailabilityReportsSection(reader, stationsMap,
+          emptyStations, coalesce);
+      assertNotNull(map);
+      assertEquals(1, map.size());
+      assertEquals(1, map.get(Integer.valueOf(5)).size());
+      assertEquals(100, App.computeStationUptime(map.get(Integer.valueOf(5))));
+    }
+  }
+
+  @Test
+  public void testReadChargerAvailabilityReportsSectionWithCoalescingJoinsAdjacentReportsOfSameCharger() {
+    String fileName = getRelativeFilePath("file_with_valid_ids.txt");
+
+    assertDoesNotThrow(() -> {
+      final BufferedReader reader = new BufferedReader(new FileReader(fileName));
+      List<Integer> emptyStations = new ArrayList<>(0);
+
+      // Simulate reading Stations section and getting stations map
+      for (String nextLine = reader.readLine(); nextLine != null && !nextLine.isBlank(); nextLine = reader.readLine())
+        ;
+      HashMap<Integer, Integer> stationsMap = new HashMap<>();
+      stationsMap.put(Integer.valueOf(1001), Integer.valueOf(0));
+      stationsMap.put(Integer.valueOf(1002), Integer.valueOf(0));
+      stationsMap.put(Integer.valueOf(1003), Integer.valueOf(1));
+      stationsMap.put(Integer.valueOf(1004), Integer.valueOf(2));
+
+      HashMap<Integer, List<Report>> map = App.readChargerAvailabilityReportsSection(reader, stationsMap, emptyStations,
+          true);
+      stationsMap.clear();
+      reader.close();
+      assertNotNull(map);
+      assertEquals(3, map.size());
+
+      // 1001's back-to-back reports are joined, 1004's separate ones are not
+      List<Report> list0 = map.get(Integer.valueOf(0));
+      List<Report> list2 = map.get(Integer.valueOf(2));
+      assertEquals(2, list0.size());
+      assertEquals(new Report(0, 100000, true), list0.get(0));
+      assertEquals(new Report(50000, 100000, true), list0.get(1));
+      assertEquals(2, list2.size());
+
+      assertEquals(100, App.computeStationUptime(list0));
+      assertEquals(75, App.computeStationUptime(list2));
+      map.clear();
+    });
+  }
+
+  @Test
+  public void testReadChargerAvailabilityReportsSectionWithCoalescingDropsDuplicatesButKeepsUpAndDownApart() {
+    String input = "[Charger Availability Reports]\n1 0 10 true\n1 0 10 true\n1 5 20 false\n1 2 8 true\n"
+        + "1 5 20 false\n1 30 40 true\n1 0 10 true\n";
+    HashMap<Integer, Integer> stationsMap = new HashMap<>();
+    stationsMap.put(Integer.valueOf(1), Integer.valueOf(0));
+
+    HashMap<Integer, List<Report>> map = App.readChargerAvailabilityReportsSection(
+        new BufferedReader(new StringReader(input)), stationsMap, new ArrayList<>(0), true);
+    assertNotNull(map);
+    List<Report> list0 = map.get(Integer.valueOf(0));
+    assertEquals(3, list0.size());
+    assertEquals(new Report(0, 10, true), list0.get(0));
+    assertEquals(new Report(5, 20, false), list0.get(1));
+    assertEquals(new Report(30, 40, true), list0.get(2));
+
+    // Summaries still count every report read
+    assertEquals(7, ReportList.countReportsRead(list0));
+    assertEquals(7, StationSummary.compute(0, list0).getReportCount());
+
+    HashMap<Integer, List<Report>> uncoalesced = App.readChargerAvailabilityReportsSection(
+        new BufferedReader(new StringReader(input)), stationsMap, new ArrayList<>(0));
+    assertEquals(7, uncoalesced.get(Integer.valueOf(0)).size());
+    assertEquals(App.computeStationUptime(uncoalesced.get(Integer.valueOf(0))), App.computeStationUptime(list0));
+  }
+
   // App.computeStationUptime(List<Report>)
 
   @Test
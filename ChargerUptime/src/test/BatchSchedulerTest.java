@@ -0,0 +1,200 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.BatchScheduler;
+
+/**
+ * JUnit test class for the batch scheduler: the output of each file, the
+ * order files finish in across tenants, and the memory bound per tenant.
+ *
+ * @author Kevin Li
+ */
+public class BatchSchedulerTest {
+  /** Write a file of many stations, each with a charger reporting out of order. */
+  private static Path createLargeFile(int stationCount, int reportCount) throws Exception {
+    Path path = Files.createTempFile("reports", ".txt");
+    Random random = new Random(50);
+    try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+      writer.write("[Stations]\n");
+      for (int station = 0; station < stationCount; station++)
+        writer.write(station + " " + (1000 + station) + "\n");
+      writer.write("\n[Charger Availability Reports]\n");
+      for (int station = 0; station < stationCount; station++) {
+        for (int i = 0; i < reportCount; i++) {
+          long start = random.nextInt(1000000);
+          writer.write((1000 + station) + " " + start + " " + (start + random.nextInt(10000)) + " "
+              + (random.nextInt(4) != 0) + "\n");
+        }
+      }
+    }
+    return path;
+  }
+
+  /** Run the scheduler, returning each block's header and lines in the order printed. */
+  private static List<String[]> runAndCollect(BatchScheduler scheduler) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      System.setOut(new PrintStream(output, true));
+      scheduler.run();
+    } finally {
+      System.setOut(out);
+    }
+    assertTrue(System.out == out);
+
+    List<String[]> blocks = new ArrayList<>();
+    String header = null;
+    StringBuilder block = new StringBuilder();
+    for (String line : output.toString().split("\n")) {
+      if (line.startsWith("==> ")) {
+        if (header != null)
+          blocks.add(new String[] { header, block.toString() });
+        header = line;
+        block.setLength(0);
+      } else
+        block.append(line).append('\n');
+    }
+    if (header != null)
+      blocks.add(new String[] { header, block.toString() });
+    return blocks;
+  }
+
+  private static String runApp(String inputPath) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      System.setOut(new PrintStream(output, true));
+      App.main(new String[] { inputPath });
+    } finally {
+      System.setOut(out);
+    }
+    return output.toString();
+  }
+
+  @Test
+  public void testEachFileOutputMatchesApp() {
+    assertDoesNotThrow(() -> {
+      Path large = createLargeFile(500, 100);
+      try {
+        AppTest appTest = new AppTest();
+        List<String> inputPaths = new ArrayList<>(List.of(appTest.getRelativeFilePath("file_with_valid_ids.txt"),
+            appTest.getRelativeFilePath("file_with_valid_unsigned_ids.txt"),
+            appTest.getRelativeFilePath("file_with_negative_times.txt"),
+            appTest.getRelativeFilePath("file_without_headers.txt"),
+            appTest.getRelativeFilePath("file_with_stations_but_no_chargers.txt"),
+            appTest.getRelativeFilePath("empty_file.txt"), appTest.getRelativeFilePath("no_such_file.txt"),
+            large.toString()));
+
+        BatchScheduler scheduler = new BatchScheduler(new ForkJoinPool(3), Long.MAX_VALUE);
+        assertTrue(scheduler.addTenant("a", 1));
+        assertTrue(scheduler.addTenant("b", 5));
+        assertFalse(scheduler.addTenant("a", 2));
+        for (int i = 0; i < inputPaths.size(); i++)
+          scheduler.submit(i % 2 == 0 ? "a" : "b", inputPaths.get(i));
+        LinkedHashMap<String, String> blocks = new LinkedHashMap<>();
+        for (String[] block : runAndCollect(scheduler))
+          assertEquals(null, blocks.put(block[0], block[1]));
+
+        assertEquals(inputPaths.size(), blocks.size());
+        for (int i = 0; i < inputPaths.size(); i++) {
+          String header = "==> " + (i % 2 == 0 ? "a" : "b") + " " + inputPaths.get(i) + " <==";
+          assertEquals(runApp(inputPaths.get(i)), blocks.get(header), header);
+        }
+        assertEquals(4, scheduler.getTenant("a").getJobs());
+        assertEquals(4, scheduler.getTenant("b").getJobs());
+        assertTrue(scheduler.getTenant("b").getTasks() > 4);
+      } finally {
+        Files.delete(large);
+      }
+    });
+  }
+
+  @Test
+  public void testSmallTenantIsNotStarved() {
+    assertDoesNotThrow(() -> {
+      Path large = createLargeFile(300, 200);
+      try {
+        // One worker, with the large files submitted first
+        BatchScheduler scheduler = new BatchScheduler(new ForkJoinPool(1), Long.MAX_VALUE);
+        scheduler.addTenant("large", 1);
+        scheduler.addTenant("small", 1);
+        for (int i = 0; i < 3; i++)
+          scheduler.submit("large", large.toString());
+        String small = new AppTest().getRelativeFilePath("file_with_valid_ids.txt");
+        scheduler.submit("small", small);
+        List<String[]> blocks = runAndCollect(scheduler);
+
+        assertEquals(4, blocks.size());
+        assertEquals("==> small " + small + " <==", blocks.get(0)[0]);
+        assertTrue(scheduler.getTenant("small").getLongestLatencyNanos() < scheduler.getTenant("large")
+            .getLongestLatencyNanos());
+      } finally {
+        Files.delete(large);
+      }
+    });
+  }
+
+  @Test
+  public void testHigherPriorityFinishesFirst() {
+    assertDoesNotThrow(() -> {
+      Path large = createLargeFile(300, 200);
+      try {
+        BatchScheduler scheduler = new BatchScheduler(new ForkJoinPool(1), Long.MAX_VALUE);
+        scheduler.addTenant("low", 1);
+        scheduler.addTenant("high", 4);
+        for (int i = 0; i < 2; i++) {
+          scheduler.submit("low", large.toString());
+          scheduler.submit("high", large.toString());
+        }
+        runAndCollect(scheduler);
+        assertTrue(scheduler.getTenant("high").getLongestLatencyNanos() < scheduler.getTenant("low")
+            .getLongestLatencyNanos());
+      } finally {
+        Files.delete(large);
+      }
+    });
+  }
+
+  @Test
+  public void testMemoryBoundReadsOneFileAtATime() {
+    assertDoesNotThrow(() -> {
+      Path large = createLargeFile(200, 100);
+      try {
+        long estimatedBytes = Files.size(large) * BatchScheduler.BYTES_PER_INPUT_BYTE;
+        long[] peakBytes = new long[2];
+        for (int bounded = 0; bounded < 2; bounded++) {
+          BatchScheduler scheduler = new BatchScheduler(new ForkJoinPool(4), bounded == 1 ? 1 : Long.MAX_VALUE);
+          scheduler.addTenant("tenant", 1);
+          for (int i = 0; i < 3; i++)
+            scheduler.submit("tenant", large.toString());
+          runAndCollect(scheduler);
+          assertEquals(3, scheduler.getTenant("tenant").getJobs());
+          peakBytes[bounded] = scheduler.getTenant("tenant").getPeakBytes();
+        }
+        // Unbounded, the three files are read at once
+        assertTrue(peakBytes[0] >= 3 * estimatedBytes, peakBytes[0] + " " + estimatedBytes);
+        assertTrue(peakBytes[1] < 2 * estimatedBytes, peakBytes[1] + " " + estimatedBytes);
+      } finally {
+        Files.delete(large);
+      }
+    });
+  }
+}
@@ -0,0 +1,152 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ColumnarUptimeFile;
+import main.StationSummary;
+
+/**
+ * JUnit test class for the columnar export of station summaries.
+ *
+ * @author Kevin Li
+ */
+public class ColumnarUptimeFileTest {
+  @Test
+  public void testStationSummaryMatchesComputeStationUptime() {
+    List<Report> reportList = new ArrayList<>(4);
+    reportList.add(new Report(2, 10, true));
+    reportList.add(new Report(0, 2, false));
+    reportList.add(new Report(16, 20, true));
+    reportList.add(new Report(10, 16, false));
+    StationSummary summary = StationSummary.compute(3, reportList);
+    assertEquals(3, summary.getStationId());
+    assertEquals(12, summary.getCoveredTime());
+    assertEquals(20, summary.getTotalTime());
+    assertEquals(4, summary.getReportCount());
+    assertEquals(App.computeStationUptime(reportList), summary.getUptime());
+  }
+
+  @Test
+  public void testWriteThenOpenRoundTripsEveryColumn() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("uptimes", ".col");
+      try {
+        StationSummary[] summaries = new StationSummary[] { new StationSummary(0, 100, 5, 5, 1),
+            new StationSummary(70000, 66, 2, 3, 2), new StationSummary(70003, 0, 0, 0, 0),
+            new StationSummary((int) 3000000000L, 50, Long.MIN_VALUE, -2, 7) };
+        ColumnarUptimeFile.write(path, summaries);
+
+        ColumnarUptimeFile file = ColumnarUptimeFile.open(path);
+        assertEquals(4, file.getRowCount());
+        assertArrayEquals(new int[] { 0, 70000, 70003, (int) 3000000000L }, file.getStationIds());
+        for (int i = 0; i < summaries.length; i++) {
+          assertEquals(summaries[i].getUptime(), file.getUptime(i));
+          assertEquals(summaries[i].getCoveredTime(), file.getCoveredTime(i));
+          assertEquals(summaries[i].getTotalTime(), file.getTotalTime(i));
+          assertEquals(summaries[i].getReportCount(), file.getReportCount(i));
+        }
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testSmallIdDeltasUseOneBytePerRow() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("uptimes", ".col");
+      try {
+        StationSummary[] summaries = new StationSummary[1000];
+        for (int i = 0; i < summaries.length; i++)
+          summaries[i] = new StationSummary(5000 + 3 * i, i % 101, i, 100, 1);
+        ColumnarUptimeFile.write(path, summaries);
+        // header, 1000 deltas, 1000 uptimes, then two long and one int column
+        assertTrue(Files.size(path) <= ColumnarUptimeFile.HEADER_SIZE + 8 + 2000 + 8 + 20000);
+
+        int[] stationIds = ColumnarUptimeFile.open(path).getStationIds();
+        for (int i = 0; i < summaries.length; i++)
+          assertEquals(5000 + 3 * i, stationIds[i]);
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testExportStationSummariesSortsByUnsignedStationId() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("uptimes", ".col");
+      try {
+        HashMap<Integer, List<Report>> map = new HashMap<>();
+        List<Report> list = new ArrayList<>();
+        list.add(new Report(0, 10, true));
+        map.put(Integer.valueOf(-1), list);
+        map.put(Integer.valueOf(2), new ArrayList<>(0));
+        map.put(Integer.valueOf(1), new ArrayList<>(0));
+        assertTrue(App.exportStationSummaries(map, path.toString()));
+        assertEquals(1, list.size());
+
+        ColumnarUptimeFile file = ColumnarUptimeFile.open(path);
+        assertArrayEquals(new int[] { 1, 2, -1 }, file.getStationIds());
+        assertEquals(100, file.getUptime(2));
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testOpenRejectsOtherFiles() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("uptimes", ".txt");
+      try {
+        Files.write(path, new byte[100]);
+        assertThrows(IOException.class, () -> ColumnarUptimeFile.open(path));
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testOpenRejectsCorruptAndOversizedFiles() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("uptimes", ".col");
+      try {
+        // A valid file whose row count no longer fits its columns
+        ColumnarUptimeFile.write(path, new StationSummary[0]);
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0, ColumnarUptimeFile.open(path).getRowCount());
+        buffer.putInt(8, 1000);
+        Files.write(path, buffer.array());
+        assertThrows(IOException.class, () -> ColumnarUptimeFile.open(path));
+
+        // A sparse file past the 2 GiB limit of a single mapping
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+          file.setLength(3L << 30);
+        }
+        assertThrows(IOException.class, () -> ColumnarUptimeFile.open(path));
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+}
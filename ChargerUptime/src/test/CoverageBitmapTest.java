@@ -0,0 +1,163 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.CoverageBitmap;
+
+/**
+ * JUnit test class for quantized coverage bitmaps, checked against an array
+ * with one boolean per slot.
+ *
+ * @author Kevin Li
+ */
+public class CoverageBitmapTest {
+  static final int SLOTS = 5 * CoverageBitmap.CHUNK_SLOTS + 1234;
+
+  /**
+   * @return random merged intervals within the slots, some long and some
+   *         short, or only short ones if dense
+   */
+  private static long[] createIntervals(Random random, long resolution, boolean dense) {
+    List<Report> reports = new ArrayList<>();
+    int count = dense ? 30000 : random.nextInt(6000);
+    for (int i = 0; i < count; i++) {
+      long start = (long) random.nextInt(SLOTS) * resolution + random.nextInt((int) resolution);
+      long length = !dense && random.nextInt(10) == 0 ? random.nextInt(2 * CoverageBitmap.CHUNK_SLOTS) : random.nextInt(4);
+      reports.add(new Report(start, Math.min(start + length * resolution, (long) SLOTS * resolution), true));
+    }
+    return App.mergeUptimeIntervals(reports);
+  }
+
+  /** @return the slots set by the intervals, rounding each time to the nearest boundary */
+  private static boolean[] toSlots(long[] merged, long resolution) {
+    boolean[] slots = new boolean[SLOTS + 1];
+    for (int i = 0; i < merged.length; i += 2) {
+      for (long slot = (merged[i] + resolution / 2) / resolution; slot < (merged[i + 1] + resolution / 2)
+          / resolution; slot++)
+        slots[(int) slot] = true;
+    }
+    return slots;
+  }
+
+  private static long[] toIntervals(boolean[] slots, long resolution) {
+    List<Long> output = new ArrayList<>();
+    for (int slot = 0; slot < slots.length; slot++) {
+      if (slots[slot] && (slot == 0 || !slots[slot - 1]))
+        output.add(slot * resolution);
+      if (slots[slot] && (slot == slots.length - 1 || !slots[slot + 1]))
+        output.add((slot + 1) * resolution);
+    }
+    return output.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  @Test
+  public void testMatchesSlotArrayOnRandomStations() {
+    Random random = new Random(47);
+    long resolution = 3;
+    for (int trial = 0; trial < 10; trial++) {
+      List<CoverageBitmap> bitmaps = new ArrayList<>();
+      List<boolean[]> slotArrays = new ArrayList<>();
+      int wordChunks = 0;
+      for (int station = 0; station < 5; station++) {
+        long[] merged = createIntervals(random, resolution, station == trial % 5);
+        CoverageBitmap bitmap = CoverageBitmap.fromIntervals(merged, resolution);
+        boolean[] slots = toSlots(merged, resolution);
+        assertArrayEquals(toIntervals(slots, resolution), bitmap.toIntervals());
+        long count = 0;
+        for (boolean slot : slots)
+          count += slot ? 1 : 0;
+        assertEquals(count, bitmap.cardinality());
+        assertEquals(count * resolution, bitmap.getCoveredTime());
+        wordChunks += bitmap.getWordChunkCount();
+        bitmaps.add(bitmap);
+        slotArrays.add(slots);
+      }
+      assertTrue(wordChunks > 0, "no chunk kept as words");
+
+      boolean[] and = new boolean[SLOTS + 1], or = new boolean[SLOTS + 1];
+      for (int slot = 0; slot <= SLOTS; slot++) {
+        and[slot] = slotArrays.get(0)[slot] && slotArrays.get(1)[slot];
+        or[slot] = slotArrays.get(0)[slot] || slotArrays.get(1)[slot];
+      }
+      assertArrayEquals(toIntervals(and, resolution), bitmaps.get(0).and(bitmaps.get(1)).toIntervals());
+      assertArrayEquals(toIntervals(or, resolution), bitmaps.get(0).or(bitmaps.get(1)).toIntervals());
+
+      for (int n = 1; n <= bitmaps.size() + 1; n++) {
+        boolean[] atLeast = new boolean[SLOTS + 1];
+        for (int slot = 0; slot <= SLOTS; slot++) {
+          int count = 0;
+          for (boolean[] slots : slotArrays)
+            count += slots[slot] ? 1 : 0;
+          atLeast[slot] = count >= n;
+        }
+        assertArrayEquals(toIntervals(atLeast, resolution),
+            CoverageBitmap.atLeast(bitmaps, n, resolution).toIntervals(), "n = " + n);
+      }
+    }
+  }
+
+  @Test
+  public void testFullChunksAreShared() {
+    long resolution = 10;
+    long chunkTime = CoverageBitmap.CHUNK_SLOTS * resolution;
+    CoverageBitmap up = CoverageBitmap.fromIntervals(new long[] { 0, 4 * chunkTime }, resolution);
+    CoverageBitmap partial = CoverageBitmap.fromIntervals(new long[] { 14, 36, chunkTime + 5, 3 * chunkTime - 4 },
+        resolution);
+    assertEquals(4, up.getChunkCount());
+    assertEquals(0, up.getWordChunkCount());
+    assertArrayEquals(new long[] { 10, 40, chunkTime + 10, 3 * chunkTime }, partial.toIntervals());
+    assertArrayEquals(partial.toIntervals(), up.and(partial).toIntervals());
+    assertArrayEquals(up.toIntervals(), partial.or(up).toIntervals());
+    assertArrayEquals(partial.toIntervals(), CoverageBitmap.atLeast(List.of(up, partial, up), 3, resolution)
+        .toIntervals());
+    assertArrayEquals(up.toIntervals(), CoverageBitmap.atLeast(List.of(up, partial, up), 2, resolution)
+        .toIntervals());
+  }
+
+  @Test
+  public void testUnsignedTimes() {
+    long[] merged = { Long.MAX_VALUE - 5, Long.MIN_VALUE + 5, -100, -1 };
+    CoverageBitmap bitmap = CoverageBitmap.fromIntervals(merged, 1);
+    assertArrayEquals(merged, bitmap.toIntervals());
+    assertEquals(110, bitmap.cardinality());
+
+    // The last boundary is never past the largest time
+    bitmap = CoverageBitmap.fromIntervals(new long[] { -4, -1 }, 2);
+    assertArrayEquals(new long[] { -4, -2 }, bitmap.toIntervals());
+  }
+
+  @Test
+  public void testComputeFromReports() {
+    List<Report> reportList = new ArrayList<>();
+    reportList.add(new Report(0, 26, true));
+    reportList.add(new Report(24, 44, true));
+    reportList.add(new Report(44, 70, false));
+    reportList.add(new Report(86, 94, true));
+    CoverageBitmap bitmap = CoverageBitmap.compute(reportList, 10);
+    // The last interval rounds to no slots at all
+    assertArrayEquals(new long[] { 0, 40 }, bitmap.toIntervals());
+    assertEquals(40, bitmap.getCoveredTime());
+    assertEquals(4, reportList.size());
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    CoverageBitmap minutes = new CoverageBitmap(60), seconds = new CoverageBitmap(1);
+    assertThrows(IllegalArgumentException.class, () -> minutes.and(seconds));
+    assertThrows(IllegalArgumentException.class, () -> minutes.or(seconds));
+    assertThrows(IllegalArgumentException.class, () -> CoverageBitmap.atLeast(List.of(minutes), 1, 1));
+    assertThrows(IllegalArgumentException.class, () -> CoverageBitmap.atLeast(List.of(minutes), 0, 60));
+    assertEquals(0, CoverageBitmap.atLeast(List.of(minutes), 2, 60).getChunkCount());
+  }
+}
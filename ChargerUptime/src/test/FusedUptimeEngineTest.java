@@ -0,0 +1,146 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.FusedUptimeEngine;
+import main.StationIntervals;
+
+/**
+ * JUnit test class for the fused parse-and-merge engine and its per-station
+ * interval buffers.
+ *
+ * @author Kevin Li
+ */
+public class FusedUptimeEngineTest {
+  private final AppTest appTest = new AppTest();
+
+  // StationIntervals
+
+  @Test
+  public void testComputeUptimeReturnsZeroOnNoReports() {
+    assertEquals(0, new StationIntervals().computeUptime());
+  }
+
+  @Test
+  public void testComputeUptimeReturnsZeroOnNoUptime() {
+    StationIntervals intervals = new StationIntervals();
+    intervals.add(0, 100, false);
+    assertEquals(0, intervals.computeUptime());
+    assertEquals(0, intervals.getIntervalCount());
+  }
+
+  @Test
+  public void testComputeUptimeHandlesUnsortedReports() {
+    StationIntervals intervals = new StationIntervals();
+    intervals.add(2, 10, true);
+    intervals.add(0, 2, false);
+    intervals.add(16, 20, true);
+    intervals.add(10, 16, false);
+    assertEquals(60, intervals.computeUptime());
+  }
+
+  @Test
+  public void testComputeUptimeHandlesLargeUnsignedLongUptime() {
+    StationIntervals intervals = new StationIntervals();
+    intervals.add(0, Long.MIN_VALUE, true);
+    intervals.add(Long.MIN_VALUE, -1, false);
+    assertEquals(50, intervals.computeUptime());
+  }
+
+  @Test
+  public void testBufferStaysSmallWhenIntervalsOverlap() {
+    StationIntervals intervals = new StationIntervals();
+    for (int i = 0; i < 100000; i++)
+      intervals.add(i % 1000, i % 1000 + 5, true);
+    assertArrayEquals(new long[] { 0, 1004 }, intervals.getMergedIntervals());
+    assertEquals(100000, intervals.getReportCount());
+    assertTrue(intervals.getBufferBytes() <= StationIntervals.INITIAL_CAPACITY * StationIntervals.BYTES_PER_INTERVAL);
+  }
+
+  @Test
+  public void testMergedIntervalsMatchMergeUptimeIntervalsOnRandomReports() {
+    Random random = new Random(31);
+    for (int trial = 0; trial < 50; trial++) {
+      List<Report> reportList = new ArrayList<>();
+      StationIntervals intervals = new StationIntervals();
+      int reportCount = random.nextInt(500);
+      for (int i = 0; i < reportCount; i++) {
+        long start = random.nextInt(10000) + (trial % 2 == 0 ? 0 : Long.MAX_VALUE - 5000);
+        long end = start + random.nextInt(50);
+        boolean up = random.nextInt(4) != 0;
+        reportList.add(new Report(start, end, up));
+        intervals.add(start, end, up);
+      }
+      assertArrayEquals(App.mergeUptimeIntervals(reportList), intervals.getMergedIntervals());
+      if (trial % 2 == 0)
+        assertEquals(App.computeStationUptime(reportList), intervals.computeUptime());
+    }
+  }
+
+  // FusedUptimeEngine
+
+  @Test
+  public void testReadChargerAvailabilityReportsSectionForFileWithTooLongTimesReturnsNull() {
+    String fileName = appTest.getRelativeFilePath("file_with_too_long_times.txt");
+
+    assertDoesNotThrow(() -> {
+      final BufferedReader reader = new BufferedReader(new FileReader(fileName));
+      for (String nextLine = reader.readLine(); nextLine != null && !nextLine.isBlank(); nextLine = reader.readLine())
+        ;
+      HashMap<Integer, Integer> stationsMap = new HashMap<>();
+      stationsMap.put(Integer.valueOf(1001), Integer.valueOf(0));
+      stationsMap.put(Integer.valueOf(1002), Integer.valueOf(0));
+      stationsMap.put(Integer.valueOf(1003), Integer.valueOf(1));
+      stationsMap.put(Integer.valueOf(1004), Integer.valueOf(2));
+      Object map = FusedUptimeEngine.readChargerAvailabilityReportsSection(reader, stationsMap, new ArrayList<>(0));
+      reader.close();
+      assertNull(map);
+    });
+  }
+
+  @Test
+  public void testComputeStationUptimesMatchesSerialEngine() {
+    String input = "[Charger Availability Reports]\n1001 0 50000 true\n1001 50000 100000 true\n"
+        + "1002 50000 100000 true\n1003 25000 75000 false\n1004 0 50000 true\n1004 100000 200000 true\n";
+    HashMap<Integer, Integer> stationsMap = new HashMap<>();
+    stationsMap.put(Integer.valueOf(1001), Integer.valueOf(0));
+    stationsMap.put(Integer.valueOf(1002), Integer.valueOf(0));
+    stationsMap.put(Integer.valueOf(1003), Integer.valueOf(1));
+    stationsMap.put(Integer.valueOf(1004), Integer.valueOf(2));
+    List<Integer> emptyStations = new ArrayList<>();
+    emptyStations.add(Integer.valueOf(3));
+
+    HashMap<Integer, StationIntervals> map = FusedUptimeEngine
+        .readChargerAvailabilityReportsSection(new BufferedReader(new StringReader(input)), stationsMap, emptyStations);
+    assertNotNull(map);
+    assertEquals(4, map.size());
+    assertEquals(3, map.get(Integer.valueOf(0)).getReportCount());
+    assertEquals(0, map.get(Integer.valueOf(1)).getIntervalCount());
+
+    int[][] output = FusedUptimeEngine.computeStationUptimes(map);
+    HashMap<Integer, Integer> uptimes = new HashMap<>();
+    for (int[] station : output)
+      uptimes.put(Integer.valueOf(station[0]), Integer.valueOf(station[1]));
+    assertEquals(Integer.valueOf(100), uptimes.get(Integer.valueOf(0)));
+    assertEquals(Integer.valueOf(0), uptimes.get(Integer.valueOf(1)));
+    assertEquals(Integer.valueOf(75), uptimes.get(Integer.valueOf(2)));
+    assertEquals(Integer.valueOf(0), uptimes.get(Integer.valueOf(3)));
+  }
+}
@@ -0,0 +1,200 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.FusedUptimeEngine;
+import main.MemoryBudget;
+import main.StationIntervals;
+
+/**
+ * JUnit test class for the memory budget of the fused engine and the
+ * spilling of station intervals to disk.
+ *
+ * @author Kevin Li
+ */
+public class MemoryBudgetTest {
+  private static boolean isEmptyDirectory(Path directory) throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return !files.findAny().isPresent();
+    }
+  }
+
+  @Test
+  public void testSpilledIntervalsAreMergedBackIn() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("spill");
+      Random random = new Random(36);
+      List<Report> reportList = new ArrayList<>();
+      StationIntervals intervals = new StationIntervals();
+      MemoryBudget budget = new MemoryBudget(1 << 20, directory);
+      for (int i = 0; i < 5000; i++) {
+        long start = random.nextInt(100000) + (i % 2 == 0 ? 0 : Long.MAX_VALUE - 50000);
+        long end = start + random.nextInt(30);
+        reportList.add(new Report(start, end, true));
+        intervals.add(start, end, true);
+        if (i % 700 == 0)
+          intervals.spill(budget);
+      }
+      assertTrue(intervals.isSpilled());
+      assertEquals(8, budget.getSpilledRuns());
+      assertArrayEquals(App.mergeUptimeIntervals(reportList), intervals.getMergedIntervals());
+
+      intervals.deleteSpilledRuns();
+      assertTrue(isEmptyDirectory(directory));
+      Files.delete(directory);
+    });
+  }
+
+  @Test
+  public void testSpilledStationsShareOneFile() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("spill");
+      MemoryBudget budget = new MemoryBudget(1 << 20, directory);
+      // More stations than the usual limit on open file descriptors
+      StationIntervals[] stations = new StationIntervals[5000];
+      for (int station = 0; station < stations.length; station++) {
+        stations[station] = new StationIntervals();
+        stations[station].add(station, station + 10, true);
+        stations[station].spill(budget);
+        stations[station].add(station + 20, station + 30, true);
+        stations[station].spill(budget);
+      }
+      assertEquals(stations.length, budget.getSpilledStations());
+      assertEquals(2 * stations.length, budget.getSpilledRuns());
+      try (Stream<Path> files = Files.list(directory)) {
+        assertEquals(1, files.count());
+      }
+
+      for (int station = stations.length - 1; station > 0; station--) {
+        assertArrayEquals(new long[] { station, station + 10, station + 20, station + 30 },
+            stations[station].getMergedIntervals());
+        stations[station].deleteSpilledRuns();
+      }
+      assertFalse(isEmptyDirectory(directory));
+      stations[0].deleteSpilledRuns();
+      assertTrue(isEmptyDirectory(directory));
+
+      // A new file once the last one is deleted
+      stations[0].add(0, 10, true);
+      stations[0].spill(budget);
+      assertFalse(isEmptyDirectory(directory));
+      stations[0].deleteSpilledRuns();
+      assertTrue(isEmptyDirectory(directory));
+      Files.delete(directory);
+    });
+  }
+
+  @Test
+  public void testTinyBudgetSpillsAndGivesSameUptimes() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("spill");
+      Random random = new Random(37);
+      HashMap<Integer, Integer> stationsMap = new HashMap<>();
+      for (int charger = 0; charger < 40; charger++)
+        stationsMap.put(Integer.valueOf(charger), Integer.valueOf(charger % 8));
+      StringBuilder input = new StringBuilder("[Charger Availability Reports]\n");
+      for (int i = 0; i < 20000; i++) {
+        long start = random.nextInt(1 << 24);
+        input.append(random.nextInt(40)).append(' ').append(start).append(' ')
+            .append(start + 1 + random.nextInt(100)).append(' ').append(random.nextInt(4) != 0).append('\n');
+      }
+
+      HashMap<Integer, StationIntervals> expectedMap = FusedUptimeEngine.readChargerAvailabilityReportsSection(
+          new BufferedReader(new StringReader(input.toString())), stationsMap, new ArrayList<>(0));
+      int[][] expected = FusedUptimeEngine.computeStationUptimes(expectedMap);
+
+      MemoryBudget budget = new MemoryBudget(16 << 10, directory);
+      HashMap<Integer, StationIntervals> map = FusedUptimeEngine.readChargerAvailabilityReportsSection(
+          new BufferedReader(new StringReader(input.toString())), stationsMap, new ArrayList<>(0), budget);
+      assertNotNull(map);
+      assertTrue(budget.getCompactions() > 0);
+      assertTrue(budget.getSpilledStations() > 0);
+      assertTrue(budget.getSpilledBytes() > 0);
+      assertFalse(isEmptyDirectory(directory));
+
+      int[][] output = FusedUptimeEngine.computeStationUptimes(map);
+      assertNotNull(output);
+      HashMap<Integer, Integer> uptimes = new HashMap<>();
+      for (int[] station : output)
+        uptimes.put(Integer.valueOf(station[0]), Integer.valueOf(station[1]));
+      assertEquals(expected.length, output.length);
+      for (int[] station : expected)
+        assertEquals(Integer.valueOf(station[1]), uptimes.get(Integer.valueOf(station[0])));
+      assertTrue(isEmptyDirectory(directory));
+      Files.delete(directory);
+    });
+  }
+
+  @Test
+  public void testCompactionFreesMemoryBeforeSpilling() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("spill");
+      HashMap<Integer, Integer> stationsMap = new HashMap<>();
+      stationsMap.put(Integer.valueOf(1), Integer.valueOf(0));
+      stationsMap.put(Integer.valueOf(2), Integer.valueOf(1));
+      StringBuilder input = new StringBuilder("[Charger Availability Reports]\n");
+      // Station 0 grows a large buffer, then one report covers all of it
+      for (int i = 0; i < 1000; i++)
+        input.append("1 ").append(i * 20).append(' ').append(i * 20 + 10).append(" true\n");
+      input.append("1 0 20000 true\n");
+      for (int i = 0; i < 30; i++)
+        input.append("1 ").append(i).append(' ').append(i + 1).append(" true\n");
+      // Station 1 then grows past the budget
+      for (int i = 0; i < 1000; i++)
+        input.append("2 ").append(i * 20).append(' ').append(i * 20 + 5).append(" true\n");
+
+      MemoryBudget budget = new MemoryBudget(24 << 10, directory);
+      HashMap<Integer, StationIntervals> map = FusedUptimeEngine.readChargerAvailabilityReportsSection(
+          new BufferedReader(new StringReader(input.toString())), stationsMap, new ArrayList<>(0), budget);
+      assertNotNull(map);
+      assertEquals(1, budget.getCompactions());
+      assertEquals(0, budget.getSpilledStations());
+      assertTrue(budget.getUsedBytes() <= budget.getLimitBytes());
+      assertEquals(100, map.get(Integer.valueOf(0)).computeUptime());
+      assertEquals(25, map.get(Integer.valueOf(1)).computeUptime());
+      assertTrue(isEmptyDirectory(directory));
+      Files.delete(directory);
+    });
+  }
+
+  @Test
+  public void testOverlappingReportsStayWithinBudgetWithoutReclaiming() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("spill");
+      HashMap<Integer, Integer> stationsMap = new HashMap<>();
+      stationsMap.put(Integer.valueOf(1), Integer.valueOf(0));
+      StringBuilder input = new StringBuilder("[Charger Availability Reports]\n");
+      for (int i = 0; i < 20000; i++)
+        input.append("1 ").append(i % 100).append(' ').append(i % 100 + 10).append(" true\n");
+
+      MemoryBudget budget = new MemoryBudget(4 << 10, directory);
+      HashMap<Integer, StationIntervals> map = FusedUptimeEngine.readChargerAvailabilityReportsSection(
+          new BufferedReader(new StringReader(input.toString())), stationsMap, new ArrayList<>(0), budget);
+      assertNotNull(map);
+      assertEquals(0, budget.getCompactions());
+      assertEquals(0, budget.getSpilledStations());
+      assertEquals(100, map.get(Integer.valueOf(0)).computeUptime());
+      assertTrue(isEmptyDirectory(directory));
+      Files.delete(directory);
+    });
+  }
+}
@@ -0,0 +1,176 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.OutageWriter;
+import main.ReportList;
+import main.UptimeStrategy;
+
+/**
+ * JUnit test class for the outages passed to an <code>OutageSink</code> by
+ * the uptime strategies, checked against the gaps between the intervals of
+ * <code>App.mergeUptimeIntervals</code>, and for writing them out with an
+ * <code>OutageWriter</code>.
+ *
+ * @author Kevin Li
+ */
+public class OutageWriterTest {
+  /**
+   * @param reports the start times, end times, and 1 for up or 0 for down
+   * @return the expected outages, flattened as start and end times
+   */
+  private static List<Long> expectedOutages(long[][] reports, List<Report> reportList) {
+    long start = -1, end = 0;
+    for (int i = 0; i < reports[0].length; i++) {
+      if (Long.compareUnsigned(reports[0][i], start) < 0)
+        start = reports[0][i];
+      if (Long.compareUnsigned(reports[1][i], end) > 0)
+        end = reports[1][i];
+    }
+    List<Long> outages = new ArrayList<>();
+    long[] merged = App.mergeUptimeIntervals(reportList);
+    long last = start;
+    for (int i = 0; i < merged.length; i += 2) {
+      if (Long.compareUnsigned(last, merged[i]) < 0) {
+        outages.add(last);
+        outages.add(merged[i]);
+      }
+      last = merged[i + 1];
+    }
+    if (Long.compareUnsigned(last, end) < 0) {
+      outages.add(last);
+      outages.add(end);
+    }
+    return outages;
+  }
+
+  @Test
+  public void testEveryStrategyPassesOnTheGapsOfTheMerge() {
+    Random random = new Random(44);
+    for (int trial = 0; trial < 300; trial++) {
+      int count = 1 + random.nextInt(trial < 100 ? 3 : trial < 200 ? 50 : 500);
+      long base = trial % 2 == 0 ? 0 : Long.MAX_VALUE - 2000;
+      long[][] reports = new long[3][count];
+      ReportList reportList = new ReportList();
+      long[] chargerTimes = new long[4];
+      for (int i = 0; i < count; i++) {
+        // Chargers in time order, interleaved, so that CHARGER_MERGE applies
+        int charger = random.nextInt(chargerTimes.length);
+        reports[0][i] = base + chargerTimes[charger] + random.nextInt(20);
+        reports[1][i] = reports[0][i] + random.nextInt(20);
+        reports[2][i] = random.nextInt(trial % 3 + 2) != 0 ? 1 : 0;
+        chargerTimes[charger] = reports[0][i] - base;
+        reportList.addFromCharger(charger, new Report(reports[0][i], reports[1][i], reports[2][i] == 1));
+      }
+      List<Long> expected = expectedOutages(reports, reportList);
+
+      UptimeStrategy chosen = UptimeStrategy.choose(reportList);
+      for (UptimeStrategy strategy : UptimeStrategy.values()) {
+        if ((strategy == UptimeStrategy.NO_UPTIME || strategy == UptimeStrategy.SINGLE_UPTIME) && strategy != chosen)
+          continue; // only applies to stations with at most one uptime report
+        List<Long> outages = new ArrayList<>();
+        int uptime = strategy.computeUptime(reportList, 7, (stationId, gapStart, gapEnd) -> {
+          assertEquals(7, stationId);
+          outages.add(gapStart);
+          outages.add(gapEnd);
+        });
+        assertEquals(expected, outages, strategy.name());
+        assertEquals(strategy.computeUptime(reportList), uptime, strategy.name());
+      }
+    }
+  }
+
+  @Test
+  public void testWriterWritesUnsignedLines() {
+    assertDoesNotThrow(() -> {
+      StringWriter output = new StringWriter();
+      try (OutageWriter writer = new OutageWriter(output)) {
+        writer.outage(-1, Long.MAX_VALUE, Long.MIN_VALUE);
+        writer.outage(3, 0, 10);
+        assertEquals("", output.toString()); // still buffered
+        assertEquals(2, writer.getOutageCount());
+      }
+      assertEquals("4294967295 9223372036854775807 9223372036854775808\n3 0 10\n", output.toString());
+
+      // Written out as the buffer fills
+      output = new StringWriter();
+      OutageWriter writer = new OutageWriter(output);
+      for (int i = 0; i < OutageWriter.BUFFER_CHARS; i++)
+        writer.outage(i, -1, -1);
+      assertTrue(output.toString().length() > OutageWriter.BUFFER_CHARS / 2);
+    });
+  }
+
+  @Test
+  public void testWriterFailureIsUnchecked() {
+    Writer failing = new Writer() {
+      @Override
+      public void write(char[] buffer, int offset, int length) throws IOException {
+        throw new IOException("disk full");
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    OutageWriter writer = new OutageWriter(failing);
+    writer.outage(0, 0, 1);
+    assertThrows(UncheckedIOException.class, () -> writer.flush());
+    assertThrows(IOException.class, () -> writer.close());
+  }
+
+  @Test
+  public void testAppWritesOutagesOfEveryStation() {
+    assertDoesNotThrow(() -> {
+      Path input = Files.createTempFile("reports", ".txt");
+      Path outages = Files.createTempFile("outages", ".txt");
+      PrintStream out = System.out;
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try {
+        Files.write(input, ("[Stations]\n0 1001 1002\n1 1003\n2\n\n[Charger Availability Reports]\n"
+            + "1001 0 10 true\n1002 20 30 true\n1001 5 12 true\n1003 0 100 false\n")
+            .getBytes(StandardCharsets.UTF_8));
+        System.setOut(new PrintStream(output, true));
+        App.main(new String[] { input.toString(), "--outages=" + outages });
+        System.setOut(out);
+        assertEquals("0 73\n1 0\n2 0\n", output.toString());
+        List<String> lines = Files.readAllLines(outages);
+        lines.sort(null); // stations in no particular order
+        assertEquals(List.of("0 12 20", "1 0 100"), lines);
+
+        output.reset();
+        System.setOut(new PrintStream(output, true));
+        App.main(new String[] { input.toString(), "--fused", "--outages=" + outages });
+        assertEquals("ERROR\n", output.toString());
+      } finally {
+        System.setOut(out);
+        Files.delete(input);
+        Files.delete(outages);
+      }
+    });
+  }
+}
@@ -0,0 +1,83 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ParallelIntervalMerger;
+
+/**
+ * JUnit test class for the parallel sort and merge of a single station's
+ * uptime intervals.
+ *
+ * @author Kevin Li
+ */
+public class ParallelIntervalMergerTest {
+  private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @AfterAll
+  public static void shutDownPool() {
+    pool.shutdown();
+  }
+
+  /**
+   * Check the parallel merge against <code>App.mergeUptimeIntervals</code>
+   * on the same intervals.
+   */
+  private void assertMergesLikeSerial(long[] starts, long[] ends, int minRangeSize) {
+    List<Report> reportList = new ArrayList<>(starts.length);
+    for (int i = 0; i < starts.length; i++)
+      reportList.add(new Report(starts[i], ends[i], true));
+    long[] expected = App.mergeUptimeIntervals(reportList);
+    long[] output = new ParallelIntervalMerger(pool, minRangeSize).merge(starts.clone(), ends.clone(), starts.length);
+    assertArrayEquals(expected, output);
+  }
+
+  @Test
+  public void testMergeMatchesSerialMergeOnRandomIntervals() {
+    Random random = new Random(35);
+    for (int trial = 0; trial < 50; trial++) {
+      int count = 1 + random.nextInt(5000);
+      long[] starts = new long[count], ends = new long[count];
+      for (int i = 0; i < count; i++) {
+        starts[i] = random.nextInt(100000) + (trial % 2 == 0 ? 0 : Long.MAX_VALUE - 50000);
+        ends[i] = starts[i] + random.nextInt(trial % 3 == 0 ? 10 : 200);
+      }
+      assertMergesLikeSerial(starts, ends, 1 + random.nextInt(100));
+    }
+  }
+
+  @Test
+  public void testMergeJoinsIntervalsSpanningManyRanges() {
+    int count = 10000;
+    long[] starts = new long[count], ends = new long[count];
+    for (int i = 0; i < count; i++) {
+      starts[i] = i * 10L;
+      ends[i] = starts[i] + 5;
+    }
+    // One interval covers most ranges, another just touches a range boundary
+    ends[10] = 90000;
+    starts[9500] = 95000 - 7;
+    ends[9500] = 95000;
+    assertMergesLikeSerial(starts, ends, 16);
+  }
+
+  @Test
+  public void testMergeHandlesEqualStartTimes() {
+    int count = 2000;
+    long[] starts = new long[count], ends = new long[count];
+    for (int i = 0; i < count; i++) {
+      starts[i] = i < count / 2 ? 42 : 1000 + i;
+      ends[i] = starts[i] + i % 7;
+    }
+    assertMergesLikeSerial(starts, ends, 8);
+  }
+}
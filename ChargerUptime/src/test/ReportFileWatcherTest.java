@@ -0,0 +1,173 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.ReportFileWatcher;
+
+/**
+ * JUnit test class for the watcher of growing input files.
+ *
+ * @author Kevin Li
+ */
+public class ReportFileWatcherTest {
+  private final AppTest appTest = new AppTest();
+
+  private static void append(Path path, String text) throws Exception {
+    Files.write(path, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+
+  @Test
+  public void testFirstPollMatchesApp() {
+    assertDoesNotThrow(() -> {
+      // The watcher waits for each line's newline, which the last line lacks
+      Path path = Files.createTempFile("reports", ".txt");
+      PrintStream out = System.out;
+      try {
+        byte[] input = Files.readAllBytes(Paths.get(appTest.getRelativeFilePath("file_with_valid_ids.txt")));
+        Files.write(path, input);
+        if (input[input.length - 1] != '\n')
+          append(path, "\n");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(expected, true));
+        App.main(new String[] { path.toString() });
+        System.setOut(new PrintStream(output, true));
+        App.printStationUptimes(new ReportFileWatcher(path).poll());
+        assertEquals(expected.toString(), output.toString());
+      } finally {
+        System.setOut(out);
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testPollReturnsOnlyChangedStations() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("reports", ".txt");
+      try {
+        Files.write(path, "[Stations]\n0 1001 1002\n1 1003\n2\n\n[Charger Availability Reports]\n1001 0 100 true\n"
+            .getBytes(StandardCharsets.UTF_8));
+        ReportFileWatcher watcher = new ReportFileWatcher(path);
+        assertArrayEquals(new int[][] { { 0, 100 }, { 2, 0 } }, watcher.poll());
+        assertArrayEquals(new int[0][], watcher.poll());
+
+        // A line without its newline waits for the next poll
+        append(path, "1002 100 200 false\n1003 0 10");
+        long offset = watcher.getOffset();
+        assertArrayEquals(new int[][] { { 0, 50 } }, watcher.poll());
+        assertEquals(offset + "1002 100 200 false\n".length(), watcher.getOffset());
+
+        append(path, "0 true\n1001 100 200 true\n");
+        assertArrayEquals(new int[][] { { 0, 100 }, { 1, 100 } }, watcher.poll());
+
+        // Reports that do not change the uptime are not returned
+        append(path, "1001 50 150 true\n");
+        assertArrayEquals(new int[0][], watcher.poll());
+        assertEquals(Files.size(path), watcher.getOffset());
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testPollOverSlidingWindow() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("reports", ".txt");
+      try {
+        Files.write(path, "[Stations]\n0 1001\n1 1002\n\n[Charger Availability Reports]\n1001 0 100 true\n"
+            .getBytes(StandardCharsets.UTF_8));
+        append(path, "1002 0 50 true\n1002 50 100 false\n");
+        ReportFileWatcher watcher = new ReportFileWatcher(path, 100);
+        assertArrayEquals(new int[][] { { 0, 100 }, { 1, 50 } }, watcher.poll());
+
+        // Every window moves to the latest report, even without reports
+        append(path, "1001 100 150 false\n");
+        assertArrayEquals(new int[][] { { 0, 50 }, { 1, 0 } }, watcher.poll());
+        append(path, "1002 150 200 true\n");
+        assertArrayEquals(new int[][] { { 0, 0 }, { 1, 50 } }, watcher.poll());
+        assertArrayEquals(new int[0][], watcher.poll());
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testPollWaitsForReportsHeader() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("reports", ".txt");
+      try {
+        Files.write(path, "[Stations]\n0 1001\n".getBytes(StandardCharsets.UTF_8));
+        ReportFileWatcher watcher = new ReportFileWatcher(path);
+        assertArrayEquals(new int[0][], watcher.poll());
+        append(path, "\n[Charger Availability Reports]\n1001 0 100 true\n");
+        assertArrayEquals(new int[][] { { 0, 100 } }, watcher.poll());
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testPollForTruncatedFileReturnsNull() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("reports", ".txt");
+      try {
+        Files.write(path, "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 100 true\n"
+            .getBytes(StandardCharsets.UTF_8));
+        ReportFileWatcher watcher = new ReportFileWatcher(path);
+        watcher.poll();
+        Files.write(path, "[Stations]\n".getBytes(StandardCharsets.UTF_8));
+        assertNull(watcher.poll());
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testPollForShortLineReturnsNull() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("reports", ".txt");
+      PrintStream out = System.out;
+      try {
+        Files.write(path, "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 100 true\n"
+            .getBytes(StandardCharsets.UTF_8));
+        ReportFileWatcher watcher = new ReportFileWatcher(path);
+        assertArrayEquals(new int[][] { { 0, 100 } }, watcher.poll());
+
+        // A line missing its fields is an error, as in App, not an exception
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        append(path, "1001 5\n");
+        assertNull(watcher.poll());
+        assertEquals("ERROR\n", output.toString());
+      } finally {
+        System.setOut(out);
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testPollForInvalidFileReturnsNull() {
+    assertNull(new ReportFileWatcher(Paths.get(appTest.getRelativeFilePath("file_with_negative_times.txt"))).poll());
+    assertNull(new ReportFileWatcher(Paths.get(appTest.getRelativeFilePath("no_such_file.txt"))).poll());
+  }
+}
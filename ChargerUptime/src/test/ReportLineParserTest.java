@@ -0,0 +1,167 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.FusedUptimeEngine;
+import main.ReportLineParser;
+import main.ReportLineParser.Status;
+
+/**
+ * JUnit test class for the SWAR parser of report lines, checked against
+ * <code>Long.parseUnsignedLong</code> and <code>String.split</code>.
+ *
+ * @author Kevin Li
+ */
+public class ReportLineParserTest {
+  private static long parse(String digits) {
+    byte[] bytes = digits.getBytes(StandardCharsets.US_ASCII);
+    return ReportLineParser.parseUnsignedLong(bytes, 0, bytes.length);
+  }
+
+  private static void assertParsedLike(String line) {
+    ReportLineParser parser = new ReportLineParser();
+    Status status = parser.parse(line);
+    String[] tokens = line.split(" ");
+    try {
+      assertEquals(Integer.parseUnsignedInt(tokens[0]), parser.getChargerId(), line);
+    } catch (RuntimeException e) {
+      assertEquals(Status.INVALID_CHARGER_ID, status, line);
+      return;
+    }
+    if (tokens.length < 4) {
+      assertEquals(Status.MISSING_FIELDS, status, line);
+      return;
+    }
+    try {
+      long startTime = Long.parseUnsignedLong(tokens[1]), endTime = Long.parseUnsignedLong(tokens[2]);
+      assertEquals(Status.OK, status, line);
+      assertEquals(startTime, parser.getStartTime(), line);
+      assertEquals(endTime, parser.getEndTime(), line);
+      assertEquals(Boolean.parseBoolean(tokens[3]), parser.isUp(), line);
+    } catch (NumberFormatException e) {
+      assertEquals(Status.INVALID_TIME, status, line);
+    }
+  }
+
+  @Test
+  public void testParsesBoundaryValues() {
+    assertEquals(0, parse("0"));
+    assertEquals(12345678, parse("12345678"));
+    assertEquals(123456789, parse("000000000000000123456789"));
+    assertEquals(Long.MAX_VALUE, parse("9223372036854775807"));
+    assertEquals(Long.MIN_VALUE, parse("9223372036854775808"));
+    assertEquals(-1L, parse("18446744073709551615"));
+    assertEquals(-1L, parse("0000018446744073709551615"));
+    assertEquals(Long.parseUnsignedLong("9999999999999999999"), parse("9999999999999999999"));
+    assertEquals(Long.parseUnsignedLong("10000000000000000000"), parse("10000000000000000000"));
+  }
+
+  @Test
+  public void testDetectsOverflow() {
+    assertThrows(NumberFormatException.class, () -> parse("18446744073709551616"));
+    assertThrows(NumberFormatException.class, () -> parse("18446744073709551619"));
+    assertThrows(NumberFormatException.class, () -> parse("18446744073709551620"));
+    assertThrows(NumberFormatException.class, () -> parse("20000000000000000000"));
+    assertThrows(NumberFormatException.class, () -> parse("99999999999999999999"));
+    assertThrows(NumberFormatException.class, () -> parse("100000000000000000000"));
+  }
+
+  @Test
+  public void testRejectsNonDigits() {
+    assertThrows(NumberFormatException.class, () -> parse(""));
+    assertThrows(NumberFormatException.class, () -> parse("-1"));
+    assertThrows(NumberFormatException.class, () -> parse("+1"));
+    assertThrows(NumberFormatException.class, () -> parse("1234567/"));
+    assertThrows(NumberFormatException.class, () -> parse("1234567:"));
+    assertThrows(NumberFormatException.class, () -> parse("12345678901234a"));
+    assertThrows(NumberFormatException.class, () -> parse("1e10"));
+  }
+
+  @Test
+  public void testMatchesScalarOnRandomDigits() {
+    Random random = new Random(39);
+    for (int i = 0; i < 100000; i++) {
+      StringBuilder digits = new StringBuilder();
+      int length = 1 + random.nextInt(24);
+      for (int j = 0; j < length; j++)
+        digits.append((char) (random.nextInt(20) == 0 ? '0' + random.nextInt(11) : '0' + random.nextInt(10)));
+      String string = digits.toString();
+      Long expected;
+      try {
+        expected = Long.valueOf(Long.parseUnsignedLong(string));
+      } catch (NumberFormatException e) {
+        expected = null;
+      }
+      if (expected == null)
+        assertThrows(NumberFormatException.class, () -> parse(string), string);
+      else
+        assertEquals(expected.longValue(), parse(string), string);
+    }
+  }
+
+  @Test
+  public void testMatchesSplitOnUnusualLines() {
+    String[] lines = { "1001 0 50000 true", "1001 0 50000 TRUE", "1001 0 50000 false", "1001 0 50000 truer",
+        "1001 0 50000 yes", "1001 0 50000 true extra", "1001 0 50000", "1001 0 50000 ", "1001 0 50000  true",
+        "1001 0", "1001", "", " ", "   ", " 1001 0 50000 true", "1001  0 50000 true", "+1001 +0 +50000 true",
+        "4294967295 0 1 true", "4294967296 0 1 true", "1001 18446744073709551615 18446744073709551615 true",
+        "1001 18446744073709551616 1 true", "1001 -1 1 true", "1001 0 1 true", "1001 \u0663 1 true",
+        "\u0661\u0660\u0660\u0661 0 1 true", "1001 0 1 tru\u00e9", "1001 1\u0131 1 true", "abc 0 1 true",
+        "1001 abc 1 true", "1001 0 abc true", "1001\t0 1 true" };
+    for (String line : lines)
+      assertParsedLike(line);
+  }
+
+  @Test
+  public void testParsesUtf8Bytes() {
+    ReportLineParser parser = new ReportLineParser();
+    byte[] bytes = "xx1001 10000000000000000000 10000000000000050000 True\nyy".getBytes(StandardCharsets.UTF_8);
+    assertEquals(Status.OK, parser.parse(bytes, 2, bytes.length - 3));
+    assertEquals(1001, parser.getChargerId());
+    assertEquals(Long.parseUnsignedLong("10000000000000000000"), parser.getStartTime());
+    assertEquals(Long.parseUnsignedLong("10000000000000050000"), parser.getEndTime());
+    assertTrue(parser.isUp());
+
+    bytes = "1001 \u0663 1 true".getBytes(StandardCharsets.UTF_8);
+    assertEquals(Status.OK, parser.parse(bytes, 0, bytes.length));
+    assertEquals(3, parser.getStartTime());
+    bytes = "1001 0 1 false".getBytes(StandardCharsets.UTF_8);
+    assertEquals(Status.OK, parser.parse(bytes, 0, bytes.length));
+    assertFalse(parser.isUp());
+  }
+
+  @Test
+  public void testTooLongTimesStillRejected() {
+    String fileName = new AppTest().getRelativeFilePath("file_with_too_long_times.txt");
+
+    assertDoesNotThrow(() -> {
+      BufferedReader reader = new BufferedReader(new FileReader(fileName));
+      List<Integer> emptyStations = new ArrayList<>();
+      HashMap<Integer, Integer> stationMap = App.readStationsSection(reader, emptyStations);
+      assertNull(App.readChargerAvailabilityReportsSection(reader, stationMap, emptyStations));
+      reader.close();
+
+      reader = new BufferedReader(new FileReader(fileName));
+      emptyStations = new ArrayList<>();
+      stationMap = App.readStationsSection(reader, emptyStations);
+      assertNull(FusedUptimeEngine.readChargerAvailabilityReportsSection(reader, stationMap, emptyStations));
+      reader.close();
+    });
+  }
+}
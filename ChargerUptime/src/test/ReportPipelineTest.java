@@ -0,0 +1,188 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ReportPipeline;
+
+/**
+ * JUnit test class for the pipelined Charger Availability Reports reader.
+ *
+ * @author Kevin Li
+ */
+public class ReportPipelineTest {
+  private final AppTest appTest = new AppTest();
+
+  /**
+   * Skip past the Stations section of the given reader and return the
+   * stations map used by the test files.
+   */
+  private HashMap<Integer, Integer> skipStationsSection(BufferedReader reader) throws Exception {
+    for (String nextLine = reader.readLine(); nextLine != null && !nextLine.isBlank(); nextLine = reader.readLine())
+      ;
+    HashMap<Integer, Integer> stationsMap = new HashMap<>();
+    stationsMap.put(Integer.valueOf(1001), Integer.valueOf(0));
+    stationsMap.put(Integer.valueOf(1002), Integer.valueOf(0));
+    stationsMap.put(Integer.valueOf(1003), Integer.valueOf(1));
+    stationsMap.put(Integer.valueOf(1004), Integer.valueOf(2));
+    return stationsMap;
+  }
+
+  @Test
+  public void testPipelineMatchesSerialReaderForFileWithValidIDs() {
+    String fileName = appTest.getRelativeFilePath("file_with_valid_ids.txt");
+
+    assertDoesNotThrow(() -> {
+      BufferedReader reader = new BufferedReader(new FileReader(fileName));
+      HashMap<Integer, List<Report>> map = new ReportPipeline(3, 2, 2, 1)
+          .readChargerAvailabilityReportsSection(reader, skipStationsSection(reader), new ArrayList<>(0));
+      reader.close();
+      assertNotNull(map);
+      assertEquals(3, map.size());
+      assertEquals(3, map.get(Integer.valueOf(0)).size());
+      assertEquals(1, map.get(Integer.valueOf(1)).size());
+      assertEquals(2, map.get(Integer.valueOf(2)).size());
+      assertTrue(map.get(Integer.valueOf(1)).contains(new Report(25000, 75000, false)));
+      assertTrue(map.get(Integer.valueOf(2)).contains(new Report(100000, 200000, true)));
+    });
+  }
+
+  @Test
+  public void testPipelineReturnsNullForFileWithTooLongTimes() {
+    String fileName = appTest.getRelativeFilePath("file_with_too_long_times.txt");
+
+    assertDoesNotThrow(() -> {
+      BufferedReader reader = new BufferedReader(new FileReader(fileName));
+      HashMap<Integer, List<Report>> map = new ReportPipeline(2, 2, 1, 1)
+          .readChargerAvailabilityReportsSection(reader, skipStationsSection(reader), new ArrayList<>(0));
+      reader.close();
+      assertNull(map);
+    });
+  }
+
+  @Test
+  public void testPipelineReturnsNullForEmptyStationsMap() {
+    String input = "[Charger Availability Reports]\n1001 0 50000 true\n";
+
+    BufferedReader reader = new BufferedReader(new StringReader(input));
+    Object map = new ReportPipeline().readChargerAvailabilityReportsSection(reader, new HashMap<>(),
+        new ArrayList<>(0));
+    assertNull(map);
+  }
+
+  @Test
+  public void testPipelineKeepsEmptyStations() {
+    String input = "[Charger Availability Reports]\n";
+    List<Integer> emptyStations = new ArrayList<>();
+    emptyStations.add(Integer.valueOf(7));
+
+    BufferedReader reader = new BufferedReader(new StringReader(input));
+    HashMap<Integer, List<Report>> map = new ReportPipeline().readChargerAvailabilityReportsSection(reader,
+        new HashMap<>(), emptyStations);
+    assertNotNull(map);
+    assertEquals(1, map.size());
+    assertTrue(map.get(Integer.valueOf(7)).isEmpty());
+  }
+
+  @Test
+  public void testPipelineUptimesMatchSerialUptimesAndCountersSeeEveryLine() {
+    StringBuilder input = new StringBuilder("[Charger Availability Reports]\n");
+    HashMap<Integer, Integer> stationsMap = new HashMap<>();
+    for (int charger = 0; charger < 40; charger++)
+      stationsMap.put(Integer.valueOf(charger), Integer.valueOf(charger % 7));
+    int lineCount = 5000;
+    for (int i = 0; i < lineCount; i++) {
+      int charger = (i * 31) % 40;
+      long start = (i * 7919L) % 100000;
+      input.append(charger).append(' ').append(start).append(' ').append(start + 1 + i % 300).append(' ')
+          .append(i % 3 != 0).append('\n');
+    }
+
+    HashMap<Integer, List<Report>> serial = App.readChargerAvailabilityReportsSection(
+        new BufferedReader(new StringReader(input.toString())), stationsMap, new ArrayList<>(0));
+    ReportPipeline pipeline = new ReportPipeline(4, 3, 64, 2);
+    HashMap<Integer, List<Report>> pipelined = pipeline.readChargerAvailabilityReportsSection(
+        new BufferedReader(new StringReader(input.toString())), stationsMap, new ArrayList<>(0));
+    assertNotNull(serial);
+    assertNotNull(pipelined);
+    assertEquals(serial.keySet(), pipelined.keySet());
+    for (Integer stationId : serial.keySet())
+      assertEquals(App.computeStationUptime(serial.get(stationId)),
+          App.computeStationUptime(pipelined.get(stationId)));
+
+    assertEquals(lineCount, pipeline.getReaderCounters().getLines());
+    assertEquals(lineCount, pipeline.getParserCounters().getLines());
+    assertEquals(lineCount, pipeline.getAggregatorCounters().getLines());
+  }
+
+  @Test
+  public void testPipelineErrorsMatchSerialReaderForShortLines() {
+    assertDoesNotThrow(() -> {
+      // A blank line has no charger ID, and a short line's charger is checked
+      // before its fields are counted
+      String[] inputs = { "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 50 true\n\n",
+          "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 50 true\n1002 0\n",
+          "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 50\n" };
+      String[] errors = { "Charger IDs must be unsigned 32-bit integers.\n",
+          "Each charger must be present at a station.\n", "Input file is formatted incorrectly.\n" };
+      PrintStream out = System.out, err = System.err;
+      try {
+        for (int i = 0; i < inputs.length; i++) {
+          for (boolean pipeline : new boolean[] { false, true }) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(), error = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(output, true));
+            System.setErr(new PrintStream(error, true));
+            BufferedReader reader = new BufferedReader(new StringReader(inputs[i]));
+            List<Integer> emptyStations = new ArrayList<>();
+            HashMap<Integer, Integer> stationsMap = App.readStationsSection(reader, emptyStations);
+            Object map;
+            if (pipeline)
+              map = new ReportPipeline(2, 2, 1, 1).readChargerAvailabilityReportsSection(reader, stationsMap,
+                  emptyStations);
+            else
+              map = App.readChargerAvailabilityReportsSection(reader, stationsMap, emptyStations);
+            assertNull(map);
+            assertEquals("ERROR\n", output.toString());
+            assertEquals(errors[i], error.toString(), "pipeline " + pipeline);
+          }
+
+          // And through App
+          Path input = Files.createTempFile("reports", ".txt");
+          try {
+            Files.write(input, inputs[i].getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream output = new ByteArrayOutputStream(), error = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(output, true));
+            System.setErr(new PrintStream(error, true));
+            App.main(new String[] { "--pipeline", input.toString() });
+            assertEquals("ERROR\n", output.toString());
+            assertTrue(error.toString().startsWith(errors[i]), error.toString());
+          } finally {
+            Files.delete(input);
+          }
+        }
+      } finally {
+        System.setOut(out);
+        System.setErr(err);
+      }
+    });
+  }
+}
@@ -0,0 +1,105 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.RollingUptimeWindow;
+import main.StationIntervals;
+import main.Unsigned;
+
+/**
+ * JUnit test class for the sliding window uptime of a station, checked
+ * against <code>StationIntervals</code> over the reports clipped to the
+ * window.
+ *
+ * @author Kevin Li
+ */
+public class RollingUptimeWindowTest {
+  /**
+   * Check the window against every report so far, clipped to it.
+   *
+   * @param reports the start times, end times, and 1 for up or 0 for down
+   */
+  private static void assertMatchesClippedReports(RollingUptimeWindow window, long[][] reports, int count) {
+    long windowStart = window.getWindowStart(), start = Unsigned.MAX_TIME;
+    StationIntervals intervals = new StationIntervals();
+    for (int i = 0; i < count; i++) {
+      start = Unsigned.min(start, reports[0][i]);
+      long clippedStart = Unsigned.max(reports[0][i], windowStart);
+      if (reports[2][i] == 1 && Unsigned.lessThan(clippedStart, reports[1][i]))
+        intervals.add(clippedStart, reports[1][i], true); // the window skips empty intervals
+    }
+    long coveredTime = intervals.getCoveredTime();
+    assertEquals(coveredTime, window.getCoveredTime());
+    assertArrayEquals(intervals.getMergedIntervals(), window.getMergedIntervals());
+    int expected = coveredTime == 0 ? 0
+        : App.computeUptimePercentage(coveredTime, window.getWindowEnd() - Unsigned.max(start, windowStart));
+    assertEquals(expected, window.computeUptime());
+  }
+
+  @Test
+  public void testMatchesClippedReportsAsReportsArrive() {
+    Random random = new Random(43);
+    for (int trial = 0; trial < 100; trial++) {
+      long base = trial % 2 == 0 ? 0 : Long.MAX_VALUE - 100_000;
+      long width = 100 + random.nextInt(5000);
+      int count = 1 + random.nextInt(2000);
+      long[][] reports = new long[3][count];
+      RollingUptimeWindow window = new RollingUptimeWindow(width);
+      long time = base;
+      for (int i = 0; i < count; i++) {
+        // Mostly in order, sometimes late by up to twice the window
+        long start = random.nextInt(10) == 0 ? time - random.nextInt((int) width * 2) : time + random.nextInt(40);
+        start = Unsigned.max(start, base);
+        reports[0][i] = start;
+        reports[1][i] = start + random.nextInt(60);
+        reports[2][i] = random.nextInt(4) != 0 ? 1 : 0;
+        time = Unsigned.max(time, start);
+        window.add(reports[0][i], reports[1][i], reports[2][i] == 1);
+        assertMatchesClippedReports(window, reports, i + 1);
+      }
+    }
+  }
+
+  @Test
+  public void testAdvanceToDropsExpiredUptime() {
+    RollingUptimeWindow window = new RollingUptimeWindow(100);
+    window.add(0, 40, true);
+    window.add(30, 60, true);
+    window.add(80, 100, true);
+    window.add(60, 70, false);
+    assertEquals(2, window.getIntervalCount());
+    assertEquals(80, window.getCoveredTime());
+    assertEquals(80, window.computeUptime());
+
+    window.advanceTo(150);
+    assertArrayEquals(new long[] { 50, 60, 80, 100 }, window.getMergedIntervals());
+    assertEquals(30, window.computeUptime());
+    window.advanceTo(120); // never moves back
+    assertEquals(150, window.getWindowEnd());
+    window.advanceTo(300);
+    assertEquals(0, window.getIntervalCount());
+    assertEquals(0, window.computeUptime());
+    assertEquals(4, window.getReportCount());
+  }
+
+  @Test
+  public void testLateReportsFillGapsAndMerge() {
+    RollingUptimeWindow window = new RollingUptimeWindow(1000);
+    for (int i = 0; i < 100; i++)
+      window.add(i * 10, i * 10 + 5, true); // grows the deque
+    assertEquals(100, window.getIntervalCount());
+    window.add(16, 18, true); // in a gap
+    window.add(24, 61, true); // across several intervals
+    window.add(990, 996, true); // overlaps the tail
+    window.add(12, 13, true); // within an interval
+    assertEquals(100 + 1 - 4, window.getIntervalCount());
+    assertEquals(100 * 5 + 2 + (65 - 20 - 5 * 5) + 1, window.getCoveredTime());
+    assertEquals(52, window.computeUptime());
+  }
+}
@@ -0,0 +1,51 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.SeenReports;
+
+/**
+ * JUnit test class for the set of reports read, checked against a
+ * <code>HashSet</code>.
+ *
+ * @author Kevin Li
+ */
+public class SeenReportsTest {
+  @Test
+  public void testReportsDifferInEveryField() {
+    SeenReports seenReports = new SeenReports();
+    assertTrue(seenReports.add(1, 0, 10, true));
+    assertFalse(seenReports.add(1, 0, 10, true));
+    assertTrue(seenReports.add(1, 0, 10, false));
+    assertTrue(seenReports.add(2, 0, 10, true));
+    assertTrue(seenReports.add(1, 1, 10, true));
+    assertTrue(seenReports.add(1, 0, 11, true));
+    assertTrue(seenReports.add(-1, -1, -1, true));
+    assertFalse(seenReports.add(-1, -1, -1, true));
+    assertEquals(6, seenReports.size());
+  }
+
+  @Test
+  public void testMatchesHashSetWhileGrowing() {
+    Random random = new Random(32);
+    SeenReports seenReports = new SeenReports();
+    HashSet<List<Long>> expected = new HashSet<>();
+    for (int i = 0; i < 100000; i++) {
+      int chargerId = random.nextInt(50);
+      long startTime = random.nextInt(1000);
+      long endTime = startTime + random.nextInt(100);
+      boolean up = random.nextBoolean();
+      assertEquals(expected.add(List.of((long) chargerId, startTime, endTime, up ? 1L : 0L)),
+          seenReports.add(chargerId, startTime, endTime, up));
+    }
+    assertEquals(expected.size(), seenReports.size());
+  }
+}
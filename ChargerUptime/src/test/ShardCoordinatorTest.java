@@ -0,0 +1,127 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.ShardCoordinator;
+
+/**
+ * JUnit test class for the sharded mode, which starts local worker processes.
+ *
+ * @author Kevin Li
+ */
+public class ShardCoordinatorTest {
+  /**
+   * Run the coordinator on the given input and capture what it prints to
+   * <code>stdout</code>.
+   */
+  private String runCoordinator(String input, int workerCount) {
+    return runCoordinator(input, workerCount, new ByteArrayOutputStream());
+  }
+
+  /**
+   * Run the coordinator on the given input, capturing what it prints to
+   * <code>stderr</code> in <code>errors</code>.
+   */
+  private String runCoordinator(String input, int workerCount, ByteArrayOutputStream errors) {
+    PrintStream originalOut = System.out;
+    PrintStream originalErr = System.err;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+      System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+      BufferedReader reader = new BufferedReader(new StringReader(input));
+      List<Integer> emptyStations = new ArrayList<>();
+      HashMap<Integer, Integer> stationsMap = App.readStationsSection(reader, emptyStations);
+      new ShardCoordinator(workerCount).run(reader, stationsMap, emptyStations);
+    } finally {
+      System.setOut(originalOut);
+      System.setErr(originalErr);
+    }
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testGetShardIsInRange() {
+    for (int stationId = -1000; stationId < 1000; stationId++) {
+      int shard = ShardCoordinator.getShard(stationId, 3);
+      assertTrue(shard >= 0 && shard < 3);
+    }
+  }
+
+  @Test
+  public void testShardedOutputMatchesExpectedOutput() {
+    String input = "[Stations]\n0 1001 1002\n1 1003\n2 1004\n\n[Charger Availability Reports]\n"
+        + "1001 0 50000 true\n1001 50000 100000 true\n1002 50000 100000 true\n"
+        + "1003 25000 75000 false\n1004 0 50000 true\n1004 100000 200000 true\n";
+    assertEquals("0 100\n1 0\n2 75\n", runCoordinator(input, 2));
+  }
+
+  @Test
+  public void testShardedOutputIncludesEmptyStationsInOrder() {
+    StringBuilder input = new StringBuilder("[Stations]\n");
+    for (int station = 9; station >= 0; station--)
+      input.append(station).append(station % 2 == 0 ? " " + (100 + station) : "").append('\n');
+    input.append("\n[Charger Availability Reports]\n");
+    for (int station = 0; station < 10; station += 2)
+      input.append(100 + station).append(" 0 10 true\n");
+
+    StringBuilder expected = new StringBuilder();
+    for (int station = 0; station < 10; station++)
+      expected.append(station).append(' ').append(station % 2 == 0 ? 100 : 0).append('\n');
+    assertEquals(expected.toString(), runCoordinator(input.toString(), 3));
+  }
+
+  @Test
+  public void testShardedModeReportsWorkerErrors() {
+    String input = "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 -5 true\n";
+    String output = runCoordinator(input, 2);
+    assertEquals("ERROR\n", output);
+  }
+
+  @Test
+  public void testShardedModeReportsUnknownChargers() {
+    String input = "[Stations]\n0 1001\n\n[Charger Availability Reports]\n1001 0 5 true\n1002 0 5 true\n";
+    String output = runCoordinator(input, 2);
+    assertEquals("ERROR\n", output);
+    assertFalse(output.contains("100"));
+  }
+
+  @Test
+  public void testShardedModeReportsEarliestWorkerError() {
+    // Two stations owned by different workers
+    int otherStation = 1;
+    while (ShardCoordinator.getShard(otherStation, 2) == ShardCoordinator.getShard(0, 2))
+      otherStation++;
+    String stations = "[Stations]\n0 1001\n" + otherStation + " 1002\n\n[Charger Availability Reports]\n";
+    String badTimes = " x 5 true\n", missingFields = " 5 true\n";
+
+    // Whichever worker has the earlier error, its message is printed
+    for (int first = 0; first < 2; first++) {
+      String[] chargers = first == 0 ? new String[] { "1001", "1002" } : new String[] { "1002", "1001" };
+      String input = stations + chargers[0] + " 0 5 true\n" + chargers[0] + badTimes + chargers[1] + " 0 5 true\n"
+          + chargers[1] + missingFields;
+      ByteArrayOutputStream errors = new ByteArrayOutputStream();
+      assertEquals("ERROR\n", runCoordinator(input, 2, errors));
+      assertEquals("Start and end times must be unsigned 64-bit integers.\n", errors.toString(StandardCharsets.UTF_8));
+
+      input = stations + chargers[0] + missingFields + chargers[1] + badTimes;
+      errors = new ByteArrayOutputStream();
+      assertEquals("ERROR\n", runCoordinator(input, 2, errors));
+      assertEquals("Input file is formatted incorrectly.\n", errors.toString(StandardCharsets.UTF_8));
+    }
+  }
+}
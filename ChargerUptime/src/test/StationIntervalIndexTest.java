@@ -0,0 +1,129 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.StationIntervalIndex;
+
+/**
+ * JUnit test class for the on-disk index of station intervals.
+ *
+ * @author Kevin Li
+ */
+public class StationIntervalIndexTest {
+  @Test
+  public void testLookupMatchesInMemoryMerge() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("stations", ".idx");
+      try {
+        HashMap<Integer, List<Report>> map = new HashMap<>();
+        List<Report> list0 = new ArrayList<>();
+        list0.add(new Report(0, 7, true));
+        list0.add(new Report(3, 4, true));
+        list0.add(new Report(6, 10, true));
+        list0.add(new Report(10, 20, false));
+        List<Report> list1 = new ArrayList<>();
+        list1.add(new Report(0, 100, false));
+        map.put(Integer.valueOf(0), list0);
+        map.put(Integer.valueOf(-5), list1);
+        map.put(Integer.valueOf(9), new ArrayList<>(0));
+        StationIntervalIndex.write(path, map);
+
+        StationIntervalIndex index = StationIntervalIndex.open(path);
+        assertEquals(3, index.getStationCount());
+        assertArrayEquals(new int[] { 0, 9, -5 }, index.getStationIds());
+        assertArrayEquals(new long[] { 0, 10 }, index.getMergedIntervals(0));
+        assertArrayEquals(new long[0], index.getMergedIntervals(-5));
+        assertArrayEquals(new long[0], index.getMergedIntervals(9));
+        assertEquals(4, index.getReportCount(0));
+        assertEquals(50, index.computeStationUptime(0));
+        assertEquals(0, index.computeStationUptime(-5));
+        assertEquals(0, index.computeStationUptime(9));
+        assertNull(index.getMergedIntervals(1));
+        assertEquals(-1, index.computeStationUptime(1));
+        assertFalse(index.containsStation(Integer.MIN_VALUE));
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testLookupFindsEveryStationAcrossManyFences() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("stations", ".idx");
+      try {
+        int stationCount = 3 * StationIntervalIndex.FENCE_INTERVAL + 17;
+        HashMap<Integer, List<Report>> map = new HashMap<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < stationCount; i++) {
+          int stationId = (int) (i * 2654435761L); // distinct, spread over the unsigned range
+          List<Report> list = new ArrayList<>();
+          list.add(new Report(0, 1 + i % 10, true));
+          list.add(new Report(20, 30, i % 3 == 0));
+          list.add(new Report(25, 40, false));
+          map.put(Integer.valueOf(stationId), list);
+        }
+        StationIntervalIndex.write(path, map);
+        for (Integer stationId : map.keySet())
+          expected.put(stationId, Integer.valueOf(App.computeStationUptime(map.get(stationId))));
+
+        StationIntervalIndex index = StationIntervalIndex.open(path);
+        assertEquals(map.size(), index.getStationCount());
+        for (Integer stationId : expected.keySet()) {
+          assertTrue(index.containsStation(stationId.intValue()));
+          assertEquals(expected.get(stationId).intValue(), index.computeStationUptime(stationId.intValue()));
+        }
+      } finally {
+        Files.delete(path);
+      }
+    });
+  }
+
+  @Test
+  public void testInvalidFilesAreReportedAsErrors() {
+    assertDoesNotThrow(() -> {
+      Path path = Files.createTempFile("stations", ".idx");
+      PrintStream out = System.out, err = System.err;
+      try {
+        // The right magic, but an intervals offset past the end of the file
+        ByteBuffer header = ByteBuffer.allocate(StationIntervalIndex.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, StationIntervalIndex.MAGIC);
+        header.putLong(40, Long.MAX_VALUE);
+        Files.write(path, header.array());
+        assertThrows(IOException.class, () -> StationIntervalIndex.open(path));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        System.setErr(new PrintStream(new ByteArrayOutputStream(), true));
+        StationIntervalIndex.main(new String[] { path.toString(), "0" });
+        assertFalse(StationIntervalIndex.writeIndex(new HashMap<>(), "bad\0path"));
+        assertEquals("ERROR\nERROR\n", output.toString());
+      } finally {
+        System.setOut(out);
+        System.setErr(err);
+        Files.delete(path);
+      }
+    });
+  }
+}
@@ -0,0 +1,278 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ReportList;
+import main.StationResultCache;
+import main.Unsigned;
+
+/**
+ * JUnit test class for the per-station result cache and the report
+ * fingerprints it is keyed by, checked against <code>App</code>.
+ *
+ * @author Kevin Li
+ */
+public class StationResultCacheTest {
+  /** @return the station's reports as a ReportList, in the given order */
+  private static ReportList toReportList(List<long[]> reports) {
+    ReportList output = new ReportList();
+    for (long[] report : reports)
+      output.add(new Report(report[0], report[1], report[2] == 1));
+    return output;
+  }
+
+  /** @return random reports, as start and end times and 1 for up or 0 for down */
+  private static List<long[]> createReports(Random random, int count) {
+    List<long[]> output = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      long start = random.nextInt(1000);
+      output.add(new long[] { start, start + random.nextInt(100), random.nextInt(4) == 0 ? 0 : 1 });
+    }
+    return output;
+  }
+
+  private static long coveredTime(ReportList reports) {
+    long coveredTime = 0;
+    long[] merged = App.mergeUptimeIntervals(reports);
+    for (int i = 0; i < merged.length; i += 2)
+      coveredTime += merged[i + 1] - merged[i];
+    return coveredTime;
+  }
+
+  @Test
+  public void testFingerprintIgnoresOrderButNotContents() {
+    Random random = new Random(46);
+    for (int trial = 0; trial < 100; trial++) {
+      List<long[]> reports = createReports(random, 1 + random.nextInt(50));
+      long[] fingerprint = toReportList(reports).getFingerprint();
+      Collections.shuffle(reports, random);
+      assertTrue(Arrays.equals(fingerprint, toReportList(reports).getFingerprint()));
+
+      // A duplicated report, a moved end, or a flipped status change it
+      List<long[]> changed = new ArrayList<>(reports);
+      changed.add(reports.get(0));
+      assertNotEquals(fingerprint[0], toReportList(changed).getFingerprint()[0]);
+      changed = new ArrayList<>(reports);
+      long[] report = reports.get(0);
+      changed.set(0, new long[] { report[0], report[1] + 1, report[2] });
+      assertNotEquals(fingerprint[0], toReportList(changed).getFingerprint()[0]);
+      changed.set(0, new long[] { report[0], report[1], 1 - report[2] });
+      assertNotEquals(fingerprint[1], toReportList(changed).getFingerprint()[1]);
+    }
+
+    // Counting a folded report is the same as adding it
+    ReportList added = toReportList(List.of(new long[] { 0, 10, 1 }, new long[] { 5, 20, 1 }));
+    ReportList folded = toReportList(List.<long[]>of(new long[] { 0, 10, 1 }));
+    folded.fingerprint(5, 20, true);
+    assertTrue(Arrays.equals(added.getFingerprint(), folded.getFingerprint()));
+    assertEquals(0, folded.getStart());
+    assertEquals(20, folded.getEnd());
+  }
+
+  @Test
+  public void testHitsReuseUptimeAndCoveredTime() {
+    assertDoesNotThrow(() -> {
+      Path file = Files.createTempFile("results", ".cache");
+      Files.delete(file); // starts out missing
+      try {
+        Random random = new Random(46);
+        List<List<long[]>> stations = new ArrayList<>();
+        for (int station = 0; station < 50; station++)
+          stations.add(createReports(random, 1 + random.nextInt(station < 25 ? 3 : 300)));
+
+        for (int run = 0; run < 3; run++) {
+          if (run == 2) {
+            // Change station 7's reports, and reorder the others'
+            stations.get(7).add(new long[] { 0, 5000, 1 });
+            for (List<long[]> reports : stations)
+              Collections.shuffle(reports, random);
+          }
+          HashMap<Integer, List<Report>> stationReportsMap = new HashMap<>();
+          HashMap<Integer, Long> coveredTimes = new HashMap<>();
+          int[][] expected = new int[stations.size()][];
+          for (int station = 0; station < stations.size(); station++) {
+            ReportList reports = toReportList(stations.get(station));
+            coveredTimes.put(station, coveredTime(reports));
+            stationReportsMap.put(station - 10, toReportList(stations.get(station))); // negative IDs too
+            expected[station] = new int[] { station - 10, App.computeStationUptime(reports) };
+          }
+
+          StationResultCache cache = new StationResultCache(file);
+          int[][] uptimes = cache.computeStationUptimes(stationReportsMap);
+          cache.save();
+          Arrays.sort(expected, new Unsigned.StationIdComparator());
+          Arrays.sort(uptimes, new Unsigned.StationIdComparator());
+          assertTrue(Arrays.deepEquals(expected, uptimes), "run " + run);
+          assertEquals(run == 0 ? 0 : run == 1 ? 50 : 49, cache.getHits());
+          assertEquals(run == 0 ? 50 : run == 1 ? 0 : 1, cache.getMisses());
+          for (int station = 0; station < stations.size(); station++) {
+            assertEquals(coveredTimes.get(station).longValue(), cache.getCoveredTime(station - 10));
+            assertTrue(stationReportsMap.get(station - 10).isEmpty());
+          }
+        }
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    });
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    assertDoesNotThrow(() -> {
+      Path file = Files.createTempFile("results", ".cache");
+      Files.write(file, "not a cache".getBytes(StandardCharsets.US_ASCII)); // treated as empty
+      try {
+        HashMap<Integer, List<Report>> stationReportsMap = new HashMap<>();
+        for (int station = 0; station < 3; station++)
+          stationReportsMap.put(station, toReportList(List.<long[]>of(new long[] { 0, station + 1, 1 })));
+        StationResultCache cache = new StationResultCache(file, 2);
+        cache.computeStationUptimes(stationReportsMap);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getEntryCount());
+        cache.save();
+
+        // Only the two most recently used stations survive, in order
+        cache = new StationResultCache(file, 2);
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(0, cache.getEvictions());
+        int cached = 0;
+        for (int station = 0; station < 3; station++)
+          cached += cache.getCoveredTime(station) >= 0 ? 1 : 0;
+        assertEquals(2, cached);
+
+        // Lists without statistics are computed, but not cached
+        stationReportsMap.clear();
+        List<Report> plain = new ArrayList<>(List.of(new Report(0, 10, true)));
+        stationReportsMap.put(9, plain);
+        assertEquals(100, cache.computeStationUptimes(stationReportsMap)[0][1]);
+        assertEquals(0, cache.getHits() + cache.getMisses());
+        assertEquals(-1, cache.getCoveredTime(9));
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    });
+  }
+
+  @Test
+  public void testAppReusesResultsAcrossRuns() {
+    assertDoesNotThrow(() -> {
+      Path input = Files.createTempFile("reports", ".txt");
+      Path file = Files.createTempFile("results", ".cache");
+      Files.delete(file);
+      PrintStream out = System.out, err = System.err;
+      ByteArrayOutputStream output = new ByteArrayOutputStream(), errors = new ByteArrayOutputStream();
+      try {
+        // The second report of charger 1001 is coalesced into the first, and
+        // station 2, with no reports, is not cached
+        Files.write(input, ("[Stations]\n0 1001 1002\n1 1003\n2\n\n[Charger Availability Reports]\n"
+            + "1001 0 10 true\n1002 20 30 true\n1001 5 12 true\n1003 0 100 false\n")
+            .getBytes(StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(errors, true));
+        for (int run = 0; run < 2; run++) {
+          output.reset();
+          errors.reset();
+          System.setOut(new PrintStream(output, true));
+          App.main(new String[] { input.toString(), "--result-cache=" + file });
+          System.setOut(out);
+          assertEquals("0 73\n1 0\n2 0\n", output.toString());
+          assertTrue(errors.toString().contains(run == 0 ? "0 hits, 2 misses" : "2 hits, 0 misses"),
+              errors.toString());
+        }
+        assertEquals(22, new StationResultCache(file).getCoveredTime(0));
+
+        output.reset();
+        System.setOut(new PrintStream(output, true));
+        App.main(new String[] { input.toString(), "--fused", "--result-cache=" + file });
+        assertEquals("ERROR\n", output.toString());
+      } finally {
+        System.setOut(out);
+        System.setErr(err);
+        Files.delete(input);
+        Files.deleteIfExists(file);
+      }
+    });
+  }
+
+  @Test
+  public void testCoalescedAndUncoalescedReadsHitTheSameEntries() {
+    assertDoesNotThrow(() -> {
+      Path input = Files.createTempFile("reports", ".txt");
+      Path file = Files.createTempFile("results", ".cache");
+      PrintStream out = System.out, err = System.err;
+      ByteArrayOutputStream output = new ByteArrayOutputStream(), errors = new ByteArrayOutputStream();
+      try {
+        // Resends, both right after the original and much later, and
+        // overlapping and adjacent reports, which coalescing folds away
+        String reports = "[Charger Availability Reports]\n1001 0 10 true\n1001 0 10 true\n1001 5 20 true\n"
+            + "1002 30 40 false\n1001 20 25 true\n1003 0 50 true\n1002 30 40 false\n1001 0 10 true\n"
+            + "1003 60 100 true\n1003 40 70 true\n1002 35 60 true\n";
+        HashMap<Integer, Integer> stationsMap = new HashMap<>();
+        stationsMap.put(1001, 0);
+        stationsMap.put(1002, 0);
+        stationsMap.put(1003, 1);
+
+        // Whichever run fills the cache, the other hits every station
+        for (int coalescedFirst = 0; coalescedFirst < 2; coalescedFirst++) {
+          Files.deleteIfExists(file);
+          for (int run = 0; run < 2; run++) {
+            boolean coalesce = (run == 0) == (coalescedFirst == 1);
+            HashMap<Integer, List<Report>> stationReportsMap = App.readChargerAvailabilityReportsSection(
+                new BufferedReader(new StringReader(reports)), stationsMap, new ArrayList<>(), coalesce);
+            assertEquals(coalesce ? 3 : 8, stationReportsMap.get(0).size());
+            StationResultCache cache = new StationResultCache(file);
+            int[][] uptimes = cache.computeStationUptimes(stationReportsMap);
+            cache.save();
+            Arrays.sort(uptimes, new Unsigned.StationIdComparator());
+            assertTrue(Arrays.deepEquals(new int[][] { { 0, 83 }, { 1, 100 } }, uptimes));
+            assertEquals(run == 0 ? 0 : 2, cache.getHits(), "coalesce " + coalesce);
+            assertEquals(run == 0 ? 2 : 0, cache.getMisses(), "coalesce " + coalesce);
+            assertEquals(50, cache.getCoveredTime(0));
+            assertEquals(100, cache.getCoveredTime(1));
+          }
+        }
+
+        // App coalesces its reports, but the pipeline does not
+        Files.delete(file);
+        Files.write(input, ("[Stations]\n0 1001 1002\n1 1003\n\n" + reports).getBytes(StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(errors, true));
+        for (int run = 0; run < 2; run++) {
+          output.reset();
+          errors.reset();
+          System.setOut(new PrintStream(output, true));
+          App.main(run == 0 ? new String[] { input.toString(), "--result-cache=" + file }
+              : new String[] { input.toString(), "--pipeline", "--result-cache=" + file });
+          System.setOut(out);
+          assertEquals("0 83\n1 100\n", output.toString());
+          assertTrue(errors.toString().contains(run == 0 ? "0 hits, 2 misses" : "2 hits, 0 misses"),
+              errors.toString());
+        }
+      } finally {
+        System.setOut(out);
+        System.setErr(err);
+        Files.delete(input);
+        Files.deleteIfExists(file);
+      }
+    });
+  }
+}
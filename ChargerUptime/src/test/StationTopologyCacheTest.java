@@ -0,0 +1,150 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.StationTopologyCache;
+
+/**
+ * JUnit test class for the cache of parsed Stations sections.
+ *
+ * @author Kevin Li
+ */
+public class StationTopologyCacheTest {
+  private static final String STATIONS = "[Stations]\n0 1001 1002\n1 1003\n2\n\n";
+  private static final String REPORTS = "[Charger Availability Reports]\n1001 0 50000 true\n";
+
+  private static List<Path> listCacheFiles(Path directory) throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> output = new ArrayList<>();
+      files.filter(path -> path.toString().endsWith(StationTopologyCache.SUFFIX)).forEach(output::add);
+      return output;
+    }
+  }
+
+  @Test
+  public void testHitMatchesParsedSection() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("topology");
+      StationTopologyCache cache = new StationTopologyCache(directory);
+
+      List<Integer> expectedEmptyStations = new ArrayList<>();
+      HashMap<Integer, Integer> expected = App
+          .readStationsSection(new BufferedReader(new StringReader(STATIONS + REPORTS)), expectedEmptyStations);
+
+      for (int run = 0; run < 2; run++) {
+        BufferedReader reader = new BufferedReader(new StringReader(STATIONS + REPORTS));
+        List<Integer> emptyStations = new ArrayList<>();
+        assertEquals(expected, cache.readStationsSection(reader, emptyStations));
+        assertEquals(expectedEmptyStations, emptyStations);
+        assertEquals("[Charger Availability Reports]", reader.readLine());
+      }
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, cache.getHits());
+      assertEquals(1, listCacheFiles(directory).size());
+    });
+  }
+
+  @Test
+  public void testChangedSectionIsMiss() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("topology");
+      StationTopologyCache cache = new StationTopologyCache(directory);
+      cache.readStationsSection(new BufferedReader(new StringReader(STATIONS + REPORTS)), new ArrayList<>());
+
+      String changed = STATIONS.replace("1003", "1004");
+      HashMap<Integer, Integer> map = cache.readStationsSection(new BufferedReader(new StringReader(changed + REPORTS)),
+          new ArrayList<>());
+      assertEquals(Integer.valueOf(1), map.get(Integer.valueOf(1004)));
+      assertFalse(map.containsKey(Integer.valueOf(1003)));
+      assertEquals(2, cache.getMisses());
+      assertEquals(0, cache.getHits());
+    });
+  }
+
+  @Test
+  public void testInvalidSectionIsNotCached() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("topology");
+      StationTopologyCache cache = new StationTopologyCache(directory);
+      String invalid = "[Stations]\n0 -1001\n\n" + REPORTS;
+      for (int run = 0; run < 2; run++)
+        assertNull(cache.readStationsSection(new BufferedReader(new StringReader(invalid)), new ArrayList<>()));
+      assertNull(cache.readStationsSection(new BufferedReader(new StringReader(REPORTS)), new ArrayList<>()));
+      assertEquals(0, cache.getHits());
+      assertTrue(listCacheFiles(directory).isEmpty());
+    });
+  }
+
+  @Test
+  public void testCorruptFileIsMiss() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("topology");
+      StationTopologyCache cache = new StationTopologyCache(directory);
+      cache.readStationsSection(new BufferedReader(new StringReader(STATIONS + REPORTS)), new ArrayList<>());
+      Path path = listCacheFiles(directory).get(0);
+      byte[] bytes = Files.readAllBytes(path);
+      Files.write(path, Arrays.copyOf(bytes, bytes.length - 2));
+
+      List<Integer> emptyStations = new ArrayList<>();
+      HashMap<Integer, Integer> map = cache
+          .readStationsSection(new BufferedReader(new StringReader(STATIONS + REPORTS)), emptyStations);
+      assertEquals(3, map.size());
+      assertEquals(List.of(Integer.valueOf(2)), emptyStations);
+      assertEquals(2, cache.getMisses());
+      assertEquals(bytes.length, Files.size(path)); // rewritten
+    });
+  }
+
+  @Test
+  public void testEvictsOldAndLeastRecentlyUsed() {
+    assertDoesNotThrow(() -> {
+      Path directory = Files.createTempDirectory("topology");
+      long day = 24L * 60 * 60 * 1000;
+      StationTopologyCache cache = new StationTopologyCache(directory, 1 << 20, 7 * day);
+      String[] sections = new String[4];
+      for (int i = 0; i < sections.length; i++) {
+        sections[i] = "[Stations]\n" + i + " " + (1000 + i) + "\n\n";
+        cache.readStationsSection(new BufferedReader(new StringReader(sections[i])), new ArrayList<>());
+      }
+      List<Path> paths = listCacheFiles(directory);
+      assertEquals(4, paths.size());
+
+      // Age one entry past the maximum, the next store evicts it
+      Files.setLastModifiedTime(paths.get(0), FileTime.fromMillis(System.currentTimeMillis() - 8 * day));
+      cache.readStationsSection(new BufferedReader(new StringReader("[Stations]\n9\n\n")), new ArrayList<>());
+      assertEquals(1, cache.getEvictions());
+      assertFalse(Files.exists(paths.get(0)));
+
+      // Keep only the two most recently used entries by size
+      long size = Files.size(paths.get(1));
+      StationTopologyCache small = new StationTopologyCache(directory, 2 * size, 7 * day);
+      for (int i = 0; i < listCacheFiles(directory).size(); i++)
+        Files.setLastModifiedTime(listCacheFiles(directory).get(i),
+            FileTime.fromMillis(System.currentTimeMillis() - day));
+      small.readStationsSection(new BufferedReader(new StringReader(sections[1])), new ArrayList<>());
+      assertEquals(1, small.getHits());
+      small.readStationsSection(new BufferedReader(new StringReader("[Stations]\n8 1008\n\n")), new ArrayList<>());
+      List<Path> remaining = listCacheFiles(directory);
+      assertEquals(2, remaining.size());
+      assertTrue(remaining.contains(paths.get(1)));
+    });
+  }
+}
@@ -0,0 +1,95 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ReportList;
+import main.StationUptimeIterator;
+import main.Unsigned;
+
+/**
+ * JUnit test class for the lazy station uptime iterator, checked against
+ * <code>App.computeStationUptimes</code>.
+ *
+ * @author Kevin Li
+ */
+public class StationUptimeIteratorTest {
+  /** Create random stations with IDs across the whole unsigned range. */
+  private static HashMap<Integer, List<Report>> createStations(Random random, int stationCount) {
+    HashMap<Integer, List<Report>> output = new HashMap<>();
+    for (int station = 0; station < stationCount; station++) {
+      List<Report> reports = station % 2 == 0 ? new ReportList() : new ArrayList<>();
+      int count = random.nextInt(20);
+      for (int i = 0; i < count; i++) {
+        long start = random.nextInt(1000);
+        reports.add(new Report(start, start + random.nextInt(100), random.nextInt(3) != 0));
+      }
+      output.put(random.nextInt(), reports);
+    }
+    return output;
+  }
+
+  @Test
+  public void testYieldsStationsInUnsignedOrder() {
+    Random random = new Random(48);
+    for (int trial = 0; trial < 20; trial++) {
+      int stationCount = random.nextInt(300);
+      int[][] expected = App.computeStationUptimes(createStations(new Random(trial), stationCount));
+      Arrays.sort(expected, new Unsigned.StationIdComparator());
+
+      HashMap<Integer, List<Report>> stationReportsMap = createStations(new Random(trial), stationCount);
+      List<int[]> output = new ArrayList<>();
+      StationUptimeIterator iterator = new StationUptimeIterator(stationReportsMap);
+      while (iterator.hasNext())
+        output.add(iterator.next());
+      assertArrayEquals(expected, output.toArray(new int[0][]));
+      assertTrue(stationReportsMap.isEmpty());
+      assertThrows(NoSuchElementException.class, () -> iterator.next());
+    }
+  }
+
+  @Test
+  public void testComputesOnlyStationsPulled() {
+    HashMap<Integer, List<Report>> stationReportsMap = createStations(new Random(48), 100);
+    HashMap<Integer, Integer> sizes = new HashMap<>();
+    for (Integer stationId : stationReportsMap.keySet())
+      sizes.put(stationId, stationReportsMap.get(stationId).size());
+
+    StationUptimeIterator iterator = new StationUptimeIterator(stationReportsMap);
+    List<Integer> pulled = new ArrayList<>();
+    for (int i = 0; i < 10; i++)
+      pulled.add(iterator.next()[0]);
+    assertEquals(90, iterator.getRemainingCount());
+    assertEquals(90, stationReportsMap.size());
+    for (Integer stationId : pulled)
+      assertFalse(stationReportsMap.containsKey(stationId));
+    for (Integer stationId : stationReportsMap.keySet())
+      assertEquals(sizes.get(stationId).intValue(), stationReportsMap.get(stationId).size());
+
+    // The first stations pulled are the smallest unsigned IDs
+    List<Integer> stationIds = new ArrayList<>(sizes.keySet());
+    stationIds.sort(Integer::compareUnsigned);
+    assertEquals(stationIds.subList(0, 10), pulled);
+  }
+
+  @Test
+  public void testEmptyMap() {
+    StationUptimeIterator iterator = new StationUptimeIterator(new HashMap<>());
+    assertFalse(iterator.hasNext());
+    assertEquals(0, iterator.getRemainingCount());
+  }
+}
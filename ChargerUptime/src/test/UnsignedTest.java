@@ -0,0 +1,204 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ReportList;
+import main.StationIntervals;
+import main.Unsigned;
+import main.UptimeStrategy;
+
+/**
+ * JUnit test class for unsigned IDs and times, checked as properties over
+ * many random values against <code>BigInteger</code>, with the values around
+ * the signed and unsigned limits drawn more often than the rest.
+ *
+ * @author Kevin Li
+ */
+public class UnsignedTest {
+  private static final int TRIALS = 20000;
+  private static final long[] EDGE_TIMES = { 0, 1, Long.MAX_VALUE - 1, Long.MAX_VALUE, Long.MIN_VALUE,
+      Long.MIN_VALUE + 1, -2, -1 };
+  private static final int[] EDGE_IDS = { 0, 1, Integer.MAX_VALUE, Integer.MIN_VALUE, -2, -1 };
+
+  private static BigInteger big(long time) {
+    return new BigInteger(Long.toUnsignedString(time));
+  }
+
+  private static long randomTime(Random random) {
+    return random.nextInt(4) == 0 ? EDGE_TIMES[random.nextInt(EDGE_TIMES.length)] + random.nextInt(3) - 1
+        : random.nextLong();
+  }
+
+  private static int randomId(Random random) {
+    return random.nextInt(4) == 0 ? EDGE_IDS[random.nextInt(EDGE_IDS.length)] + random.nextInt(3) - 1
+        : random.nextInt();
+  }
+
+  /**
+   * Create a station's reports near one of the limits, where the signed and
+   * unsigned orders differ, each ending after it starts.
+   *
+   * @return the start times, end times, and 1 for up or 0 for down
+   */
+  private static long[][] randomStation(Random random) {
+    long[] bases = { 0, Long.MAX_VALUE - (1 << 20), -1L - (1 << 22) };
+    long base = bases[random.nextInt(bases.length)];
+    int count = 1 + random.nextInt(random.nextBoolean() ? 8 : 300);
+    long[][] station = new long[3][count];
+    for (int i = 0; i < count; i++) {
+      station[0][i] = base + random.nextInt(1 << 21);
+      station[1][i] = station[0][i] + 1 + random.nextInt(1 << 18);
+      station[2][i] = random.nextInt(4) != 0 ? 1 : 0;
+    }
+    return station;
+  }
+
+  /** @return the uptime percentage, computed with BigIntegers */
+  private static int expectedUptime(long[][] station) {
+    BigInteger start = null, end = null;
+    List<BigInteger[]> ups = new ArrayList<>();
+    for (int i = 0; i < station[0].length; i++) {
+      BigInteger reportStart = big(station[0][i]), reportEnd = big(station[1][i]);
+      start = start == null ? reportStart : start.min(reportStart);
+      end = end == null ? reportEnd : end.max(reportEnd);
+      if (station[2][i] == 1)
+        ups.add(new BigInteger[] { reportStart, reportEnd });
+    }
+    ups.sort((a, b) -> a[0].compareTo(b[0]));
+    BigInteger uptime = BigInteger.ZERO, lastStart = null, lastEnd = null;
+    for (BigInteger[] up : ups) {
+      if (lastEnd != null && up[0].compareTo(lastEnd) <= 0) {
+        lastEnd = lastEnd.max(up[1]);
+        continue;
+      }
+      if (lastEnd != null)
+        uptime = uptime.add(lastEnd.subtract(lastStart));
+      lastStart = up[0];
+      lastEnd = up[1];
+    }
+    if (lastEnd != null)
+      uptime = uptime.add(lastEnd.subtract(lastStart));
+    return uptime.multiply(BigInteger.valueOf(100)).divide(end.subtract(start)).intValue();
+  }
+
+  @Test
+  public void testComparisonsMatchBigInteger() {
+    Random random = new Random(40);
+    for (int i = 0; i < TRIALS; i++) {
+      long a = randomTime(random), b = randomTime(random);
+      int expected = big(a).compareTo(big(b));
+      assertEquals(expected < 0, Unsigned.lessThan(a, b), a + " " + b);
+      assertEquals(expected <= 0, Unsigned.lessOrEqual(a, b), a + " " + b);
+      assertEquals(expected < 0 ? a : b, Unsigned.min(a, b));
+      assertEquals(expected < 0 ? b : a, Unsigned.max(a, b));
+    }
+    assertTrue(Unsigned.lessThan(Long.MAX_VALUE, Long.MIN_VALUE));
+    assertTrue(Unsigned.lessOrEqual(0, Unsigned.MAX_TIME));
+  }
+
+  @Test
+  public void testStationIdComparatorMatchesBigInteger() {
+    Random random = new Random(40);
+    Unsigned.StationIdComparator comparator = new Unsigned.StationIdComparator();
+    for (int i = 0; i < TRIALS; i++) {
+      int a = randomId(random), b = randomId(random);
+      assertEquals(Long.signum(Unsigned.toLong(a) - Unsigned.toLong(b)),
+          Integer.signum(comparator.compare(new int[] { a, 0 }, new int[] { b, 0 })), a + " " + b);
+    }
+  }
+
+  @Test
+  public void testStringsRoundTrip() {
+    Random random = new Random(40);
+    for (int i = 0; i < TRIALS; i++) {
+      long time = randomTime(random);
+      assertEquals(big(time).toString(), Unsigned.toString(time));
+      assertEquals(time, Unsigned.parseTime(Unsigned.toString(time)));
+      assertEquals(big(time).toString(), Unsigned.append(new StringBuilder(), time).toString());
+
+      int id = randomId(random);
+      String idString = BigInteger.valueOf(Unsigned.toLong(id)).toString();
+      assertEquals(idString, Unsigned.toString(id));
+      assertEquals(idString, Unsigned.append(new StringBuilder(), id).toString());
+      assertEquals(id, Unsigned.parseId(idString));
+    }
+    assertEquals("4294967295", Unsigned.toString(Unsigned.MAX_ID));
+    assertEquals("18446744073709551615", Unsigned.toString(Unsigned.MAX_TIME));
+  }
+
+  @Test
+  public void testStationsPrintedInUnsignedOrder() {
+    Random random = new Random(40);
+    int[][] stationUptimes = new int[1000][];
+    for (int i = 0; i < stationUptimes.length; i++)
+      stationUptimes[i] = new int[] { randomId(random), random.nextInt(101) };
+    Arrays.sort(stationUptimes, new Unsigned.StationIdComparator());
+
+    PrintStream out = System.out;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(bytes));
+    try {
+      App.printStationUptimes(stationUptimes);
+    } finally {
+      System.setOut(out);
+    }
+    String[] lines = bytes.toString().split("\n");
+    assertEquals(stationUptimes.length, lines.length);
+    long lastId = -1;
+    for (String line : lines) {
+      long id = Long.parseLong(line.substring(0, line.indexOf(' ')));
+      assertTrue(id >= 0 && id <= 0xFFFFFFFFL && id >= lastId, line);
+      lastId = id;
+    }
+  }
+
+  @Test
+  public void testUptimesMatchBigIntegerAcrossLimits() {
+    Random random = new Random(40);
+    for (int i = 0; i < TRIALS / 20; i++) {
+      long[][] station = randomStation(random);
+      int expected = expectedUptime(station);
+
+      StationIntervals intervals = new StationIntervals();
+      List<Report> reports = new ReportList();
+      List<Report> legacyReports = new ArrayList<>();
+      for (int j = 0; j < station[0].length; j++) {
+        intervals.add(station[0][j], station[1][j], station[2][j] == 1);
+        reports.add(new Report(station[0][j], station[1][j], station[2][j] == 1));
+        legacyReports.add(new Report(station[0][j], station[1][j], station[2][j] == 1));
+      }
+      assertEquals(expected, App.computeStationUptime(legacyReports));
+      assertEquals(expected, UptimeStrategy.computeStationUptime(reports));
+      assertEquals(expected, intervals.computeUptime());
+    }
+  }
+
+  @Test
+  public void testLegacyMergeAcrossSignBoundary() {
+    // Signed, the second interval ends after the first and does not overlap it
+    List<Report> reports = new ArrayList<>();
+    reports.add(new Report(Long.MAX_VALUE - 9, Long.MIN_VALUE + 10, true));
+    reports.add(new Report(Long.MAX_VALUE - 4, Long.MAX_VALUE, true));
+    reports.add(new Report(Long.MAX_VALUE - 19, Long.MIN_VALUE + 10, false));
+    assertEquals(66, App.computeStationUptime(reports));
+
+    // Signed, a start above 2^63 is never the earliest
+    reports = new ArrayList<>();
+    reports.add(new Report(-20, -10, true));
+    reports.add(new Report(-30, -20, false));
+    assertEquals(50, App.computeStationUptime(reports));
+  }
+}
@@ -0,0 +1,208 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.UptimeCalculator;
+import main.UptimeCalculator.Result;
+import main.UptimeCalculator.Status;
+
+/**
+ * JUnit test class for the embeddable uptime calculator, checked against the
+ * output of <code>App</code> and for allocations once warmed up.
+ *
+ * @author Kevin Li
+ */
+public class UptimeCalculatorTest {
+  /**
+   * @return what App prints to stdout and stderr for the file, or ERROR and
+   *         null if it throws
+   */
+  private static String[] runApp(String fileName) {
+    PrintStream out = System.out, err = System.err;
+    ByteArrayOutputStream outBytes = new ByteArrayOutputStream(), errBytes = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(outBytes));
+    System.setErr(new PrintStream(errBytes));
+    try {
+      App.main(new String[] { fileName });
+    } catch (RuntimeException e) {
+      return new String[] { "ERROR\n", null }; // e.g. a Stations section at the end of the file
+    } finally {
+      System.setOut(out);
+      System.setErr(err);
+    }
+    return new String[] { outBytes.toString(), errBytes.toString() };
+  }
+
+  private static String format(Result result) {
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < result.getStationCount(); i++)
+      output.append(Integer.toUnsignedString(result.getStationId(i))).append(' ').append(result.getUptime(i))
+          .append('\n');
+    return output.toString();
+  }
+
+  /** Create an input file of random stations and reports. */
+  private static byte[] createInput(Random random, int stationCount, int reportsPerStation) {
+    StringBuilder input = new StringBuilder("[Stations]\n");
+    for (int station = 0; station < stationCount; station++)
+      input.append(station * 7 + (1L << 31)).append(' ').append(station * 2 + 1000).append(' ')
+          .append(station * 2 + 1001).append('\n');
+    input.append(stationCount * 7 + (1L << 31)).append("\n\n[Charger Availability Reports]\n");
+    for (int i = 0; i < stationCount * reportsPerStation; i++) {
+      long start = (1L << 62) + random.nextInt(1 << 30);
+      input.append(random.nextInt(stationCount * 2) + 1000).append(' ').append(start).append(' ')
+          .append(start + random.nextInt(1 << 24)).append(random.nextInt(4) == 0 ? " false\n" : " true\n");
+    }
+    return input.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void testMatchesAppOnEveryTestFile() {
+    String directory = new AppTest().getRelativeFilePath("");
+    assertDoesNotThrow(() -> {
+      List<Path> files;
+      try (Stream<Path> paths = Files.list(Paths.get(directory))) {
+        files = paths.filter(path -> path.toString().endsWith(".txt")).sorted().collect(Collectors.toList());
+      }
+      assertTrue(files.size() > 10);
+      UptimeCalculator calculator = new UptimeCalculator();
+      for (Path file : files) {
+        String[] expected = runApp(file.toString());
+        Result result = calculator.calculate(ByteBuffer.wrap(Files.readAllBytes(file)));
+        if (expected[0].equals("ERROR\n")) {
+          assertNotEquals(Status.OK, result.getStatus(), file.toString());
+          if (expected[1] != null)
+            assertEquals(expected[1].trim(), result.getStatus().getMessage(), file.toString());
+          assertTrue(result.getErrorLine() > 0, file.toString());
+        } else {
+          assertEquals(Status.OK, result.getStatus(), file.toString());
+          assertEquals(expected[0], format(result), file.toString());
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testMatchesAppOnRandomInput() {
+    assertDoesNotThrow(() -> {
+      Path file = Files.createTempFile("calculator", ".txt");
+      byte[] input = createInput(new Random(41), 300, 40);
+      Files.write(file, input);
+      String[] expected = runApp(file.toString());
+      Files.delete(file);
+
+      // Same results from a direct buffer, after reuse on other inputs
+      UptimeCalculator calculator = new UptimeCalculator();
+      calculator.calculate(ByteBuffer.wrap(createInput(new Random(42), 500, 10)));
+      calculator.calculate(ByteBuffer.wrap("[Stations]\n".getBytes(StandardCharsets.US_ASCII)));
+      ByteBuffer direct = ByteBuffer.allocateDirect(input.length + 3);
+      direct.put(new byte[] { 'x', 'y' }).put(input).put((byte) 'z').flip().position(2).limit(input.length + 2);
+      Result result = calculator.calculate(direct);
+      assertEquals(Status.OK, result.getStatus());
+      assertEquals(expected[0], format(result));
+      assertEquals(2, direct.position());
+    });
+  }
+
+  @Test
+  public void testErrorLinesAndLineEndings() {
+    UptimeCalculator calculator = new UptimeCalculator();
+    String stations = "[Stations]\r\n0 1001 1002\r\n1\r\n\r\n[Charger Availability Reports]\r\n";
+    Result result = calculator.calculate(ByteBuffer.wrap(
+        (stations + "1001 0 100 true\r\n1002 50 200 false\r1001 200 300 true").getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(Status.OK, result.getStatus());
+    assertEquals("0 66\n1 0\n", format(result));
+
+    result = calculator.calculate(ByteBuffer.wrap((stations + "1001 0 100 true\n1003 0 1 true\n")
+        .getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(Status.UNKNOWN_CHARGER, result.getStatus());
+    assertEquals(7, result.getErrorLine());
+    assertEquals(0, result.getStationCount());
+
+    result = calculator.calculate(ByteBuffer.wrap((stations + "1001 0 18446744073709551616 true\n")
+        .getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(Status.INVALID_TIME, result.getStatus());
+    result = calculator.calculate(ByteBuffer.wrap("[Stations]\n0 4294967296\n".getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(Status.INVALID_STATION_ID, result.getStatus());
+    assertEquals(2, result.getErrorLine());
+    result = calculator.calculate(ByteBuffer.wrap("[Stations]\n0 +1001 \n\n[Charger Availability Reports]\n1001 0 1 true"
+        .getBytes(StandardCharsets.US_ASCII)));
+    assertEquals("0 100\n", format(result));
+  }
+
+  @Test
+  public void testPrimitiveArrays() {
+    UptimeCalculator calculator = new UptimeCalculator();
+    calculator.addCharger(-1, 1001); // station 4294967295
+    calculator.addCharger(5, 1002);
+    calculator.addStation(7);
+    assertEquals(Status.OK, calculator.addReports(new int[] { 1001, 1002, 1001 }, new long[] { 0, 0, 100 },
+        new long[] { 50, 100, 200 }, new boolean[] { true, true, false }, 3));
+    assertEquals(Status.UNKNOWN_CHARGER, calculator.addReport(1003, 0, 1, true));
+    assertEquals("5 100\n7 0\n4294967295 25\n", format(calculator.compute()));
+
+    // Reports accumulate until cleared, the stations stay
+    calculator.addReport(1001, 50, 200, true);
+    assertEquals("5 100\n7 0\n4294967295 100\n", format(calculator.compute()));
+    calculator.clearReports();
+    calculator.addReport(1002, 0, 10, false);
+    assertEquals("5 0\n7 0\n", format(calculator.compute()));
+    calculator.reset();
+    assertEquals(0, calculator.compute().getStationCount());
+  }
+
+  @Test
+  public void testNoAllocationOnceWarmedUp() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    threads.getThreadAllocatedBytes(threadId); // load what it needs up front
+
+    byte[] bytes = createInput(new Random(41), 200, 50);
+    ByteBuffer heap = ByteBuffer.wrap(bytes);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    int[] chargerIds = new int[10000];
+    long[] startTimes = new long[10000], endTimes = new long[10000];
+    boolean[] ups = new boolean[10000];
+    Random random = new Random(41);
+    for (int i = 0; i < chargerIds.length; i++) {
+      chargerIds[i] = 1000 + random.nextInt(400);
+      startTimes[i] = random.nextInt(1 << 30);
+      endTimes[i] = startTimes[i] + random.nextInt(1 << 20);
+      ups[i] = random.nextBoolean();
+    }
+
+    UptimeCalculator calculator = new UptimeCalculator();
+    long checksum = 0, before = 0;
+    for (int run = -200; run < 100; run++) {
+      if (run == 0)
+        before = threads.getThreadAllocatedBytes(threadId); // warmed up
+      checksum += calculator.calculate(heap).getUptime(0);
+      checksum += calculator.calculate(direct).getUptime(1);
+      calculator.clearReports();
+      calculator.addReports(chargerIds, startTimes, endTimes, ups, chargerIds.length);
+      checksum += calculator.compute().getUptime(2);
+    }
+    long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+    assertNotEquals(0, checksum);
+    assertEquals(0, allocated, "bytes allocated over 100 warmed-up runs");
+  }
+}
@@ -0,0 +1,127 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import main.App;
+import main.App.Report;
+import main.ProfileReport;
+import main.ReportList;
+import main.UptimeProfiler;
+import main.UptimeStrategy;
+
+/**
+ * JUnit test class for the Flight Recorder events of a profiled run and the
+ * report summarizing them.
+ *
+ * @author Kevin Li
+ */
+public class UptimeProfilerTest {
+  private static List<RecordedEvent> readEvents(Path recording, String name) throws Exception {
+    List<RecordedEvent> output = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+      if (event.getEventType().getName().equals(name))
+        output.add(event);
+    }
+    return output;
+  }
+
+  @Test
+  public void testStationEventsDescribeEachStation() {
+    assertDoesNotThrow(() -> {
+      Path recording = Files.createTempFile("profile", ".jfr");
+      try {
+        // Stations for several strategies, with IDs from 4294967295 down
+        Random random = new Random(49);
+        HashMap<Integer, List<Report>> stations = new HashMap<>();
+        for (int station = 0; station < 6; station++) {
+          ReportList reports = new ReportList();
+          int count = station == 0 ? 1 : 200 * station;
+          long time = 0;
+          for (int i = 0; i < count; i++) {
+            // In order, or interleaved chargers each in order
+            long start = station % 2 == 0 ? time : (i % (station + 1)) * 1000000L + time;
+            reports.addFromCharger(i % (station + 1), new Report(start, start + random.nextInt(100), i % 5 != 0));
+            time += 50;
+          }
+          stations.put(-1 - station, reports);
+        }
+
+        UptimeProfiler profiler = UptimeProfiler.start(recording, 0);
+        assertNotNull(profiler);
+        HashMap<Integer, String> strategies = new HashMap<>();
+        HashMap<Integer, Integer> mergedCounts = new HashMap<>();
+        for (Integer stationId : stations.keySet()) {
+          List<Report> reports = stations.get(stationId);
+          strategies.put(stationId, UptimeStrategy.choose(reports).name());
+          mergedCounts.put(stationId, App.mergeUptimeIntervals(reports).length / 2);
+          UptimeStrategy.computeStationUptime(reports, stationId, null);
+        }
+        assertTrue(profiler.stop());
+
+        List<RecordedEvent> events = readEvents(recording, "main.StationUptime");
+        assertEquals(stations.size(), events.size());
+        for (RecordedEvent event : events) {
+          int stationId = event.getInt("stationId");
+          assertEquals(strategies.get(stationId), event.getString("strategy"));
+          assertEquals(mergedCounts.get(stationId).intValue(), event.getInt("mergedIntervalCount"));
+          assertEquals(stationId == -1 ? 1 : 200 * (-1 - stationId), event.getInt("reportCount"));
+          assertTrue(event.getLong("sortTime") <= event.getDuration().toNanos());
+        }
+        assertTrue(strategies.containsValue("CHARGER_MERGE") && strategies.containsValue("RUN_MERGE"),
+            strategies.toString());
+      } finally {
+        Files.delete(recording);
+      }
+    });
+  }
+
+  @Test
+  public void testAppRecordsPhases() {
+    assertDoesNotThrow(() -> {
+      Path recording = Files.createTempFile("profile", ".jfr");
+      PrintStream out = System.out;
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try {
+        System.setOut(new PrintStream(output, true));
+        App.main(new String[] { new AppTest().getRelativeFilePath("file_with_valid_ids.txt"),
+            "--profile=" + recording, "--profile-threshold=1000" });
+        System.setOut(out);
+        assertTrue(output.toString().length() > 0);
+        assertTrue(!output.toString().contains("ERROR"));
+
+        List<String> phases = new ArrayList<>();
+        for (RecordedEvent event : readEvents(recording, "main.Phase"))
+          phases.add(event.getString("phase"));
+        assertTrue(phases.containsAll(List.of("stations", "reports", "uptimes")), phases.toString());
+        String report = ProfileReport.summarize(recording, 5);
+        assertTrue(report.startsWith("Phases:\n  stations"), report);
+        assertTrue(report.contains("Stations over the threshold: 0,"), report);
+
+        output.reset();
+        System.setOut(new PrintStream(output, true));
+        App.main(new String[] { new AppTest().getRelativeFilePath("file_with_valid_ids.txt"),
+            "--profile-threshold=5" });
+        assertEquals("ERROR\n", output.toString());
+      } finally {
+        System.setOut(out);
+        Files.delete(recording);
+      }
+    });
+  }
+}
@@ -0,0 +1,152 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.UptimeRollup;
+
+/**
+ * JUnit test class for time-bucketed uptime rollups.
+ *
+ * @author Kevin Li
+ */
+public class UptimeRollupTest {
+  // App.mergeUptimeIntervals(List<Report>)
+
+  @Test
+  public void testMergeUptimeIntervalsMergesOverlappingUptimeAndKeepsList() {
+    List<Report> reportList = new ArrayList<>(4);
+    reportList.add(new Report(6, 10, true));
+    reportList.add(new Report(0, 7, true));
+    reportList.add(new Report(12, 15, true));
+    reportList.add(new Report(10, 12, false));
+    long[] output = App.mergeUptimeIntervals(reportList);
+    assertArrayEquals(new long[] { 0, 10, 12, 15 }, output);
+    assertEquals(4, reportList.size());
+  }
+
+  @Test
+  public void testMergeUptimeIntervalsHandlesLargeUnsignedLongTimes() {
+    List<Report> reportList = new ArrayList<>(2);
+    reportList.add(new Report(0, Long.MIN_VALUE + 5, true));
+    reportList.add(new Report(Long.MIN_VALUE, Long.MIN_VALUE + 2, true));
+    long[] output = App.mergeUptimeIntervals(reportList);
+    assertArrayEquals(new long[] { 0, Long.MIN_VALUE + 5 }, output);
+  }
+
+  // UptimeRollup
+
+  @Test
+  public void testComputeSplitsIntervalsAtBucketBoundaries() {
+    List<Report> reportList = new ArrayList<>(3);
+    reportList.add(new Report(5, 25, true));
+    reportList.add(new Report(25, 32, false));
+    reportList.add(new Report(38, 41, true));
+    UptimeRollup rollup = UptimeRollup.compute(reportList, 10);
+    assertEquals(5, rollup.getBucketCount());
+    assertEquals(0, rollup.getBucketStart(0));
+    assertEquals(5, rollup.getCoveredTime(0));
+    assertEquals(10, rollup.getCoveredTime(1));
+    assertEquals(5, rollup.getCoveredTime(2));
+    assertEquals(2, rollup.getCoveredTime(3));
+    assertEquals(1, rollup.getCoveredTime(4));
+
+    // The first and last buckets are only partially reported
+    assertEquals(5, rollup.getReportedTime(0));
+    assertEquals(1, rollup.getReportedTime(4));
+    assertEquals(100, rollup.getUptime(0));
+    assertEquals(50, rollup.getUptime(2));
+    assertEquals(20, rollup.getUptime(3));
+    assertEquals(100, rollup.getUptime(4));
+  }
+
+  @Test
+  public void testCoveredTimesSumToStationUptime() {
+    List<Report> reportList = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      long start = (i * 7919L) % 10000;
+      reportList.add(new Report(start, start + 1 + (i * 31) % 97, i % 4 != 0));
+    }
+    long[] merged = App.mergeUptimeIntervals(reportList);
+    long uptime = 0;
+    for (int i = 0; i < merged.length; i += 2)
+      uptime += merged[i + 1] - merged[i];
+
+    UptimeRollup rollup = UptimeRollup.compute(reportList, 64);
+    long covered = 0, reported = 0;
+    for (int i = 0; i < rollup.getBucketCount(); i++) {
+      covered += rollup.getCoveredTime(i);
+      reported += rollup.getReportedTime(i);
+    }
+    assertEquals(uptime, covered);
+    int totalUptime = App.computeUptimePercentage(covered, reported);
+    assertEquals(App.computeStationUptime(reportList), totalUptime);
+  }
+
+  @Test
+  public void testCoarsenSumsAlignedBuckets() {
+    List<Report> reportList = new ArrayList<>(1);
+    long hour = UptimeRollup.NANOS_PER_HOUR;
+    reportList.add(new Report(23 * hour, 26 * hour, true));
+    UptimeRollup hourly = UptimeRollup.compute(reportList, hour);
+    assertEquals(3, hourly.getBucketCount());
+
+    UptimeRollup daily = hourly.coarsen(24);
+    assertEquals(2, daily.getBucketCount());
+    assertEquals(0, daily.getBucketStart(0));
+    assertEquals(hour, daily.getCoveredTime(0));
+    assertEquals(2 * hour, daily.getCoveredTime(1));
+
+    UptimeRollup direct = UptimeRollup.compute(reportList, UptimeRollup.NANOS_PER_DAY);
+    assertEquals(direct.getBucketCount(), daily.getBucketCount());
+    for (int i = 0; i < direct.getBucketCount(); i++)
+      assertEquals(direct.getCoveredTime(i), daily.getCoveredTime(i));
+  }
+
+  @Test
+  public void testCoarsenRejectsOverflowingWidthAndHandlesLargeFactors() {
+    List<Report> reportList = new ArrayList<>(1);
+    reportList.add(new Report(0, UptimeRollup.NANOS_PER_DAY, true));
+    UptimeRollup daily = UptimeRollup.compute(reportList, UptimeRollup.NANOS_PER_DAY);
+    assertThrows(IllegalArgumentException.class, () -> daily.coarsen(200_000));
+    assertThrows(IllegalArgumentException.class,
+        () -> UptimeRollup.compute(new ArrayList<>(0), Long.MAX_VALUE / 2).coarsen(3));
+
+    // Buckets just before a coarse boundary, whose offset plus the factor
+    // overflows an int
+    long boundary = Integer.MAX_VALUE;
+    reportList.set(0, new Report(boundary - 2, boundary + 3, true));
+    UptimeRollup coarse = UptimeRollup.compute(reportList, 1).coarsen(Integer.MAX_VALUE);
+    assertEquals(2, coarse.getBucketCount());
+    assertEquals(0, coarse.getBucketStart(0));
+    assertEquals(boundary, coarse.getBucketStart(1));
+    assertEquals(2, coarse.getCoveredTime(0));
+    assertEquals(3, coarse.getCoveredTime(1));
+  }
+
+  @Test
+  public void testComputeHandlesEndNearMaximumUnsignedLong() {
+    List<Report> reportList = new ArrayList<>(1);
+    reportList.add(new Report(-25, -1, true));
+    UptimeRollup rollup = UptimeRollup.compute(reportList, 16);
+    long covered = 0;
+    for (int i = 0; i < rollup.getBucketCount(); i++)
+      covered += rollup.getCoveredTime(i);
+    assertEquals(24, covered);
+    assertEquals(100, rollup.getUptime(rollup.getBucketCount() - 1));
+  }
+
+  @Test
+  public void testComputeReturnsNoBucketsOnEmptyList() {
+    UptimeRollup rollup = UptimeRollup.compute(new ArrayList<>(0), 10);
+    assertEquals(0, rollup.getBucketCount());
+  }
+}
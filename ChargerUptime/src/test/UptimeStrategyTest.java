@@ -0,0 +1,208 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.App;
+import main.App.Report;
+import main.ReportList;
+import main.StationIntervals;
+import main.UptimeStrategy;
+
+/**
+ * JUnit test class for the adaptive uptime strategies and the report lists
+ * that gather their statistics.
+ *
+ * @author Kevin Li
+ */
+public class UptimeStrategyTest {
+  // ReportList
+
+  @Test
+  public void testReportListCountsUptimeReportsAndRuns() {
+    ReportList reportList = new ReportList();
+    reportList.add(new Report(0, 10, true));
+    reportList.add(new Report(5, 6, false));
+    reportList.add(new Report(10, 20, true));
+    reportList.add(new Report(2, 3, true));
+    reportList.add(new Report(2, 4, true));
+    assertTrue(reportList.hasStats());
+    assertEquals(4, reportList.getUpCount());
+    assertEquals(2, reportList.getUpRunCount());
+
+    reportList.remove(0);
+    assertFalse(reportList.hasStats());
+  }
+
+  @Test
+  public void testReportListTracksChargerRuns() {
+    ReportList reportList = new ReportList();
+    reportList.addFromCharger(1, new Report(0, 10, true));
+    reportList.addFromCharger(2, new Report(5, 6, true));
+    reportList.addFromCharger(1, new Report(10, 20, true));
+    reportList.addFromCharger(2, new Report(1, 2, false));
+    reportList.addFromCharger(2, new Report(6, 8, true));
+    assertTrue(reportList.hasChargerStats());
+    assertEquals(2, reportList.getChargerCount());
+    assertEquals(0, reportList.getChargerDescentCount());
+    assertEquals(2, reportList.getUpRunCount());
+
+    // Enough chargers to look them up in a map, the last 6 going back in time
+    for (int i = 0; i < 16; i++)
+      reportList.addFromCharger(i % 10, new Report(100 - i, 200, true));
+    assertTrue(10 > ReportList.CHARGER_MAP_THRESHOLD);
+    assertEquals(10, reportList.getChargerCount());
+    assertEquals(6, reportList.getChargerDescentCount());
+
+    reportList.add(new Report(0, 1, true));
+    assertTrue(reportList.hasStats());
+    assertFalse(reportList.hasChargerStats());
+  }
+
+  // UptimeStrategy.choose
+
+  @Test
+  public void testChooseByUpCountAndRunCount() {
+    assertEquals(UptimeStrategy.NO_UPTIME, UptimeStrategy.choose(0, 0));
+    assertEquals(UptimeStrategy.SINGLE_UPTIME, UptimeStrategy.choose(1, 1));
+    assertEquals(UptimeStrategy.RUN_MERGE, UptimeStrategy.choose(2, 1));
+    assertEquals(UptimeStrategy.RUN_MERGE, UptimeStrategy.choose(1000, 3));
+    assertEquals(UptimeStrategy.QUICKSORT, UptimeStrategy.choose(10, 5));
+    assertEquals(UptimeStrategy.RADIX_SORT,
+        UptimeStrategy.choose(UptimeStrategy.RADIX_SORT_THRESHOLD, UptimeStrategy.RADIX_SORT_THRESHOLD / 2));
+    assertEquals(UptimeStrategy.CHARGER_MERGE, UptimeStrategy.choose(1000, 500, 8));
+    assertEquals(UptimeStrategy.RADIX_SORT, UptimeStrategy.choose(1000, 500, 0));
+    assertEquals(UptimeStrategy.RADIX_SORT, UptimeStrategy.choose(1000, 500, 64));
+    assertEquals(UptimeStrategy.RUN_MERGE, UptimeStrategy.choose(1000, 3, 8));
+    assertEquals(UptimeStrategy.QUICKSORT, UptimeStrategy.choose(100, 50, 4));
+  }
+
+  @Test
+  public void testChooseGathersStatsForPlainLists() {
+    List<Report> reportList = new ArrayList<>();
+    reportList.add(new Report(0, 100, false));
+    assertEquals(UptimeStrategy.NO_UPTIME, UptimeStrategy.choose(reportList));
+    reportList.add(new Report(20, 30, true));
+    assertEquals(UptimeStrategy.SINGLE_UPTIME, UptimeStrategy.choose(reportList));
+    reportList.add(new Report(10, 20, true));
+    reportList.add(new Report(30, 40, true));
+    assertEquals(UptimeStrategy.QUICKSORT, UptimeStrategy.choose(reportList));
+  }
+
+  // UptimeStrategy.computeStationUptime(List<Report>)
+
+  @Test
+  public void testComputeStationUptimeClearsReportListAndCounts() {
+    UptimeStrategy.resetCounters();
+    ReportList reportList = new ReportList();
+    reportList.add(new Report(0, 7, true));
+    reportList.add(new Report(3, 4, false));
+    reportList.add(new Report(6, 10, false));
+    assertEquals(70, UptimeStrategy.computeStationUptime(reportList));
+    assertTrue(reportList.isEmpty());
+    assertEquals(1, UptimeStrategy.SINGLE_UPTIME.getStations());
+    assertEquals(3, UptimeStrategy.SINGLE_UPTIME.getReports());
+    assertEquals(0, UptimeStrategy.QUICKSORT.getStations());
+  }
+
+  @Test
+  public void testEveryStrategyMatchesComputeStationUptimeOnRandomReports() {
+    Random random = new Random(34);
+    for (int trial = 0; trial < 200; trial++) {
+      ReportList reportList = new ReportList();
+      int reportCount = 1 + random.nextInt(trial < 100 ? 20 : 500);
+      long time = random.nextInt(1000);
+      for (int i = 0; i < reportCount; i++) {
+        boolean sorted = trial % 3 == 0 && random.nextInt(50) != 0;
+        long start = sorted ? time : random.nextInt(10000);
+        long end = start + 1 + random.nextInt(100);
+        time = end - random.nextInt((int) (end - start));
+        reportList.add(new Report(start, end, random.nextInt(3) != 0));
+      }
+      int expected = App.computeStationUptime(new ArrayList<>(reportList));
+
+      UptimeStrategy chosen = UptimeStrategy.choose(reportList);
+      assertEquals(chosen, UptimeStrategy.choose(new ArrayList<>(reportList)));
+      for (UptimeStrategy strategy : UptimeStrategy.values()) {
+        if ((strategy == UptimeStrategy.NO_UPTIME || strategy == UptimeStrategy.SINGLE_UPTIME) && strategy != chosen)
+          continue; // only applies to stations with at most one uptime report
+        assertEquals(expected, strategy.computeUptime(reportList), strategy.name());
+      }
+    }
+  }
+
+  @Test
+  public void testChargerMergeMatchesComputeStationUptimeOnInterleavedChargers() {
+    Random random = new Random(42);
+    for (int trial = 0; trial < 200; trial++) {
+      int chargerCount = 2 + random.nextInt(trial < 100 ? 4 : UptimeStrategy.CHARGER_MERGE_MAX_CHARGERS - 1);
+      long[] times = new long[chargerCount];
+      for (int charger = 0; charger < chargerCount; charger++)
+        times[charger] = (trial % 2 == 0 ? Long.MAX_VALUE - 5000 : 0) + random.nextInt(5000);
+      ReportList reportList = new ReportList();
+      int reportCount = UptimeStrategy.RADIX_SORT_THRESHOLD * 2 + random.nextInt(trial < 100 ? 100 : 2000);
+      for (int i = 0; i < reportCount; i++) {
+        int charger = random.nextInt(chargerCount);
+        long start = times[charger] + random.nextInt(100);
+        long end = start + 1 + random.nextInt(200);
+        times[charger] = start;
+        reportList.addFromCharger(1000 + charger, new Report(start, end, random.nextInt(4) != 0));
+      }
+      assertEquals(UptimeStrategy.CHARGER_MERGE, UptimeStrategy.choose(reportList));
+      int uptime = UptimeStrategy.CHARGER_MERGE.computeUptime(reportList);
+      assertEquals(App.computeStationUptime(new ArrayList<>(reportList)), uptime);
+    }
+  }
+
+  @Test
+  public void testChargerMergeSortsChargersWidenedOutOfOrder() {
+    // Coalescing widens charger 1's report [30, 40] to [5, 40], before its
+    // report [10, 20], without counting a descent
+    StringBuilder reports = new StringBuilder("[Charger Availability Reports]\n1 10 20 true\n2 0 1 true\n"
+        + "1 30 40 true\n2 2 3 true\n2 50 60 true\n2 70 80 true\n1 5 35 true\n");
+    for (int i = 0; i < UptimeStrategy.RADIX_SORT_THRESHOLD; i++)
+      reports.append(i % 2 + 1).append(' ').append(100 + i * 2 - i % 2 * 3).append(' ').append(101 + i * 2 - i % 2 * 3)
+          .append(" true\n"); // each of charger 2's starts before charger 1's last
+    HashMap<Integer, Integer> stationMap = new HashMap<>();
+    stationMap.put(1, 0);
+    stationMap.put(2, 0);
+    HashMap<Integer, List<Report>> stationReportsMap = App.readChargerAvailabilityReportsSection(
+        new BufferedReader(new StringReader(reports.toString())), stationMap, new ArrayList<>(), true);
+    ReportList reportList = (ReportList) stationReportsMap.get(0);
+    assertEquals(6 + UptimeStrategy.RADIX_SORT_THRESHOLD, reportList.size());
+    assertEquals(0, reportList.getChargerDescentCount());
+    assertEquals(UptimeStrategy.CHARGER_MERGE, UptimeStrategy.choose(reportList));
+    long uptime = 1 + 1 + 35 + 10 + 10 + UptimeStrategy.RADIX_SORT_THRESHOLD;
+    long totalTime = UptimeStrategy.RADIX_SORT_THRESHOLD * 2 + 97;
+    assertEquals(uptime * 100 / totalTime, UptimeStrategy.CHARGER_MERGE.computeUptime(reportList));
+  }
+
+  @Test
+  public void testEveryStrategyHandlesLargeUnsignedLongTimes() {
+    Random random = new Random(35);
+    List<Report> reportList = new ArrayList<>();
+    StationIntervals intervals = new StationIntervals();
+    for (int i = 0; i < 1000; i++) {
+      long start = Long.MAX_VALUE - 5000 + random.nextInt(10000);
+      long end = start + random.nextInt(50);
+      boolean up = random.nextInt(4) != 0;
+      reportList.add(new Report(start, end, up));
+      intervals.add(start, end, up);
+    }
+    int expected = intervals.computeUptime();
+    assertEquals(expected, UptimeStrategy.RUN_MERGE.computeUptime(reportList));
+    assertEquals(expected, UptimeStrategy.QUICKSORT.computeUptime(reportList));
+    assertEquals(expected, UptimeStrategy.RADIX_SORT.computeUptime(reportList));
+    assertEquals(expected, UptimeStrategy.CHARGER_MERGE.computeUptime(reportList));
+  }
+}